@@ -0,0 +1,268 @@
+package com.kokabmedia.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.LedgerEntry;
+
+/*
+ * Read only view of one archive segment file, the file is memory mapped so reading a block
+ * does not copy the file through the Java heap and the operating system page cache decides
+ * what stays in memory.
+ *
+ * Layout of a segment, all numbers big endian:
+ *
+ *   header   magic (int), version (short), account type (UTF)
+ *   blocks   Deflater compressed rows of one account, sorted by date and id
+ *   index    one BlockIndexEntry per block, sorted by account and date
+ *   trailer  index offset (long), block count (int), row count (long), magic (int)
+ *
+ * Only the sparse index is read into memory when a segment is opened.
+ */
+public class ArchiveSegment implements Closeable {
+
+    static final int MAGIC = 0x424B4152; // "BKAR"
+    static final short VERSION = 1;
+
+    private static final int TRAILER_SIZE = 8 + 4 + 8 + 4;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final AccountType accountType;
+    private final BlockIndexEntry[] index;
+    private final long rowCount;
+
+    private ArchiveSegment(Path file, FileChannel channel, MappedByteBuffer buffer, AccountType accountType,
+            BlockIndexEntry[] index, long rowCount) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.accountType = accountType;
+        this.index = index;
+        this.rowCount = rowCount;
+    }
+
+    public static ArchiveSegment open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            ByteBuffer header = buffer.duplicate();
+            if (header.getInt() != MAGIC || header.getShort() != VERSION) {
+                throw new IOException("Not an archive segment: " + file);
+            }
+            AccountType accountType = AccountType.valueOf(readUTF(header));
+
+            ByteBuffer trailer = buffer.duplicate();
+            trailer.position(buffer.capacity() - TRAILER_SIZE);
+            long indexOffset = trailer.getLong();
+            int blockCount = trailer.getInt();
+            long rowCount = trailer.getLong();
+            if (trailer.getInt() != MAGIC) {
+                throw new IOException("Archive segment is incomplete: " + file);
+            }
+
+            ByteBuffer indexBuffer = buffer.duplicate();
+            indexBuffer.position((int) indexOffset);
+            BlockIndexEntry[] index = new BlockIndexEntry[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                index[i] = BlockIndexEntry.read(indexBuffer);
+            }
+
+            return new ArchiveSegment(file, channel, buffer, accountType, index, rowCount);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public AccountType getAccountType() {
+        return accountType;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    // The archived transactions of the account from the first moment up to but not including the last
+    public List<LedgerEntry> read(Long accountId, Date from, Date to) throws IOException {
+        List<LedgerEntry> entries = new ArrayList<>();
+        long start = from.getTime();
+        long end = to.getTime();
+
+        for (int i = firstBlock(accountId); i < index.length && index[i].accountId == accountId; i++) {
+            BlockIndexEntry block = index[i];
+            if (block.lastTime < start || block.firstTime >= end) {
+                continue;
+            }
+            for (LedgerEntry entry : readBlock(block)) {
+                if (entry.getTime() >= start && entry.getTime() < end) {
+                    entries.add(entry);
+                }
+            }
+        }
+        return entries;
+    }
+
+    public int getBlockCount() {
+        return index.length;
+    }
+
+    // The archived transactions of one block, blocks are numbered from 0 in index order
+    public List<LedgerEntry> readBlock(int block) throws IOException {
+        return readBlock(index[block]);
+    }
+
+    // The last archived transaction of the account before the moment, null when there is none
+    public LedgerEntry lastBefore(Long accountId, Date before) throws IOException {
+        LedgerEntry last = null;
+        for (int i = firstBlock(accountId); i < index.length && index[i].accountId == accountId; i++) {
+            BlockIndexEntry block = index[i];
+            if (block.firstTime >= before.getTime()) {
+                break;
+            }
+            for (LedgerEntry entry : readBlock(block)) {
+                if (entry.getTime() < before.getTime()) {
+                    last = entry;
+                }
+            }
+        }
+        return last;
+    }
+
+    /*
+     * Checks the CRC32 of every block and the row count of the trailer, returns the number of
+     * blocks that are damaged.
+     */
+    public int verifyBlocks() {
+        int damaged = 0;
+        long rows = 0;
+        for (BlockIndexEntry block : index) {
+            if (crc(block) != block.crc) {
+                damaged++;
+            }
+            rows += block.rowCount;
+        }
+        return rows == rowCount ? damaged : damaged + 1;
+    }
+
+    // The SHA-256 of the whole file in hex, compared with the checksum file of the segment
+    public String sha256() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(buffer.duplicate());
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Binary search for the first block of the account, the index is sorted by account
+    private int firstBlock(long accountId) {
+        int low = 0;
+        int high = index.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (index[middle].accountId < accountId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int crc(BlockIndexEntry block) {
+        CRC32 crc = new CRC32();
+        crc.update(slice(block));
+        return (int) crc.getValue();
+    }
+
+    private List<LedgerEntry> readBlock(BlockIndexEntry block) throws IOException {
+        ByteBuffer compressed = slice(block);
+        CRC32 crc = new CRC32();
+        crc.update(compressed.duplicate());
+        if ((int) crc.getValue() != block.crc) {
+            throw new IOException("Checksum mismatch in archive segment " + file + " at offset " + block.offset);
+        }
+
+        byte[] uncompressed = new byte[block.uncompressedLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < uncompressed.length && !inflater.finished()) {
+                length += inflater.inflate(uncompressed, length, uncompressed.length - length);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Damaged block in archive segment " + file, e);
+        } finally {
+            inflater.end();
+        }
+
+        List<LedgerEntry> entries = new ArrayList<>(block.rowCount);
+        DataInputStream rows = new DataInputStream(new ByteArrayInputStream(uncompressed));
+        for (int i = 0; i < block.rowCount; i++) {
+            long id = rows.readLong();
+            long time = rows.readLong();
+            double amount = rows.readDouble();
+            String balance = readNullable(rows);
+            String description = readNullable(rows);
+            String type = readNullable(rows);
+            String status = readNullable(rows);
+            entries.add(new LedgerEntry(accountType, block.accountId, id, new Date(time), description, type, status, amount,
+                    balance == null ? null : new BigDecimal(balance)));
+        }
+        return entries;
+    }
+
+    private ByteBuffer slice(BlockIndexEntry block) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position((int) block.offset);
+        slice.limit((int) block.offset + block.compressedLength);
+        return slice.slice();
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // Reads a string written by DataOutputStream.writeUTF, the header only holds an ASCII enum name
+    private static String readUTF(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,142 @@
+package com.kokabmedia.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.LedgerEntry;
+
+/*
+ * Writes the archived transactions of one account type into a segment file. The rows have
+ * to be appended sorted by account, date and id. They are grouped into blocks of at most
+ * rowsPerBlock rows of a single account, every block is compressed with Deflater and gets a
+ * CRC32 checksum.
+ *
+ * The file ends with a sparse index that has one entry per block (account, first and last
+ * date, position, checksum), so a reader only decompresses the blocks of the account and
+ * date range it asks for. See ArchiveSegment for the layout.
+ */
+public class ArchiveSegmentWriter implements Closeable {
+
+    private final DataOutputStream out;
+    private final int rowsPerBlock;
+    private final List<BlockIndexEntry> index = new ArrayList<>();
+    private final List<LedgerEntry> block = new ArrayList<>();
+    private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+
+    private long rowCount;
+    private LedgerEntry previous;
+
+    public ArchiveSegmentWriter(Path file, AccountType accountType, int rowsPerBlock) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile()), 1 << 16));
+        this.rowsPerBlock = rowsPerBlock;
+
+        out.writeInt(ArchiveSegment.MAGIC);
+        out.writeShort(ArchiveSegment.VERSION);
+        out.writeUTF(accountType.name());
+    }
+
+    public void append(LedgerEntry entry) throws IOException {
+        if (previous != null && compare(previous, entry) > 0) {
+            throw new IllegalArgumentException("Archived transactions must be sorted by account, date and id");
+        }
+        if (!block.isEmpty() && (block.size() == rowsPerBlock || !block.get(0).getAccountId().equals(entry.getAccountId()))) {
+            writeBlock();
+        }
+        block.add(entry);
+        previous = entry;
+        rowCount++;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    // Writes the last block, the index and the trailer
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!block.isEmpty()) {
+                writeBlock();
+            }
+            long indexOffset = out.size();
+            for (BlockIndexEntry entry : index) {
+                entry.write(out);
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(index.size());
+            out.writeLong(rowCount);
+            out.writeInt(ArchiveSegment.MAGIC);
+            out.flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        DataOutputStream rows = new DataOutputStream(raw);
+        for (LedgerEntry entry : block) {
+            rows.writeLong(entry.getId());
+            rows.writeLong(entry.getTime());
+            rows.writeDouble(entry.getAmount());
+            writeNullable(rows, entry.getAvailableBalance() == null ? null : entry.getAvailableBalance().toPlainString());
+            writeNullable(rows, entry.getDescription());
+            writeNullable(rows, entry.getType());
+            writeNullable(rows, entry.getStatus());
+        }
+        byte[] uncompressed = raw.toByteArray();
+        byte[] compressed = compress(uncompressed);
+
+        CRC32 crc = new CRC32();
+        crc.update(compressed);
+
+        LedgerEntry first = block.get(0);
+        LedgerEntry last = block.get(block.size() - 1);
+        index.add(new BlockIndexEntry(first.getAccountId(), first.getTime(), last.getTime(), out.size(),
+                compressed.length, uncompressed.length, block.size(), (int) crc.getValue()));
+
+        out.write(compressed);
+        block.clear();
+    }
+
+    private byte[] compress(byte[] uncompressed) {
+        deflater.reset();
+        deflater.setInput(uncompressed);
+        deflater.finish();
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, uncompressed.length / 4));
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            compressed.write(buffer, 0, length);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static int compare(LedgerEntry a, LedgerEntry b) {
+        int byAccount = a.getAccountId().compareTo(b.getAccountId());
+        if (byAccount != 0) {
+            return byAccount;
+        }
+        int byDate = Long.compare(a.getTime(), b.getTime());
+        return byDate != 0 ? byDate : a.getId().compareTo(b.getId());
+    }
+}
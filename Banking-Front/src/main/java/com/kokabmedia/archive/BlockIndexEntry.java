@@ -0,0 +1,48 @@
+package com.kokabmedia.archive;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// One entry of the sparse index at the end of a segment file, it describes one block
+final class BlockIndexEntry {
+
+    static final int SIZE = 8 + 8 + 8 + 8 + 4 + 4 + 4 + 4;
+
+    final long accountId;
+    final long firstTime;
+    final long lastTime;
+    final long offset;
+    final int compressedLength;
+    final int uncompressedLength;
+    final int rowCount;
+    final int crc;
+
+    BlockIndexEntry(long accountId, long firstTime, long lastTime, long offset, int compressedLength,
+            int uncompressedLength, int rowCount, int crc) {
+        this.accountId = accountId;
+        this.firstTime = firstTime;
+        this.lastTime = lastTime;
+        this.offset = offset;
+        this.compressedLength = compressedLength;
+        this.uncompressedLength = uncompressedLength;
+        this.rowCount = rowCount;
+        this.crc = crc;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeLong(accountId);
+        out.writeLong(firstTime);
+        out.writeLong(lastTime);
+        out.writeLong(offset);
+        out.writeInt(compressedLength);
+        out.writeInt(uncompressedLength);
+        out.writeInt(rowCount);
+        out.writeInt(crc);
+    }
+
+    static BlockIndexEntry read(ByteBuffer in) {
+        return new BlockIndexEntry(in.getLong(), in.getLong(), in.getLong(), in.getLong(), in.getInt(), in.getInt(),
+                in.getInt(), in.getInt());
+    }
+}
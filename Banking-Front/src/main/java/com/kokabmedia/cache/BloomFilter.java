@@ -0,0 +1,82 @@
+package com.kokabmedia.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * A Bloom filter of strings: a bit array and a few hash functions. A string that was put
+ * in the filter is always reported as maybe contained, a string that was never put is
+ * reported as not contained except for a small false positive rate. The filter never
+ * forgets a string, a removed value stays a (harmless) false positive.
+ *
+ * The bits are kept in an AtomicLongArray so strings can be put while other threads read
+ * the filter, without a lock.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashFunctions;
+
+    /*
+     * Sizes the filter for the expected number of strings and the wanted false positive
+     * rate, more strings than expected only raise the false positive rate.
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter size " + expectedInsertions + " / " + falsePositiveRate);
+        }
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE, (bits + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = wordCount * 64L;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    public void put(String value) {
+        long hash = StringHash.hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashFunctions; i++) {
+            setBit(index(h1 + i * h2));
+        }
+    }
+
+    // False means the string was definitely never put in the filter
+    public boolean mightContain(String value) {
+        long hash = StringHash.hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashFunctions; i++) {
+            long bit = index(h1 + i * h2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    private long index(int combinedHash) {
+        // Flip a negative hash instead of taking its absolute value, which overflows for MIN_VALUE
+        return (combinedHash < 0 ? ~combinedHash : combinedHash) % bitCount;
+    }
+
+    private void setBit(long bit) {
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long current;
+        do {
+            current = words.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!words.compareAndSet(word, current, current | mask));
+    }
+}
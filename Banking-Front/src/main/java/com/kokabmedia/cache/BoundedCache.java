@@ -0,0 +1,185 @@
+package com.kokabmedia.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/*
+ * A small size bounded in memory cache with least recently used eviction and an optional
+ * time to live. The caches in this application are all keyed by a user or an account, so
+ * the bound keeps their memory use flat no matter how many customers are active.
+ *
+ * Entries expire either a fixed time after they were written, or a fixed time after they
+ * were last read (expireAfterAccess), which evicts idle users or accounts.
+ */
+public class BoundedCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final boolean expireAfterAccess;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private BoundedCache(int maxEntries, long ttlMillis, boolean expireAfterAccess) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.expireAfterAccess = expireAfterAccess;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                boolean evict = size() > BoundedCache.this.maxEntries;
+                if (evict) {
+                    evictions.incrementAndGet();
+                }
+                return evict;
+            }
+        };
+    }
+
+    // Least recently used eviction only, entries never expire
+    public static <K, V> BoundedCache<K, V> lru(int maxEntries) {
+        return new BoundedCache<>(maxEntries, 0, false);
+    }
+
+    public static <K, V> BoundedCache<K, V> expireAfterWrite(int maxEntries, long ttlMillis) {
+        return new BoundedCache<>(maxEntries, ttlMillis, false);
+    }
+
+    public static <K, V> BoundedCache<K, V> expireAfterAccess(int maxEntries, long ttlMillis) {
+        return new BoundedCache<>(maxEntries, ttlMillis, true);
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        long now = System.currentTimeMillis();
+        if (entry == null || entry.isExpired(now)) {
+            if (entry != null) {
+                entries.remove(key);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        if (expireAfterAccess) {
+            entry.touch(now, ttlMillis);
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, expiry(System.currentTimeMillis())));
+    }
+
+    // Stores the value unless a live value is cached already, returns the cached value or null
+    public synchronized V putIfAbsent(K key, V value) {
+        Entry<V> entry = entries.get(key);
+        long now = System.currentTimeMillis();
+        if (entry != null && !entry.isExpired(now)) {
+            return entry.value;
+        }
+        entries.put(key, new Entry<>(value, expiry(now)));
+        return null;
+    }
+
+    /*
+     * Returns the cached value or loads it. The loader runs outside of the lock so a slow
+     * database read does not block the other keys, two threads may load the same key at
+     * the same time and the last one wins.
+     */
+    public V getOrLoad(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    // Drops the entry only while it still holds this value, a newer value of the key is kept
+    public synchronized void invalidate(K key, V value) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.value == value) {
+            entries.remove(key);
+        }
+    }
+
+    public synchronized void invalidateIf(Predicate<? super K> predicate) {
+        Iterator<K> keys = entries.keySet().iterator();
+        while (keys.hasNext()) {
+            if (predicate.test(keys.next())) {
+                keys.remove();
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    // Removes the expired entries, expired entries are otherwise only dropped when they are read
+    public synchronized int evictExpired() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        Iterator<Entry<V>> values = entries.values().iterator();
+        while (values.hasNext()) {
+            if (values.next().isExpired(now)) {
+                values.remove();
+                removed++;
+            }
+        }
+        evictions.addAndGet(removed);
+        return removed;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    private long expiry(long now) {
+        return ttlMillis > 0 ? now + ttlMillis : Long.MAX_VALUE;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+
+        void touch(long now, long ttlMillis) {
+            expiresAt = now + ttlMillis;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.kokabmedia.cache;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/*
+ * The closing balance of every day with activity of one account from the loadedFrom day up
+ * to and including the loadedThrough day, plus the balance the account had before
+ * loadedFrom. Only days that are over are kept, their closing balance does not change
+ * anymore, so the history is loaded once for the range that was asked for and afterwards
+ * only extended by the days that passed since or by older days that are asked for later.
+ */
+public class DailyBalanceHistory {
+
+    private final NavigableMap<LocalDate, BigDecimal> closes = new TreeMap<>();
+    private LocalDate loadedFrom;
+    private LocalDate loadedThrough;
+    // The balance at the end of the day before loadedFrom
+    private BigDecimal opening = BigDecimal.ZERO;
+
+    public synchronized LocalDate getLoadedFrom() {
+        return loadedFrom;
+    }
+
+    public synchronized LocalDate getLoadedThrough() {
+        return loadedThrough;
+    }
+
+    // Adds the closing balances of the days after loadedThrough up to and including through
+    public synchronized void extend(Map<LocalDate, BigDecimal> dayCloses, LocalDate through) {
+        closes.putAll(dayCloses);
+        loadedThrough = through;
+    }
+
+    /*
+     * Adds the closing balances of the days from the day up to loadedFrom, opening is the
+     * balance at the end of the day before. The first call sets loadedFrom of an empty
+     * history.
+     */
+    public synchronized void extendBack(Map<LocalDate, BigDecimal> dayCloses, LocalDate from, BigDecimal opening) {
+        closes.putAll(dayCloses);
+        loadedFrom = from;
+        this.opening = opening;
+    }
+
+    /*
+     * The closing balance of the last day with activity before the day, the opening balance
+     * when there is none since loadedFrom. The day must not be before loadedFrom.
+     */
+    public synchronized BigDecimal closeBefore(LocalDate day) {
+        Map.Entry<LocalDate, BigDecimal> entry = closes.lowerEntry(day);
+        return entry == null ? opening : entry.getValue();
+    }
+
+    // A copy of the closing balances from the first day up to and including the last day
+    public synchronized NavigableMap<LocalDate, BigDecimal> closes(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            return new TreeMap<>();
+        }
+        return new TreeMap<>(closes.subMap(from, true, to, true));
+    }
+}
@@ -0,0 +1,84 @@
+package com.kokabmedia.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import com.kokabmedia.domain.LedgerEntry;
+
+/*
+ * Fixed size buffer with the most recent transactions of one account, newest first. When
+ * the buffer is full a newer transaction overwrites the oldest one. A transaction that is
+ * already in the buffer is ignored, so the rows from the initial database read and the
+ * rows from commit events can be merged in any order.
+ */
+public class RecentTransactionBuffer {
+
+    private final LedgerEntry[] entries;
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private volatile RuntimeException loadFailure;
+    private int size;
+
+    public RecentTransactionBuffer(int capacity) {
+        this.entries = new LedgerEntry[capacity];
+    }
+
+    public synchronized void add(LedgerEntry entry) {
+        int position = 0;
+        while (position < size && isNewer(entries[position], entry)) {
+            position++;
+        }
+        for (int i = 0; i < size; i++) {
+            if (entries[i].getId().equals(entry.getId())) {
+                return;
+            }
+        }
+        if (position == entries.length) {
+            return; // Older than everything in a full buffer
+        }
+
+        int last = Math.min(size, entries.length - 1);
+        System.arraycopy(entries, position, entries, position + 1, last - position);
+        entries[position] = entry;
+        size = Math.min(size + 1, entries.length);
+    }
+
+    public void addAll(Collection<LedgerEntry> newEntries) {
+        newEntries.forEach(this::add);
+    }
+
+    // The newest entries, at most limit of them, a limit below one gives an empty list
+    public synchronized List<LedgerEntry> snapshot(int limit) {
+        int count = Math.max(0, Math.min(limit, size));
+        List<LedgerEntry> snapshot = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            snapshot.add(entries[i]);
+        }
+        return snapshot;
+    }
+
+    public void markLoaded() {
+        loaded.countDown();
+    }
+
+    // Releases the threads waiting for the load, they get the failure instead of an empty buffer
+    public void markFailed(RuntimeException failure) {
+        loadFailure = failure;
+        loaded.countDown();
+    }
+
+    public void awaitLoaded() throws InterruptedException {
+        loaded.await();
+        if (loadFailure != null) {
+            throw new IllegalStateException("Loading the recent transactions failed", loadFailure);
+        }
+    }
+
+    private static boolean isNewer(LedgerEntry a, LedgerEntry b) {
+        if (a.getTime() != b.getTime()) {
+            return a.getTime() > b.getTime();
+        }
+        return a.getId() > b.getId();
+    }
+}
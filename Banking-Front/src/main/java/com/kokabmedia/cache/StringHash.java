@@ -0,0 +1,29 @@
+package com.kokabmedia.cache;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+ * The 64 bit string hash of the probabilistic structures (the BloomFilter of the signup
+ * and the SlidingWindowCounter of the login throttle). Both split the hash into two 32 bit
+ * halves and derive their bit or slot positions from the two halves, so the final mix step
+ * spreads every input bit over the whole value.
+ */
+public final class StringHash {
+
+    private StringHash() {}
+
+    // 64 bit FNV-1a over the UTF-8 bytes, finished with the mix step of MurmurHash3
+    public static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
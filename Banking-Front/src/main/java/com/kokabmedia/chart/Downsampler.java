@@ -0,0 +1,85 @@
+package com.kokabmedia.chart;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.kokabmedia.domain.BalancePoint;
+
+/*
+ * Reduces a balance series to a fixed number of points for a chart with the Largest
+ * Triangle Three Buckets algorithm (Steinarsson, 2013). The first and the last point are
+ * kept, the points in between are split into buckets and from every bucket the point that
+ * forms the largest triangle with the point chosen from the previous bucket and the
+ * average of the next bucket is kept. Peaks and dips of the balance stay visible, which
+ * is not the case when every n-th point is taken.
+ *
+ * The series is read once from start to end.
+ */
+public final class Downsampler {
+
+    private Downsampler() {}
+
+    public static List<BalancePoint> lttb(List<BalancePoint> series, int points) {
+        if (points >= series.size() || points < 3) {
+            return points < 3 && series.size() > 2 ? endPoints(series) : new ArrayList<>(series);
+        }
+
+        List<BalancePoint> sampled = new ArrayList<>(points);
+        double bucketSize = (double) (series.size() - 2) / (points - 2);
+
+        int selected = 0;
+        sampled.add(series.get(0));
+
+        for (int bucket = 0; bucket < points - 2; bucket++) {
+            int start = (int) Math.floor(bucket * bucketSize) + 1;
+            int end = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+
+            // Average of the next bucket, the last point for the last bucket
+            int nextStart = end;
+            int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, series.size());
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += x(series.get(i));
+                averageY += y(series.get(i));
+            }
+            int nextCount = nextEnd - nextStart;
+            averageX /= nextCount;
+            averageY /= nextCount;
+
+            double selectedX = x(series.get(selected));
+            double selectedY = y(series.get(selected));
+            double largestArea = -1;
+            int largest = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((selectedX - averageX) * (y(series.get(i)) - selectedY)
+                        - (selectedX - x(series.get(i))) * (averageY - selectedY));
+                if (area > largestArea) {
+                    largestArea = area;
+                    largest = i;
+                }
+            }
+
+            sampled.add(series.get(largest));
+            selected = largest;
+        }
+
+        sampled.add(series.get(series.size() - 1));
+        return sampled;
+    }
+
+    private static List<BalancePoint> endPoints(List<BalancePoint> series) {
+        List<BalancePoint> sampled = new ArrayList<>(2);
+        sampled.add(series.get(0));
+        sampled.add(series.get(series.size() - 1));
+        return sampled;
+    }
+
+    private static double x(BalancePoint point) {
+        return point.getDay().toEpochDay();
+    }
+
+    private static double y(BalancePoint point) {
+        return point.getBalance().doubleValue();
+    }
+}
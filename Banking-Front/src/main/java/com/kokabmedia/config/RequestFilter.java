@@ -39,9 +39,11 @@ public class RequestFilter implements Filter {
 
         response.setHeader("Access-Control-Allow-Origin", "http://localhost:4200");
         response.setHeader("Access-Control-Allow-Methods", "POST, PUT, GET, OPTIONS, DELETE");
-        response.setHeader("Access-Control-Allow-Headers", "x-requested-with");
+        response.setHeader("Access-Control-Allow-Headers", "x-requested-with, authorization, content-type");
         response.setHeader("Access-Control-Max-Age", "3600");
         response.setHeader("Access-Control-Allow-Credentials", "true");
+        // Lets the admin client read the cursor of the next page of the user list
+        response.setHeader("Access-Control-Expose-Headers", "X-Next-Cursor");
 
         if (!(request.getMethod().equalsIgnoreCase("OPTIONS"))) {
             try {
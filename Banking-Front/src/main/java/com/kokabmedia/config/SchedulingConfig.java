@@ -0,0 +1,16 @@
+package com.kokabmedia.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/*
+ * Enables the @Scheduled methods of the application, for example the job that prunes
+ * the change log of the delta sync.
+ * 
+ * @Configuration annotation spring indicates that this class has @Bean definition methods,
+ * Spring container can process the class and generate Spring Beans to be used in the application.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,21 +1,40 @@
 package com.kokabmedia.config;
 
 import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
+import com.kokabmedia.security.BoundedPasswordEncoder;
+import com.kokabmedia.security.LoginThrottle;
+import com.kokabmedia.security.ThrottledAuthenticationProvider;
+import com.kokabmedia.security.TokenAuthenticationFilter;
+import com.kokabmedia.service.TokenService;
 import com.kokabmedia.service.UserServiceImpl.UserSecurityService;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
 /*
  * This class handles customised security configurations for both WebSecurity 
  * and HttpSecurit
@@ -56,11 +75,59 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     // SALT used to encrypt the password in the database.
     private static final String SALT = "salt"; // Salt should be protected carefully
 
-    // Method to encrypt password with salt string 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /*
+     * Method to encrypt password with salt string. The BCrypt work runs on a pool with one
+     * thread per core (password-encoder.threads=0) and a bounded queue, so a burst of logins
+     * can not take all the request threads and CPU away from the other pages.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public BoundedPasswordEncoder passwordEncoder() {
+        int threads = env.getProperty("banking.security.password-encoder.threads", Integer.class, 0);
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        BoundedPasswordEncoder passwordEncoder = new BoundedPasswordEncoder(
+                new BCryptPasswordEncoder(12, new SecureRandom(SALT.getBytes())), threads,
+                env.getProperty("banking.security.password-encoder.queue-capacity", Integer.class, 16),
+                env.getProperty("banking.security.password-encoder.timeout-ms", Long.class, 5000L));
+
+        Gauge.builder("banking.security.password-encoder.queued", passwordEncoder, BoundedPasswordEncoder::getQueuedTasks)
+                .description("Password checks waiting for a thread").register(meterRegistry);
+        Gauge.builder("banking.security.password-encoder.active", passwordEncoder, BoundedPasswordEncoder::getActiveTasks)
+                .register(meterRegistry);
+        FunctionCounter.builder("banking.security.password-encoder.rejected", passwordEncoder, BoundedPasswordEncoder::getRejectedCount)
+                .description("Password checks rejected because the pool was saturated").register(meterRegistry);
+
+        return passwordEncoder;
+    }
+
+    /*
+     * Failed logins per username and per client address over a sliding window. A login over
+     * one of the limits is rejected before the user is read or the password is hashed, so a
+     * credential stuffing burst does not turn into BCrypt work. The address limit is opt in,
+     * it needs the client address from the forwarded headers when running behind a proxy.
+     */
     @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12, new SecureRandom(SALT.getBytes()));
-        
+    public LoginThrottle loginThrottle() {
+        LoginThrottle loginThrottle = new LoginThrottle(
+                env.getProperty("banking.security.login-throttle.slots", Integer.class, 65536),
+                TimeUnit.SECONDS.toMillis(env.getProperty("banking.security.login-throttle.window-seconds", Long.class, 300L)),
+                env.getProperty("banking.security.login-throttle.max-failures-per-username", Integer.class, 10),
+                env.getProperty("banking.security.login-throttle.max-failures-per-address", Integer.class, 0));
+
+        FunctionCounter.builder("banking.security.login-throttle.failures", loginThrottle, LoginThrottle::getFailureCount)
+                .description("Logins that failed with wrong credentials").register(meterRegistry);
+        FunctionCounter.builder("banking.security.login-throttle.rejected", loginThrottle, LoginThrottle::getRejectedCount)
+                .description("Logins rejected by the throttle without checking the password").register(meterRegistry);
+        Gauge.builder("banking.security.login-throttle.usernames", loginThrottle, LoginThrottle::getActiveUsernames)
+                .description("Counter slots of usernames with recent failed logins").register(meterRegistry);
+        Gauge.builder("banking.security.login-throttle.addresses", loginThrottle, LoginThrottle::getActiveAddresses)
+                .description("Counter slots of addresses with recent failed logins").register(meterRegistry);
+
+        return loginThrottle;
     }
 
     // List of specific paths that we would like access publicly without Spring security detection
@@ -84,7 +151,9 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .authorizeRequests().
 //                antMatchers("/**").
                 antMatchers(PUBLIC_MATCHERS).
-                permitAll().anyRequest().authenticated();
+                permitAll().
+                antMatchers("/actuator/**").hasRole("ADMIN"). // Metrics are for the admins only
+                anyRequest().authenticated();
 
         http
                 .csrf().disable().cors().disable()
@@ -100,8 +169,54 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     @Autowired
     public void configureGlobal(AuthenticationManagerBuilder auth) throws Exception {
    	// auth.inMemoryAuthentication().withUser("user").password("password").roles("USER"); //This is in-memory authentication
-     auth.userDetailsService(userSecurityService).passwordEncoder(passwordEncoder());
+     DaoAuthenticationProvider daoAuthenticationProvider = new DaoAuthenticationProvider();
+     daoAuthenticationProvider.setUserDetailsService(userSecurityService);
+     daoAuthenticationProvider.setPasswordEncoder(passwordEncoder());
+
+     if (env.getProperty("banking.security.login-throttle.enabled", Boolean.class, true)) {
+         auth.authenticationProvider(new ThrottledAuthenticationProvider(daoAuthenticationProvider, loginThrottle()));
+     } else {
+         auth.authenticationProvider(daoAuthenticationProvider);
+     }
+    }
+
+    // Exposes the Authentication Manager as a bean, the token login of the stateless API mode uses it
+    @Bean
+    @Override
+    public AuthenticationManager authenticationManagerBean() throws Exception {
+        return super.authenticationManagerBean();
     }
 
+    /*
+     * Security chain of the stateless API mode (banking.security.token.enabled=true). It
+     * comes before the chain above and handles every /api request: no session is created or
+     * read, a request is authenticated by the signed token in its Authorization header and
+     * POST /api/token is open so a client can log in.
+     */
+    @Configuration
+    @Order(1)
+    @ConditionalOnProperty(name = "banking.security.token.enabled", havingValue = "true")
+    public static class TokenSecurityConfig extends WebSecurityConfigurerAdapter {
+
+        @Autowired
+        private TokenService tokenService;
+
+        @Override
+        protected void configure(HttpSecurity http) throws Exception {
+            http
+                    .antMatcher("/api/**")
+                    .authorizeRequests()
+                    .antMatchers(HttpMethod.POST, "/api/token").permitAll()
+                    .anyRequest().authenticated();
+
+            http
+                    .csrf().disable().cors().disable()
+                    .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                    .and()
+                    .exceptionHandling().authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED))
+                    .and()
+                    .addFilterBefore(new TokenAuthenticationFilter(tokenService), UsernamePasswordAuthenticationFilter.class);
+        }
+    }
 
 }
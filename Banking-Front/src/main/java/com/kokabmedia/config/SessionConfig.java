@@ -0,0 +1,72 @@
+package com.kokabmedia.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+
+import com.kokabmedia.session.SharedSessionRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Moves the HTTP sessions out of the memory of the web node into the shared session
+ * store, so the nodes behind the load balancer need no sticky sessions and a restarted
+ * node does not log its customers out. With banking.session.store=local the sessions of
+ * the servlet container are used as before.
+ *
+ * @EnableSpringHttpSession registers the filter that replaces the HttpSession of every
+ * request with a session of the SessionRepository bean below.
+ *
+ * @Configuration annotation spring indicates that this class has @Bean definition methods,
+ * Spring container can process the class and generate Spring Beans to be used in the application.
+ */
+@Configuration
+@ConditionalOnProperty(name = "banking.session.store", havingValue = "jdbc")
+@EnableSpringHttpSession
+public class SessionConfig {
+
+    @Autowired
+    private Environment env;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Bean
+    public SharedSessionRepository sessionRepository() {
+        SharedSessionRepository sessionRepository = new SharedSessionRepository(jdbcTemplate,
+                env.getProperty("server.servlet.session.timeout", Duration.class, Duration.ofMinutes(30)),
+                Duration.ofSeconds(env.getProperty("banking.session.touch-interval-seconds", Long.class, 60L)),
+                env.getProperty("banking.session.cache.max-sessions", Integer.class, 10000),
+                Duration.ofMillis(env.getProperty("banking.session.cache.ttl-ms", Long.class, 2000L)),
+                env.getProperty("banking.session.cleanup-batch-size", Integer.class, 1000));
+        sessionRepository.createTable();
+
+        Gauge.builder("banking.session.cache.size", sessionRepository, SharedSessionRepository::getCachedSessionCount)
+                .description("Sessions cached by this node").register(meterRegistry);
+        FunctionCounter.builder("banking.session.cache.hits", sessionRepository, SharedSessionRepository::getCacheHitCount)
+                .description("Session lookups answered without a query").register(meterRegistry);
+        FunctionCounter.builder("banking.session.cache.misses", sessionRepository, SharedSessionRepository::getCacheMissCount)
+                .register(meterRegistry);
+        FunctionCounter.builder("banking.session.writes", sessionRepository, SharedSessionRepository::getAttributeWriteCount)
+                .tag("kind", "attributes").register(meterRegistry);
+        FunctionCounter.builder("banking.session.writes", sessionRepository, SharedSessionRepository::getTouchWriteCount)
+                .tag("kind", "touch").register(meterRegistry);
+        FunctionCounter.builder("banking.session.writes", sessionRepository, SharedSessionRepository::getSkippedWriteCount)
+                .tag("kind", "skipped").description("Sessions saved without a write").register(meterRegistry);
+        FunctionCounter.builder("banking.session.expired-deletes", sessionRepository, SharedSessionRepository::getExpiredDeleteCount)
+                .description("Expired sessions deleted by the cleanup job").register(meterRegistry);
+
+        return sessionRepository;
+    }
+}
@@ -1,23 +1,49 @@
 package com.kokabmedia.controller;
 
+import java.math.BigDecimal;
 import java.security.Principal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 
+import com.kokabmedia.domain.AccountKey;
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.BalancePoint;
+import com.kokabmedia.domain.LedgerEntry;
+import com.kokabmedia.domain.MonthlyStatement;
 import com.kokabmedia.domain.PrimaryAccount;
 import com.kokabmedia.domain.PrimaryTransaction;
 import com.kokabmedia.domain.SavingsAccount;
 import com.kokabmedia.domain.SavingsTransaction;
-import com.kokabmedia.domain.User;
+import com.kokabmedia.domain.SpendingPeriod;
+import com.kokabmedia.domain.SpendingReport;
+import com.kokabmedia.domain.StatementJob;
+import com.kokabmedia.security.CustomerContext;
 import com.kokabmedia.service.AccountService;
+import com.kokabmedia.service.BalanceHistoryService;
+import com.kokabmedia.service.RecentTransactionService;
+import com.kokabmedia.service.SpendingAnalyticsService;
+import com.kokabmedia.service.StatementDocumentService;
+import com.kokabmedia.service.StatementService;
+import com.kokabmedia.service.TransactionSearchService;
 import com.kokabmedia.service.TransactionService;
-import com.kokabmedia.service.UserService;
 
 /*
 * This class function is to handle HTTP requests, communicate with the database
@@ -61,6 +87,12 @@ import com.kokabmedia.service.UserService;
 @RequestMapping("/account")
 public class AccountController {
 	
+	// Upper bound of the dates of one balance as of request
+	private static final int MAX_BALANCE_DATES = 366;
+	
+	// Upper bound of the points of one balance history chart
+	private static final int MAX_CHART_POINTS = 2000;
+	
 	/*
 	 * The @Autowired annotation tells the Spring framework that this object (bean)
 	 * and its implementation is an dependency of this class. It is a mechanism 
@@ -77,7 +109,7 @@ public class AccountController {
 	 * The UserService bean and its implementation is now a dependency of the AccountController class.
 	 */
 	@Autowired
-    private UserService userService;
+	private CustomerContext customerContext;
 	
 	@Autowired
 	private AccountService accountService;
@@ -85,12 +117,34 @@ public class AccountController {
 	@Autowired
 	private TransactionService transactionService;
 	
+	@Autowired
+	private StatementService statementService;
+	
+	@Autowired
+	private TransactionSearchService transactionSearchService;
+	
+	@Autowired
+	private RecentTransactionService recentTransactionService;
+	
+	@Autowired
+	private SpendingAnalyticsService spendingAnalyticsService;
+	
+	@Autowired
+	private BalanceHistoryService balanceHistoryService;
+	
+	@Autowired
+	private StatementDocumentService statementDocumentService;
+	
+	/*
+	 * The optional from and to parameters (for example ?from=2015-01-01&to=2015-12-31) show an
+	 * older part of the history, including transactions that were moved to the archive.
+	 */
 	@RequestMapping("/primaryAccount")
-	public String primaryAccount(Model model, Principal principal) {
-		List<PrimaryTransaction> primaryTransactionList = transactionService.findPrimaryTransactionList(principal.getName());
-		
-		User user = userService.findByUsername(principal.getName());
-        PrimaryAccount primaryAccount = user.getPrimaryAccount();
+	public String primaryAccount(Model model, Principal principal,
+			@RequestParam(value = "from", required = false) String from, @RequestParam(value = "to", required = false) String to) {
+        PrimaryAccount primaryAccount = customerContext.getUser().getPrimaryAccount();
+		List<PrimaryTransaction> primaryTransactionList = transactionService.findPrimaryTransactionList(primaryAccount.getId(),
+				parseDay(from), parseDay(to));
 
     	/* 
 		 * The "primaryAccount" attribute will be mapped to variable in the html file that contains the variable "primaryAccount"
@@ -105,10 +159,11 @@ public class AccountController {
 	}
 
 	@RequestMapping("/savingsAccount")
-    public String savingsAccount(Model model, Principal principal) {
-		List<SavingsTransaction> savingsTransactionList = transactionService.findSavingsTransactionList(principal.getName());
-        User user = userService.findByUsername(principal.getName());
-        SavingsAccount savingsAccount = user.getSavingsAccount();
+    public String savingsAccount(Model model, Principal principal,
+            @RequestParam(value = "from", required = false) String from, @RequestParam(value = "to", required = false) String to) {
+        SavingsAccount savingsAccount = customerContext.getUser().getSavingsAccount();
+		List<SavingsTransaction> savingsTransactionList = transactionService.findSavingsTransactionList(savingsAccount.getId(),
+                parseDay(from), parseDay(to));
 
         model.addAttribute("savingsAccount", savingsAccount);
         model.addAttribute("savingsTransactionList", savingsTransactionList);
@@ -145,7 +200,7 @@ public class AccountController {
 	 */
     @RequestMapping(value = "/deposit", method = RequestMethod.POST)
     public String depositPOST(@ModelAttribute("amount") String amount, @ModelAttribute("accountType") String accountType, Principal principal) {
-        accountService.deposit(accountType, Double.parseDouble(amount), principal);
+        accountService.deposit(customerContext.getAccountKey(AccountType.fromName(accountType)), Double.parseDouble(amount));
 
         return "redirect:/userFront";
     }
@@ -160,8 +215,175 @@ public class AccountController {
 
     @RequestMapping(value = "/withdraw", method = RequestMethod.POST)
     public String withdrawPOST(@ModelAttribute("amount") String amount, @ModelAttribute("accountType") String accountType, Principal principal) {
-        accountService.withdraw(accountType, Double.parseDouble(amount), principal);
+        accountService.withdraw(customerContext.getAccountKey(AccountType.fromName(accountType)), Double.parseDouble(amount));
 
         return "redirect:/userFront";
     }
+
+    /*
+     * Returns the monthly statement (credits, debits, opening and closing balance and the 
+     * number of transactions) of one of the accounts of the logged in user, for example
+     * /account/statement?accountType=Primary&month=2021-10
+     * 
+     * The @ResponseBody annotation makes the returned object be written as JSON by Jackson
+     * instead of being resolved as the name of a HTML view.
+     */
+    @RequestMapping(value = "/statement", method = RequestMethod.GET)
+    @ResponseBody
+    public MonthlyStatement statement(@RequestParam("accountType") String accountType, @RequestParam("month") String month,
+            Principal principal) {
+        AccountType type = AccountType.fromName(accountType);
+
+        return statementService.findStatement(type, customerContext.getAccountId(type), YearMonth.parse(month));
+    }
+
+    /*
+     * Queues the rendering of the statement document of one month, for example
+     * /account/statement/job?accountType=Primary&month=2021-10, and answers with the job
+     * that can be polled. A full queue is answered with 503 Service Unavailable.
+     * 
+     * The job only exists on the node that accepted it, behind a load balancer the polls
+     * and the download need sticky routing to that node.
+     */
+    @RequestMapping(value = "/statement/job", method = RequestMethod.POST)
+    @ResponseBody
+    public ResponseEntity<StatementJob> submitStatementJob(@RequestParam("accountType") String accountType,
+            @RequestParam("month") String month, Principal principal) {
+        AccountType type = AccountType.fromName(accountType);
+        YearMonth statementMonth = YearMonth.parse(month);
+        if (statementMonth.isAfter(YearMonth.now())) {
+            throw new IllegalArgumentException("There is no statement for " + month + " yet");
+        }
+
+        try {
+            StatementJob job = statementDocumentService.submitStatementJob(customerContext.getUsername(), type,
+                    customerContext.getAccountId(type), statementMonth);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    // The status of a statement job, /account/statement/job?id=...
+    @RequestMapping(value = "/statement/job", method = RequestMethod.GET)
+    @ResponseBody
+    public ResponseEntity<StatementJob> statementJob(@RequestParam("id") String jobId, Principal principal) {
+        StatementJob job = statementDocumentService.findStatementJob(principal.getName(), jobId);
+
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job);
+    }
+
+    // Downloads the document of a finished statement job, /account/statement/document?id=...
+    @RequestMapping(value = "/statement/document", method = RequestMethod.GET)
+    @ResponseBody
+    public ResponseEntity<byte[]> statementDocument(@RequestParam("id") String jobId, Principal principal) {
+        StatementJob job = statementDocumentService.findStatementJob(principal.getName(), jobId);
+        byte[] document = statementDocumentService.findStatementDocument(principal.getName(), jobId);
+        if (job == null || document == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String fileName = "statement-" + job.getAccountType().name().toLowerCase() + "-" + job.getMonth() + ".html";
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_HTML)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(document);
+    }
+
+    /*
+     * Full text search over the description, type and amount of the transactions of one
+     * account, for example /account/search?accountType=Primary&q=transfer alice
+     */
+    @RequestMapping(value = "/search", method = RequestMethod.GET)
+    @ResponseBody
+    public List<LedgerEntry> search(@RequestParam("accountType") String accountType, @RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "50") int limit, Principal principal) {
+        AccountType type = AccountType.fromName(accountType);
+
+        return transactionSearchService.search(new AccountKey(type, customerContext.getAccountId(type)), query, Math.min(limit, 500));
+    }
+
+    // The most recent transactions of one account, served from memory for active accounts
+    @RequestMapping(value = "/recent", method = RequestMethod.GET)
+    @ResponseBody
+    public List<LedgerEntry> recent(@RequestParam("accountType") String accountType,
+            @RequestParam(value = "limit", defaultValue = "20") int limit, Principal principal) {
+        AccountType type = AccountType.fromName(accountType);
+
+        return recentTransactionService.findRecentTransactions(new AccountKey(type, customerContext.getAccountId(type)), limit);
+    }
+
+    /*
+     * Inflow and outflow of the logged in user per week or month, per transaction type and
+     * per recipient, for example /account/spending?from=2021-01-01&to=2021-12-31&period=month
+     * 
+     * A date that can not be read, an end before the start or an unknown period is answered
+     * with 400 Bad Request.
+     */
+    @RequestMapping(value = "/spending", method = RequestMethod.GET)
+    @ResponseBody
+    public ResponseEntity<SpendingReport> spending(@RequestParam("from") String from, @RequestParam("to") String to,
+            @RequestParam(value = "period", defaultValue = "month") String period, Principal principal) {
+        try {
+            return ResponseEntity.ok(spendingAnalyticsService.findSpending(customerContext.getUserId(),
+                    customerContext.getPrimaryAccountId(), customerContext.getSavingsAccountId(), LocalDate.parse(from),
+                    LocalDate.parse(to), SpendingPeriod.fromName(period)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /*
+     * The balance of one account at the end of one or more days, for example
+     * /account/balanceAsOf?accountType=Primary&date=2021-09-30&date=2021-10-31
+     * 
+     * More than MAX_BALANCE_DATES dates or a date that can not be read is answered with
+     * 400 Bad Request.
+     */
+    @RequestMapping(value = "/balanceAsOf", method = RequestMethod.GET)
+    @ResponseBody
+    public ResponseEntity<Map<LocalDate, BigDecimal>> balanceAsOf(@RequestParam("accountType") String accountType,
+            @RequestParam("date") List<String> dates, Principal principal) {
+        if (dates.size() > MAX_BALANCE_DATES) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<LocalDate> days;
+        try {
+            days = dates.stream().map(LocalDate::parse).collect(Collectors.toList());
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        AccountType type = AccountType.fromName(accountType);
+
+        return ResponseEntity.ok(transactionService.findBalancesAsOf(type, customerContext.getAccountId(type), days));
+    }
+
+    /*
+     * The closing balance per day of one account reduced to at most the given number of
+     * points for the balance chart, for example
+     * /account/balanceHistory?accountType=Primary&from=2012-01-01&to=2021-12-31&points=200
+     * 
+     * Without to the chart ends today, without from it covers the year before to. A date that
+     * can not be read or an end before the start is answered with 400 Bad Request.
+     */
+    @RequestMapping(value = "/balanceHistory", method = RequestMethod.GET)
+    @ResponseBody
+    public ResponseEntity<List<BalancePoint>> balanceHistory(@RequestParam("accountType") String accountType,
+            @RequestParam(value = "from", required = false) String from, @RequestParam(value = "to", required = false) String to,
+            @RequestParam(value = "points", defaultValue = "200") int points, Principal principal) {
+        AccountType type = AccountType.fromName(accountType);
+        try {
+            LocalDate lastDay = to == null || to.isEmpty() ? LocalDate.now() : LocalDate.parse(to);
+            LocalDate firstDay = from == null || from.isEmpty() ? lastDay.minusYears(1) : LocalDate.parse(from);
+
+            return ResponseEntity.ok(balanceHistoryService.findBalanceHistory(new AccountKey(type, customerContext.getAccountId(type)),
+                    firstDay, lastDay, Math.min(points, MAX_CHART_POINTS)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private LocalDate parseDay(String day) {
+        return day == null || day.isEmpty() ? null : LocalDate.parse(day);
+    }
 }
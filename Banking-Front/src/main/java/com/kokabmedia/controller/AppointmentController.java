@@ -13,9 +13,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 
 import com.kokabmedia.domain.Appointment;
-import com.kokabmedia.domain.User;
+import com.kokabmedia.security.CustomerContext;
 import com.kokabmedia.service.AppointmentService;
-import com.kokabmedia.service.UserService;
 
 
 /*
@@ -76,7 +75,7 @@ public class AppointmentController {
 	 * The UserService bean and its implementation is now a dependency of the AppointmentController class.
 	 */
 	 @Autowired
-	 private UserService userService;
+	 private CustomerContext customerContext;
 	
 	@Autowired
     private AppointmentService appointmentService;
@@ -123,8 +122,7 @@ public class AppointmentController {
         Date d1 = format1.parse( date );
         appointment.setDate(d1);
 
-        User user = userService.findByUsername(principal.getName());
-        appointment.setUser(user);
+        appointment.setUser(customerContext.getUser());
 
         appointmentService.createAppointment(appointment);
 
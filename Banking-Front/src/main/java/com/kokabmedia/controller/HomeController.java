@@ -1,21 +1,21 @@
 package com.kokabmedia.controller;
 
 import java.security.Principal;
-import java.util.HashSet;
-import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 
-import com.kokabmedia.dao.RoleDao;
+import com.kokabmedia.domain.AccountKey;
 import com.kokabmedia.domain.PrimaryAccount;
 import com.kokabmedia.domain.SavingsAccount;
 import com.kokabmedia.domain.User;
-import com.kokabmedia.security.UserRole;
+import com.kokabmedia.security.CustomerContext;
+import com.kokabmedia.service.RecentTransactionService;
 import com.kokabmedia.service.UserService;
 
 /*
@@ -69,7 +69,13 @@ public class HomeController {
 	private UserService userService;
 
 	@Autowired
-	private RoleDao roleDao;
+	private CustomerContext customerContext;
+
+	@Autowired
+	private RecentTransactionService recentTransactionService;
+
+	// Number of transactions shown per account in the recent activity of the dashboard
+	private static final int DASHBOARD_RECENT_TRANSACTIONS = 10;
 
 	/*
 	 * When HTTP request is sent to a certain URL and that URL contains a path which
@@ -126,24 +132,26 @@ public class HomeController {
 	@RequestMapping(value = "/signup", method = RequestMethod.POST)
 	public String signupPost(@ModelAttribute("user") User user, Model model) {
 
-		if (userService.checkUserExists(user.getUsername(), user.getEmail())) {
-
-			if (userService.checkEmailExists(user.getEmail())) {
-				model.addAttribute("emailExists", true);
-			}
+		// Each check is answered by the Bloom filter of the service when the value is new
+		boolean usernameExists = userService.checkUsernameExists(user.getUsername());
+		boolean emailExists = userService.checkEmailExists(user.getEmail());
 
-			if (userService.checkUsernameExists(user.getUsername())) {
-				model.addAttribute("usernameExists", true);
-			}
+		if (usernameExists || emailExists) {
+			model.addAttribute("usernameExists", usernameExists);
+			model.addAttribute("emailExists", emailExists);
 
 			return "signup";
 		} else {
-			Set<UserRole> userRoles = new HashSet<>();
-			userRoles.add(new UserRole(user, roleDao.findByName("ROLE_USER")));
-
-			// userService.createUser(user, userRoles); // Need to set user roles manually in the database
-		
-			userService.save(user);
+			// The user is created with its accounts and the ROLE_USER role in one transaction
+			try {
+				userService.save(user);
+			} catch (DataIntegrityViolationException e) {
+				// Another signup took the username or email between the check and the insert
+				model.addAttribute("usernameExists", userService.checkUsernameExists(user.getUsername()));
+				model.addAttribute("emailExists", userService.checkEmailExists(user.getEmail()));
+
+				return "signup";
+			}
 
 			return "redirect:/";
 		}
@@ -151,12 +159,16 @@ public class HomeController {
 
 	@RequestMapping("/userFront")
 	public String userFront(Principal principal, Model model) {
-		User user = userService.findByUsername(principal.getName());
+		User user = customerContext.getUser();
 		PrimaryAccount primaryAccount = user.getPrimaryAccount();
 		SavingsAccount savingsAccount = user.getSavingsAccount();
 
 		model.addAttribute("primaryAccount", primaryAccount);
 		model.addAttribute("savingsAccount", savingsAccount);
+		model.addAttribute("recentPrimaryTransactions", recentTransactionService
+				.findRecentTransactions(AccountKey.primary(primaryAccount.getId()), DASHBOARD_RECENT_TRANSACTIONS));
+		model.addAttribute("recentSavingsTransactions", recentTransactionService
+				.findRecentTransactions(AccountKey.savings(savingsAccount.getId()), DASHBOARD_RECENT_TRANSACTIONS));
 
 		return "userFront";
 	}
@@ -4,6 +4,7 @@ import java.security.Principal;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Controller;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.ui.Model;
@@ -11,13 +12,11 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 
-import com.kokabmedia.domain.PrimaryAccount;
 import com.kokabmedia.domain.Recipient;
-import com.kokabmedia.domain.SavingsAccount;
-import com.kokabmedia.domain.User;
+import com.kokabmedia.security.CustomerContext;
 import com.kokabmedia.service.TransactionService;
-import com.kokabmedia.service.UserService;
 
 
 /*
@@ -62,6 +61,9 @@ import com.kokabmedia.service.UserService;
 @RequestMapping("/transfer")
 public class TransferController {
 
+	// Most recipient names the type-ahead answers with
+	private static final int MAX_RECIPIENT_SUGGESTIONS = 20;
+
 	/*
 	 * The @Autowired annotation tells the Spring framework that this object (bean)
 	 * and its implementation is an dependency of this class. It is a mechanism 
@@ -78,7 +80,7 @@ public class TransferController {
 	 * The UserService bean and its implementation is now a dependency of the TransferController class.
 	 */
 	@Autowired
-	private UserService userService;
+	private CustomerContext customerContext;
 
 	@Autowired
 	private TransactionService transactionService;
@@ -120,17 +122,15 @@ public class TransferController {
 	public String betweenAccountsPost(@ModelAttribute("transferFrom") String transferFrom,
 			@ModelAttribute("transferTo") String transferTo, @ModelAttribute("amount") String amount,
 			Principal principal) throws Exception {
-		User user = userService.findByUsername(principal.getName());
-		PrimaryAccount primaryAccount = user.getPrimaryAccount();
-		SavingsAccount savingsAccount = user.getSavingsAccount();
-		transactionService.betweenAccountsTransfer(transferFrom, transferTo, amount, primaryAccount, savingsAccount);
+		transactionService.betweenAccountsTransfer(transferFrom, transferTo, amount, customerContext.getPrimaryAccountId(),
+				customerContext.getSavingsAccountId());
 
 		return "redirect:/userFront";
 	}
 
 	@RequestMapping(value = "/recipient", method = RequestMethod.GET)
 	public String recipient(Model model, Principal principal) {
-		List<Recipient> recipientList = transactionService.findRecipientList(principal);
+		List<Recipient> recipientList = transactionService.findRecipientList(customerContext.getUserId());
 
 		Recipient recipient = new Recipient();
 
@@ -141,11 +141,21 @@ public class TransferController {
 	}
 
 	@RequestMapping(value = "/recipient/save", method = RequestMethod.POST)
-	public String recipientPost(@ModelAttribute("recipient") Recipient recipient, Principal principal) {
-
-		User user = userService.findByUsername(principal.getName());
-		recipient.setUser(user);
-		transactionService.saveRecipient(recipient);
+	public String recipientPost(@ModelAttribute("recipient") Recipient recipient, Model model, Principal principal) {
+
+		// Recipient names are unique per user, another recipient with the name is not overwritten
+		Recipient sameName = transactionService.findRecipientByName(customerContext.getUserId(), recipient.getName());
+		if (sameName != null && !sameName.getId().equals(recipient.getId())) {
+			return recipientNameExists(model);
+		}
+
+		recipient.setUser(customerContext.getUser());
+		try {
+			transactionService.saveRecipient(recipient);
+		} catch (DataIntegrityViolationException e) {
+			// A recipient with the name was saved at the same time, by a second tab or a double submit
+			return recipientNameExists(model);
+		}
 
 		return "redirect:/transfer/recipient";
 	}
@@ -154,8 +164,8 @@ public class TransferController {
 	public String recipientEdit(@RequestParam(value = "recipientName") String recipientName, Model model,
 			Principal principal) {
 
-		Recipient recipient = transactionService.findRecipientByName(recipientName);
-		List<Recipient> recipientList = transactionService.findRecipientList(principal);
+		Recipient recipient = transactionService.findRecipientByName(customerContext.getUserId(), recipientName);
+		List<Recipient> recipientList = transactionService.findRecipientList(customerContext.getUserId());
 
 		model.addAttribute("recipientList", recipientList);
 		model.addAttribute("recipient", recipient);
@@ -168,9 +178,9 @@ public class TransferController {
 	public String recipientDelete(@RequestParam(value = "recipientName") String recipientName, Model model,
 			Principal principal) {
 
-		transactionService.deleteRecipientByName(recipientName);
+		transactionService.deleteRecipientByName(customerContext.getUserId(), recipientName);
 
-		List<Recipient> recipientList = transactionService.findRecipientList(principal);
+		List<Recipient> recipientList = transactionService.findRecipientList(customerContext.getUserId());
 
 		Recipient recipient = new Recipient();
 		model.addAttribute("recipient", recipient);
@@ -181,7 +191,7 @@ public class TransferController {
 
 	@RequestMapping(value = "/toSomeoneElse", method = RequestMethod.GET)
 	public String toSomeoneElse(Model model, Principal principal) {
-		List<Recipient> recipientList = transactionService.findRecipientList(principal);
+		List<Recipient> recipientList = transactionService.findRecipientList(customerContext.getUserId());
 
 		model.addAttribute("recipientList", recipientList);
 		model.addAttribute("accountType", "");
@@ -189,15 +199,45 @@ public class TransferController {
 		return "toSomeoneElse";
 	}
 
+	/*
+	 * Completes the recipient name typed into the transfer form, for example
+	 * /transfer/recipient/suggest?q=ann answers with the names of the recipients of the
+	 * logged in user that start with "ann" or have a word that does.
+	 */
+	@RequestMapping(value = "/recipient/suggest", method = RequestMethod.GET)
+	@ResponseBody
+	public List<String> recipientSuggestions(@RequestParam(value = "q", defaultValue = "") String query,
+			@RequestParam(value = "limit", defaultValue = "10") int limit, Principal principal) {
+		return transactionService.suggestRecipientNames(customerContext.getUserId(), query,
+				Math.max(1, Math.min(limit, MAX_RECIPIENT_SUGGESTIONS)));
+	}
+
+	/*
+	 * The recipient name is typed with the help of the type-ahead, a name that is not one of
+	 * the recipients of the user shows the form again with a message and the entered values.
+	 */
 	@RequestMapping(value = "/toSomeoneElse", method = RequestMethod.POST)
 	public String toSomeoneElsePost(@ModelAttribute("recipientName") String recipientName,
 			@ModelAttribute("accountType") String accountType, @ModelAttribute("amount") String amount,
-			Principal principal) {
-		User user = userService.findByUsername(principal.getName());
-		Recipient recipient = transactionService.findRecipientByName(recipientName);
-		transactionService.toSomeoneElseTransfer(recipient, accountType, amount, user.getPrimaryAccount(),
-				user.getSavingsAccount());
+			Model model, Principal principal) {
+		Recipient recipient = transactionService.findRecipientByName(customerContext.getUserId(), recipientName);
+		if (recipient == null) {
+			model.addAttribute("recipientNotFound", true);
+			model.addAttribute("recipientList", transactionService.findRecipientList(customerContext.getUserId()));
+
+			return "toSomeoneElse";
+		}
+		transactionService.toSomeoneElseTransfer(recipient, accountType, amount, customerContext.getPrimaryAccountId(),
+				customerContext.getSavingsAccountId());
 
 		return "redirect:/userFront";
 	}
+
+	// Shows the recipient form again with the message that the name is taken
+	private String recipientNameExists(Model model) {
+		model.addAttribute("recipientNameExists", true);
+		model.addAttribute("recipientList", transactionService.findRecipientList(customerContext.getUserId()));
+
+		return "recipient";
+	}
 }
@@ -10,6 +10,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 
 import com.kokabmedia.domain.User;
+import com.kokabmedia.security.CustomerContext;
 import com.kokabmedia.service.UserService;
 
 /*
@@ -72,13 +73,16 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private CustomerContext customerContext;
+
     /*
 	 *  When HTTP GET request is sent to a certain URL and that URL contains a path which
 	 * is declared on, the @GetMapping annotation this method will be called. 
 	 */
     @RequestMapping(value = "/profile", method = RequestMethod.GET)
     public String profile(Principal principal, Model model) {
-        User user = userService.findByUsername(principal.getName());
+        User user = customerContext.getUser();
 
         /* 
 		 * With the model.addAttribute() method the attribute will be mapped to variable in the html file that contains the 
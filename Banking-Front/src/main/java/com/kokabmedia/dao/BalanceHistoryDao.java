@@ -0,0 +1,21 @@
+package com.kokabmedia.dao;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+import com.kokabmedia.domain.AccountType;
+
+/*
+ * Interface for the balance lookups that can not be expressed as a CrudRepository method,
+ * it is implemented with a native query in BalanceHistoryDaoImpl.
+ */
+public interface BalanceHistoryDao {
+
+    /*
+     * The available balance of the last transaction of the account before each of the
+     * given moments, in the same order as the moments. The element is null when the account
+     * has no transaction before that moment.
+     */
+    List<BigDecimal> findBalancesBefore(AccountType accountType, Long accountId, List<Date> moments);
+}
@@ -0,0 +1,74 @@
+package com.kokabmedia.dao;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TemporalType;
+
+import org.springframework.stereotype.Repository;
+
+import com.kokabmedia.domain.AccountType;
+
+/*
+ * Answers balance as of date questions with one indexed seek per date. Every date becomes a
+ * "LIMIT 1" subquery that reads the (account_id, date) index backwards from that date, the
+ * subqueries of a request are sent to the database as one UNION ALL statement.
+ *
+ * The @Repository annotation lets the Spring framework manage this class as a Spring bean
+ * and translates the persistence exceptions into Spring DataAccessExceptions.
+ */
+@Repository
+public class BalanceHistoryDaoImpl implements BalanceHistoryDao {
+
+    // Number of dates sent to the database in one statement
+    private static final int DATES_PER_QUERY = 100;
+
+    /*
+     * The @PersistenceContext annotation injects the EntityManager of the current
+     * transaction, the EntityManager is the JPA interface that CrudRepository is built on.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public List<BigDecimal> findBalancesBefore(AccountType accountType, Long accountId, List<Date> moments) {
+        List<BigDecimal> balances = new ArrayList<>(moments.size());
+        for (int start = 0; start < moments.size(); start += DATES_PER_QUERY) {
+            balances.addAll(query(accountType, accountId, moments.subList(start, Math.min(start + DATES_PER_QUERY, moments.size()))));
+        }
+        return balances;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<BigDecimal> query(AccountType accountType, Long accountId, List<Date> moments) {
+        String table = accountType == AccountType.PRIMARY ? "primary_transaction" : "savings_transaction";
+        String accountColumn = accountType == AccountType.PRIMARY ? "primary_account_id" : "savings_account_id";
+
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < moments.size(); i++) {
+            if (i > 0) {
+                sql.append(" union all ");
+            }
+            sql.append("(select ").append(i).append(" as position, t.available_balance from ").append(table)
+                    .append(" t where t.").append(accountColumn).append(" = :accountId and t.date < :before").append(i)
+                    .append(" order by t.date desc, t.id desc limit 1)");
+        }
+
+        Query query = entityManager.createNativeQuery(sql.toString());
+        query.setParameter("accountId", accountId);
+        for (int i = 0; i < moments.size(); i++) {
+            query.setParameter("before" + i, moments.get(i), TemporalType.TIMESTAMP);
+        }
+
+        BigDecimal[] balances = new BigDecimal[moments.size()];
+        for (Object[] row : (List<Object[]>) query.getResultList()) {
+            balances[((Number) row[0]).intValue()] = (BigDecimal) row[1];
+        }
+        return Arrays.asList(balances);
+    }
+}
@@ -0,0 +1,41 @@
+package com.kokabmedia.dao;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import com.kokabmedia.domain.ChangeLog;
+
+/*
+ * Interface that gives access to to CRUD methods for handling data in a database,
+ * the CrudRepository interface has methods that perform SQL queries and lets the 
+ * application create and update data in the database, it takes an entity class 
+ * and the primary key type of that entity as argument.
+ * 
+ * CrudRepository is an abstraction over EntityManager.
+ */
+public interface ChangeLogDao extends CrudRepository<ChangeLog, Long> {
+
+    // The changes after a sync token in sequence order, the page size decides how many
+    @Query("select c from ChangeLog c where c.sequence > :after order by c.sequence asc")
+    List<ChangeLog> findAfter(@Param("after") Long after, Pageable pageable);
+
+    @Query("select min(c.sequence) from ChangeLog c")
+    Long findFirstSequence();
+
+    @Query("select max(c.sequence) from ChangeLog c")
+    Long findLastSequence();
+
+    // The last change that is older than the given moment, read through the changed_at index
+    @Query("select max(c.sequence) from ChangeLog c where c.changedAt < :before")
+    Long findLastSequenceBefore(@Param("before") Date before);
+
+    @Modifying
+    @Query("delete from ChangeLog c where c.sequence > :after and c.sequence <= :upTo")
+    int deleteRange(@Param("after") Long after, @Param("upTo") Long upTo);
+}
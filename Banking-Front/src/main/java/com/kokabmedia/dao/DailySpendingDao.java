@@ -0,0 +1,55 @@
+package com.kokabmedia.dao;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.DailySpending;
+
+/*
+ * Interface that gives access to to CRUD methods for handling data in a database,
+ * the CrudRepository interface has methods that perform SQL queries and lets the 
+ * application create and update data in the database, it takes an entity class 
+ * and the primary key type of that entity as argument.
+ * 
+ * CrudRepository is an abstraction over EntityManager.
+ */
+public interface DailySpendingDao extends CrudRepository<DailySpending, Long> {
+
+    /*
+     * The row of one day, type and recipient locked (SELECT ... FOR UPDATE) until the end
+     * of the ledger transaction.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from DailySpending d where d.accountType = :accountType and d.accountId = :accountId "
+            + "and d.spendingDay = :spendingDay and d.type = :type and d.counterparty = :counterparty")
+    DailySpending lockDay(@Param("accountType") AccountType accountType, @Param("accountId") Long accountId,
+            @Param("spendingDay") LocalDate spendingDay, @Param("type") String type, @Param("counterparty") String counterparty);
+
+    /*
+     * Locks every row of one account, and the gaps between them, until the end of the
+     * transaction. A backfill takes this lock before it reads the ledger, so a ledger write
+     * of the account waits until the rebuilt rows are committed.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from DailySpending d where d.accountType = :accountType and d.accountId = :accountId")
+    List<DailySpending> lockAccount(@Param("accountType") AccountType accountType, @Param("accountId") Long accountId);
+
+    // The rows of one account from the first day up to but not including the last day
+    @Query("select d from DailySpending d where d.accountType = :accountType and d.accountId = :accountId "
+            + "and d.spendingDay >= :from and d.spendingDay < :to")
+    List<DailySpending> findRange(@Param("accountType") AccountType accountType, @Param("accountId") Long accountId,
+            @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query("delete from DailySpending d where d.accountType = :accountType and d.accountId = :accountId")
+    void deleteByAccount(@Param("accountType") AccountType accountType, @Param("accountId") Long accountId);
+}
@@ -0,0 +1,59 @@
+package com.kokabmedia.dao;
+
+import java.util.List;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.MonthlyStatement;
+
+/*
+ * Interface that gives access to to CRUD methods for handling data in a database,
+ * the CrudRepository interface has methods that perform SQL queries and lets the 
+ * application create and update data in the database, it takes an entity class 
+ * and the primary key type of that entity as argument.
+ * 
+ * CrudRepository is an abstraction over EntityManager.
+ */
+public interface MonthlyStatementDao extends CrudRepository<MonthlyStatement, Long> {
+
+	/* 
+	 * JPA custom method with special designed names lets Spring understands that we 
+	 * want to retrieve a specific column from the database. 
+	 */
+    MonthlyStatement findByAccountTypeAndAccountIdAndStatementMonth(AccountType accountType, Long accountId, String statementMonth);
+
+    List<MonthlyStatement> findByAccountTypeAndAccountIdOrderByStatementMonthAsc(AccountType accountType, Long accountId);
+
+    /*
+     * Same lookup as above but the row is locked (SELECT ... FOR UPDATE) until the end of the
+     * ledger transaction, so two concurrent writes to the same account do not lose an update.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from MonthlyStatement s where s.accountType = :accountType and s.accountId = :accountId and s.statementMonth = :statementMonth")
+    MonthlyStatement lockStatement(@Param("accountType") AccountType accountType, @Param("accountId") Long accountId,
+            @Param("statementMonth") String statementMonth);
+
+    /*
+     * Locks every rollup of one account. The locking read takes next-key locks on the
+     * (account_type, account_id, statement_month) index, so a ledger write can neither change
+     * a rollup nor insert the first one of a month until the transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from MonthlyStatement s where s.accountType = :accountType and s.accountId = :accountId")
+    List<MonthlyStatement> lockStatements(@Param("accountType") AccountType accountType, @Param("accountId") Long accountId);
+
+    // The latest rollup before a month, used to answer months without any activity
+    MonthlyStatement findFirstByAccountTypeAndAccountIdAndStatementMonthLessThanOrderByStatementMonthDesc(AccountType accountType,
+            Long accountId, String statementMonth);
+
+    @Modifying
+    @Query("delete from MonthlyStatement s where s.accountType = :accountType and s.accountId = :accountId")
+    void deleteByAccount(@Param("accountType") AccountType accountType, @Param("accountId") Long accountId);
+}
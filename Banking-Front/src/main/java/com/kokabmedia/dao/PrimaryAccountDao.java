@@ -1,8 +1,12 @@
 package com.kokabmedia.dao;
 
-import com.kokabmedia.domain.PrimaryAccount;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
+import com.kokabmedia.domain.PrimaryAccount;
+
 /*
  * Interface that gives access to to CRUD methods for handling data in a database,
  * the CrudRepository interface has methods that perform SQL queries and lets the 
@@ -18,4 +22,7 @@ public interface PrimaryAccountDao extends CrudRepository<PrimaryAccount,Long> {
 	 * want to retrieve a specific column from the database. 
 	 */
     PrimaryAccount findByAccountNumber (int accountNumber);
+
+    @Query("select a.id from PrimaryAccount a order by a.id")
+    List<Long> findAllIds();
 }
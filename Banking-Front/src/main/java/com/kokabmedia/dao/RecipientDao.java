@@ -2,7 +2,10 @@ package com.kokabmedia.dao;
 
 import java.util.List;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 import com.kokabmedia.domain.Recipient;
 
@@ -22,7 +25,19 @@ public interface RecipientDao extends CrudRepository<Recipient, Long> {
 	 */
 	List<Recipient> findAll();
 
-    Recipient findByName(String recipientName);
+    /*
+     * The recipients of one user in name order, read through the (user_id, name) index. The
+     * user id is the foreign key column itself, so the user is not joined.
+     */
+    @Query("select r from Recipient r where r.user.userId = :userId order by r.name asc, r.id asc")
+    List<Recipient> findByUserId(@Param("userId") Long userId);
 
-    void deleteByName(String recipientName);
+    // The recipient of the user with the name, names are unique per user
+    @Query("select r from Recipient r where r.user.userId = :userId and r.name = :name")
+    Recipient findByUserIdAndName(@Param("userId") Long userId, @Param("name") String name);
+
+    // Deletes the recipient of the user with the name, returns the number of recipients deleted
+    @Modifying
+    @Query("delete from Recipient r where r.user.userId = :userId and r.name = :name")
+    int deleteByUserIdAndName(@Param("userId") Long userId, @Param("name") String name);
 }
@@ -1,8 +1,17 @@
 package com.kokabmedia.dao;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 import com.kokabmedia.domain.SavingsTransaction;
 
@@ -21,5 +30,60 @@ public interface SavingsTransactionDao extends CrudRepository<SavingsTransaction
 	 * want to retrieve a specific column from the database. 
 	 */
     List<SavingsTransaction> findAll();
-}
 
+    /*
+     * The transactions of one account in ledger order, read through the
+     * (savings_account_id, date) index. Every ledger query has a date range, so MySQL only
+     * reads the partitions of that range when the table is partitioned.
+     */
+    @Query("select t from SavingsTransaction t where t.savingsAccount.id = :accountId and t.date >= :from and t.date < :to order by t.date asc, t.id asc")
+    List<SavingsTransaction> findLedger(@Param("accountId") Long accountId, @Param("from") Date from, @Param("to") Date to);
+
+    // The newest transactions of one account since a moment, the page size decides how many
+    @Query("select t from SavingsTransaction t where t.savingsAccount.id = :accountId and t.date >= :from "
+            + "order by t.date desc, t.id desc")
+    List<SavingsTransaction> findRecent(@Param("accountId") Long accountId, @Param("from") Date from, Pageable pageable);
+
+    /*
+     * The transactions with the given ids, for the change feed. The date range of the changes
+     * lets MySQL skip the partitions outside of it, a lookup by id alone reads every
+     * partition.
+     */
+    @Query("select t from SavingsTransaction t where t.id in :ids and t.date >= :from and t.date < :to")
+    List<SavingsTransaction> findChanged(@Param("ids") Collection<Long> ids, @Param("from") Date from, @Param("to") Date to);
+
+    /*
+     * The date and available balance of the transactions of one account in ledger order,
+     * streamed row by row from the (account_id, date) index. The fetch size of
+     * Integer.MIN_VALUE makes the MySQL driver stream the result instead of reading it into
+     * memory, the stream must be read inside a transaction and closed afterwards.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("select t.date, t.availableBalance from SavingsTransaction t where t.savingsAccount.id = :accountId "
+            + "and t.date >= :from and t.date < :to order by t.date asc, t.id asc")
+    Stream<Object[]> streamBalances(@Param("accountId") Long accountId, @Param("from") Date from, @Param("to") Date to);
+
+    // The dates of the first and the last transaction of one account, both null when it has none
+    @Query("select min(t.date), max(t.date) from SavingsTransaction t where t.savingsAccount.id = :accountId")
+    List<Object[]> findLedgerBounds(@Param("accountId") Long accountId);
+
+    /*
+     * The transactions of one account in ledger order for the statement documents, each row
+     * is [id, date, description, type, status, amount, available balance] and is streamed
+     * like streamBalances.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("select t.id, t.date, t.description, t.type, t.status, t.amount, t.availableBalance from SavingsTransaction t "
+            + "where t.savingsAccount.id = :accountId and t.date >= :from and t.date < :to order by t.date asc, t.id asc")
+    Stream<Object[]> streamLedger(@Param("accountId") Long accountId, @Param("from") Date from, @Param("to") Date to);
+
+    /*
+     * The transactions before a moment for the archival job, sorted by account, date and id.
+     * Each row is [account id, id, date, description, type, status, amount, available balance]
+     * and is streamed like streamBalances.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("select t.savingsAccount.id, t.id, t.date, t.description, t.type, t.status, t.amount, t.availableBalance "
+            + "from SavingsTransaction t where t.date < :before order by t.savingsAccount.id asc, t.date asc, t.id asc")
+    Stream<Object[]> streamArchivable(@Param("before") Date before);
+}
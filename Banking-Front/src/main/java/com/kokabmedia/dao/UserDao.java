@@ -1,10 +1,20 @@
 package com.kokabmedia.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 import com.kokabmedia.domain.User;
+import com.kokabmedia.domain.UserSummary;
 
 
 /*
@@ -23,4 +33,51 @@ public interface UserDao extends CrudRepository<User, Long> {
 	User findByUsername(String username);
     User findByEmail(String email);
     List<User> findAll();
+
+    boolean existsByUsername(String username);
+    boolean existsByEmail(String email);
+
+    /*
+     * The users after a user id in id order with their account numbers and balances, read in
+     * one joined query. Paging by the last id (keyset) reads the primary key index from the
+     * cursor on, so a page costs the same however far into the list it is. The page size
+     * of the Pageable decides how many.
+     */
+    @Query("select new com.kokabmedia.domain.UserSummary(u.userId, u.username, u.firstName, u.lastName, u.email, u.enabled, "
+            + "p.accountNumber, p.accountBalance, s.accountNumber, s.accountBalance) "
+            + "from User u left join u.primaryAccount p left join u.savingsAccount s "
+            + "where u.userId > :after order by u.userId asc")
+    List<UserSummary> findSummariesAfter(@Param("after") Long after, Pageable pageable);
+
+    /*
+     * Every username and email as [username, email], streamed row by row from the database
+     * to fill the signup Bloom filters without loading the users.
+     */
+    @Query("select u.username, u.email from User u")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    Stream<Object[]> streamUsernamesAndEmails();
+
+    /*
+     * The user id and account ids of a user as [user id, primary account id, savings account
+     * id], read from the user row alone without loading the roles of the user.
+     */
+    @Query("select u.userId, u.primaryAccount.id, u.savingsAccount.id from User u where u.username = :username")
+    List<Object[]> findCustomer(@Param("username") String username);
+
+    /*
+     * The users with the usernames as [user id, username, enabled], for the bulk status
+     * change of the admin API.
+     */
+    @Query("select u.userId, u.username, u.enabled from User u where u.username in :usernames")
+    List<Object[]> findStatusByUsernames(@Param("usernames") Collection<String> usernames);
+
+    // The users after a user id whose email matches the LIKE pattern as [user id, username, enabled], in id order
+    @Query("select u.userId, u.username, u.enabled from User u where u.email like :pattern and u.userId > :after "
+            + "order by u.userId asc")
+    List<Object[]> findStatusByEmailAfter(@Param("pattern") String pattern, @Param("after") Long after, Pageable pageable);
+
+    // Sets the enabled flag of the users that do not have it yet, returns the number of users changed
+    @Modifying
+    @Query("update User u set u.enabled = :enabled where u.userId in :userIds and u.enabled <> :enabled")
+    int updateEnabled(@Param("userIds") Collection<Long> userIds, @Param("enabled") boolean enabled);
 }
@@ -0,0 +1,19 @@
+package com.kokabmedia.dao;
+
+import java.util.List;
+
+import com.kokabmedia.domain.User;
+
+/*
+ * Interface for inserting new users without the entity manager, it is implemented with
+ * batched JDBC statements in UserInsertDaoImpl.
+ */
+public interface UserInsertDao {
+
+    /*
+     * Inserts the users (with their encoded passwords) with a new primary and savings
+     * account each, the link to the role and a change log row, in the transaction of the
+     * caller. The ids and account numbers are set on the given objects, nothing is read back.
+     */
+    void insertUsers(List<User> users, int roleId);
+}
@@ -0,0 +1,100 @@
+package com.kokabmedia.dao;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.kokabmedia.domain.ChangeType;
+import com.kokabmedia.domain.PrimaryAccount;
+import com.kokabmedia.domain.SavingsAccount;
+import com.kokabmedia.domain.User;
+import com.kokabmedia.importer.IdBlockAllocator;
+import com.kokabmedia.service.ChangeFeedService;
+
+/*
+ * Inserts new users with one batched statement per table instead of a save, an id query
+ * and a read back per entity. Every user takes four consecutive entity ids (the user, its
+ * two accounts and its role link) and two consecutive account numbers from the
+ * IdBlockAllocator, which hands small requests like a signup out of a block in memory.
+ *
+ * The statements run on the connection of the current transaction, changes the entity
+ * manager still holds are flushed first so the rows can refer to them.
+ *
+ * The @Repository annotation lets the Spring framework manage this class as a Spring bean
+ * and translates the persistence exceptions into Spring DataAccessExceptions.
+ */
+@Repository
+public class UserInsertDaoImpl implements UserInsertDao {
+
+    // Ids taken from the entity sequence per user: the user, its two accounts and its role link
+    private static final int IDS_PER_USER = 4;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IdBlockAllocator idBlockAllocator;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    public void insertUsers(List<User> users, int roleId) {
+        if (users.isEmpty()) {
+            return;
+        }
+        long firstId = idBlockAllocator.nextEntityIds(users.size() * IDS_PER_USER);
+        long firstAccountNumber = idBlockAllocator.nextAccountNumbers(users.size() * 2);
+
+        List<Object[]> primaryAccounts = new ArrayList<>(users.size());
+        List<Object[]> savingsAccounts = new ArrayList<>(users.size());
+        List<Object[]> userRows = new ArrayList<>(users.size());
+        List<Object[]> userRoles = new ArrayList<>(users.size());
+        List<Long> userIds = new ArrayList<>(users.size());
+
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            long userId = firstId + (long) i * IDS_PER_USER;
+
+            PrimaryAccount primaryAccount = new PrimaryAccount();
+            primaryAccount.setId(userId + 1);
+            primaryAccount.setAccountNumber(Math.toIntExact(firstAccountNumber + 2L * i));
+            primaryAccount.setAccountBalance(BigDecimal.ZERO);
+
+            SavingsAccount savingsAccount = new SavingsAccount();
+            savingsAccount.setId(userId + 2);
+            savingsAccount.setAccountNumber(Math.toIntExact(firstAccountNumber + 2L * i + 1));
+            savingsAccount.setAccountBalance(BigDecimal.ZERO);
+
+            user.setUserId(userId);
+            user.setPrimaryAccount(primaryAccount);
+            user.setSavingsAccount(savingsAccount);
+
+            primaryAccounts.add(new Object[] { primaryAccount.getId(), primaryAccount.getAccountNumber() });
+            savingsAccounts.add(new Object[] { savingsAccount.getId(), savingsAccount.getAccountNumber() });
+            userRows.add(new Object[] { userId, user.getUsername(), user.getPassword(), user.getFirstName(), user.getLastName(),
+                    user.getEmail(), user.getPhone(), user.isEnabled(), primaryAccount.getId(), savingsAccount.getId() });
+            userRoles.add(new Object[] { userId + 3, userId, roleId });
+            userIds.add(userId);
+        }
+
+        entityManager.flush();
+        jdbcTemplate.batchUpdate("INSERT INTO primary_account (id, account_number, account_balance) VALUES (?, ?, 0)",
+                primaryAccounts);
+        jdbcTemplate.batchUpdate("INSERT INTO savings_account (id, account_number, account_balance) VALUES (?, ?, 0)",
+                savingsAccounts);
+        jdbcTemplate.batchUpdate("INSERT INTO user (user_id, username, password, first_name, last_name, email, phone, "
+                + "enabled, primary_account_id, savings_account_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", userRows);
+        jdbcTemplate.batchUpdate("INSERT INTO user_role (user_role_id, user_id, role_id) VALUES (?, ?, ?)", userRoles);
+        changeFeedService.recordChanges(ChangeType.USER, userIds);
+    }
+}
@@ -0,0 +1,56 @@
+package com.kokabmedia.domain;
+
+import java.util.Objects;
+
+/*
+ * Identifies one account. The primary and savings accounts live in two different
+ * tables, so the id alone is not enough to tell two accounts apart.
+ */
+public final class AccountKey {
+
+    private final AccountType accountType;
+    private final Long accountId;
+
+    public AccountKey(AccountType accountType, Long accountId) {
+        this.accountType = Objects.requireNonNull(accountType);
+        this.accountId = Objects.requireNonNull(accountId);
+    }
+
+    public static AccountKey primary(Long accountId) {
+        return new AccountKey(AccountType.PRIMARY, accountId);
+    }
+
+    public static AccountKey savings(Long accountId) {
+        return new AccountKey(AccountType.SAVINGS, accountId);
+    }
+
+    public AccountType getAccountType() {
+        return accountType;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AccountKey)) {
+            return false;
+        }
+        AccountKey other = (AccountKey) o;
+        return accountType == other.accountType && accountId.equals(other.accountId);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * accountType.hashCode() + accountId.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return accountType + ":" + accountId;
+    }
+}
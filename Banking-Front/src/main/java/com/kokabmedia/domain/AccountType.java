@@ -0,0 +1,32 @@
+package com.kokabmedia.domain;
+
+/*
+ * The two kinds of accounts every User owns. The names match the "Primary" and
+ * "Savings" values that are posted by the HTML forms, so a form value can be turned
+ * into an AccountType with fromName().
+ */
+public enum AccountType {
+
+    PRIMARY("Primary"),
+    SAVINGS("Savings");
+
+    private final String displayName;
+
+    AccountType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    // Resolves the form value ("Primary", "savings", ...) ignoring case.
+    public static AccountType fromName(String name) {
+        for (AccountType accountType : values()) {
+            if (accountType.displayName.equalsIgnoreCase(name) || accountType.name().equalsIgnoreCase(name)) {
+                return accountType;
+            }
+        }
+        throw new IllegalArgumentException("Unknown account type " + name);
+    }
+}
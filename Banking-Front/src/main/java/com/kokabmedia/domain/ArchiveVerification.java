@@ -0,0 +1,43 @@
+package com.kokabmedia.domain;
+
+// The result of checking one archive segment file against its checksums
+public class ArchiveVerification {
+
+    private final String segment;
+    private final AccountType accountType;
+    private final long rowCount;
+    private final int damagedBlocks;
+    private final boolean checksumMatches;
+
+    public ArchiveVerification(String segment, AccountType accountType, long rowCount, int damagedBlocks, boolean checksumMatches) {
+        this.segment = segment;
+        this.accountType = accountType;
+        this.rowCount = rowCount;
+        this.damagedBlocks = damagedBlocks;
+        this.checksumMatches = checksumMatches;
+    }
+
+    public String getSegment() {
+        return segment;
+    }
+
+    public AccountType getAccountType() {
+        return accountType;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getDamagedBlocks() {
+        return damagedBlocks;
+    }
+
+    public boolean isChecksumMatches() {
+        return checksumMatches;
+    }
+
+    public boolean isValid() {
+        return checksumMatches && damagedBlocks == 0;
+    }
+}
@@ -0,0 +1,24 @@
+package com.kokabmedia.domain;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// The balance of an account at the end of one day, one point of the balance history chart
+public class BalancePoint {
+
+    private final LocalDate day;
+    private final BigDecimal balance;
+
+    public BalancePoint(LocalDate day, BigDecimal balance) {
+        this.day = day;
+        this.balance = balance;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+}
@@ -0,0 +1,60 @@
+package com.kokabmedia.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * The answer to a delta sync request: the current state of every transaction, appointment
+ * and user that changed after the sync token of the client, and the token to send next time.
+ *
+ * When fullResyncRequired is true the token of the client was unknown or its changes were
+ * already pruned, the client has to reload its lists and continue with the returned token.
+ * The same row can be sent more than once, the client replaces what it has by id.
+ */
+public class ChangeFeed {
+
+    private final String token;
+    private final boolean fullResyncRequired;
+    private final boolean hasMore;
+    private final List<LedgerEntry> transactions;
+    private final List<Appointment> appointments;
+    private final List<UserStatus> users;
+
+    public ChangeFeed(String token, boolean fullResyncRequired, boolean hasMore, List<LedgerEntry> transactions,
+            List<Appointment> appointments, List<UserStatus> users) {
+        this.token = token;
+        this.fullResyncRequired = fullResyncRequired;
+        this.hasMore = hasMore;
+        this.transactions = transactions;
+        this.appointments = appointments;
+        this.users = users;
+    }
+
+    public static ChangeFeed fullResync(String token) {
+        return new ChangeFeed(token, true, false, new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public boolean isFullResyncRequired() {
+        return fullResyncRequired;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public List<LedgerEntry> getTransactions() {
+        return transactions;
+    }
+
+    public List<Appointment> getAppointments() {
+        return appointments;
+    }
+
+    public List<UserStatus> getUsers() {
+        return users;
+    }
+}
@@ -0,0 +1,99 @@
+package com.kokabmedia.domain;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/*
+ * This is a entity class for the purpose of retrieving, creating, updating, deleting
+ * data with a database.
+ *
+ * One ChangeLog row is written in the same database transaction as every change of a
+ * transaction, appointment or user. The sequence is an auto increment column, so it grows
+ * with every change and the clients can ask for the changes after the last sequence they
+ * have seen (the sync token) through the primary key index.
+ *
+ * The @Entity annotation from javax.persistence enables the JPA framework to manage
+ * the ChangeLog class as a JPA entity. The ChangeLog class is an entity and will be
+ * mapped to a database table named Change_Log by Hibernate.
+ */
+@Entity
+// Index used to prune the rows that are older than the retention period
+@Table(indexes = @Index(name = "idx_change_log_changed_at", columnList = "changedAt"))
+public class ChangeLog {
+
+	/*
+	 * The @Id annotation makes this field a primary key in the database table.
+	 *
+	 * The IDENTITY strategy lets the database assign the value from an auto increment
+	 * column, unlike the shared hibernate_sequence the values of this table are in the
+	 * order the rows were inserted.
+	 */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long sequence;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private ChangeType entityType;
+    private Long entityId;
+    private Date changedAt;
+
+    public ChangeLog() {}
+
+    public ChangeLog(ChangeType entityType, Long entityId, Date changedAt) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.changedAt = changedAt;
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+
+    public ChangeType getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(ChangeType entityType) {
+        this.entityType = entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    public Date getChangedAt() {
+        return changedAt;
+    }
+
+    public void setChangedAt(Date changedAt) {
+        this.changedAt = changedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeLog{" +
+                "sequence=" + sequence +
+                ", entityType=" + entityType +
+                ", entityId=" + entityId +
+                ", changedAt=" + changedAt +
+                '}';
+    }
+}
@@ -0,0 +1,6 @@
+package com.kokabmedia.domain;
+
+// The kinds of rows that are recorded in the change log for the delta sync of the clients
+public enum ChangeType {
+    PRIMARY_TRANSACTION, SAVINGS_TRANSACTION, APPOINTMENT, USER
+}
@@ -0,0 +1,80 @@
+package com.kokabmedia.domain;
+
+/*
+ * A customer as the admin customer search knows it: the searchable fields of the user and
+ * the numbers of its two accounts. The index holds one per user, a search returns copies
+ * with the score of the match, higher is better.
+ */
+public class CustomerSearchResult {
+
+    private final Long userId;
+    private final String username;
+    private final String firstName;
+    private final String lastName;
+    private final String email;
+    private final String phone;
+    private final Integer primaryAccountNumber;
+    private final Integer savingsAccountNumber;
+    private final int score;
+
+    public CustomerSearchResult(Long userId, String username, String firstName, String lastName, String email, String phone,
+            Integer primaryAccountNumber, Integer savingsAccountNumber, int score) {
+        this.userId = userId;
+        this.username = username;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+        this.phone = phone;
+        this.primaryAccountNumber = primaryAccountNumber;
+        this.savingsAccountNumber = savingsAccountNumber;
+        this.score = score;
+    }
+
+    public static CustomerSearchResult of(User user) {
+        return new CustomerSearchResult(user.getUserId(), user.getUsername(), user.getFirstName(), user.getLastName(),
+                user.getEmail(), user.getPhone(),
+                user.getPrimaryAccount() == null ? null : user.getPrimaryAccount().getAccountNumber(),
+                user.getSavingsAccount() == null ? null : user.getSavingsAccount().getAccountNumber(), 0);
+    }
+
+    public CustomerSearchResult withScore(int score) {
+        return new CustomerSearchResult(userId, username, firstName, lastName, email, phone, primaryAccountNumber,
+                savingsAccountNumber, score);
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getPhone() {
+        return phone;
+    }
+
+    public Integer getPrimaryAccountNumber() {
+        return primaryAccountNumber;
+    }
+
+    public Integer getSavingsAccountNumber() {
+        return savingsAccountNumber;
+    }
+
+    public int getScore() {
+        return score;
+    }
+}
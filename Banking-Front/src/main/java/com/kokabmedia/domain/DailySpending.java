@@ -0,0 +1,170 @@
+package com.kokabmedia.domain;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/*
+ * This is a entity class for the purpose of retrieving, creating, updating, deleting
+ * data with a database.
+ *
+ * A DailySpending row is the inflow and outflow of one account on one day for one
+ * transaction type and recipient. The rows are kept up to date in the same database
+ * transaction as every ledger write, so the spending analytics of a long date range read
+ * a few rows per day instead of every transaction of the range.
+ *
+ * The @Entity annotation from javax.persistence enables the JPA framework to manage
+ * the DailySpending class as a JPA entity. The DailySpending class is an entity and
+ * will be mapped to a database table named Daily_Spending by Hibernate.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"accountType", "accountId", "spendingDay", "type", "counterparty"}))
+public class DailySpending {
+
+    // Longer recipient names are cut to this length, see Ledger.counterpartyOf
+    public static final int COUNTERPARTY_LENGTH = 100;
+
+	/*
+	 * The @Id annotation makes this field a primary key in the database table.
+	 *
+	 * The @GeneratedValue annotation makes the Hibernate generate the primary key value.
+	 *
+	 * Primary key will uniquely identify each row in a database table.
+	 */
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private AccountType accountType;
+    private Long accountId;
+    private LocalDate spendingDay;
+
+    @Column(length = 64)
+    private String type;
+
+    // The recipient of a transfer, an empty string for deposits and withdrawals
+    @Column(length = COUNTERPARTY_LENGTH)
+    private String counterparty;
+
+    private BigDecimal inflow;
+    private BigDecimal outflow;
+    private long transactionCount;
+
+    public DailySpending() {}
+
+    public DailySpending(AccountType accountType, Long accountId, LocalDate spendingDay, String type, String counterparty) {
+        this.accountType = accountType;
+        this.accountId = accountId;
+        this.spendingDay = spendingDay;
+        this.type = type;
+        this.counterparty = counterparty;
+        this.inflow = BigDecimal.ZERO;
+        this.outflow = BigDecimal.ZERO;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public AccountType getAccountType() {
+        return accountType;
+    }
+
+    public void setAccountType(AccountType accountType) {
+        this.accountType = accountType;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(Long accountId) {
+        this.accountId = accountId;
+    }
+
+    public LocalDate getSpendingDay() {
+        return spendingDay;
+    }
+
+    public void setSpendingDay(LocalDate spendingDay) {
+        this.spendingDay = spendingDay;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getCounterparty() {
+        return counterparty;
+    }
+
+    public void setCounterparty(String counterparty) {
+        this.counterparty = counterparty;
+    }
+
+    public BigDecimal getInflow() {
+        return inflow;
+    }
+
+    public void setInflow(BigDecimal inflow) {
+        this.inflow = inflow;
+    }
+
+    public BigDecimal getOutflow() {
+        return outflow;
+    }
+
+    public void setOutflow(BigDecimal outflow) {
+        this.outflow = outflow;
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    // Adds count ledger rows with a total of amount, credit is true for money coming in
+    public void apply(boolean credit, BigDecimal amount, long count) {
+        if (credit) {
+            this.inflow = this.inflow.add(amount);
+        } else {
+            this.outflow = this.outflow.add(amount);
+        }
+        this.transactionCount += count;
+    }
+
+    @Override
+    public String toString() {
+        return "DailySpending{" +
+                "accountType=" + accountType +
+                ", accountId=" + accountId +
+                ", spendingDay=" + spendingDay +
+                ", type='" + type + '\'' +
+                ", counterparty='" + counterparty + '\'' +
+                ", inflow=" + inflow +
+                ", outflow=" + outflow +
+                ", transactionCount=" + transactionCount +
+                '}';
+    }
+}
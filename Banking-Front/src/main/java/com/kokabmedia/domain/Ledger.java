@@ -0,0 +1,76 @@
+package com.kokabmedia.domain;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Date;
+
+/*
+ * Helper methods shared by everything that reads the PrimaryTransaction and
+ * SavingsTransaction rows (the ledger).
+ *
+ * The transaction rows always store a positive amount, the direction of the money is
+ * only visible in the description that the services write: "Deposit to ..." rows are
+ * credits, withdrawals and transfers out of the account are debits.
+ */
+public final class Ledger {
+
+    private static final String DEPOSIT_PREFIX = "Deposit";
+    private static final String RECIPIENT_PREFIX = "Transfer to recipient ";
+    private static final String BETWEEN_ACCOUNTS_PREFIX = "Between account transfer";
+
+    private Ledger() {}
+
+    public static boolean isCredit(String description) {
+        return description != null && description.startsWith(DEPOSIT_PREFIX);
+    }
+
+    /*
+     * The recipient of a transfer to someone else, an empty string for every other row. A
+     * recipient name longer than the counterparty column of DailySpending is cut to fit it.
+     */
+    public static String counterpartyOf(String description) {
+        if (description == null || !description.startsWith(RECIPIENT_PREFIX)) {
+            return "";
+        }
+        String counterparty = description.substring(RECIPIENT_PREFIX.length()).trim();
+        return counterparty.length() > DailySpending.COUNTERPARTY_LENGTH
+                ? counterparty.substring(0, DailySpending.COUNTERPARTY_LENGTH) : counterparty;
+    }
+
+    /*
+     * A transfer between the two accounts of the same user, it moves money but is neither
+     * income nor spending of that user.
+     */
+    public static boolean isInternalTransfer(String description) {
+        return description != null && description.startsWith(BETWEEN_ACCOUNTS_PREFIX);
+    }
+
+    // The amount rounded the same way as the decimal(19,2) balance columns
+    public static BigDecimal amount(double amount) {
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    public static BigDecimal signedAmount(String description, double amount) {
+        return isCredit(description) ? amount(amount) : amount(amount).negate();
+    }
+
+    public static LocalDate dayOf(Date date) {
+        return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    public static YearMonth monthOf(Date date) {
+        return YearMonth.from(dayOf(date));
+    }
+
+    public static Date startOf(LocalDate day) {
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    public static Date startOf(YearMonth month) {
+        return startOf(month.atDay(1));
+    }
+}
@@ -0,0 +1,97 @@
+package com.kokabmedia.domain;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/*
+ * An immutable copy of one PrimaryTransaction or SavingsTransaction row together with the
+ * account it belongs to. It is used where transactions are kept outside of the persistence
+ * context, for example in the search index and in caches, so no lazy relation or managed
+ * entity is held on to.
+ */
+public final class LedgerEntry implements LedgerRow {
+
+    private final AccountType accountType;
+    private final Long accountId;
+    private final Long id;
+    private final long date;
+    private final String description;
+    private final String type;
+    private final String status;
+    private final double amount;
+    private final BigDecimal availableBalance;
+
+    public LedgerEntry(AccountType accountType, Long accountId, Long id, Date date, String description, String type,
+            String status, double amount, BigDecimal availableBalance) {
+        this.accountType = accountType;
+        this.accountId = accountId;
+        this.id = id;
+        this.date = date.getTime();
+        this.description = description;
+        this.type = type;
+        this.status = status;
+        this.amount = amount;
+        this.availableBalance = availableBalance;
+    }
+
+    public static LedgerEntry of(PrimaryTransaction t) {
+        return new LedgerEntry(AccountType.PRIMARY, t.getPrimaryAccount().getId(), t.getId(), t.getDate(),
+                t.getDescription(), t.getType(), t.getStatus(), t.getAmount(), t.getAvailableBalance());
+    }
+
+    public static LedgerEntry of(SavingsTransaction t) {
+        return new LedgerEntry(AccountType.SAVINGS, t.getSavingsAccount().getId(), t.getId(), t.getDate(),
+                t.getDescription(), t.getType(), t.getStatus(), t.getAmount(), t.getAvailableBalance());
+    }
+
+    public AccountKey accountKey() {
+        return new AccountKey(accountType, accountId);
+    }
+
+    public AccountType getAccountType() {
+        return accountType;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public Date getDate() {
+        return new Date(date);
+    }
+
+    public long getTime() {
+        return date;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public String getStatus() {
+        return status;
+    }
+
+    @Override
+    public double getAmount() {
+        return amount;
+    }
+
+    @Override
+    public BigDecimal getAvailableBalance() {
+        return availableBalance;
+    }
+}
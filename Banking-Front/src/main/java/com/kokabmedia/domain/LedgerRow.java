@@ -0,0 +1,24 @@
+package com.kokabmedia.domain;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/*
+ * The columns that PrimaryTransaction and SavingsTransaction have in common, this lets
+ * the statement, search and history code handle rows of both accounts the same way.
+ */
+public interface LedgerRow {
+    Long getId();
+
+    Date getDate();
+
+    String getDescription();
+
+    String getType();
+
+    String getStatus();
+
+    double getAmount();
+
+    BigDecimal getAvailableBalance();
+}
@@ -0,0 +1,179 @@
+package com.kokabmedia.domain;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/*
+ * This is a entity class for the purpose of retrieving, creating, updating, deleting
+ * data with a database.
+ *
+ * A MonthlyStatement is a rollup of all the PrimaryTransaction or SavingsTransaction rows
+ * of one account in one calendar month. The row is kept up to date in the same database
+ * transaction as every ledger write, so a statement can be read with a single lookup on
+ * the (account_type, account_id, statement_month) key instead of scanning the transactions.
+ *
+ * The @Entity annotation from javax.persistence enables the JPA framework to manage
+ * the MonthlyStatement class as a JPA entity. The MonthlyStatement class is an entity and
+ * will be mapped to a database table named Monthly_Statement by Hibernate.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"accountType", "accountId", "statementMonth"}))
+public class MonthlyStatement {
+
+	/*
+	 * The @Id annotation makes this field a primary key in the database table.
+	 *
+	 * The @GeneratedValue annotation makes the Hibernate generate the primary key value.
+	 *
+	 * Primary key will uniquely identify each row in a database table.
+	 */
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private AccountType accountType;
+    private Long accountId;
+
+    // The month in ISO format, for example 2021-10
+    private String statementMonth;
+
+    private BigDecimal openingBalance;
+    private BigDecimal closingBalance;
+    private BigDecimal totalCredits;
+    private BigDecimal totalDebits;
+    private long transactionCount;
+
+    public MonthlyStatement() {}
+
+    public MonthlyStatement(AccountType accountType, Long accountId, String statementMonth, BigDecimal openingBalance) {
+        this.accountType = accountType;
+        this.accountId = accountId;
+        this.statementMonth = statementMonth;
+        this.openingBalance = openingBalance;
+        this.closingBalance = openingBalance;
+        this.totalCredits = BigDecimal.ZERO;
+        this.totalDebits = BigDecimal.ZERO;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public AccountType getAccountType() {
+        return accountType;
+    }
+
+    public void setAccountType(AccountType accountType) {
+        this.accountType = accountType;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(Long accountId) {
+        this.accountId = accountId;
+    }
+
+    public String getStatementMonth() {
+        return statementMonth;
+    }
+
+    public void setStatementMonth(String statementMonth) {
+        this.statementMonth = statementMonth;
+    }
+
+    public BigDecimal getOpeningBalance() {
+        return openingBalance;
+    }
+
+    public void setOpeningBalance(BigDecimal openingBalance) {
+        this.openingBalance = openingBalance;
+    }
+
+    public BigDecimal getClosingBalance() {
+        return closingBalance;
+    }
+
+    public void setClosingBalance(BigDecimal closingBalance) {
+        this.closingBalance = closingBalance;
+    }
+
+    public BigDecimal getTotalCredits() {
+        return totalCredits;
+    }
+
+    public void setTotalCredits(BigDecimal totalCredits) {
+        this.totalCredits = totalCredits;
+    }
+
+    public BigDecimal getTotalDebits() {
+        return totalDebits;
+    }
+
+    public void setTotalDebits(BigDecimal totalDebits) {
+        this.totalDebits = totalDebits;
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    /*
+     * Adds one ledger row to the rollup, credit is true when the row increased the
+     * balance of the account and closingBalance is the available balance after the row.
+     */
+    public void apply(boolean credit, BigDecimal amount, BigDecimal closingBalance) {
+        if (credit) {
+            this.totalCredits = this.totalCredits.add(amount);
+        } else {
+            this.totalDebits = this.totalDebits.add(amount);
+        }
+        this.closingBalance = closingBalance;
+        this.transactionCount++;
+    }
+
+    /*
+     * Compares the totals of two rollups, used when a stored rollup is checked
+     * against one that is recomputed from the raw transaction rows.
+     */
+    public boolean sameTotals(MonthlyStatement other) {
+        return other != null
+                && openingBalance.compareTo(other.openingBalance) == 0
+                && closingBalance.compareTo(other.closingBalance) == 0
+                && totalCredits.compareTo(other.totalCredits) == 0
+                && totalDebits.compareTo(other.totalDebits) == 0
+                && transactionCount == other.transactionCount;
+    }
+
+    @Override
+    public String toString() {
+        return "MonthlyStatement{" +
+                "accountType=" + accountType +
+                ", accountId=" + accountId +
+                ", statementMonth='" + statementMonth + '\'' +
+                ", openingBalance=" + openingBalance +
+                ", closingBalance=" + closingBalance +
+                ", totalCredits=" + totalCredits +
+                ", totalDebits=" + totalDebits +
+                ", transactionCount=" + transactionCount +
+                '}';
+    }
+}
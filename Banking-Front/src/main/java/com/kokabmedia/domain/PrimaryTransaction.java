@@ -3,12 +3,16 @@ package com.kokabmedia.domain;
 import java.math.BigDecimal;
 import java.util.Date;
 
+import javax.persistence.ConstraintMode;
 import javax.persistence.Entity;
+import javax.persistence.ForeignKey;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
 
 /*
  * This is a entity class for the purpose of retrieving, creating, updating, deleting 
@@ -21,7 +25,9 @@ import javax.persistence.ManyToOne;
  * will be mapped to a database table named Primary_Transaction by Hibernate. 
  */
 @Entity
-public class PrimaryTransaction {
+// Index used by every per account history, statement and balance lookup
+@Table(indexes = @Index(name = "idx_primary_transaction_account_date", columnList = "primary_account_id, date"))
+public class PrimaryTransaction implements LedgerRow {
 
 	/*
 	 * The @Id annotation makes this field a primary key in the database table.
@@ -73,7 +79,8 @@ public class PrimaryTransaction {
 	 * PrimaryAccount entity will be fetched with the PrimaryTransaction entity automatically.
 	 */
     @ManyToOne
-    @JoinColumn(name = "primary_account_id") // Creates a column in the name primary_account_id in the PrimaryTransaction table
+    // No foreign key constraint, MySQL does not allow foreign keys on a partitioned table
+    @JoinColumn(name = "primary_account_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private PrimaryAccount primaryAccount;
 
     public Long getId() {
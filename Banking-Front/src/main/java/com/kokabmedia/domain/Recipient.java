@@ -1,11 +1,14 @@
 package com.kokabmedia.domain;
 
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -18,8 +21,13 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
  * The @Entity annotation from javax.persistence enables the JPA framework to manage 
  * the Recipient class as a JPA entity. The Recipient class is an entity and will be mapped to a 
  * database table named Recipient by Hibernate. 
+ *
+ * The recipients are always read per user and a recipient is found by its name among the
+ * recipients of its user. The unique (user_id, name) index serves both lookups and keeps
+ * a user from having two recipients with the same name.
  */
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_recipient_user_name", columnNames = { "user_id", "name" }))
 public class Recipient {
 
 	/*
@@ -54,10 +62,10 @@ public class Recipient {
 	 * (rows) can be linked to the same User row with user_id column. This entity is the owning
 	 * side of the relationship.
 	 * 
-	 * The fetch strategy for the ManyToOne side of the relations is Eager Fetch and the details of 
-	 * User entity will be fetched with the Recipient entity automatically.
+	 * The fetch strategy is Lazy Fetch, the recipient lists are read by user id and do not
+	 * need the User, so the user (and its accounts) is only loaded when it is asked for.
 	 */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")// Creates a column in the name user_id in the Recipient table
     /*
      * The @JsonIgnore annotation enables that when we return the JSON format of the Recipient 
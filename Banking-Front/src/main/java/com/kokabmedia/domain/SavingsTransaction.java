@@ -3,12 +3,16 @@ package com.kokabmedia.domain;
 import java.math.BigDecimal;
 import java.util.Date;
 
+import javax.persistence.ConstraintMode;
 import javax.persistence.Entity;
+import javax.persistence.ForeignKey;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
 
 /*
  * This is a entity class for the purpose of retrieving, creating, updating, deleting 
@@ -21,7 +25,9 @@ import javax.persistence.ManyToOne;
  * entity and will be mapped to a database table named Savings_Transaction by Hibernate. 
  */
 @Entity
-public class SavingsTransaction {
+// Index used by every per account history, statement and balance lookup
+@Table(indexes = @Index(name = "idx_savings_transaction_account_date", columnList = "savings_account_id, date"))
+public class SavingsTransaction implements LedgerRow {
 
 
 	/*
@@ -62,7 +68,8 @@ public class SavingsTransaction {
 	 * SavingsAccount entity will be fetched with the SavingsTransaction entity automatically.
 	 */
     @ManyToOne
-    @JoinColumn(name = "savings_account_id")
+    // No foreign key constraint, MySQL does not allow foreign keys on a partitioned table
+    @JoinColumn(name = "savings_account_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private SavingsAccount savingsAccount;
 
     public SavingsTransaction() {}
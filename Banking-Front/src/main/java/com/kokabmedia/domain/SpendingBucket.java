@@ -0,0 +1,45 @@
+package com.kokabmedia.domain;
+
+import java.math.BigDecimal;
+
+/*
+ * Inflow and outflow of one group of the spending analytics, a week or month, a
+ * transaction type or a recipient.
+ */
+public class SpendingBucket {
+
+    private final String name;
+    private BigDecimal inflow = BigDecimal.ZERO;
+    private BigDecimal outflow = BigDecimal.ZERO;
+    private long transactionCount;
+
+    public SpendingBucket(String name) {
+        this.name = name;
+    }
+
+    public void add(DailySpending spending) {
+        this.inflow = this.inflow.add(spending.getInflow());
+        this.outflow = this.outflow.add(spending.getOutflow());
+        this.transactionCount += spending.getTransactionCount();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public BigDecimal getInflow() {
+        return inflow;
+    }
+
+    public BigDecimal getOutflow() {
+        return outflow;
+    }
+
+    public BigDecimal getNet() {
+        return inflow.subtract(outflow);
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+}
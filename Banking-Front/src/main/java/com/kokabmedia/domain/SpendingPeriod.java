@@ -0,0 +1,29 @@
+package com.kokabmedia.domain;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.IsoFields;
+
+/*
+ * The buckets the spending analytics are grouped by over time, ISO weeks (2021-W42)
+ * or calendar months (2021-10).
+ */
+public enum SpendingPeriod {
+    WEEK, MONTH;
+
+    public String label(LocalDate day) {
+        if (this == WEEK) {
+            return String.format("%d-W%02d", day.get(IsoFields.WEEK_BASED_YEAR), day.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+        }
+        return YearMonth.from(day).toString();
+    }
+
+    public static SpendingPeriod fromName(String name) {
+        for (SpendingPeriod period : values()) {
+            if (period.name().equalsIgnoreCase(name)) {
+                return period;
+            }
+        }
+        throw new IllegalArgumentException("Unknown period " + name);
+    }
+}
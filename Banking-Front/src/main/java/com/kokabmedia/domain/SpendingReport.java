@@ -0,0 +1,75 @@
+package com.kokabmedia.domain;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * The personal spending analytics of a user over a date range: the totals, the inflow and
+ * outflow per week or month, per transaction type and per recipient. Transfers between the
+ * two accounts of the user are not part of the report.
+ *
+ * A report is built once from DailySpending rows and is not changed after that, so it can
+ * be shared by the cache.
+ */
+public class SpendingReport {
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final SpendingPeriod period;
+    private final SpendingBucket total = new SpendingBucket("total");
+    private final Map<String, SpendingBucket> periods = new TreeMap<>();
+    private final Map<String, SpendingBucket> types = new TreeMap<>();
+    private final Map<String, SpendingBucket> recipients = new TreeMap<>();
+
+    public SpendingReport(LocalDate from, LocalDate to, SpendingPeriod period, Collection<DailySpending> days) {
+        this.from = from;
+        this.to = to;
+        this.period = period;
+
+        for (DailySpending day : days) {
+            total.add(day);
+            periods.computeIfAbsent(period.label(day.getSpendingDay()), SpendingBucket::new).add(day);
+            types.computeIfAbsent(day.getType(), SpendingBucket::new).add(day);
+            if (!day.getCounterparty().isEmpty()) {
+                recipients.computeIfAbsent(day.getCounterparty(), SpendingBucket::new).add(day);
+            }
+        }
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public SpendingPeriod getPeriod() {
+        return period;
+    }
+
+    public SpendingBucket getTotal() {
+        return total;
+    }
+
+    // In chronological order, the labels of both periods sort as text
+    public List<SpendingBucket> getPeriods() {
+        return new ArrayList<>(periods.values());
+    }
+
+    public List<SpendingBucket> getTypes() {
+        return new ArrayList<>(types.values());
+    }
+
+    // The largest outflow first
+    public List<SpendingBucket> getRecipients() {
+        List<SpendingBucket> sorted = new ArrayList<>(recipients.values());
+        sorted.sort(Comparator.comparing(SpendingBucket::getOutflow).reversed());
+        return sorted;
+    }
+}
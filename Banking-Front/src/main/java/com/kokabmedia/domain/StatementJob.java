@@ -0,0 +1,103 @@
+package com.kokabmedia.domain;
+
+import java.time.YearMonth;
+import java.util.Date;
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/*
+ * A request to render the statement document of one account and month. Jobs are kept in
+ * memory, they are created on the request thread, updated by the worker that renders the
+ * document and polled by the user until they are finished.
+ */
+public class StatementJob {
+
+    private final String id;
+
+    // Only the user that submitted the job can poll it and download its document
+    @JsonIgnore
+    private final String username;
+
+    private final AccountType accountType;
+    private final Long accountId;
+    private final String month;
+    private final Date submittedAt;
+
+    private volatile StatementJobStatus status;
+    private volatile Date finishedAt;
+    private volatile String error;
+
+    @JsonIgnore
+    private volatile String documentName;
+
+    public StatementJob(String username, AccountType accountType, Long accountId, YearMonth month) {
+        this.id = UUID.randomUUID().toString();
+        this.username = username;
+        this.accountType = accountType;
+        this.accountId = accountId;
+        this.month = month.toString();
+        this.submittedAt = new Date();
+        this.status = StatementJobStatus.QUEUED;
+    }
+
+    public void running() {
+        this.status = StatementJobStatus.RUNNING;
+    }
+
+    public void done(String documentName) {
+        this.documentName = documentName;
+        this.finishedAt = new Date();
+        this.status = StatementJobStatus.DONE;
+    }
+
+    public void failed(String error) {
+        this.error = error;
+        this.finishedAt = new Date();
+        this.status = StatementJobStatus.FAILED;
+    }
+
+    public AccountKey accountKey() {
+        return new AccountKey(accountType, accountId);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public AccountType getAccountType() {
+        return accountType;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public String getMonth() {
+        return month;
+    }
+
+    public Date getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public StatementJobStatus getStatus() {
+        return status;
+    }
+
+    public Date getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public String getDocumentName() {
+        return documentName;
+    }
+}
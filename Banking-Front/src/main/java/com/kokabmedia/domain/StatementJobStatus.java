@@ -0,0 +1,13 @@
+package com.kokabmedia.domain;
+
+// The states of a StatementJob, a job ends as either DONE or FAILED
+public enum StatementJobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == DONE || this == FAILED;
+    }
+}
@@ -0,0 +1,31 @@
+package com.kokabmedia.domain;
+
+/*
+ * The result of checking a stored MonthlyStatement rollup against the same rollup
+ * recomputed from the raw transaction rows of the month.
+ */
+public class StatementVerification {
+
+    private final MonthlyStatement stored;
+    private final MonthlyStatement recomputed;
+
+    public StatementVerification(MonthlyStatement stored, MonthlyStatement recomputed) {
+        this.stored = stored;
+        this.recomputed = recomputed;
+    }
+
+    public MonthlyStatement getStored() {
+        return stored;
+    }
+
+    public MonthlyStatement getRecomputed() {
+        return recomputed;
+    }
+
+    public boolean isConsistent() {
+        if (stored == null || recomputed == null) {
+            return stored == recomputed;
+        }
+        return stored.sameTotals(recomputed);
+    }
+}
@@ -0,0 +1,115 @@
+package com.kokabmedia.domain;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/*
+ * The delta sync token: the highest change log sequence the client has seen, plus the
+ * sequences below it that were not visible yet (gaps).
+ *
+ * An auto increment value is assigned when a row is inserted and not when it is committed,
+ * so a change can become visible after a change with a higher sequence. Every sequence the
+ * token moves past without having seen it is kept as a gap, with the time it was first
+ * missed, and is looked up again by the next request. A gap that stays empty for longer
+ * than the gap timeout belongs to a rolled back insert and is dropped.
+ *
+ * The text form is "sequence" or "sequence:gap@millis,gap@millis", a token without gaps
+ * is the plain sequence the clients already have.
+ */
+public final class SyncToken {
+
+    // Upper bound of the gaps of one token, further missing sequences are not tracked
+    public static final int MAX_GAPS = 100;
+
+    private final long sequence;
+    // Missing sequence -> time in epoch milliseconds it was first missed
+    private final NavigableMap<Long, Long> gaps;
+
+    public SyncToken(long sequence) {
+        this(sequence, new TreeMap<>());
+    }
+
+    private SyncToken(long sequence, NavigableMap<Long, Long> gaps) {
+        this.sequence = sequence;
+        this.gaps = gaps;
+    }
+
+    // The token in its text form, null when the text is not a token
+    public static SyncToken parse(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            int colon = token.indexOf(':');
+            if (colon < 0) {
+                return new SyncToken(Long.parseLong(token));
+            }
+
+            NavigableMap<Long, Long> gaps = new TreeMap<>();
+            for (String gap : token.substring(colon + 1).split(",")) {
+                int at = gap.indexOf('@');
+                if (at < 0) {
+                    return null;
+                }
+                gaps.put(Long.valueOf(gap.substring(0, at)), Long.valueOf(gap.substring(at + 1)));
+            }
+            long sequence = Long.parseLong(token.substring(0, colon));
+            if (gaps.size() > MAX_GAPS || gaps.lastKey() >= sequence) {
+                return null;
+            }
+            return new SyncToken(sequence, gaps);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /*
+     * The token after the client received the given changes, which are the changes after
+     * the sequence and the gaps that are visible now. The sequences that were skipped become
+     * gaps, gaps that were first missed before now minus the gap timeout are dropped.
+     */
+    public SyncToken advance(Collection<Long> seen, long now, long gapTimeoutMillis) {
+        NavigableMap<Long, Long> next = new TreeMap<>(gaps);
+        next.keySet().removeAll(seen);
+        next.values().removeIf(missedAt -> missedAt < now - gapTimeoutMillis);
+
+        long last = sequence;
+        for (Long change : new TreeSet<>(seen)) {
+            if (change <= last) {
+                continue;
+            }
+            for (long missing = last + 1; missing < change && next.size() < MAX_GAPS; missing++) {
+                next.put(missing, now);
+            }
+            last = change;
+        }
+        return new SyncToken(last, next);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    // The sequences to look up again
+    public Collection<Long> getGaps() {
+        return gaps.keySet();
+    }
+
+    @Override
+    public String toString() {
+        if (gaps.isEmpty()) {
+            return String.valueOf(sequence);
+        }
+        StringBuilder token = new StringBuilder().append(sequence).append(':');
+        for (Map.Entry<Long, Long> gap : gaps.entrySet()) {
+            if (token.charAt(token.length() - 1) != ':') {
+                token.append(',');
+            }
+            token.append(gap.getKey()).append('@').append(gap.getValue());
+        }
+        return token.toString();
+    }
+}
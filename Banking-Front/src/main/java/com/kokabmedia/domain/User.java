@@ -52,6 +52,9 @@ public class User implements UserDetails{
 	// The name of the column is course_id and the field cannot have a null value 
     @Column(name = "userId", nullable = false, updatable = false) // update - cannot be updated once it has gotten the initial value.
     private Long userId;
+
+    // The unique index is what keeps two signups from taking the same username
+    @Column(name = "username", unique = true)
     private String username;
     private String password;
     private String firstName;
@@ -254,7 +257,7 @@ public class User implements UserDetails{
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         Set<GrantedAuthority> authorities = new HashSet<>();
-        userRoles.forEach(ur -> authorities.add(new Authority(ur.getRole().getName())));
+        userRoles.forEach(ur -> authorities.add(Authority.of(ur.getRole().getName())));
         return authorities;
     }
 
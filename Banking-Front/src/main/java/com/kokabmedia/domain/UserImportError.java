@@ -0,0 +1,30 @@
+package com.kokabmedia.domain;
+
+/*
+ * A row of a user import that was not imported: the line of the CSV file it starts on,
+ * its username and the reason.
+ */
+public class UserImportError {
+
+    private final long line;
+    private final String username;
+    private final String error;
+
+    public UserImportError(long line, String username, String error) {
+        this.line = line;
+        this.username = username;
+        this.error = error;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,106 @@
+package com.kokabmedia.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * The outcome of a user import. Rows are imported in chunks, lastCommittedLine is the
+ * last line of the file whose chunk was committed. An import that stopped half way is
+ * resumed by importing the same file again from the line after it, rows whose username
+ * or email already exists are skipped, so importing a row twice does no harm either.
+ *
+ * Only the first maxErrors errors are listed, errorCount counts all of them.
+ */
+public class UserImportReport {
+
+    private final long startLine;
+    private final int maxErrors;
+    private final List<UserImportError> errors = new ArrayList<>();
+
+    private long rowsRead;
+    private long imported;
+    private long skipped;
+    private long errorCount;
+    private long lastCommittedLine;
+    private boolean completed;
+    private String failure;
+
+    public UserImportReport(long startLine, int maxErrors) {
+        this.startLine = startLine;
+        this.maxErrors = maxErrors;
+        this.lastCommittedLine = startLine - 1;
+    }
+
+    public void rowRead() {
+        rowsRead++;
+    }
+
+    public void imported(int rows) {
+        imported += rows;
+    }
+
+    public void skipped(long line, String username, String reason) {
+        skipped++;
+        addError(line, username, reason);
+    }
+
+    public void failed(long line, String username, String error) {
+        errorCount++;
+        addError(line, username, error);
+    }
+
+    public void committed(long line) {
+        lastCommittedLine = Math.max(lastCommittedLine, line);
+    }
+
+    public void completed() {
+        completed = true;
+    }
+
+    // The import stopped before the end of the file
+    public void aborted(String failure) {
+        this.failure = failure;
+    }
+
+    private void addError(long line, String username, String error) {
+        if (errors.size() < maxErrors) {
+            errors.add(new UserImportError(line, username, error));
+        }
+    }
+
+    public long getStartLine() {
+        return startLine;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public long getLastCommittedLine() {
+        return lastCommittedLine;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public List<UserImportError> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,53 @@
+package com.kokabmedia.domain;
+
+/*
+ * The part of a User that the admin client shows in its user list, sent by the change feed
+ * instead of the whole User with its accounts and roles.
+ */
+public class UserStatus {
+
+    private final Long userId;
+    private final String username;
+    private final String firstName;
+    private final String lastName;
+    private final String email;
+    private final boolean enabled;
+
+    public UserStatus(Long userId, String username, String firstName, String lastName, String email, boolean enabled) {
+        this.userId = userId;
+        this.username = username;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+        this.enabled = enabled;
+    }
+
+    public static UserStatus of(User user) {
+        return new UserStatus(user.getUserId(), user.getUsername(), user.getFirstName(), user.getLastName(),
+                user.getEmail(), user.isEnabled());
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
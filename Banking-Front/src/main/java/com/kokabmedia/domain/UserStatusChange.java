@@ -0,0 +1,39 @@
+package com.kokabmedia.domain;
+
+import java.util.List;
+
+/*
+ * The body of a bulk status change of the admin API: the users to enable or disable,
+ * given either by their usernames or by the domain of their email ("partner.com" picks
+ * every user with an email that ends with "@partner.com").
+ */
+public class UserStatusChange {
+
+    private boolean enabled;
+    private List<String> usernames;
+    private String emailDomain;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<String> getUsernames() {
+        return usernames;
+    }
+
+    public void setUsernames(List<String> usernames) {
+        this.usernames = usernames;
+    }
+
+    public String getEmailDomain() {
+        return emailDomain;
+    }
+
+    public void setEmailDomain(String emailDomain) {
+        this.emailDomain = emailDomain;
+    }
+}
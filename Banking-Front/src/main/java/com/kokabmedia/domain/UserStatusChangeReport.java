@@ -0,0 +1,76 @@
+package com.kokabmedia.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * The outcome of a bulk status change. matched users were found, changed of them did not
+ * have the status yet, the others are counted as unchanged. Only the first maxNotFound
+ * usernames that do not exist are listed, notFoundCount counts all of them.
+ */
+public class UserStatusChangeReport {
+
+    private final boolean enabled;
+    private final int maxNotFound;
+    private final List<String> notFound = new ArrayList<>();
+
+    private long matched;
+    private long changed;
+    private long notFoundCount;
+    private int chunks;
+    private long sessionsDeleted;
+
+    public UserStatusChangeReport(boolean enabled, int maxNotFound) {
+        this.enabled = enabled;
+        this.maxNotFound = maxNotFound;
+    }
+
+    public void chunk(int matchedUsers, int changedUsers) {
+        chunks++;
+        matched += matchedUsers;
+        changed += changedUsers;
+    }
+
+    public void notFound(String username) {
+        notFoundCount++;
+        if (notFound.size() < maxNotFound) {
+            notFound.add(username);
+        }
+    }
+
+    public void sessionsDeleted(int sessions) {
+        sessionsDeleted += sessions;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getMatched() {
+        return matched;
+    }
+
+    public long getChanged() {
+        return changed;
+    }
+
+    public long getUnchanged() {
+        return matched - changed;
+    }
+
+    public long getNotFoundCount() {
+        return notFoundCount;
+    }
+
+    public List<String> getNotFound() {
+        return notFound;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public long getSessionsDeleted() {
+        return sessionsDeleted;
+    }
+}
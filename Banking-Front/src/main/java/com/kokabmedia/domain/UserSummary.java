@@ -0,0 +1,77 @@
+package com.kokabmedia.domain;
+
+import java.math.BigDecimal;
+
+/*
+ * One row of the admin user list: the user with the numbers and balances of its two
+ * accounts. It is read with a single joined query straight into this class, so no User
+ * entity, role, recipient or password hash is loaded to show the list.
+ */
+public class UserSummary {
+
+    private final Long userId;
+    private final String username;
+    private final String firstName;
+    private final String lastName;
+    private final String email;
+    private final boolean enabled;
+    private final Integer primaryAccountNumber;
+    private final BigDecimal primaryAccountBalance;
+    private final Integer savingsAccountNumber;
+    private final BigDecimal savingsAccountBalance;
+
+    public UserSummary(Long userId, String username, String firstName, String lastName, String email, boolean enabled,
+            Integer primaryAccountNumber, BigDecimal primaryAccountBalance, Integer savingsAccountNumber,
+            BigDecimal savingsAccountBalance) {
+        this.userId = userId;
+        this.username = username;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+        this.enabled = enabled;
+        this.primaryAccountNumber = primaryAccountNumber;
+        this.primaryAccountBalance = primaryAccountBalance;
+        this.savingsAccountNumber = savingsAccountNumber;
+        this.savingsAccountBalance = savingsAccountBalance;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Integer getPrimaryAccountNumber() {
+        return primaryAccountNumber;
+    }
+
+    public BigDecimal getPrimaryAccountBalance() {
+        return primaryAccountBalance;
+    }
+
+    public Integer getSavingsAccountNumber() {
+        return savingsAccountNumber;
+    }
+
+    public BigDecimal getSavingsAccountBalance() {
+        return savingsAccountBalance;
+    }
+}
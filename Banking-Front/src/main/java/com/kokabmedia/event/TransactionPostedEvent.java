@@ -0,0 +1,21 @@
+package com.kokabmedia.event;
+
+import com.kokabmedia.domain.LedgerEntry;
+
+/*
+ * Published by TransactionServiceImpl for every PrimaryTransaction or SavingsTransaction
+ * that is written. Listeners that keep derived data in memory (search index, caches)
+ * use @TransactionalEventListener so they only see writes that were committed.
+ */
+public class TransactionPostedEvent {
+
+    private final LedgerEntry entry;
+
+    public TransactionPostedEvent(LedgerEntry entry) {
+        this.entry = entry;
+    }
+
+    public LedgerEntry getEntry() {
+        return entry;
+    }
+}
@@ -0,0 +1,21 @@
+package com.kokabmedia.event;
+
+import com.kokabmedia.domain.CustomerSearchResult;
+
+/*
+ * Published by UserServiceImpl and the user import for every user that is created or
+ * changed. The customer search index listens with @TransactionalEventListener, so it
+ * only sees users that were committed.
+ */
+public class UserSavedEvent {
+
+    private final CustomerSearchResult customer;
+
+    public UserSavedEvent(CustomerSearchResult customer) {
+        this.customer = customer;
+    }
+
+    public CustomerSearchResult getCustomer() {
+        return customer;
+    }
+}
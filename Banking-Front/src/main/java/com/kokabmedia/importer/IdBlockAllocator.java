@@ -0,0 +1,134 @@
+package com.kokabmedia.importer;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/*
+ * Hands out blocks of consecutive numbers from the sequence tables, so code that inserts
+ * many rows with JDBC gets all its ids in one statement instead of one query per row.
+ *
+ * Entity ids come from hibernate_sequence, the table Hibernate takes the ids of all
+ * entities from, so rows inserted with a block of ids never collide with rows Hibernate
+ * saves. Account numbers come from account_number_sequence, which is created and seeded
+ * with the highest account number in use when it does not exist yet.
+ *
+ * A block is taken in its own short transaction with UPDATE ... LAST_INSERT_ID(), so the
+ * sequence row is locked only for that statement and not for the transaction of the
+ * caller. Numbers of a block that is not used up are skipped, the sequences have gaps.
+ */
+@Component
+// The seed query reads the account tables, which Hibernate creates with the entity manager factory
+@DependsOn("entityManagerFactory")
+public class IdBlockAllocator {
+
+    // The first account number used by the application
+    private static final long FIRST_ACCOUNT_NUMBER = 11223146;
+
+    // Account numbers and entity ids the application keeps in memory for single inserts
+    private static final int ACCOUNT_NUMBER_BLOCK = 20;
+    private static final int ENTITY_ID_BLOCK = 100;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate newTransaction;
+
+    // The next account number of the block in memory and the end of the block
+    private long nextAccountNumber;
+    private long accountNumberBlockEnd;
+
+    // The next entity id of the block in memory and the end of the block
+    private long nextEntityId;
+    private long entityIdBlockEnd;
+
+    @PostConstruct
+    public void init() {
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS account_number_sequence (next_val BIGINT NOT NULL)");
+        jdbcTemplate.update("INSERT INTO account_number_sequence (next_val) "
+                + "SELECT GREATEST(?, COALESCE((SELECT MAX(account_number) + 1 FROM primary_account), 0), "
+                + "COALESCE((SELECT MAX(account_number) + 1 FROM savings_account), 0)) FROM dual "
+                + "WHERE NOT EXISTS (SELECT * FROM account_number_sequence)", FIRST_ACCOUNT_NUMBER);
+    }
+
+    // The first of count consecutive entity ids
+    public long allocateEntityIds(int count) {
+        return allocate("hibernate_sequence", count);
+    }
+
+    // The first of count consecutive account numbers
+    public long allocateAccountNumbers(int count) {
+        return allocate("account_number_sequence", count);
+    }
+
+    // One account number, taken from a small block kept in memory
+    public int nextAccountNumber() {
+        return Math.toIntExact(nextAccountNumbers(1));
+    }
+
+    /*
+     * The first of count consecutive account numbers, taken from the block in memory when
+     * they fit in a block, so a signup usually allocates without a query.
+     */
+    public synchronized long nextAccountNumbers(int count) {
+        if (count > ACCOUNT_NUMBER_BLOCK) {
+            return allocateAccountNumbers(count);
+        }
+        if (accountNumberBlockEnd - nextAccountNumber < count) {
+            nextAccountNumber = allocateAccountNumbers(ACCOUNT_NUMBER_BLOCK);
+            accountNumberBlockEnd = nextAccountNumber + ACCOUNT_NUMBER_BLOCK;
+        }
+        long first = nextAccountNumber;
+        nextAccountNumber += count;
+        return first;
+    }
+
+    // The first of count consecutive entity ids, taken from the block in memory when they fit in a block
+    public synchronized long nextEntityIds(int count) {
+        if (count > ENTITY_ID_BLOCK) {
+            return allocateEntityIds(count);
+        }
+        if (entityIdBlockEnd - nextEntityId < count) {
+            nextEntityId = allocateEntityIds(ENTITY_ID_BLOCK);
+            entityIdBlockEnd = nextEntityId + ENTITY_ID_BLOCK;
+        }
+        long first = nextEntityId;
+        nextEntityId += count;
+        return first;
+    }
+
+    private long allocate(String table, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Cannot allocate " + count + " numbers");
+        }
+        // LAST_INSERT_ID is per connection, both statements run on the connection of the new transaction
+        return newTransaction.execute(status -> jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                int updated = statement.executeUpdate("UPDATE " + table + " SET next_val = LAST_INSERT_ID(next_val + " + count + ")");
+                if (updated != 1) {
+                    throw new IllegalStateException("The sequence table " + table + " has " + updated + " rows");
+                }
+                try (ResultSet resultSet = statement.executeQuery("SELECT LAST_INSERT_ID()")) {
+                    resultSet.next();
+                    return resultSet.getLong(1) - count;
+                }
+            }
+        }));
+    }
+}
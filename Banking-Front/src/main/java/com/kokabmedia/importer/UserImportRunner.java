@@ -0,0 +1,76 @@
+package com.kokabmedia.importer;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.kokabmedia.domain.UserImportError;
+import com.kokabmedia.domain.UserImportReport;
+import com.kokabmedia.service.UserImportService;
+
+/*
+ * Runs the bulk user import from the command line when a file is given, for example
+ *
+ * java -jar banking-front.jar --spring.main.web-application-type=none
+ *      --banking.import.file=partner-users.csv [--banking.import.start-line=5002]
+ *
+ * The rows that were not imported are written next to the file as <file>.errors.csv and
+ * the line to resume from is logged when the import stopped early.
+ */
+@Component
+@ConditionalOnProperty(name = "banking.import.file")
+public class UserImportRunner implements ApplicationRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserImportRunner.class);
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Value("${banking.import.file}")
+    private String file;
+
+    @Value("${banking.import.start-line:0}")
+    private long startLine;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        Path path = Paths.get(file);
+        UserImportReport report;
+        try (Reader csv = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            report = userImportService.importUsers(csv, startLine);
+        }
+
+        Path errors = Paths.get(file + ".errors.csv");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(errors, StandardCharsets.UTF_8))) {
+            out.println("line,username,error");
+            for (UserImportError error : report.getErrors()) {
+                out.println(error.getLine() + "," + quote(error.getUsername()) + "," + quote(error.getError()));
+            }
+        }
+
+        if (report.isCompleted()) {
+            LOG.info("Imported {} users from {}, {} skipped and {} failed rows are listed in {}", report.getImported(), path,
+                    report.getSkipped(), report.getErrorCount(), errors);
+        } else {
+            LOG.error("The import of {} stopped ({}), resume it with --banking.import.start-line={}", path,
+                    report.getFailure(), report.getLastCommittedLine() + 1);
+        }
+    }
+
+    private static String quote(String value) {
+        return value == null ? "" : "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
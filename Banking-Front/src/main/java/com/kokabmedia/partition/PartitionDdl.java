@@ -0,0 +1,82 @@
+package com.kokabmedia.partition;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/*
+ * Builds the MySQL statements that range partition a transaction table by month on its
+ * date column. Every month gets a partition named after it (p202110 holds October 2021)
+ * and the pmax partition catches the rows after the last month, new months are split off
+ * pmax before they start so pmax stays empty.
+ *
+ * MySQL requires the partitioning column to be part of every unique key, so the primary
+ * key of a partitioned table is (id, date).
+ */
+public final class PartitionDdl {
+
+    public static final String MAX_PARTITION = "pmax";
+
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private PartitionDdl() {}
+
+    public static String partitionName(YearMonth month) {
+        return month.format(NAME_FORMAT);
+    }
+
+    // The month of a partition name, null for pmax and names that are not a month
+    public static YearMonth monthOf(String partitionName) {
+        if (partitionName == null || !partitionName.matches("p\\d{6}")) {
+            return null;
+        }
+        return YearMonth.parse(partitionName, NAME_FORMAT);
+    }
+
+    // Turns an existing table into a table with one partition per month from first to last
+    public static String partitionTable(String table, YearMonth first, YearMonth last) {
+        StringBuilder sql = new StringBuilder("ALTER TABLE ").append(table)
+                .append(" DROP PRIMARY KEY, ADD PRIMARY KEY (id, `date`)")
+                .append(" PARTITION BY RANGE COLUMNS(`date`) (");
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            sql.append(partition(month)).append(", ");
+        }
+        return sql.append(maxPartition()).append(")").toString();
+    }
+
+    // Splits the given months, which all start after the last partition, off pmax
+    public static String addPartitions(String table, List<YearMonth> months) {
+        StringBuilder sql = new StringBuilder("ALTER TABLE ").append(table)
+                .append(" REORGANIZE PARTITION ").append(MAX_PARTITION).append(" INTO (");
+        for (YearMonth month : months) {
+            sql.append(partition(month)).append(", ");
+        }
+        return sql.append(maxPartition()).append(")").toString();
+    }
+
+    /*
+     * The statements that move the rows of one partition into a table of its own and drop
+     * the partition, the detached table can be archived or dropped separately.
+     */
+    public static String[] detachPartition(String table, YearMonth month) {
+        String detached = detachedTable(table, month);
+        return new String[] {
+                "CREATE TABLE " + detached + " LIKE " + table,
+                "ALTER TABLE " + detached + " REMOVE PARTITIONING",
+                "ALTER TABLE " + table + " EXCHANGE PARTITION " + partitionName(month) + " WITH TABLE " + detached,
+                "ALTER TABLE " + table + " DROP PARTITION " + partitionName(month)
+        };
+    }
+
+    public static String detachedTable(String table, YearMonth month) {
+        return table + "_" + month.format(DateTimeFormatter.ofPattern("yyyyMM"));
+    }
+
+    private static String partition(YearMonth month) {
+        return "PARTITION " + partitionName(month) + " VALUES LESS THAN ('" + month.plusMonths(1).atDay(1) + "')";
+    }
+
+    private static String maxPartition() {
+        return "PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE)";
+    }
+}
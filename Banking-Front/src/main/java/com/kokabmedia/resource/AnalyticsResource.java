@@ -0,0 +1,41 @@
+package com.kokabmedia.resource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.service.SpendingAnalyticsService;
+
+/*
+* This classes function is to handle HTTP requests, responses and expose recourses to 
+* other applications, more specifically the Angular build admin section of this application.
+* 
+* The admin endpoints of this class run the one time backfill of the daily spending 
+* aggregates that answer the spending analytics of long date ranges.
+* 
+* The @RestController annotation will register this class as a Rest Controller and it will
+* be able to receive HTTP request when they are sent and match the URL path.
+*/
+@RestController
+@RequestMapping("/api/analytics")
+@PreAuthorize("hasRole('ADMIN')") // For admin logging purposes
+public class AnalyticsResource {
+
+    @Autowired
+    private SpendingAnalyticsService spendingAnalyticsService;
+
+    // Rebuilds the daily aggregates of every account, returns the number of accounts that were rebuilt
+    @RequestMapping(value = "/backfill", method = RequestMethod.POST)
+    public int backfillAll() {
+        return spendingAnalyticsService.backfillAll();
+    }
+
+    @RequestMapping(value = "/backfill/account", method = RequestMethod.POST)
+    public void backfill(@RequestParam("accountType") String accountType, @RequestParam("accountId") Long accountId) {
+        spendingAnalyticsService.backfill(AccountType.fromName(accountType), accountId);
+    }
+}
@@ -0,0 +1,42 @@
+package com.kokabmedia.resource;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.kokabmedia.domain.ArchiveVerification;
+import com.kokabmedia.service.TransactionArchiveService;
+
+/*
+* This classes function is to handle HTTP requests, responses and expose recourses to 
+* other applications, more specifically the Angular build admin section of this application.
+* 
+* The admin endpoints of this class run the transaction archive job on demand and check 
+* the archive segments on disk against their block and file checksums.
+* 
+* The @RestController annotation will register this class as a Rest Controller and it will
+* be able to receive HTTP request when they are sent and match the URL path.
+*/
+@RestController
+@RequestMapping("/api/archive")
+@PreAuthorize("hasRole('ADMIN')") // For admin logging purposes
+public class ArchiveResource {
+
+    @Autowired
+    private TransactionArchiveService transactionArchiveService;
+
+    // Moves the transactions older than the archive age to new segments, returns the number of rows
+    @RequestMapping(value = "/run", method = RequestMethod.POST)
+    public long archiveTransactions() {
+        return transactionArchiveService.archiveTransactions();
+    }
+
+    @RequestMapping(value = "/verify", method = RequestMethod.GET)
+    public List<ArchiveVerification> verifyArchive() {
+        return transactionArchiveService.verifyArchive();
+    }
+}
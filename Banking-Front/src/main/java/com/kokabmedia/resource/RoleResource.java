@@ -0,0 +1,65 @@
+package com.kokabmedia.resource;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.kokabmedia.security.Role;
+import com.kokabmedia.security.RoleRegistry;
+import com.kokabmedia.service.UserServiceImpl.UserSecurityService;
+
+/*
+* This classes function is to handle HTTP requests, responses and expose recourses to 
+* other applications, more specifically the Angular build admin section of this application.
+* 
+* The admin endpoints of this class list and add roles. The roles are held in memory by
+* the RoleRegistry, a change reloads the registry and drops the cached authentication
+* snapshots so the next request of every user sees the new roles. A role added directly
+* in the database is picked up with /api/role/reload.
+* 
+* The @RestController annotation will register this class as a Rest Controller and it will
+* be able to receive HTTP request when they are sent and match the URL path.
+*/
+@RestController
+@RequestMapping("/api/role")
+@PreAuthorize("hasRole('ADMIN')") // For admin logging purposes
+public class RoleResource {
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Autowired
+    private UserSecurityService userSecurityService;
+
+    @RequestMapping(value = "/all", method = RequestMethod.GET)
+    public List<String> getRoleList() {
+        return roleNames();
+    }
+
+    // Adds a role, for example /api/role/save?name=ROLE_AUDITOR
+    @RequestMapping(value = "/save", method = RequestMethod.POST)
+    public List<String> saveRole(@RequestParam("name") String name) {
+        roleRegistry.createRole(name);
+        userSecurityService.invalidateAll();
+
+        return roleNames();
+    }
+
+    @RequestMapping(value = "/reload", method = RequestMethod.POST)
+    public List<String> reloadRoles() {
+        roleRegistry.reload();
+        userSecurityService.invalidateAll();
+
+        return roleNames();
+    }
+
+    private List<String> roleNames() {
+        return roleRegistry.findAll().stream().map(Role::getName).sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,31 @@
+package com.kokabmedia.resource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.kokabmedia.service.TransactionSearchService;
+
+/*
+* This classes function is to handle HTTP requests, responses and expose recourses to 
+* other applications, more specifically the Angular build admin section of this application.
+* 
+* The @RestController annotation will register this class as a Rest Controller and it will
+* be able to receive HTTP request when they are sent and match the URL path.
+*/
+@RestController
+@RequestMapping("/api/search")
+@PreAuthorize("hasRole('ADMIN')") // For admin logging purposes
+public class SearchResource {
+
+    @Autowired
+    private TransactionSearchService transactionSearchService;
+
+    // Drops the loaded search partitions so they are rebuilt from the database, returns the number dropped
+    @RequestMapping(value = "/rebuild", method = RequestMethod.POST)
+    public int rebuild() {
+        return transactionSearchService.rebuildAll();
+    }
+}
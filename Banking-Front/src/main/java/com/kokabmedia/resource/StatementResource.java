@@ -0,0 +1,51 @@
+package com.kokabmedia.resource;
+
+import java.time.YearMonth;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.StatementVerification;
+import com.kokabmedia.service.StatementService;
+
+/*
+* This classes function is to handle HTTP requests, responses and expose recourses to 
+* other applications, more specifically the Angular build admin section of this application.
+* 
+* The admin endpoints of this class run the one time backfill of the monthly statement 
+* rollups and check a rollup against the raw transaction rows on demand.
+* 
+* The @RestController annotation will register this class as a Rest Controller and it will
+* be able to receive HTTP request when they are sent and match the URL path.
+*/
+@RestController
+@RequestMapping("/api/statement")
+@PreAuthorize("hasRole('ADMIN')") // For admin logging purposes
+public class StatementResource {
+
+    @Autowired
+    private StatementService statementService;
+
+    // Rebuilds the rollups of every account, returns the number of accounts that were rebuilt
+    @RequestMapping(value = "/backfill", method = RequestMethod.POST)
+    public int backfillAll() {
+        return statementService.backfillAll();
+    }
+
+    // Rebuilds the rollups of a single account, for example after a failed verification
+    @RequestMapping(value = "/backfill/account", method = RequestMethod.POST)
+    public void backfill(@RequestParam("accountType") String accountType, @RequestParam("accountId") Long accountId) {
+        statementService.backfill(AccountType.fromName(accountType), accountId);
+    }
+
+    @RequestMapping(value = "/verify", method = RequestMethod.GET)
+    public StatementVerification verify(@RequestParam("accountType") String accountType, @RequestParam("accountId") Long accountId,
+            @RequestParam("month") String month) {
+        return statementService.verifyStatement(AccountType.fromName(accountType), accountId, YearMonth.parse(month));
+    }
+}
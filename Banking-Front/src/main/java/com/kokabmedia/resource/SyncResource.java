@@ -0,0 +1,41 @@
+package com.kokabmedia.resource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.kokabmedia.domain.ChangeFeed;
+import com.kokabmedia.service.ChangeFeedService;
+
+/*
+* This classes function is to handle HTTP requests, responses and expose recourses to 
+* other applications, more specifically the Angular build admin section of this application.
+* 
+* Instead of loading the user, appointment and transaction lists again on every refresh
+* the Angular client asks for the changes since its last sync token, for example
+* /api/sync/changes?token=1234. Without a token, or with a token that has expired, the
+* answer tells the client to reload its lists once and gives it a new token.
+* 
+* The @RestController annotation will register this class as a Rest Controller and it will
+* be able to receive HTTP request when they are sent and match the URL path.
+*/
+@RestController
+@RequestMapping("/api/sync")
+@PreAuthorize("hasRole('ADMIN')") // For admin logging purposes
+public class SyncResource {
+
+    // Upper bound of the changes returned by one request
+    private static final int MAX_CHANGES = 1000;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @RequestMapping(value = "/changes", method = RequestMethod.GET)
+    public ChangeFeed changes(@RequestParam(value = "token", required = false) String token,
+            @RequestParam(value = "limit", defaultValue = "500") int limit) {
+        return changeFeedService.findChanges(token, Math.max(1, Math.min(limit, MAX_CHANGES)));
+    }
+}
@@ -0,0 +1,79 @@
+package com.kokabmedia.resource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.kokabmedia.security.TokenClaims;
+import com.kokabmedia.service.TokenService;
+
+/*
+* This classes function is to handle HTTP requests, responses and expose recourses to 
+* other applications, more specifically the Angular build admin section of this application.
+* 
+* The endpoints of this class log in and out of the stateless API mode. A client posts
+* its username and password once, gets a signed access token back and sends it as
+* "Authorization: Bearer <token>" on its requests until it expires.
+* 
+* The @RestController annotation will register this class as a Rest Controller and it will
+* be able to receive HTTP request when they are sent and match the URL path.
+*/
+@RestController
+@RequestMapping("/api/token")
+@ConditionalOnProperty(name = "banking.security.token.enabled", havingValue = "true")
+public class TokenResource {
+
+    @Autowired
+    private AuthenticationManager authenticationManager;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @RequestMapping(method = RequestMethod.POST)
+    public ResponseEntity<Map<String, Object>> login(@RequestParam("username") String username,
+            @RequestParam("password") String password, HttpServletRequest request) {
+        // The details carry the client address to the login throttle
+        UsernamePasswordAuthenticationToken login = new UsernamePasswordAuthenticationToken(username, password);
+        login.setDetails(new WebAuthenticationDetails(request));
+
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(login);
+        } catch (AuthenticationException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        String token = tokenService.issueToken(authentication.getName());
+        TokenClaims claims = tokenService.authenticate(token);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("token", token);
+        body.put("expiresAt", claims.getExpiresAt());
+        return ResponseEntity.ok(body);
+    }
+
+    // Revokes the token the request was authenticated with
+    @RequestMapping(value = "/revoke", method = RequestMethod.POST)
+    public ResponseEntity<Void> revoke(Authentication authentication) {
+        if (authentication == null || !(authentication.getDetails() instanceof TokenClaims)) {
+            return ResponseEntity.badRequest().build();
+        }
+        tokenService.revokeToken((TokenClaims) authentication.getDetails());
+        return ResponseEntity.noContent().build();
+    }
+}
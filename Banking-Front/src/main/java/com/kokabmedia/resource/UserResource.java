@@ -1,19 +1,34 @@
 package com.kokabmedia.resource;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
+import javax.servlet.http.HttpServletRequest;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.kokabmedia.domain.CustomerSearchResult;
 import com.kokabmedia.domain.PrimaryTransaction;
 import com.kokabmedia.domain.SavingsTransaction;
-import com.kokabmedia.domain.User;
+import com.kokabmedia.domain.UserImportReport;
+import com.kokabmedia.domain.UserStatusChange;
+import com.kokabmedia.domain.UserStatusChangeReport;
+import com.kokabmedia.domain.UserSummary;
 import com.kokabmedia.service.TransactionService;
+import com.kokabmedia.service.UserImportService;
+import com.kokabmedia.service.UserSearchService;
 import com.kokabmedia.service.UserService;
 
 /*
@@ -55,6 +70,14 @@ import com.kokabmedia.service.UserService;
 @PreAuthorize("hasRole('ADMIN')") // For admin logging purposes
 public class UserResource {
 
+    // Upper bound of the users returned by one request
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    // Upper bound of the results of one customer search
+    private static final int MAX_SEARCH_RESULTS = 100;
+
 	/*
 	 * The @Autowired annotation tells the Spring framework that this object (bean)
 	 * and its implementation is an dependency of this class. It is a mechanism for 
@@ -76,13 +99,77 @@ public class UserResource {
     @Autowired
     private TransactionService transactionService;
 
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private UserSearchService userSearchService;
+
     /*
 	 *  When HTTP GET request is sent to a certain URL and that URL contains a path which
 	 * is declared on, the @GetMapping annotation this method will be called. 
+	 * 
+	 * Returns one page of the user list, /api/user/all?after=<cursor>&size=100 or
+	 * ?page=3&size=100. The list is still a JSON array, the cursor of the next page is sent
+	 * in the X-Next-Cursor header and is missing on the last page.
 	 */
     @RequestMapping(value = "/user/all", method = RequestMethod.GET)
-    public List<User> userList() {
-        return userService.findUserList();
+    public ResponseEntity<List<UserSummary>> userList(@RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", defaultValue = "100") int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<UserSummary> users = page != null
+                ? userService.findUserSummaryPage(Math.max(0, page), pageSize)
+                : userService.findUserSummariesAfter(after, pageSize);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (users.size() == pageSize) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(users.get(users.size() - 1).getUserId()));
+        }
+        return response.body(users);
+    }
+
+    /*
+     * Finds customers by a part of their username, name, email, phone or account number,
+     * /api/user/search?q=smith 4471&limit=20. Every word of the query must be in one of the
+     * fields, at least one word needs three characters. The best matches come first.
+     * Answers 503 Service Unavailable while the search index is built at startup.
+     */
+    @RequestMapping(value = "/user/search", method = RequestMethod.GET)
+    public ResponseEntity<List<CustomerSearchResult>> searchUsers(@RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        if (!userSearchService.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(userSearchService.search(query, Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS))));
+    }
+
+    // Builds the customer search index again from the database, returns the number of customers
+    @RequestMapping(value = "/user/search/rebuild", method = RequestMethod.POST)
+    public ResponseEntity<Integer> rebuildUserSearch() {
+        try {
+            return ResponseEntity.ok(userSearchService.rebuild());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /*
+     * Imports the users of a CSV file sent as the request body (Content-Type: text/csv), the
+     * body is read while it is imported. startLine resumes an import after the last
+     * committed line of an earlier report. Answers 400 when the file is empty or misses a
+     * required column, and 409 Conflict while another import runs.
+     */
+    @RequestMapping(value = "/user/import", method = RequestMethod.POST, consumes = "text/csv")
+    public ResponseEntity<UserImportReport> importUsers(@RequestParam(value = "startLine", defaultValue = "0") long startLine,
+            HttpServletRequest request) throws IOException {
+        try (Reader csv = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)) {
+            return ResponseEntity.ok(userImportService.importUsers(csv, startLine));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
 
     @RequestMapping(value = "/user/primary/transaction", method = RequestMethod.GET)
@@ -95,6 +182,21 @@ public class UserResource {
         return transactionService.findSavingsTransactionList(username);
     }
 
+    /*
+     * Enables or disables many users at once, the body names them by username or by the
+     * domain of their email: {"enabled": false, "usernames": ["a", "b"]} or
+     * {"enabled": false, "emailDomain": "partner.com"}. The users are changed in chunks,
+     * the summary tells how many were changed. Answers 400 when the body names neither or both.
+     */
+    @RequestMapping(value = "/user/status", method = RequestMethod.POST)
+    public ResponseEntity<UserStatusChangeReport> changeUserStatus(@RequestBody UserStatusChange change) {
+        try {
+            return ResponseEntity.ok(userService.changeStatus(change));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     /*
    	 * This method returns an user with a specific id from the database using JPA.
    	 * 
@@ -0,0 +1,257 @@
+package com.kokabmedia.search;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.kokabmedia.domain.LedgerEntry;
+
+/*
+ * In memory inverted index over the transactions of one account (one partition of the
+ * transaction search).
+ *
+ * Every transaction is stored once and gets an ordinal, the index maps each term of the
+ * description, type and amount to the sorted ordinals of the transactions that contain it.
+ * A query is answered by intersecting the posting lists of its terms, the last term of the
+ * query is matched as a prefix so results show up while the user is typing.
+ */
+public class InvertedIndex {
+
+    private static final Comparator<LedgerEntry> NEWEST_FIRST =
+            Comparator.comparingLong(LedgerEntry::getTime).thenComparing(LedgerEntry::getId).reversed();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private volatile RuntimeException loadFailure;
+
+    private final List<LedgerEntry> documents = new ArrayList<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+
+    /*
+     * Adds a transaction, a transaction that is already indexed is ignored so the same row
+     * can arrive both from the initial load and from a commit event.
+     */
+    public void add(LedgerEntry entry) {
+        lock.writeLock().lock();
+        try {
+            if (ordinals.containsKey(entry.getId())) {
+                return;
+            }
+            int ordinal = documents.size();
+            documents.add(entry);
+            ordinals.put(entry.getId(), ordinal);
+
+            for (String term : documentTerms(entry)) {
+                terms.computeIfAbsent(term, key -> new Postings()).add(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<LedgerEntry> search(String query, int limit) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<int[]> lists = new ArrayList<>();
+            for (int i = 0; i < queryTerms.size(); i++) {
+                boolean prefix = i == queryTerms.size() - 1;
+                int[] postings = prefix ? prefixPostings(queryTerms.get(i)) : exactPostings(queryTerms.get(i));
+                if (postings.length == 0) {
+                    return new ArrayList<>();
+                }
+                lists.add(postings);
+            }
+
+            // Intersect the shortest lists first so the candidate set shrinks quickly
+            lists.sort(Comparator.comparingInt(list -> list.length));
+            int[] matches = lists.get(0);
+            for (int i = 1; i < lists.size() && matches.length > 0; i++) {
+                matches = intersect(matches, lists.get(i));
+            }
+
+            return topNewest(matches, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void markLoaded() {
+        loaded.countDown();
+    }
+
+    // Releases the threads waiting for the load, they get the failure instead of an incomplete index
+    public void markFailed(RuntimeException failure) {
+        loadFailure = failure;
+        loaded.countDown();
+    }
+
+    public void awaitLoaded() throws InterruptedException {
+        loaded.await();
+        if (loadFailure != null) {
+            throw new IllegalStateException("Loading the search index failed", loadFailure);
+        }
+    }
+
+    private int[] exactPostings(String term) {
+        Postings postings = terms.get(term);
+        return postings == null ? new int[0] : postings.toArray();
+    }
+
+    private int[] prefixPostings(String prefix) {
+        Map<String, Postings> matching = terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (matching.size() == 1) {
+            return matching.values().iterator().next().toArray();
+        }
+
+        int total = 0;
+        for (Postings postings : matching.values()) {
+            total += postings.size;
+        }
+        int[] union = new int[total];
+        int position = 0;
+        for (Postings postings : matching.values()) {
+            System.arraycopy(postings.ordinals, 0, union, position, postings.size);
+            position += postings.size;
+        }
+        Arrays.sort(union);
+
+        return distinct(union);
+    }
+
+    private List<LedgerEntry> topNewest(int[] matches, int limit) {
+        PriorityQueue<LedgerEntry> top = new PriorityQueue<>(NEWEST_FIRST.reversed());
+        for (int ordinal : matches) {
+            top.add(documents.get(ordinal));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<LedgerEntry> result = new ArrayList<>(top);
+        result.sort(NEWEST_FIRST);
+
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, size = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                result[size++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static int[] distinct(int[] sorted) {
+        if (sorted.length == 0) {
+            return sorted;
+        }
+        int size = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[size - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, size);
+    }
+
+    private static Set<String> documentTerms(LedgerEntry entry) {
+        Set<String> documentTerms = new LinkedHashSet<>();
+        documentTerms.addAll(tokenize(entry.getDescription()));
+        documentTerms.addAll(tokenize(entry.getType()));
+        documentTerms.addAll(tokenize(normalizeAmount(BigDecimal.valueOf(entry.getAmount()))));
+
+        return documentTerms;
+    }
+
+    // Lower case words and numbers, "12.50" and "12.5" are both indexed as 12.5
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}.]+")) {
+            token = trimDots(token);
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (Character.isDigit(token.charAt(0))) {
+                try {
+                    token = normalizeAmount(new BigDecimal(token));
+                } catch (NumberFormatException e) {
+                    // Not a number, index the token as it is
+                }
+            }
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private static String normalizeAmount(BigDecimal amount) {
+        return amount.stripTrailingZeros().toPlainString();
+    }
+
+    private static String trimDots(String token) {
+        int start = 0;
+        int end = token.length();
+        while (start < end && token.charAt(start) == '.') {
+            start++;
+        }
+        while (end > start && token.charAt(end - 1) == '.') {
+            end--;
+        }
+        return token.substring(start, end);
+    }
+
+    // Growable sorted list of ordinals, ordinals are always appended in increasing order
+    private static final class Postings {
+        private int[] ordinals = new int[4];
+        private int size;
+
+        void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ordinals, size);
+        }
+    }
+}
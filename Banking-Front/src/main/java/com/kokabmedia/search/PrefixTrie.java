@@ -0,0 +1,145 @@
+package com.kokabmedia.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/*
+ * Immutable prefix trie over a small set of names, the recipients of one user for the
+ * type-ahead of the transfer form.
+ *
+ * The names are lower cased and their runs of whitespace collapsed to one space, a name is
+ * found by the start of the whole name and by the start of each of its words, so "Anna
+ * Smith" is found by "an", "anna s" and "smi". The completions come in the order of the
+ * trie, so alphabetically by the matching part.
+ *
+ * The trie is built once and never changed, so it can be read by any number of threads
+ * without locking. A changed set of names is a new trie.
+ */
+public final class PrefixTrie {
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final Node root;
+    private final int size;
+
+    private PrefixTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static PrefixTrie of(Collection<String> names) {
+        Node root = new Node();
+        int size = 0;
+        for (String name : names) {
+            String key = normalize(name);
+            if (key.isEmpty()) {
+                continue;
+            }
+            size++;
+            for (int start = 0; start < key.length(); start++) {
+                if (start == 0 || key.charAt(start - 1) == ' ') {
+                    root.insert(key, start, name);
+                }
+            }
+        }
+        return new PrefixTrie(root, size);
+    }
+
+    // At most limit names that start with the prefix or have a word that starts with it
+    public List<String> complete(String prefix, int limit) {
+        String key = normalize(prefix);
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        Set<String> completions = new LinkedHashSet<>();
+        node.collect(completions, limit);
+        return new ArrayList<>(completions);
+    }
+
+    // Number of names in the trie
+    public int size() {
+        return size;
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    // The children are kept in arrays sorted by their character, most nodes have one or two
+    private static final class Node {
+
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        // The names whose whole key or one of whose words ends at this node
+        private List<String> names;
+
+        void insert(String key, int from, String name) {
+            Node node = this;
+            for (int i = from; i < key.length(); i++) {
+                node = node.childOrCreate(key.charAt(i));
+            }
+            if (node.names == null) {
+                node.names = new ArrayList<>(1);
+            }
+            node.names.add(name);
+        }
+
+        Node child(char key) {
+            int position = Arrays.binarySearch(keys, key);
+            return position >= 0 ? children[position] : null;
+        }
+
+        private Node childOrCreate(char key) {
+            int position = Arrays.binarySearch(keys, key);
+            if (position >= 0) {
+                return children[position];
+            }
+
+            int insertAt = -position - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            Node child = new Node();
+            newKeys[insertAt] = key;
+            newChildren[insertAt] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        // Adds the names of this node and then of its children until there are limit names
+        void collect(Set<String> completions, int limit) {
+            if (names != null) {
+                for (String name : names) {
+                    completions.add(name);
+                    if (completions.size() >= limit) {
+                        return;
+                    }
+                }
+            }
+            for (Node child : children) {
+                child.collect(completions, limit);
+                if (completions.size() >= limit) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.kokabmedia.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.kokabmedia.domain.CustomerSearchResult;
+
+/*
+ * In memory trigram index over customers (one segment of the admin customer search).
+ *
+ * The username, names, email, phone and account numbers of a customer are lower cased and
+ * stripped of everything but letters and digits, so "O'Brien", "+1 555-0100" and
+ * "j.doe@mail.com" are found by "obrien", "5550100" and "doe@mail". Every three character
+ * sequence of a field points to the sorted ordinals of the customers that contain it.
+ *
+ * A query term is a substring of a field, its trigrams are intersected to find the
+ * candidates and every candidate is then checked against the fields, which drops the
+ * customers that only have the trigrams in different places. Terms shorter than three
+ * characters have no trigrams and are only checked.
+ *
+ * A customer that is changed gets a new ordinal, the old one is marked removed and skipped
+ * by the searches. Once a quarter of the ordinals are removed the index is compacted: the
+ * live customers get consecutive ordinals again and the removed ones are dropped from the
+ * posting lists, so changing customers does not grow the index.
+ */
+public class TrigramIndex {
+
+    // Score of a term that is a whole field, the start of a field or somewhere in a field
+    private static final int EXACT = 4;
+    private static final int PREFIX = 2;
+    private static final int SUBSTRING = 1;
+
+    // Removed ordinals that are kept at least before the index is compacted
+    private static final int MIN_REMOVED_TO_COMPACT = 256;
+
+    public static final Comparator<CustomerSearchResult> BEST_FIRST =
+            Comparator.comparingInt(CustomerSearchResult::getScore).reversed().thenComparing(CustomerSearchResult::getUserId);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<CustomerSearchResult> documents = new ArrayList<>();
+    private final List<String[]> fields = new ArrayList<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final BitSet removed = new BitSet();
+    private int removedCount;
+    private final Map<Long, Postings> trigrams = new HashMap<>();
+
+    // Adds a customer or replaces the customer with the same user id
+    public void put(CustomerSearchResult customer) {
+        String[] normalized = normalizedFields(customer);
+        Set<Long> documentTrigrams = new HashSet<>();
+        for (String field : normalized) {
+            addTrigrams(field, documentTrigrams);
+        }
+
+        lock.writeLock().lock();
+        try {
+            int ordinal = documents.size();
+            Integer previous = ordinals.put(customer.getUserId(), ordinal);
+            if (previous != null) {
+                removed.set(previous);
+                removedCount++;
+                documents.set(previous, null);
+                fields.set(previous, null);
+            }
+            documents.add(customer);
+            fields.add(normalized);
+            for (Long trigram : documentTrigrams) {
+                trigrams.computeIfAbsent(trigram, key -> new Postings()).add(ordinal);
+            }
+            if (removedCount >= MIN_REMOVED_TO_COMPACT && removedCount * 4 >= documents.size()) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * The best matches of the query terms, at most limit of them. At most maxCandidates
+     * customers are checked, a query made of very common trigrams ranks the first ones only.
+     */
+    public List<CustomerSearchResult> search(List<String> terms, int limit, int maxCandidates) {
+        Set<Long> queryTrigrams = new HashSet<>();
+        for (String term : terms) {
+            addTrigrams(term, queryTrigrams);
+        }
+        if (queryTrigrams.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>(queryTrigrams.size());
+            for (Long trigram : queryTrigrams) {
+                Postings postings = trigrams.get(trigram);
+                if (postings == null) {
+                    return new ArrayList<>();
+                }
+                lists.add(postings);
+            }
+
+            // Intersect the shortest lists first so the candidate set shrinks quickly
+            lists.sort(Comparator.comparingInt(postings -> postings.size));
+            int[] candidates = lists.get(0).toArray();
+            for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+                candidates = intersect(candidates, lists.get(i));
+            }
+
+            PriorityQueue<CustomerSearchResult> top = new PriorityQueue<>(BEST_FIRST.reversed());
+            int checked = 0;
+            for (int ordinal : candidates) {
+                if (removed.get(ordinal)) {
+                    continue;
+                }
+                if (checked++ == maxCandidates) {
+                    break;
+                }
+                int score = score(fields.get(ordinal), terms);
+                if (score > 0) {
+                    top.add(documents.get(ordinal).withScore(score));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+
+            List<CustomerSearchResult> result = new ArrayList<>(top);
+            result.sort(BEST_FIRST);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Customers in the index, without the replaced ones
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ordinals of replaced customers that are still in the posting lists
+    public int removedCount() {
+        lock.readLock().lock();
+        try {
+            return removedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int trigramCount() {
+        lock.readLock().lock();
+        try {
+            return trigrams.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Gives the live customers consecutive ordinals in their current order and rewrites the
+     * posting lists in place without the removed ordinals. The mapping keeps the order, so
+     * the lists stay sorted. Called with the write lock held.
+     */
+    private void compact() {
+        int[] newOrdinals = new int[documents.size()];
+        int live = 0;
+        for (int ordinal = 0; ordinal < documents.size(); ordinal++) {
+            if (!removed.get(ordinal)) {
+                newOrdinals[ordinal] = live;
+                documents.set(live, documents.get(ordinal));
+                fields.set(live, fields.get(ordinal));
+                live++;
+            }
+        }
+        documents.subList(live, documents.size()).clear();
+        fields.subList(live, fields.size()).clear();
+        ordinals.replaceAll((userId, ordinal) -> newOrdinals[ordinal]);
+
+        Iterator<Postings> postings = trigrams.values().iterator();
+        while (postings.hasNext()) {
+            Postings list = postings.next();
+            list.compact(removed, newOrdinals);
+            if (list.size == 0) {
+                postings.remove();
+            }
+        }
+        removed.clear();
+        removedCount = 0;
+    }
+
+    // The query split into normalized terms, the empty ones dropped
+    public static List<String> terms(String query) {
+        List<String> terms = new ArrayList<>();
+        if (query == null) {
+            return terms;
+        }
+        for (String word : query.trim().split("\\s+")) {
+            String term = normalize(word);
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(value.length());
+        String lowerCase = value.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lowerCase.length(); i++) {
+            char c = lowerCase.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    // Every term must be in a field, the score adds up how well each one matched
+    private static int score(String[] documentFields, List<String> terms) {
+        int total = 0;
+        for (String term : terms) {
+            int best = 0;
+            for (String field : documentFields) {
+                if (field.equals(term)) {
+                    best = EXACT;
+                    break;
+                }
+                if (field.startsWith(term)) {
+                    best = Math.max(best, PREFIX);
+                } else if (best == 0 && field.contains(term)) {
+                    best = SUBSTRING;
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    private static String[] normalizedFields(CustomerSearchResult customer) {
+        return new String[] {
+                normalize(customer.getUsername()),
+                normalize(customer.getFirstName()),
+                normalize(customer.getLastName()),
+                normalize(customer.getEmail()),
+                normalize(customer.getPhone()),
+                customer.getPrimaryAccountNumber() == null ? "" : customer.getPrimaryAccountNumber().toString(),
+                customer.getSavingsAccountNumber() == null ? "" : customer.getSavingsAccountNumber().toString() };
+    }
+
+    // The three characters of a trigram packed in one long
+    private static void addTrigrams(String text, Set<Long> target) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            target.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+    }
+
+    private static int[] intersect(int[] a, Postings b) {
+        int[] result = new int[Math.min(a.length, b.size)];
+        int i = 0, j = 0, size = 0;
+        while (i < a.length && j < b.size) {
+            if (a[i] == b.ordinals[j]) {
+                result[size++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b.ordinals[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // Growable sorted list of ordinals, ordinals are always appended in increasing order
+    private static final class Postings {
+        private int[] ordinals = new int[4];
+        private int size;
+
+        void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ordinals, size);
+        }
+
+        // Drops the removed ordinals and renumbers the others
+        void compact(BitSet removed, int[] newOrdinals) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (!removed.get(ordinals[i])) {
+                    ordinals[kept++] = newOrdinals[ordinals[i]];
+                }
+            }
+            size = kept;
+            if (ordinals.length > 4 && size < ordinals.length / 4) {
+                ordinals = Arrays.copyOf(ordinals, Math.max(4, size * 2));
+            }
+        }
+    }
+}
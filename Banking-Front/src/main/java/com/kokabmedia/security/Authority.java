@@ -1,20 +1,50 @@
 package com.kokabmedia.security;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.springframework.security.core.GrantedAuthority;
 
 /*
  * This class handles grating authority as part of Spring Security.
+ *
+ * There are only a handful of role names, so one shared Authority per name is kept and
+ * handed out by of(name) instead of creating new instances for every user and request.
  */
 public class Authority implements GrantedAuthority{
 
+    private static final long serialVersionUID = 1L;
+
+    private static final ConcurrentMap<String, Authority> INTERNED = new ConcurrentHashMap<>();
+
     private final String authority;
 
     public Authority(String authority) {
         this.authority = authority;
     }
 
+    // The shared Authority of the role name
+    public static Authority of(String authority) {
+        return INTERNED.computeIfAbsent(authority, Authority::new);
+    }
+
     @Override
     public String getAuthority() {
         return authority;
     }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof Authority && authority.equals(((Authority) other).authority);
+    }
+
+    @Override
+    public int hashCode() {
+        return authority.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return authority;
+    }
 }
@@ -0,0 +1,131 @@
+package com.kokabmedia.security;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import com.kokabmedia.dao.UserDao;
+import com.kokabmedia.domain.AccountKey;
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.User;
+import com.kokabmedia.service.UserService;
+
+/*
+ * The logged in customer of the current request: the username, the user id and the ids
+ * of the two accounts. The controllers use it to hand ids to the services instead of
+ * looking the user up by username again in every service method.
+ *
+ * The ids are resolved once per request, from the signed token of the stateless API mode
+ * when the request carries one and otherwise with one small query on the user row. The
+ * full User entity is only loaded when a page needs it, and then only once.
+ *
+ * The @RequestScope annotation makes Spring create one instance per HTTP request, the
+ * controllers get a proxy that always points to the instance of the current request.
+ */
+@Component
+@RequestScope
+public class CustomerContext {
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private UserService userService;
+
+    private String username;
+    private Long userId;
+    private Long primaryAccountId;
+    private Long savingsAccountId;
+    private User user;
+
+    public String getUsername() {
+        if (username == null) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication == null || !authentication.isAuthenticated()) {
+                throw new IllegalStateException("The request is not authenticated");
+            }
+            username = authentication.getName();
+        }
+        return username;
+    }
+
+    public Long getUserId() {
+        if (userId == null) {
+            // A login with a form or a session keeps the UserSnapshot, which has the user id
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof UserSnapshot
+                    && ((UserSnapshot) authentication.getPrincipal()).getUserId() != null) {
+                userId = ((UserSnapshot) authentication.getPrincipal()).getUserId();
+            } else {
+                // The token of the stateless mode carries the account ids but not the user id
+                findCustomer();
+            }
+        }
+        return userId;
+    }
+
+    public Long getPrimaryAccountId() {
+        resolveIds();
+        return primaryAccountId;
+    }
+
+    public Long getSavingsAccountId() {
+        resolveIds();
+        return savingsAccountId;
+    }
+
+    public Long getAccountId(AccountType accountType) {
+        return accountType == AccountType.PRIMARY ? getPrimaryAccountId() : getSavingsAccountId();
+    }
+
+    public AccountKey getAccountKey(AccountType accountType) {
+        return new AccountKey(accountType, getAccountId(accountType));
+    }
+
+    // The User entity with its accounts, loaded at most once per request
+    public User getUser() {
+        if (user == null) {
+            user = userService.findByUsername(getUsername());
+            if (user == null) {
+                throw new IllegalStateException("User " + getUsername() + " does not exist");
+            }
+            userId = user.getUserId();
+            primaryAccountId = user.getPrimaryAccount().getId();
+            savingsAccountId = user.getSavingsAccount().getId();
+        }
+        return user;
+    }
+
+    private void resolveIds() {
+        if (primaryAccountId != null) {
+            return;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getDetails() instanceof TokenClaims) {
+            TokenClaims claims = (TokenClaims) authentication.getDetails();
+            if (claims.getPrimaryAccountId() != null && claims.getSavingsAccountId() != null) {
+                primaryAccountId = claims.getPrimaryAccountId();
+                savingsAccountId = claims.getSavingsAccountId();
+                return;
+            }
+        }
+
+        findCustomer();
+    }
+
+    private void findCustomer() {
+        List<Object[]> rows = userDao.findCustomer(getUsername());
+        if (rows.isEmpty()) {
+            throw new IllegalStateException("User " + getUsername() + " does not exist");
+        }
+        Object[] row = rows.get(0);
+        userId = (Long) row[0];
+        primaryAccountId = (Long) row[1];
+        savingsAccountId = (Long) row[2];
+    }
+}
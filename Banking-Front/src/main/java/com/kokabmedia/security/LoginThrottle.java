@@ -0,0 +1,80 @@
+package com.kokabmedia.security;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Counts the failed logins of every username and every client address over a sliding
+ * window and tells when one of them is over its limit. The counts are kept in two
+ * SlidingWindowCounters of a fixed size, so a credential stuffing run over millions of
+ * usernames or addresses can not grow the memory, and they expire by themselves.
+ *
+ * The usernames are counted without case, the same way the database compares them.
+ *
+ * The address limit is off unless maxFailuresPerAddress is above zero. Behind a load
+ * balancer or a reverse proxy every request has the address of the proxy, so the limit
+ * must only be turned on when the real client address is taken from the forwarded headers
+ * of a trusted proxy (server.forward-headers-strategy), otherwise the failed logins of all
+ * customers add up and lock everybody out.
+ */
+public class LoginThrottle {
+
+    private final SlidingWindowCounter usernameFailures;
+    private final SlidingWindowCounter addressFailures;
+    private final int maxFailuresPerUsername;
+    private final int maxFailuresPerAddress;
+
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public LoginThrottle(int slots, long windowMillis, int maxFailuresPerUsername, int maxFailuresPerAddress) {
+        this.usernameFailures = new SlidingWindowCounter(slots, windowMillis);
+        this.addressFailures = maxFailuresPerAddress > 0 ? new SlidingWindowCounter(slots, windowMillis) : null;
+        this.maxFailuresPerUsername = maxFailuresPerUsername;
+        this.maxFailuresPerAddress = maxFailuresPerAddress;
+    }
+
+    // True when the username or the address failed too often, the attempt is counted as rejected
+    public boolean isThrottled(String username, String address) {
+        long now = System.currentTimeMillis();
+        boolean throttled = username != null && usernameFailures.count(key(username), now) >= maxFailuresPerUsername
+                || address != null && addressFailures != null
+                        && addressFailures.count(address, now) >= maxFailuresPerAddress;
+        if (throttled) {
+            rejected.incrementAndGet();
+        }
+        return throttled;
+    }
+
+    public void recordFailure(String username, String address) {
+        long now = System.currentTimeMillis();
+        if (username != null) {
+            usernameFailures.increment(key(username), now);
+        }
+        if (address != null && addressFailures != null) {
+            addressFailures.increment(address, now);
+        }
+        failures.incrementAndGet();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    // Usernames and addresses with failed logins in the last two windows
+    public int getActiveUsernames() {
+        return usernameFailures.activeSlots(System.currentTimeMillis());
+    }
+
+    public int getActiveAddresses() {
+        return addressFailures == null ? 0 : addressFailures.activeSlots(System.currentTimeMillis());
+    }
+
+    private static String key(String username) {
+        return username.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,112 @@
+package com.kokabmedia.security;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.kokabmedia.dao.RoleDao;
+
+/*
+ * All roles of the application held in memory. The role table has a handful of rows that
+ * almost never change, so the roles are read once at startup into an immutable map and
+ * the signup and the authentication take them from here instead of querying the table.
+ *
+ * The registry also hands out the authorities of a user as one shared, unmodifiable list
+ * per combination of roles, made of the shared Authority instances, so the snapshots of
+ * all customers point to the same list.
+ *
+ * The map is replaced as a whole when roles are added, reads never take a lock.
+ */
+@Component
+public class RoleRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RoleRegistry.class);
+
+    @Autowired
+    private RoleDao roleDao;
+
+    private volatile Map<String, Role> roles = Collections.emptyMap();
+
+    // Sorted role names to the shared authorities of that combination
+    private final ConcurrentMap<List<String>, List<GrantedAuthority>> authorities = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void reload() {
+        Map<String, Role> loaded = new HashMap<>();
+        for (Role role : roleDao.findAll()) {
+            loaded.put(role.getName(), role);
+            Authority.of(role.getName());
+        }
+        roles = Collections.unmodifiableMap(loaded);
+        LOG.info("Loaded roles {}", loaded.keySet());
+    }
+
+    // The role with the name, null when there is no such role
+    public Role findByName(String name) {
+        return roles.get(name);
+    }
+
+    public Collection<Role> findAll() {
+        return roles.values();
+    }
+
+    // Saves a new role and reloads the registry, an existing role is returned as it is
+    public synchronized Role createRole(String name) {
+        Role role = roles.get(name);
+        if (role == null) {
+            role = new Role();
+            role.setName(name);
+            role = roleDao.save(role);
+            reloadAfterCommit();
+        }
+        return role;
+    }
+
+    /*
+     * Reloads the roles once the current transaction is committed, or right away when there
+     * is no transaction.
+     */
+    public void reloadAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reload();
+                }
+            });
+        } else {
+            reload();
+        }
+    }
+
+    // The shared, unmodifiable authorities of the roles of a user
+    public List<GrantedAuthority> authoritiesOf(Collection<UserRole> userRoles) {
+        TreeSet<String> names = new TreeSet<>();
+        for (UserRole userRole : userRoles) {
+            names.add(userRole.getRole().getName());
+        }
+        return authorities.computeIfAbsent(new ArrayList<>(names), key -> {
+            List<GrantedAuthority> list = new ArrayList<>(key.size());
+            for (String name : key) {
+                list.add(Authority.of(name));
+            }
+            return Collections.unmodifiableList(list);
+        });
+    }
+}
@@ -0,0 +1,119 @@
+package com.kokabmedia.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.kokabmedia.cache.StringHash;
+
+/*
+ * Approximate per key event counts over a sliding time window, in a fixed amount of
+ * memory and without locks.
+ *
+ * Keys are hashed into a fixed number of slots, like a count-min sketch with two rows: a
+ * key is counted in one slot of each row and its count is the smaller of the two, so a
+ * key that shares a slot with a busy key is only overcounted when it collides in both
+ * rows. Every slot is one long that packs the number of the current window with the
+ * counts of the current and the previous window and is updated with compare-and-set.
+ *
+ * The count over the sliding window is the count of the current window plus the part of
+ * the previous window that still overlaps it. Slots that are not touched for two windows
+ * read as zero, so counts expire on their own and nothing has to be cleaned up.
+ */
+public class SlidingWindowCounter {
+
+    private static final int ROWS = 2;
+    private static final long MAX_COUNT = 0xffffL;
+
+    private final AtomicLongArray slots;
+    private final int slotsPerRow;
+    private final long windowMillis;
+
+    public SlidingWindowCounter(int slotsPerRow, long windowMillis) {
+        if (slotsPerRow <= 0 || windowMillis <= 0) {
+            throw new IllegalArgumentException("Invalid counter size " + slotsPerRow + " / " + windowMillis);
+        }
+        this.slots = new AtomicLongArray(slotsPerRow * ROWS);
+        this.slotsPerRow = slotsPerRow;
+        this.windowMillis = windowMillis;
+    }
+
+    // Counts one event of the key, returns the count over the sliding window including it
+    public double increment(String key, long nowMillis) {
+        long window = nowMillis / windowMillis;
+        double fraction = (double) (nowMillis % windowMillis) / windowMillis;
+        long hash = StringHash.hash64(key);
+
+        double count = Double.MAX_VALUE;
+        for (int row = 0; row < ROWS; row++) {
+            int slot = slot(hash, row);
+            long current;
+            long updated;
+            do {
+                current = slots.get(slot);
+                updated = advance(current, window);
+                updated = pack(window, Math.min(MAX_COUNT, currentCount(updated) + 1), previousCount(updated));
+            } while (!slots.compareAndSet(slot, current, updated));
+            count = Math.min(count, estimate(updated, fraction));
+        }
+        return count;
+    }
+
+    // The count of the key over the sliding window
+    public double count(String key, long nowMillis) {
+        long window = nowMillis / windowMillis;
+        double fraction = (double) (nowMillis % windowMillis) / windowMillis;
+        long hash = StringHash.hash64(key);
+
+        double count = Double.MAX_VALUE;
+        for (int row = 0; row < ROWS; row++) {
+            count = Math.min(count, estimate(advance(slots.get(slot(hash, row)), window), fraction));
+        }
+        return count;
+    }
+
+    // Number of slots with events in the current or the previous window
+    public int activeSlots(long nowMillis) {
+        long window = nowMillis / windowMillis;
+        int active = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            long slot = advance(slots.get(i), window);
+            if (currentCount(slot) > 0 || previousCount(slot) > 0) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    // Moves a slot to the window, the current count becomes the previous one when the window moved by one
+    private static long advance(long slot, long window) {
+        long slotWindow = slot >>> 32;
+        long windowNumber = window & 0xffffffffL;
+        if (slotWindow == windowNumber) {
+            return slot;
+        }
+        if (slotWindow == ((windowNumber - 1) & 0xffffffffL)) {
+            return pack(window, 0, currentCount(slot));
+        }
+        return pack(window, 0, 0);
+    }
+
+    private static double estimate(long slot, double fraction) {
+        return currentCount(slot) + previousCount(slot) * (1 - fraction);
+    }
+
+    private static long pack(long window, long current, long previous) {
+        return (window & 0xffffffffL) << 32 | current << 16 | previous;
+    }
+
+    private static long currentCount(long slot) {
+        return (slot >>> 16) & MAX_COUNT;
+    }
+
+    private static long previousCount(long slot) {
+        return slot & MAX_COUNT;
+    }
+
+    private int slot(long hash, int row) {
+        int rowHash = row == 0 ? (int) hash : (int) (hash >>> 32);
+        return row * slotsPerRow + ((rowHash & Integer.MAX_VALUE) % slotsPerRow);
+    }
+}
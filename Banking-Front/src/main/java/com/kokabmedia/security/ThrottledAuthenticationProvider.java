@@ -0,0 +1,53 @@
+package com.kokabmedia.security;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+
+/*
+ * Puts the LoginThrottle in front of another provider (the DaoAuthenticationProvider that
+ * reads the user and checks the BCrypt hash). A login of a username or from an address
+ * that failed too often is rejected before the user is read or a hash is computed, and
+ * every login that fails with wrong credentials is counted.
+ *
+ * The address is the remote address of the request, taken from the details the login
+ * form (and the token login) put on the authentication. Behind a proxy it is the address
+ * of the proxy unless the forwarded headers are applied, see LoginThrottle.
+ */
+public class ThrottledAuthenticationProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;
+    private final LoginThrottle throttle;
+
+    public ThrottledAuthenticationProvider(AuthenticationProvider delegate, LoginThrottle throttle) {
+        this.delegate = delegate;
+        this.throttle = throttle;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        String username = authentication.getName();
+        String address = authentication.getDetails() instanceof WebAuthenticationDetails
+                ? ((WebAuthenticationDetails) authentication.getDetails()).getRemoteAddress()
+                : null;
+
+        if (throttle.isThrottled(username, address)) {
+            throw new AuthenticationServiceException("Too many failed logins, please try again later");
+        }
+
+        try {
+            return delegate.authenticate(authentication);
+        } catch (BadCredentialsException e) {
+            throttle.recordFailure(username, address);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+}
@@ -0,0 +1,56 @@
+package com.kokabmedia.security;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.kokabmedia.service.TokenService;
+
+/*
+ * Authenticates a request of the stateless API mode from its "Authorization: Bearer
+ * <token>" header. The token is checked by the TokenService on this node, a request
+ * without a valid token stays anonymous and is turned away by the security chain.
+ *
+ * The authentication carries the username as principal (so Principal.getName() works as
+ * with a login session) and the TokenClaims as details.
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER = "Bearer ";
+
+    private final TokenService tokenService;
+
+    public TokenAuthenticationFilter(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader("Authorization");
+        if (header != null && header.startsWith(BEARER)) {
+            TokenClaims claims = tokenService.authenticate(header.substring(BEARER.length()).trim());
+            if (claims != null) {
+                List<GrantedAuthority> authorities = new ArrayList<>();
+                for (String authority : claims.getAuthorities()) {
+                    authorities.add(Authority.of(authority));
+                }
+                UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(claims.getUsername(), null, authorities);
+                authentication.setDetails(claims);
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,66 @@
+package com.kokabmedia.security;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * The content of an access token of the stateless API mode: who the token was issued to,
+ * the roles and accounts of that user at the time and how long the token is valid. The
+ * claims are signed by the TokenCodec, so a request carrying them can be authenticated
+ * without reading the user from the database.
+ */
+public final class TokenClaims {
+
+    private final long tokenId;
+    private final String username;
+    private final List<String> authorities;
+    private final Long primaryAccountId;
+    private final Long savingsAccountId;
+    private final long issuedAt;
+    private final long expiresAt;
+
+    public TokenClaims(long tokenId, String username, List<String> authorities, Long primaryAccountId, Long savingsAccountId,
+            long issuedAt, long expiresAt) {
+        this.tokenId = tokenId;
+        this.username = username;
+        this.authorities = Collections.unmodifiableList(new ArrayList<>(authorities));
+        this.primaryAccountId = primaryAccountId;
+        this.savingsAccountId = savingsAccountId;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public long getTokenId() {
+        return tokenId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public List<String> getAuthorities() {
+        return authorities;
+    }
+
+    public Long getPrimaryAccountId() {
+        return primaryAccountId;
+    }
+
+    public Long getSavingsAccountId() {
+        return savingsAccountId;
+    }
+
+    // Epoch milliseconds
+    public long getIssuedAt() {
+        return issuedAt;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+}
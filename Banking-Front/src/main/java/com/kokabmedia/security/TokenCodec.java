@@ -0,0 +1,126 @@
+package com.kokabmedia.security;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/*
+ * Writes and checks the signed access tokens of the stateless API mode. A token is
+ *
+ *   base64url(claims) "." base64url(HMAC-SHA256(secret, base64url(claims)))
+ *
+ * where the claims are a small binary record (version, token id, times, account ids,
+ * username and authorities) so a token stays well under the size of a header line. The
+ * signature is compared in constant time.
+ */
+public final class TokenCodec {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int VERSION = 1;
+    private static final long NO_ACCOUNT = -1;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+
+    // Mac instances are not thread safe, every thread keeps its own
+    private final ThreadLocal<Mac> macs;
+
+    public TokenCodec(byte[] secret) {
+        if (secret.length < 32) {
+            throw new IllegalArgumentException("The token secret must be at least 256 bits long");
+        }
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(ALGORITHM + " is not available", e);
+            }
+        });
+    }
+
+    public String encode(TokenClaims claims) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeLong(claims.getTokenId());
+            out.writeLong(claims.getIssuedAt());
+            out.writeLong(claims.getExpiresAt());
+            out.writeLong(claims.getPrimaryAccountId() == null ? NO_ACCOUNT : claims.getPrimaryAccountId());
+            out.writeLong(claims.getSavingsAccountId() == null ? NO_ACCOUNT : claims.getSavingsAccountId());
+            out.writeUTF(claims.getUsername());
+            out.writeByte(claims.getAuthorities().size());
+            for (String authority : claims.getAuthorities()) {
+                out.writeUTF(authority);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        String payload = ENCODER.encodeToString(bytes.toByteArray());
+        return payload + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    // The claims of the token, null when the token is malformed or its signature is wrong
+    public TokenClaims decode(String token) {
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            return null;
+        }
+        String payload = token.substring(0, dot);
+
+        byte[] signature;
+        byte[] claims;
+        try {
+            signature = DECODER.decode(token.substring(dot + 1));
+            claims = DECODER.decode(payload);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(signature, sign(payload))) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(claims))) {
+            if (in.readUnsignedByte() != VERSION) {
+                return null;
+            }
+            long tokenId = in.readLong();
+            long issuedAt = in.readLong();
+            long expiresAt = in.readLong();
+            long primaryAccountId = in.readLong();
+            long savingsAccountId = in.readLong();
+            String username = in.readUTF();
+            int authorityCount = in.readUnsignedByte();
+            List<String> authorities = new ArrayList<>(authorityCount);
+            for (int i = 0; i < authorityCount; i++) {
+                authorities.add(in.readUTF());
+            }
+            return new TokenClaims(tokenId, username, authorities,
+                    primaryAccountId == NO_ACCOUNT ? null : primaryAccountId,
+                    savingsAccountId == NO_ACCOUNT ? null : savingsAccountId, issuedAt, expiresAt);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(String payload) {
+        return macs.get().doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,56 @@
+package com.kokabmedia.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * The revoked access tokens of the stateless API mode. A token is only remembered until
+ * it would have expired anyway, so with short lived tokens the list stays small. Two
+ * kinds of entries are kept:
+ *
+ * - single tokens by token id, for example when a client logs out;
+ * - all tokens of a user issued before a moment, for example when the user is disabled
+ *   or its roles change.
+ */
+public final class TokenDenylist {
+
+    // Token id to the moment the token expires
+    private final Map<Long, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    // Username to the moment before which every token of the user is revoked
+    private final Map<String, Long> revokedBefore = new ConcurrentHashMap<>();
+
+    // How long a user level entry is needed, the lifetime of a token
+    private final long tokenLifetimeMillis;
+
+    public TokenDenylist(long tokenLifetimeMillis) {
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+    }
+
+    public void revoke(TokenClaims claims) {
+        revokedTokens.put(claims.getTokenId(), claims.getExpiresAt());
+    }
+
+    public void revokeUser(String username, long before) {
+        revokedBefore.merge(username, before, Math::max);
+    }
+
+    public boolean isRevoked(TokenClaims claims) {
+        if (revokedTokens.containsKey(claims.getTokenId())) {
+            return true;
+        }
+        Long before = revokedBefore.get(claims.getUsername());
+        return before != null && claims.getIssuedAt() <= before;
+    }
+
+    // Removes the entries of tokens that have expired, returns the number of entries left
+    public int prune(long now) {
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        revokedBefore.values().removeIf(before -> before + tokenLifetimeMillis <= now);
+        return size();
+    }
+
+    public int size() {
+        return revokedTokens.size() + revokedBefore.size();
+    }
+}
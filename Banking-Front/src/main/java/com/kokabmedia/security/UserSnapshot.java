@@ -0,0 +1,95 @@
+package com.kokabmedia.security;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.kokabmedia.domain.User;
+
+/*
+ * Immutable copy of the fields of a User that Spring Security needs to authenticate it.
+ * It is cached by the UserSecurityService instead of the User entity, so no managed
+ * entity or lazy relation is held on to between requests.
+ *
+ * It does not implement CredentialsContainer on purpose, the same instance is handed out
+ * for every login of the user and erasing its password after the first one would make
+ * the following logins fail.
+ */
+public final class UserSnapshot implements UserDetails {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long userId;
+    private final String username;
+    private final String password;
+    private final boolean enabled;
+    private final List<GrantedAuthority> authorities;
+
+    private UserSnapshot(Long userId, String username, String password, boolean enabled, List<GrantedAuthority> authorities) {
+        this.userId = userId;
+        this.username = username;
+        this.password = password;
+        this.enabled = enabled;
+        this.authorities = authorities;
+    }
+
+    // The authorities come from the RoleRegistry, which shares one list per combination of roles
+    public static UserSnapshot of(User user, List<GrantedAuthority> authorities) {
+        return new UserSnapshot(user.getUserId(), user.getUsername(), user.getPassword(), user.isEnabled(), authorities);
+    }
+
+    // The principal of a logged in session read back from the shared session store, it has no password
+    public static UserSnapshot principal(Long userId, String username, boolean enabled, List<GrantedAuthority> authorities) {
+        return new UserSnapshot(userId, username, null, enabled, authorities);
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "UserSnapshot{" +
+                "userId=" + userId +
+                ", username='" + username + '\'' +
+                ", enabled=" + enabled +
+                '}';
+    }
+}
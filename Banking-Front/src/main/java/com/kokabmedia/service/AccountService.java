@@ -1,7 +1,6 @@
 package com.kokabmedia.service;
 
-import java.security.Principal;
-
+import com.kokabmedia.domain.AccountKey;
 import com.kokabmedia.domain.PrimaryAccount;
 import com.kokabmedia.domain.PrimaryTransaction;
 import com.kokabmedia.domain.SavingsAccount;
@@ -15,8 +14,8 @@ import com.kokabmedia.domain.SavingsTransaction;
 public interface AccountService {
 	PrimaryAccount createPrimaryAccount();
     SavingsAccount createSavingsAccount();
-    void deposit(String accountType, double amount, Principal principal);
-    void withdraw(String accountType, double amount, Principal principal);
+    void deposit(AccountKey account, double amount);
+    void withdraw(AccountKey account, double amount);
     
     
 }
@@ -0,0 +1,16 @@
+package com.kokabmedia.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.kokabmedia.domain.AccountKey;
+import com.kokabmedia.domain.BalancePoint;
+
+/*
+ * This interface is a for the BalanceHistoryServiceImpl layer, this allows us to code against 
+ * an interface and enforce loose coupling with the @Autowire annotation as per 
+ * best practises.
+ */
+public interface BalanceHistoryService {
+    List<BalancePoint> findBalanceHistory(AccountKey accountKey, LocalDate from, LocalDate to, int points);
+}
@@ -0,0 +1,21 @@
+package com.kokabmedia.service;
+
+import java.util.Collection;
+
+import com.kokabmedia.domain.ChangeFeed;
+import com.kokabmedia.domain.ChangeType;
+
+/*
+ * This interface is a for the ChangeFeedServiceImpl layer, this allows us to code against 
+ * an interface and enforce loose coupling with the @Autowire annotation as per 
+ * best practises.
+ */
+public interface ChangeFeedService {
+    void recordChange(ChangeType entityType, Long entityId);
+
+    void recordChanges(ChangeType entityType, Collection<Long> entityIds);
+
+    ChangeFeed findChanges(String token, int limit);
+
+    int pruneChangeLog();
+}
@@ -0,0 +1,10 @@
+package com.kokabmedia.service;
+
+/*
+ * This interface is a for the PartitionMaintenanceServiceImpl layer, this allows us to code against 
+ * an interface and enforce loose coupling with the @Autowire annotation as per 
+ * best practises.
+ */
+public interface PartitionMaintenanceService {
+    void maintainPartitions();
+}
@@ -0,0 +1,15 @@
+package com.kokabmedia.service;
+
+import java.util.List;
+
+import com.kokabmedia.domain.AccountKey;
+import com.kokabmedia.domain.LedgerEntry;
+
+/*
+ * This interface is a for the RecentTransactionServiceImpl layer, this allows us to code against 
+ * an interface and enforce loose coupling with the @Autowire annotation as per 
+ * best practises.
+ */
+public interface RecentTransactionService {
+    List<LedgerEntry> findRecentTransactions(AccountKey accountKey, int limit);
+}
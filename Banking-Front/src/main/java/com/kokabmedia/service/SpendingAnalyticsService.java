@@ -0,0 +1,27 @@
+package com.kokabmedia.service;
+
+import java.time.LocalDate;
+
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.PrimaryTransaction;
+import com.kokabmedia.domain.SavingsTransaction;
+import com.kokabmedia.domain.SpendingPeriod;
+import com.kokabmedia.domain.SpendingReport;
+
+/*
+ * This interface is a for the SpendingAnalyticsServiceImpl layer, this allows us to code against 
+ * an interface and enforce loose coupling with the @Autowire annotation as per 
+ * best practises.
+ */
+public interface SpendingAnalyticsService {
+    void recordPrimaryTransaction(PrimaryTransaction primaryTransaction);
+
+    void recordSavingsTransaction(SavingsTransaction savingsTransaction);
+
+    SpendingReport findSpending(Long userId, Long primaryAccountId, Long savingsAccountId, LocalDate from, LocalDate to,
+            SpendingPeriod period);
+
+    void backfill(AccountType accountType, Long accountId);
+
+    int backfillAll();
+}
@@ -0,0 +1,19 @@
+package com.kokabmedia.service;
+
+import java.time.YearMonth;
+
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.StatementJob;
+
+/*
+ * This interface is a for the StatementDocumentServiceImpl layer, this allows us to code against 
+ * an interface and enforce loose coupling with the @Autowire annotation as per 
+ * best practises.
+ */
+public interface StatementDocumentService {
+    StatementJob submitStatementJob(String username, AccountType accountType, Long accountId, YearMonth month);
+
+    StatementJob findStatementJob(String username, String jobId);
+
+    byte[] findStatementDocument(String username, String jobId);
+}
@@ -0,0 +1,28 @@
+package com.kokabmedia.service;
+
+import java.time.YearMonth;
+
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.MonthlyStatement;
+import com.kokabmedia.domain.PrimaryTransaction;
+import com.kokabmedia.domain.SavingsTransaction;
+import com.kokabmedia.domain.StatementVerification;
+
+/*
+ * This interface is a for the StatementServiceImpl layer, this allows us to code against 
+ * an interface and enforce loose coupling with the @Autowire annotation as per 
+ * best practises.
+ */
+public interface StatementService {
+    void recordPrimaryTransaction(PrimaryTransaction primaryTransaction);
+
+    void recordSavingsTransaction(SavingsTransaction savingsTransaction);
+
+    MonthlyStatement findStatement(AccountType accountType, Long accountId, YearMonth month);
+
+    StatementVerification verifyStatement(AccountType accountType, Long accountId, YearMonth month);
+
+    void backfill(AccountType accountType, Long accountId);
+
+    int backfillAll();
+}
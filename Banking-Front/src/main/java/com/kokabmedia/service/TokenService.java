@@ -0,0 +1,18 @@
+package com.kokabmedia.service;
+
+import com.kokabmedia.security.TokenClaims;
+
+/*
+ * This interface is a for the TokenServiceImpl layer, this allows us to code against 
+ * an interface and enforce loose coupling with the @Autowire annotation as per 
+ * best practises.
+ */
+public interface TokenService {
+    String issueToken(String username);
+
+    TokenClaims authenticate(String token);
+
+    void revokeToken(TokenClaims claims);
+
+    void revokeUser(String username);
+}
@@ -0,0 +1,23 @@
+package com.kokabmedia.service;
+
+import java.util.Date;
+import java.util.List;
+
+import com.kokabmedia.domain.AccountKey;
+import com.kokabmedia.domain.ArchiveVerification;
+import com.kokabmedia.domain.LedgerEntry;
+
+/*
+ * This interface is a for the TransactionArchiveServiceImpl layer, this allows us to code against 
+ * an interface and enforce loose coupling with the @Autowire annotation as per 
+ * best practises.
+ */
+public interface TransactionArchiveService {
+    long archiveTransactions();
+
+    List<LedgerEntry> findArchived(AccountKey accountKey, Date from, Date to);
+
+    LedgerEntry findLastArchivedBefore(AccountKey accountKey, Date before);
+
+    List<ArchiveVerification> verifyArchive();
+}
@@ -0,0 +1,17 @@
+package com.kokabmedia.service;
+
+import java.util.List;
+
+import com.kokabmedia.domain.AccountKey;
+import com.kokabmedia.domain.LedgerEntry;
+
+/*
+ * This interface is a for the TransactionSearchServiceImpl layer, this allows us to code against 
+ * an interface and enforce loose coupling with the @Autowire annotation as per 
+ * best practises.
+ */
+public interface TransactionSearchService {
+    List<LedgerEntry> search(AccountKey accountKey, String query, int limit);
+
+    int rebuildAll();
+}
@@ -1,12 +1,13 @@
 package com.kokabmedia.service;
 
-import java.security.Principal;
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
-import com.kokabmedia.domain.PrimaryAccount;
+import com.kokabmedia.domain.AccountType;
 import com.kokabmedia.domain.PrimaryTransaction;
 import com.kokabmedia.domain.Recipient;
-import com.kokabmedia.domain.SavingsAccount;
 import com.kokabmedia.domain.SavingsTransaction;
 
 /*
@@ -19,6 +20,10 @@ public interface TransactionService {
 
     List<SavingsTransaction> findSavingsTransactionList(String username);
 
+    List<PrimaryTransaction> findPrimaryTransactionList(Long primaryAccountId, LocalDate from, LocalDate to);
+
+    List<SavingsTransaction> findSavingsTransactionList(Long savingsAccountId, LocalDate from, LocalDate to);
+
     void savePrimaryDepositTransaction(PrimaryTransaction primaryTransaction);
 
     void saveSavingsDepositTransaction(SavingsTransaction savingsTransaction);
@@ -26,15 +31,21 @@ public interface TransactionService {
     void savePrimaryWithdrawTransaction(PrimaryTransaction primaryTransaction);
     void saveSavingsWithdrawTransaction(SavingsTransaction savingsTransaction);
     
-    void betweenAccountsTransfer(String transferFrom, String transferTo, String amount, PrimaryAccount primaryAccount, SavingsAccount savingsAccount) throws Exception;
+    void betweenAccountsTransfer(String transferFrom, String transferTo, String amount, Long primaryAccountId, Long savingsAccountId) throws Exception;
     
-    List<Recipient> findRecipientList(Principal principal);
+    List<Recipient> findRecipientList(Long userId);
 
     Recipient saveRecipient(Recipient recipient);
 
-    Recipient findRecipientByName(String recipientName);
+    Recipient findRecipientByName(Long userId, String recipientName);
+
+    void deleteRecipientByName(Long userId, String recipientName);
 
-    void deleteRecipientByName(String recipientName);
+    List<String> suggestRecipientNames(Long userId, String prefix, int limit);
     
-    void toSomeoneElseTransfer(Recipient recipient, String accountType, String amount, PrimaryAccount primaryAccount, SavingsAccount savingsAccount);
+    void toSomeoneElseTransfer(Recipient recipient, String accountType, String amount, Long primaryAccountId, Long savingsAccountId);
+    
+    BigDecimal findBalanceAsOf(AccountType accountType, Long accountId, LocalDate day);
+
+    Map<LocalDate, BigDecimal> findBalancesAsOf(AccountType accountType, Long accountId, List<LocalDate> days);
 }
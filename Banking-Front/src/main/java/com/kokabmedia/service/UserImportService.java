@@ -0,0 +1,16 @@
+package com.kokabmedia.service;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import com.kokabmedia.domain.UserImportReport;
+
+/*
+ * This interface is a for the UserImportServiceImpl layer, this allows us to code against 
+ * an interface and enforce loose coupling with the @Autowire annotation as per 
+ * best practises.
+ */
+public interface UserImportService {
+
+    UserImportReport importUsers(Reader csv, long startLine) throws IOException;
+}
@@ -0,0 +1,18 @@
+package com.kokabmedia.service;
+
+import java.util.List;
+
+import com.kokabmedia.domain.CustomerSearchResult;
+
+/*
+ * This interface is a for the UserSearchServiceImpl layer, this allows us to code against
+ * an interface and enforce loose coupling with the @Autowire annotation as per
+ * best practises.
+ */
+public interface UserSearchService {
+    List<CustomerSearchResult> search(String query, int limit);
+
+    boolean isReady();
+
+    int rebuild();
+}
@@ -4,6 +4,9 @@ import java.util.List;
 import java.util.Set;
 
 import com.kokabmedia.domain.User;
+import com.kokabmedia.domain.UserStatusChange;
+import com.kokabmedia.domain.UserStatusChangeReport;
+import com.kokabmedia.domain.UserSummary;
 import com.kokabmedia.security.UserRole;
 
 /*
@@ -30,7 +33,15 @@ public interface UserService {
     
     List<User> findUserList();
 
+    List<UserSummary> findUserSummariesAfter(Long after, int size);
+
+    List<UserSummary> findUserSummaryPage(int page, int size);
+
+    void recordExistingUser(String username, String email);
+
     void enableUser (String username);
 
     void disableUser (String username);
+
+    UserStatusChangeReport changeStatus(UserStatusChange change);
 }
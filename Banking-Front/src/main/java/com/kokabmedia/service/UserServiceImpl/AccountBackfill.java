@@ -0,0 +1,67 @@
+package com.kokabmedia.service.UserServiceImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kokabmedia.domain.AccountType;
+
+/*
+ * Runs a backfill (the monthly statements, the daily spending) over every primary and
+ * savings account. The accounts are spread over a small thread pool and each account is
+ * rebuilt in its own transaction, so a failure only affects that account and the job can
+ * simply be run again.
+ */
+final class AccountBackfill {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AccountBackfill.class);
+
+    private AccountBackfill() {}
+
+    // Returns the number of accounts that were rebuilt
+    static int run(String name, int threads, PlatformTransactionManager transactionManager, List<Long> primaryAccountIds,
+            List<Long> savingsAccountIds, BiConsumer<AccountType, Long> backfill) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (Long accountId : primaryAccountIds) {
+                futures.add(executor.submit(() -> transactionTemplate.executeWithoutResult(
+                        status -> backfill.accept(AccountType.PRIMARY, accountId))));
+            }
+            for (Long accountId : savingsAccountIds) {
+                futures.add(executor.submit(() -> transactionTemplate.executeWithoutResult(
+                        status -> backfill.accept(AccountType.SAVINGS, accountId))));
+            }
+
+            int failed = 0;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    failed++;
+                    LOG.error("{} backfill failed for an account", name, e.getCause());
+                } catch (InterruptedException e) {
+                    // The remaining accounts are abandoned, shutdownNow interrupts the running ones
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(name + " backfill was interrupted", e);
+                }
+            }
+            LOG.info("{} backfill finished for {} accounts, {} failed", name, futures.size(), failed);
+
+            return futures.size() - failed;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -1,22 +1,23 @@
 package com.kokabmedia.service.UserServiceImpl;
 
 import java.math.BigDecimal;
-import java.security.Principal;
 import java.util.Date;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.kokabmedia.dao.PrimaryAccountDao;
 import com.kokabmedia.dao.SavingsAccountDao;
+import com.kokabmedia.domain.AccountKey;
+import com.kokabmedia.domain.AccountType;
 import com.kokabmedia.domain.PrimaryAccount;
 import com.kokabmedia.domain.PrimaryTransaction;
 import com.kokabmedia.domain.SavingsAccount;
 import com.kokabmedia.domain.SavingsTransaction;
-import com.kokabmedia.domain.User;
+import com.kokabmedia.importer.IdBlockAllocator;
 import com.kokabmedia.service.AccountService;
 import com.kokabmedia.service.TransactionService;
-import com.kokabmedia.service.UserService;
 
 /*
 * This class will work as a service object and a business logic layer with code that 
@@ -41,8 +42,6 @@ import com.kokabmedia.service.UserService;
 @Service
 public class AccountServiceImpl implements AccountService {
 	
-	private static int nextAccountNumber = 11223145;
-	
 	/*
 	 * The @Autowired annotation tells the Spring framework that this object (bean) and its 
 	 * implementation is an dependency of this class. It is a mechanism for implementing Spring 
@@ -52,21 +51,21 @@ public class AccountServiceImpl implements AccountService {
 	 * coupling and enable loose coupling by calling a interface or the implementation of an 
 	 * interface.
 	 * 
-	 * The Spring framework creates a instance (bean) of the UserService or its implementation and 
+	 * The Spring framework creates a instance (bean) of the PrimaryAccountDao or its implementation and 
 	 * inject (autowires) that instance into the AccountServiceImpl object when it is instantiated 
 	 * as a autowired dependency.
 	 * 
-	 * The UserService bean and its implementation is now a dependency of the AccountServiceImpl class.
+	 * The PrimaryAccountDao bean and its implementation is now a dependency of the AccountServiceImpl class.
 	 */
-	@Autowired
-    private UserService userService;
-
     @Autowired
     private PrimaryAccountDao primaryAccountDao;
 
     @Autowired
     private SavingsAccountDao savingsAccountDao;
 
+    @Autowired
+    private IdBlockAllocator idBlockAllocator;
+
     
     @Autowired
     private TransactionService transactionService;
@@ -76,9 +75,7 @@ public class AccountServiceImpl implements AccountService {
         primaryAccount.setAccountBalance(new BigDecimal(0.0));
         primaryAccount.setAccountNumber(accountGen());
 
-        primaryAccountDao.save(primaryAccount);
-
-        return primaryAccountDao.findByAccountNumber(primaryAccount.getAccountNumber());
+        return primaryAccountDao.save(primaryAccount);
     }
 
     public SavingsAccount createSavingsAccount() {
@@ -86,16 +83,17 @@ public class AccountServiceImpl implements AccountService {
         savingsAccount.setAccountBalance(new BigDecimal(0.0));
         savingsAccount.setAccountNumber(accountGen());
 
-        savingsAccountDao.save(savingsAccount);
-
-        return savingsAccountDao.findByAccountNumber(savingsAccount.getAccountNumber());
+        return savingsAccountDao.save(savingsAccount);
     }
     
-    public void deposit(String accountType, double amount, Principal principal) {
-        User user = userService.findByUsername(principal.getName());
-
-        if (accountType.equalsIgnoreCase("Primary")) {
-            PrimaryAccount primaryAccount = user.getPrimaryAccount();
+    /*
+     * The balance update, the transaction row and the statement rollup are committed
+     * together, or not at all.
+     */
+    @Transactional
+    public void deposit(AccountKey account, double amount) {
+        if (account.getAccountType() == AccountType.PRIMARY) {
+            PrimaryAccount primaryAccount = findPrimaryAccount(account.getAccountId());
             primaryAccount.setAccountBalance(primaryAccount.getAccountBalance().add(new BigDecimal(amount)));
             primaryAccountDao.save(primaryAccount);
 
@@ -104,8 +102,8 @@ public class AccountServiceImpl implements AccountService {
             PrimaryTransaction primaryTransaction = new PrimaryTransaction(date, "Deposit to Primary Account", "Account", "Finished", amount, primaryAccount.getAccountBalance(), primaryAccount);
             transactionService.savePrimaryDepositTransaction(primaryTransaction);
             
-        } else if (accountType.equalsIgnoreCase("Savings")) {
-            SavingsAccount savingsAccount = user.getSavingsAccount();
+        } else {
+            SavingsAccount savingsAccount = findSavingsAccount(account.getAccountId());
             savingsAccount.setAccountBalance(savingsAccount.getAccountBalance().add(new BigDecimal(amount)));
             savingsAccountDao.save(savingsAccount);
 
@@ -115,11 +113,10 @@ public class AccountServiceImpl implements AccountService {
         }
     }
     
-    public void withdraw(String accountType, double amount, Principal principal) {
-        User user = userService.findByUsername(principal.getName());
-
-        if (accountType.equalsIgnoreCase("Primary")) {
-            PrimaryAccount primaryAccount = user.getPrimaryAccount();
+    @Transactional
+    public void withdraw(AccountKey account, double amount) {
+        if (account.getAccountType() == AccountType.PRIMARY) {
+            PrimaryAccount primaryAccount = findPrimaryAccount(account.getAccountId());
             primaryAccount.setAccountBalance(primaryAccount.getAccountBalance().subtract(new BigDecimal(amount)));
             primaryAccountDao.save(primaryAccount);
 
@@ -127,8 +124,8 @@ public class AccountServiceImpl implements AccountService {
 
             PrimaryTransaction primaryTransaction = new PrimaryTransaction(date, "Withdraw from Primary Account", "Account", "Finished", amount, primaryAccount.getAccountBalance(), primaryAccount);
             transactionService.savePrimaryWithdrawTransaction(primaryTransaction);
-        } else if (accountType.equalsIgnoreCase("Savings")) {
-            SavingsAccount savingsAccount = user.getSavingsAccount();
+        } else {
+            SavingsAccount savingsAccount = findSavingsAccount(account.getAccountId());
             savingsAccount.setAccountBalance(savingsAccount.getAccountBalance().subtract(new BigDecimal(amount)));
             savingsAccountDao.save(savingsAccount);
 
@@ -138,8 +135,17 @@ public class AccountServiceImpl implements AccountService {
         }
     }
     
+    private PrimaryAccount findPrimaryAccount(Long id) {
+        return primaryAccountDao.findById(id).orElseThrow(() -> new IllegalArgumentException("Unknown primary account " + id));
+    }
+
+    private SavingsAccount findSavingsAccount(Long id) {
+        return savingsAccountDao.findById(id).orElseThrow(() -> new IllegalArgumentException("Unknown savings account " + id));
+    }
+
+    // Account numbers come from the account number sequence, so they stay unique across restarts and nodes
     private int accountGen() {
-        return ++nextAccountNumber;
+        return idBlockAllocator.nextAccountNumber();
     }
 
 	
@@ -5,10 +5,13 @@ import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.kokabmedia.dao.AppointmentDao;
 import com.kokabmedia.domain.Appointment;
+import com.kokabmedia.domain.ChangeType;
 import com.kokabmedia.service.AppointmentService;
+import com.kokabmedia.service.ChangeFeedService;
 
 /*
 * This class will work as a service object and a business logic layer with code that 
@@ -51,8 +54,15 @@ public class AppointmentServiceImpl implements AppointmentService {
     @Autowired
     private AppointmentDao appointmentDao;
 
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Transactional
     public Appointment createAppointment(Appointment appointment) {
-       return appointmentDao.save(appointment);
+       Appointment savedAppointment = appointmentDao.save(appointment);
+       changeFeedService.recordChange(ChangeType.APPOINTMENT, savedAppointment.getId());
+
+       return savedAppointment;
     }
 
     public List<Appointment> findAll() {
@@ -63,9 +73,11 @@ public class AppointmentServiceImpl implements AppointmentService {
         return appointmentDao.findById(id);
     }
 
+    @Transactional
     public void confirmAppointment(Long id) {
         Appointment appointment = findAppointment(id).get();
         appointment.setConfirmed(true);
         appointmentDao.save(appointment);
+        changeFeedService.recordChange(ChangeType.APPOINTMENT, id);
     }
 }
@@ -0,0 +1,182 @@
+package com.kokabmedia.service.UserServiceImpl;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kokabmedia.cache.BoundedCache;
+import com.kokabmedia.cache.DailyBalanceHistory;
+import com.kokabmedia.chart.Downsampler;
+import com.kokabmedia.dao.PrimaryTransactionDao;
+import com.kokabmedia.dao.SavingsTransactionDao;
+import com.kokabmedia.domain.AccountKey;
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.BalancePoint;
+import com.kokabmedia.domain.Ledger;
+import com.kokabmedia.domain.LedgerEntry;
+import com.kokabmedia.service.BalanceHistoryService;
+import com.kokabmedia.service.TransactionArchiveService;
+import com.kokabmedia.service.TransactionService;
+
+/*
+* This class will work as a service object and a business logic layer with code that 
+* implements the necessary functions that make the application act in a desired 
+* manner.
+* 
+* The balance chart of the account pages shows the closing balance of every day. The
+* closing balances of the days that are over never change, so they are read once per
+* account with one streaming pass over the (account_id, date) index and kept in a size
+* bounded cache. Only the range that was asked for is read, starting with the balance the
+* account had before it, older days are read when a later request asks for them. Later
+* requests only read the days that passed since and today, so a repeated chart costs about
+* the same as a one month chart. The series is then reduced to the number of points the
+* chart asks for.
+* 
+* The @Service annotation allows the Spring framework to creates an instance (bean) 
+* of this class and manage it with the Spring Application Context (the IOC container)
+* that maintains all the beans for the application.  
+*/
+@Service
+public class BalanceHistoryServiceImpl implements BalanceHistoryService {
+
+    @Autowired
+    private PrimaryTransactionDao primaryTransactionDao;
+
+    @Autowired
+    private SavingsTransactionDao savingsTransactionDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransactionArchiveService transactionArchiveService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Value("${banking.balance-history.max-accounts:5000}")
+    private int maxAccounts;
+
+    private BoundedCache<AccountKey, DailyBalanceHistory> histories;
+
+    @PostConstruct
+    public void init() {
+        histories = BoundedCache.lru(maxAccounts);
+    }
+
+    /*
+     * The closing balances from the first day up to and including the last day, downsampled
+     * to at most the given number of points. The series starts with the balance the account
+     * had at the start of the range.
+     */
+    public List<BalancePoint> findBalanceHistory(AccountKey accountKey, LocalDate from, LocalDate to, int points) {
+        LocalDate today = LocalDate.now();
+        if (to.isAfter(today)) {
+            to = today;
+        }
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("The end of the range is before its start");
+        }
+
+        DailyBalanceHistory history = history(accountKey, from, today.minusDays(1));
+        BigDecimal opening = history.closeBefore(from);
+        NavigableMap<LocalDate, BigDecimal> closes = history.closes(from, to);
+        if (!to.isBefore(today)) {
+            // Today is not over yet, its closing balance so far is read from the database
+            closes.putAll(streamCloses(accountKey, today, today.plusDays(1)));
+        }
+
+        List<BalancePoint> series = new ArrayList<>(closes.size() + 2);
+        if (closes.isEmpty() || closes.firstKey().isAfter(from)) {
+            series.add(new BalancePoint(from, opening));
+        }
+        for (Map.Entry<LocalDate, BigDecimal> close : closes.entrySet()) {
+            series.add(new BalancePoint(close.getKey(), close.getValue()));
+        }
+        BalancePoint last = series.get(series.size() - 1);
+        if (last.getDay().isBefore(to)) {
+            series.add(new BalancePoint(to, last.getBalance()));
+        }
+
+        return Downsampler.lttb(series, points);
+    }
+
+    /*
+     * The cached history of the account, extended back to the first day and up to and
+     * including the last day. The history is locked while it is extended, so an account is
+     * read by one request at a time.
+     */
+    private DailyBalanceHistory history(AccountKey accountKey, LocalDate from, LocalDate through) {
+        DailyBalanceHistory history = histories.get(accountKey);
+        if (history == null) {
+            DailyBalanceHistory created = new DailyBalanceHistory();
+            history = histories.putIfAbsent(accountKey, created);
+            if (history == null) {
+                history = created;
+            }
+        }
+
+        synchronized (history) {
+            LocalDate loadedFrom = history.getLoadedFrom();
+            if (loadedFrom == null) {
+                history.extendBack(streamCloses(accountKey, from, through.plusDays(1)), from, balanceBefore(accountKey, from));
+                history.extend(new TreeMap<>(), through);
+            } else if (from.isBefore(loadedFrom)) {
+                history.extendBack(streamCloses(accountKey, from, loadedFrom), from, balanceBefore(accountKey, from));
+            }
+
+            LocalDate loadedThrough = history.getLoadedThrough();
+            if (loadedThrough.isBefore(through)) {
+                history.extend(streamCloses(accountKey, loadedThrough.plusDays(1), through.plusDays(1)), through);
+            }
+        }
+        return history;
+    }
+
+    // The balance at the end of the day before the day, with one indexed seek
+    private BigDecimal balanceBefore(AccountKey accountKey, LocalDate day) {
+        return transactionService.findBalanceAsOf(accountKey.getAccountType(), accountKey.getAccountId(), day.minusDays(1));
+    }
+
+    /*
+     * One pass over the transactions of the account from the first day up to but not
+     * including the last day, keeping the available balance of the last transaction of
+     * every day. Archived transactions come first, so a row that is still in the database
+     * as well wins.
+     */
+    private NavigableMap<LocalDate, BigDecimal> streamCloses(AccountKey accountKey, LocalDate from, LocalDate to) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        return transactionTemplate.execute(status -> {
+            NavigableMap<LocalDate, BigDecimal> closes = new TreeMap<>();
+            Date start = Ledger.startOf(from);
+            Date end = Ledger.startOf(to);
+
+            for (LedgerEntry entry : transactionArchiveService.findArchived(accountKey, start, end)) {
+                closes.put(Ledger.dayOf(entry.getDate()), entry.getAvailableBalance());
+            }
+
+            try (Stream<Object[]> rows = accountKey.getAccountType() == AccountType.PRIMARY
+                    ? primaryTransactionDao.streamBalances(accountKey.getAccountId(), start, end)
+                    : savingsTransactionDao.streamBalances(accountKey.getAccountId(), start, end)) {
+                rows.forEach(row -> closes.put(Ledger.dayOf((Date) row[0]), (BigDecimal) row[1]));
+            }
+            return closes;
+        });
+    }
+}
@@ -0,0 +1,233 @@
+package com.kokabmedia.service.UserServiceImpl;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kokabmedia.dao.AppointmentDao;
+import com.kokabmedia.dao.ChangeLogDao;
+import com.kokabmedia.dao.PrimaryTransactionDao;
+import com.kokabmedia.dao.SavingsTransactionDao;
+import com.kokabmedia.dao.UserDao;
+import com.kokabmedia.domain.Appointment;
+import com.kokabmedia.domain.ChangeFeed;
+import com.kokabmedia.domain.ChangeLog;
+import com.kokabmedia.domain.ChangeType;
+import com.kokabmedia.domain.LedgerEntry;
+import com.kokabmedia.domain.SyncToken;
+import com.kokabmedia.domain.UserStatus;
+import com.kokabmedia.service.ChangeFeedService;
+
+/*
+* This class will work as a service object and a business logic layer with code that 
+* implements the necessary functions that make the application act in a desired 
+* manner.
+* 
+* The change feed lets the Angular client refresh its lists with only the rows that changed
+* since its last sync token, instead of loading every user, appointment and transaction
+* again. The services record a ChangeLog row in the same database transaction as each
+* change, the token is the sequence of the last change the client has seen.
+* 
+* An auto increment value is assigned when a row is inserted and not when it is committed,
+* so a change can become visible after a change with a higher sequence. The token therefore
+* carries the sequences it moved past without seeing them (see SyncToken), they are looked
+* up again by every request until they show up or the gap timeout has passed.
+* 
+* The @Service annotation allows the Spring framework to creates an instance (bean) 
+* of this class and manage it with the Spring Application Context (the IOC container)
+* that maintains all the beans for the application.  
+*/
+@Service
+public class ChangeFeedServiceImpl implements ChangeFeedService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeFeedServiceImpl.class);
+
+    // Number of change log rows deleted in one transaction by the pruning job
+    private static final int PRUNE_CHUNK = 10000;
+
+    @Autowired
+    private ChangeLogDao changeLogDao;
+
+    @Autowired
+    private PrimaryTransactionDao primaryTransactionDao;
+
+    @Autowired
+    private SavingsTransactionDao savingsTransactionDao;
+
+    @Autowired
+    private AppointmentDao appointmentDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /*
+     * Longest time a missing sequence is looked up again. It is far longer than any
+     * transaction that records a change, a sequence that is still missing afterwards
+     * belongs to a rolled back insert.
+     */
+    @Value("${banking.sync.gap-timeout-seconds:300}")
+    private long gapTimeoutSeconds;
+
+    // Changes are kept this long, older tokens require a full resync
+    @Value("${banking.sync.retention-days:7}")
+    private long retentionDays;
+
+    @Transactional
+    public void recordChange(ChangeType entityType, Long entityId) {
+        changeLogDao.save(new ChangeLog(entityType, entityId, new Date()));
+    }
+
+    // One change log row per entity, inserted as one batch
+    @Transactional
+    public void recordChanges(ChangeType entityType, Collection<Long> entityIds) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> changes = new ArrayList<>(entityIds.size());
+        for (Long entityId : entityIds) {
+            changes.add(new Object[] { entityType.name(), entityId, now });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO change_log (entity_type, entity_id, changed_at) VALUES (?, ?, ?)", changes);
+    }
+
+    @Transactional(readOnly = true)
+    public ChangeFeed findChanges(String token, int limit) {
+        long now = System.currentTimeMillis();
+        long gapTimeout = TimeUnit.SECONDS.toMillis(gapTimeoutSeconds);
+        SyncToken after = SyncToken.parse(token);
+
+        if (after == null || expired(after.getSequence())) {
+            return ChangeFeed.fullResync(String.valueOf(resyncSequence(new Date(now - gapTimeout))));
+        }
+
+        List<ChangeLog> changes = new ArrayList<>(changeLogDao.findAfter(after.getSequence(), PageRequest.of(0, limit)));
+        boolean hasMore = changes.size() == limit;
+        if (!after.getGaps().isEmpty()) {
+            // Changes that were not committed yet when the client last asked
+            changeLogDao.findAllById(after.getGaps()).forEach(changes::add);
+        }
+
+        List<Long> seen = new ArrayList<>(changes.size());
+        for (ChangeLog change : changes) {
+            seen.add(change.getSequence());
+        }
+        SyncToken next = after.advance(seen, now, gapTimeout);
+
+        Map<ChangeType, Set<Long>> ids = new EnumMap<>(ChangeType.class);
+        for (ChangeLog change : changes) {
+            ids.computeIfAbsent(change.getEntityType(), type -> new LinkedHashSet<>()).add(change.getEntityId());
+        }
+
+        /*
+         * A transaction is dated when it is posted, in the same database transaction that
+         * records its change, so its date is within a day of the changes that were read.
+         */
+        List<LedgerEntry> transactions = new ArrayList<>();
+        if (!changes.isEmpty()) {
+            Date from = new Date(changes.stream().mapToLong(change -> change.getChangedAt().getTime()).min().getAsLong()
+                    - TimeUnit.DAYS.toMillis(1));
+            Date to = new Date(changes.stream().mapToLong(change -> change.getChangedAt().getTime()).max().getAsLong()
+                    + TimeUnit.DAYS.toMillis(1));
+            Set<Long> primaryIds = ids(ids, ChangeType.PRIMARY_TRANSACTION);
+            if (!primaryIds.isEmpty()) {
+                primaryTransactionDao.findChanged(primaryIds, from, to)
+                        .forEach(transaction -> transactions.add(LedgerEntry.of(transaction)));
+            }
+            Set<Long> savingsIds = ids(ids, ChangeType.SAVINGS_TRANSACTION);
+            if (!savingsIds.isEmpty()) {
+                savingsTransactionDao.findChanged(savingsIds, from, to)
+                        .forEach(transaction -> transactions.add(LedgerEntry.of(transaction)));
+            }
+        }
+
+        List<Appointment> appointments = new ArrayList<>();
+        appointmentDao.findAllById(ids(ids, ChangeType.APPOINTMENT)).forEach(appointments::add);
+
+        List<UserStatus> users = new ArrayList<>();
+        userDao.findAllById(ids(ids, ChangeType.USER)).forEach(user -> users.add(UserStatus.of(user)));
+
+        return new ChangeFeed(next.toString(), false, hasMore, transactions, appointments, users);
+    }
+
+    /*
+     * Deletes the changes that are older than the retention period in small transactions.
+     * The newest change is always kept, so the first sequence that is left tells which
+     * tokens have expired.
+     */
+    @Scheduled(fixedDelayString = "${banking.sync.prune-interval-ms:3600000}",
+            initialDelayString = "${banking.sync.prune-interval-ms:3600000}")
+    public int pruneChangeLog() {
+        Date cutoff = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays));
+        Long first = changeLogDao.findFirstSequence();
+        Long last = changeLogDao.findLastSequence();
+        Long upTo = changeLogDao.findLastSequenceBefore(cutoff);
+        if (first == null || upTo == null) {
+            return 0;
+        }
+        long pruneUpTo = upTo.equals(last) ? last - 1 : upTo;
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int deleted = 0;
+        for (long from = first - 1; from < pruneUpTo; from += PRUNE_CHUNK) {
+            long chunkAfter = from;
+            long chunkUpTo = Math.min(from + PRUNE_CHUNK, pruneUpTo);
+            deleted += transactionTemplate.execute(status -> changeLogDao.deleteRange(chunkAfter, chunkUpTo));
+        }
+        LOG.info("Pruned {} change log rows up to sequence {}", deleted, pruneUpTo);
+
+        return deleted;
+    }
+
+    /*
+     * A token has expired when changes after it were pruned, or when it is ahead of the
+     * change log, for example after the database was restored.
+     */
+    private boolean expired(long after) {
+        Long first = changeLogDao.findFirstSequence();
+        if (first == null) {
+            return after > 0;
+        }
+        return after < first - 1 || after > changeLogDao.findLastSequence();
+    }
+
+    /*
+     * The token to continue with after the client reloaded its lists. It starts before the
+     * changes of the last gap timeout, which may not all be committed yet, the client gets
+     * those again with its next request.
+     */
+    private long resyncSequence(Date settled) {
+        Long stable = changeLogDao.findLastSequenceBefore(settled);
+        if (stable != null) {
+            return stable;
+        }
+        Long first = changeLogDao.findFirstSequence();
+        return first == null ? 0 : first - 1;
+    }
+
+    private static Set<Long> ids(Map<ChangeType, Set<Long>> ids, ChangeType entityType) {
+        return ids.getOrDefault(entityType, new LinkedHashSet<>());
+    }
+}
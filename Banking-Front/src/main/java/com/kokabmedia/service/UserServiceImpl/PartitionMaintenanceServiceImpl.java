@@ -0,0 +1,185 @@
+package com.kokabmedia.service.UserServiceImpl;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.kokabmedia.domain.Ledger;
+import com.kokabmedia.partition.PartitionDdl;
+import com.kokabmedia.service.PartitionMaintenanceService;
+
+/*
+* This class will work as a service object and a business logic layer with code that 
+* implements the necessary functions that make the application act in a desired 
+* manner.
+* 
+* The transaction tables are created by Hibernate (ddl-auto=update) without partitions.
+* When partitioning is enabled this service turns them into tables with one range
+* partition per month of the transaction date, so the queries of a date range only read
+* the partitions of that range. Every night it adds the partitions of the coming months
+* and, when a detach period is set, moves the partitions that are older than that period
+* out of the table into a table of their own.
+* 
+* The DDL statements are run with JdbcTemplate outside of a transaction, MySQL commits
+* every ALTER TABLE on its own.
+* 
+* The @Service annotation allows the Spring framework to creates an instance (bean) 
+* of this class and manage it with the Spring Application Context (the IOC container)
+* that maintains all the beans for the application.  
+*/
+@Service
+public class PartitionMaintenanceServiceImpl implements PartitionMaintenanceService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PartitionMaintenanceServiceImpl.class);
+
+    private static final String[] TABLES = {"primary_transaction", "savings_transaction"};
+
+    // MySQL named lock (GET_LOCK) held by the node that maintains the partitions
+    private static final String LOCK_NAME = "banking_partition_maintenance";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${banking.partitioning.enabled:false}")
+    private boolean enabled;
+
+    // Number of months after the current month that always have a partition
+    @Value("${banking.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    // Partitions older than this number of months are detached, 0 keeps every partition
+    @Value("${banking.partitioning.detach-after-months:0}")
+    private int detachAfterMonths;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        maintainPartitions();
+    }
+
+    /*
+     * Every node runs this job, the MySQL named lock lets only one of them change the tables
+     * at a time. The lock belongs to the connection that took it and is released when that
+     * connection closes, so a node that stops during the maintenance does not keep it.
+     */
+    @Scheduled(cron = "${banking.partitioning.cron:0 0 3 * * *}")
+    public synchronized void maintainPartitions() {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement lock = connection.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+                lock.setString(1, LOCK_NAME);
+                try (ResultSet result = lock.executeQuery()) {
+                    if (!result.next() || result.getInt(1) != 1) {
+                        LOG.info("Partition maintenance skipped, another node holds the lock");
+                        return null;
+                    }
+                }
+            }
+            try {
+                maintainTables();
+            } finally {
+                try (PreparedStatement release = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                    release.setString(1, LOCK_NAME);
+                    release.executeQuery().close();
+                }
+            }
+            return null;
+        });
+    }
+
+    private void maintainTables() {
+        YearMonth current = YearMonth.now();
+        for (String table : TABLES) {
+            try {
+                List<YearMonth> months = partitionMonths(table);
+                if (months.isEmpty()) {
+                    partitionTable(table, current);
+                } else {
+                    addFuturePartitions(table, months.get(months.size() - 1), current.plusMonths(monthsAhead));
+                    if (detachAfterMonths > 0) {
+                        detachPartitions(table, months, current.minusMonths(detachAfterMonths));
+                    }
+                }
+            } catch (RuntimeException e) {
+                LOG.error("Partition maintenance failed for table {}", table, e);
+            }
+        }
+    }
+
+    /*
+     * First partitioning of a table: the foreign keys that Hibernate created before are
+     * dropped and the primary key is extended with the date, then every month from the
+     * first transaction up to the months ahead gets a partition.
+     */
+    private void partitionTable(String table, YearMonth current) {
+        List<String> foreignKeys = jdbcTemplate.queryForList(
+                "SELECT constraint_name FROM information_schema.referential_constraints "
+                        + "WHERE constraint_schema = DATABASE() AND table_name = ?", String.class, table);
+        for (String foreignKey : foreignKeys) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP FOREIGN KEY " + foreignKey);
+        }
+
+        Timestamp firstDate = jdbcTemplate.queryForObject("SELECT MIN(`date`) FROM " + table, Timestamp.class);
+        YearMonth first = firstDate == null ? current : Ledger.monthOf(firstDate);
+        jdbcTemplate.execute(PartitionDdl.partitionTable(table, first, current.plusMonths(monthsAhead)));
+
+        LOG.info("Partitioned table {} by month from {}", table, first);
+    }
+
+    private void addFuturePartitions(String table, YearMonth lastPartition, YearMonth through) {
+        List<YearMonth> missing = new ArrayList<>();
+        for (YearMonth month = lastPartition.plusMonths(1); !month.isAfter(through); month = month.plusMonths(1)) {
+            missing.add(month);
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.execute(PartitionDdl.addPartitions(table, missing));
+            LOG.info("Added partitions {} to table {}", missing, table);
+        }
+    }
+
+    // Detaches the partitions of the months before the cutoff month, oldest first
+    private void detachPartitions(String table, List<YearMonth> months, YearMonth before) {
+        for (YearMonth month : months) {
+            if (!month.isBefore(before)) {
+                break;
+            }
+            for (String sql : PartitionDdl.detachPartition(table, month)) {
+                jdbcTemplate.execute(sql);
+            }
+            LOG.info("Detached partition {} of table {} into table {}", PartitionDdl.partitionName(month), table,
+                    PartitionDdl.detachedTable(table, month));
+        }
+    }
+
+    // The months of the partitions of the table in order, empty when it is not partitioned
+    private List<YearMonth> partitionMonths(String table) {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT partition_name FROM information_schema.partitions WHERE table_schema = DATABASE() "
+                        + "AND table_name = ? AND partition_name IS NOT NULL ORDER BY partition_ordinal_position",
+                String.class, table);
+
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : names) {
+            YearMonth month = PartitionDdl.monthOf(name);
+            if (month != null) {
+                months.add(month);
+            }
+        }
+        return months;
+    }
+}
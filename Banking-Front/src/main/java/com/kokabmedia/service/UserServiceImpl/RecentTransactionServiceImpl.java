@@ -0,0 +1,145 @@
+package com.kokabmedia.service.UserServiceImpl;
+
+import java.time.YearMonth;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.kokabmedia.cache.BoundedCache;
+import com.kokabmedia.cache.RecentTransactionBuffer;
+import com.kokabmedia.dao.PrimaryTransactionDao;
+import com.kokabmedia.dao.SavingsTransactionDao;
+import com.kokabmedia.domain.AccountKey;
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.Ledger;
+import com.kokabmedia.domain.LedgerEntry;
+import com.kokabmedia.event.TransactionPostedEvent;
+import com.kokabmedia.service.RecentTransactionService;
+
+/*
+* This class will work as a service object and a business logic layer with code that 
+* implements the necessary functions that make the application act in a desired 
+* manner.
+* 
+* The dashboard only shows the last few transactions of an account, so instead of loading
+* the whole lazy transaction list this service keeps a small RecentTransactionBuffer per
+* account in a size bounded LRU cache. A buffer is read from the database once and is then
+* updated from the TransactionPostedEvent of every committed ledger write, so reading the
+* recent activity of an active account does not touch the database.
+* 
+* The memory use is capped at max-accounts times buffer-size transactions.
+* 
+* The @Service annotation allows the Spring framework to creates an instance (bean) 
+* of this class and manage it with the Spring Application Context (the IOC container)
+* that maintains all the beans for the application.  
+*/
+@Service
+public class RecentTransactionServiceImpl implements RecentTransactionService {
+
+    @Autowired
+    private PrimaryTransactionDao primaryTransactionDao;
+
+    @Autowired
+    private SavingsTransactionDao savingsTransactionDao;
+
+    @Value("${banking.recent.buffer-size:20}")
+    private int bufferSize;
+
+    @Value("${banking.recent.max-accounts:10000}")
+    private int maxAccounts;
+
+    // Number of months, including the current one, that are read first to fill a buffer
+    @Value("${banking.recent.window-months:3}")
+    private int windowMonths;
+
+    private BoundedCache<AccountKey, RecentTransactionBuffer> buffers;
+
+    @PostConstruct
+    public void init() {
+        buffers = BoundedCache.lru(maxAccounts);
+    }
+
+    public List<LedgerEntry> findRecentTransactions(AccountKey accountKey, int limit) {
+        return buffer(accountKey).snapshot(Math.min(limit, bufferSize));
+    }
+
+    // Write through of committed transactions into the buffers that are cached
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionPosted(TransactionPostedEvent event) {
+        RecentTransactionBuffer buffer = buffers.get(event.getEntry().accountKey());
+        if (buffer != null) {
+            buffer.add(event.getEntry());
+        }
+    }
+
+    /*
+     * The empty buffer is cached before the database is read so a commit event that arrives
+     * during the read is not lost, other readers wait until the first read is done. A failed
+     * read only evicts its own buffer and is rethrown to the readers that waited for it.
+     */
+    private RecentTransactionBuffer buffer(AccountKey accountKey) {
+        RecentTransactionBuffer buffer = buffers.get(accountKey);
+        if (buffer == null) {
+            RecentTransactionBuffer created = new RecentTransactionBuffer(bufferSize);
+            buffer = buffers.putIfAbsent(accountKey, created);
+            if (buffer == null) {
+                try {
+                    created.addAll(load(accountKey));
+                } catch (RuntimeException e) {
+                    buffers.invalidate(accountKey, created);
+                    created.markFailed(e);
+                    throw e;
+                }
+                created.markLoaded();
+                return created;
+            }
+        }
+
+        try {
+            buffer.awaitLoaded();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while recent transactions were loading", e);
+        }
+        return buffer;
+    }
+
+    /*
+     * Reads the newest transactions of the last window-months months. The older months are
+     * only read for an account that has fewer transactions than the buffer holds in that
+     * window, starting at its first transaction, so the query always has a date range.
+     */
+    private List<LedgerEntry> load(AccountKey accountKey) {
+        PageRequest newest = PageRequest.of(0, bufferSize);
+        Date windowStart = Ledger.startOf(YearMonth.now().minusMonths(windowMonths - 1));
+
+        List<LedgerEntry> entries = findRecent(accountKey, windowStart, newest);
+        if (entries.size() < bufferSize) {
+            List<Object[]> bounds = accountKey.getAccountType() == AccountType.PRIMARY
+                    ? primaryTransactionDao.findLedgerBounds(accountKey.getAccountId())
+                    : savingsTransactionDao.findLedgerBounds(accountKey.getAccountId());
+            Date first = bounds.isEmpty() ? null : (Date) bounds.get(0)[0];
+            if (first != null && first.before(windowStart)) {
+                entries = findRecent(accountKey, first, newest);
+            }
+        }
+        return entries;
+    }
+
+    private List<LedgerEntry> findRecent(AccountKey accountKey, Date from, PageRequest newest) {
+        if (accountKey.getAccountType() == AccountType.PRIMARY) {
+            return primaryTransactionDao.findRecent(accountKey.getAccountId(), from, newest).stream()
+                    .map(LedgerEntry::of).collect(Collectors.toList());
+        }
+        return savingsTransactionDao.findRecent(accountKey.getAccountId(), from, newest).stream()
+                .map(LedgerEntry::of).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,386 @@
+package com.kokabmedia.service.UserServiceImpl;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kokabmedia.cache.BoundedCache;
+import com.kokabmedia.dao.DailySpendingDao;
+import com.kokabmedia.dao.PrimaryAccountDao;
+import com.kokabmedia.dao.PrimaryTransactionDao;
+import com.kokabmedia.dao.SavingsAccountDao;
+import com.kokabmedia.dao.SavingsTransactionDao;
+import com.kokabmedia.domain.AccountKey;
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.DailySpending;
+import com.kokabmedia.domain.Ledger;
+import com.kokabmedia.domain.LedgerEntry;
+import com.kokabmedia.domain.LedgerRow;
+import com.kokabmedia.domain.PrimaryTransaction;
+import com.kokabmedia.domain.SavingsTransaction;
+import com.kokabmedia.domain.SpendingPeriod;
+import com.kokabmedia.domain.SpendingReport;
+import com.kokabmedia.event.TransactionPostedEvent;
+import com.kokabmedia.importer.IdBlockAllocator;
+import com.kokabmedia.service.SpendingAnalyticsService;
+import com.kokabmedia.service.TransactionArchiveService;
+
+/*
+* This class will work as a service object and a business logic layer with code that 
+* implements the necessary functions that make the application act in a desired 
+* manner.
+* 
+* The spending analytics of a short date range are summed from the transaction rows of
+* the range. A long range reads the DailySpending rows instead, which are kept up to date
+* in the same database transaction as every ledger write, so the work of a request grows
+* with the number of days and not with the number of transactions of the user. The day of
+* a transaction is always taken with Ledger.dayOf, by the live writes, the short ranges and
+* the backfill alike, so they all put a transaction on the same day.
+* 
+* Reports are cached per user in a size bounded cache. Both accounts of the user point to
+* the same UserReports, so the TransactionPostedEvent of a committed ledger write clears
+* the reports of its account with one lookup.
+* 
+* The @Service annotation allows the Spring framework to creates an instance (bean) 
+* of this class and manage it with the Spring Application Context (the IOC container)
+* that maintains all the beans for the application.  
+*/
+@Service
+public class SpendingAnalyticsServiceImpl implements SpendingAnalyticsService {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(1970, 1, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(9999, 1, 1);
+
+    // Reports of different ranges kept per user, the least recently read one is dropped first
+    private static final int REPORTS_PER_USER = 16;
+
+    @Autowired
+    private DailySpendingDao dailySpendingDao;
+
+    @Autowired
+    private PrimaryTransactionDao primaryTransactionDao;
+
+    @Autowired
+    private SavingsTransactionDao savingsTransactionDao;
+
+    @Autowired
+    private PrimaryAccountDao primaryAccountDao;
+
+    @Autowired
+    private SavingsAccountDao savingsAccountDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IdBlockAllocator idBlockAllocator;
+
+    @Autowired
+    private TransactionArchiveService transactionArchiveService;
+
+    // Ranges longer than this number of days are answered from the daily aggregates
+    @Value("${banking.analytics.aggregate-after-days:92}")
+    private int aggregateAfterDays;
+
+    @Value("${banking.analytics.cache-size:5000}")
+    private int cacheSize;
+
+    @Value("${banking.analytics.cache-ttl-minutes:30}")
+    private long cacheTtlMinutes;
+
+    @Value("${banking.analytics.backfill-threads:4}")
+    private int backfillThreads;
+
+    // The reports of a user under both of its accounts
+    private BoundedCache<AccountKey, UserReports> reports;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    /*
+     * Write counters striped by account. A report that was computed while a write to one of
+     * its accounts committed is dropped again, so the cache never keeps a report that
+     * misses a committed transaction.
+     */
+    private final AtomicLongArray writes = new AtomicLongArray(256);
+
+    @PostConstruct
+    public void init() {
+        reports = BoundedCache.expireAfterWrite(cacheSize, TimeUnit.MINUTES.toMillis(cacheTtlMinutes));
+
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Transactional
+    public void recordPrimaryTransaction(PrimaryTransaction primaryTransaction) {
+        record(AccountType.PRIMARY, primaryTransaction.getPrimaryAccount().getId(), primaryTransaction);
+    }
+
+    @Transactional
+    public void recordSavingsTransaction(SavingsTransaction savingsTransaction) {
+        record(AccountType.SAVINGS, savingsTransaction.getSavingsAccount().getId(), savingsTransaction);
+    }
+
+    /*
+     * Every write inserts the row of its day, type and recipient with INSERT ... ON DUPLICATE
+     * KEY UPDATE before it is locked. Locking a missing row first lets two first writes take a
+     * gap lock each and deadlock on each other's insert.
+     */
+    private void record(AccountType accountType, Long accountId, LedgerRow row) {
+        if (Ledger.isInternalTransfer(row.getDescription())) {
+            return;
+        }
+        LocalDate day = Ledger.dayOf(row.getDate());
+        String counterparty = Ledger.counterpartyOf(row.getDescription());
+
+        insertIfAbsent(accountType, accountId, day, row.getType(), counterparty);
+
+        DailySpending spending = dailySpendingDao.lockDay(accountType, accountId, day, row.getType(), counterparty);
+        spending.apply(Ledger.isCredit(row.getDescription()), Ledger.amount(row.getAmount()), 1);
+
+        dailySpendingDao.save(spending);
+    }
+
+    /*
+     * The report of both accounts of the user from the first day up to and including the
+     * last day.
+     */
+    public SpendingReport findSpending(Long userId, Long primaryAccountId, Long savingsAccountId, LocalDate from, LocalDate to,
+            SpendingPeriod period) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("The end of the range is before its start");
+        }
+        List<AccountKey> accounts = Arrays.asList(AccountKey.primary(primaryAccountId), AccountKey.savings(savingsAccountId));
+        ReportKey key = new ReportKey(from, to, period);
+
+        UserReports userReports = userReports(accounts.get(0), accounts.get(1));
+        SpendingReport report = userReports.get(key);
+        if (report != null) {
+            return report;
+        }
+
+        long writesBefore = writes(accounts);
+        List<DailySpending> days = new ArrayList<>();
+        for (AccountKey account : accounts) {
+            days.addAll(dailySpending(account, from, to.plusDays(1)));
+        }
+        report = new SpendingReport(from, to, period, days);
+
+        userReports.put(key, report);
+        if (writes(accounts) != writesBefore) {
+            userReports.remove(key);
+        }
+        return report;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionPosted(TransactionPostedEvent event) {
+        invalidate(event.getEntry().accountKey());
+    }
+
+    private void invalidate(AccountKey account) {
+        writes.incrementAndGet(stripe(account));
+        UserReports userReports = reports.get(account);
+        if (userReports != null) {
+            userReports.clear();
+        }
+    }
+
+    /*
+     * The reports of the user with these two accounts. When the two accounts do not point to
+     * the same reports (one of them was evicted) both get new empty reports, a write to
+     * either account then always clears the reports that are read.
+     */
+    private synchronized UserReports userReports(AccountKey primaryAccount, AccountKey savingsAccount) {
+        UserReports userReports = reports.get(primaryAccount);
+        if (userReports == null || reports.get(savingsAccount) != userReports) {
+            userReports = new UserReports();
+            reports.put(primaryAccount, userReports);
+            reports.put(savingsAccount, userReports);
+        }
+        return userReports;
+    }
+
+    private List<DailySpending> dailySpending(AccountKey account, LocalDate from, LocalDate to) {
+        if (ChronoUnit.DAYS.between(from, to) > aggregateAfterDays) {
+            return dailySpendingDao.findRange(account.getAccountType(), account.getAccountId(), from, to);
+        }
+        return readOnlyTransaction.execute(status -> new ArrayList<>(sumByDay(account, from, to).values()));
+    }
+
+    /*
+     * Sums the transaction rows of the account per day, type and recipient, the rows in the
+     * database and the rows that were moved to the transaction archive. The database rows
+     * are streamed, the sums are small, one per day, type and recipient. A row that is in
+     * both (an archive run that stopped before the delete) is counted once. Must run in a
+     * transaction.
+     */
+    private Map<String, DailySpending> sumByDay(AccountKey account, LocalDate from, LocalDate to) {
+        Map<String, DailySpending> days = new LinkedHashMap<>();
+        AccountType accountType = account.getAccountType();
+        Long accountId = account.getAccountId();
+
+        Map<Long, LedgerEntry> archived = new HashMap<>();
+        for (LedgerEntry entry : transactionArchiveService.findArchived(account, Ledger.startOf(from), Ledger.startOf(to))) {
+            archived.put(entry.getId(), entry);
+        }
+
+        try (Stream<Object[]> rows = accountType == AccountType.PRIMARY
+                ? primaryTransactionDao.streamLedger(accountId, Ledger.startOf(from), Ledger.startOf(to))
+                : savingsTransactionDao.streamLedger(accountId, Ledger.startOf(from), Ledger.startOf(to))) {
+            rows.forEach(row -> {
+                archived.remove((Long) row[0]);
+                add(days, account, (Date) row[1], (String) row[2], (String) row[3], (Double) row[5]);
+            });
+        }
+        for (LedgerEntry entry : archived.values()) {
+            add(days, account, entry.getDate(), entry.getDescription(), entry.getType(), entry.getAmount());
+        }
+        return days;
+    }
+
+    private static void add(Map<String, DailySpending> days, AccountKey account, Date date, String description, String type,
+            double amount) {
+        if (Ledger.isInternalTransfer(description)) {
+            return;
+        }
+        LocalDate day = Ledger.dayOf(date);
+        String counterparty = Ledger.counterpartyOf(description);
+
+        DailySpending spending = days.computeIfAbsent(day + "|" + type + "|" + counterparty,
+                key -> new DailySpending(account.getAccountType(), account.getAccountId(), day, type, counterparty));
+        spending.apply(Ledger.isCredit(description), Ledger.amount(amount), 1);
+    }
+
+    /*
+     * Recomputes the daily aggregates of one account from its transaction rows. The rows of
+     * the account are locked first, so a ledger write that runs at the same time is either
+     * part of the rows or applied to the rebuilt rows afterwards.
+     */
+    @Transactional
+    public void backfill(AccountType accountType, Long accountId) {
+        AccountKey account = new AccountKey(accountType, accountId);
+
+        dailySpendingDao.lockAccount(accountType, accountId);
+        Map<String, DailySpending> days = sumByDay(account, FIRST_DAY, LAST_DAY);
+
+        dailySpendingDao.deleteByAccount(accountType, accountId);
+        dailySpendingDao.saveAll(days.values());
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(account);
+            }
+        });
+    }
+
+    // One time job that builds the daily aggregates of all accounts
+    public int backfillAll() {
+        return AccountBackfill.run("Daily spending", backfillThreads, transactionManager, primaryAccountDao.findAllIds(),
+                savingsAccountDao.findAllIds(), this::backfill);
+    }
+
+    // Creates the empty row of the day, type and recipient unless it exists
+    private void insertIfAbsent(AccountType accountType, Long accountId, LocalDate day, String type, String counterparty) {
+        jdbcTemplate.update("INSERT INTO daily_spending (id, account_type, account_id, spending_day, type, counterparty, "
+                + "inflow, outflow, transaction_count) VALUES (?, ?, ?, ?, ?, ?, 0, 0, 0) ON DUPLICATE KEY UPDATE id = id",
+                idBlockAllocator.nextEntityIds(1), accountType.name(), accountId, java.sql.Date.valueOf(day), type, counterparty);
+    }
+
+    private long writes(List<AccountKey> accounts) {
+        long total = 0;
+        for (AccountKey account : accounts) {
+            total += writes.get(stripe(account));
+        }
+        return total;
+    }
+
+    private int stripe(AccountKey account) {
+        return Math.floorMod(account.hashCode(), writes.length());
+    }
+
+    // The cached reports of one user, at most REPORTS_PER_USER of them
+    private static final class UserReports {
+        private final Map<ReportKey, SpendingReport> reports = new LinkedHashMap<ReportKey, SpendingReport>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ReportKey, SpendingReport> eldest) {
+                return size() > REPORTS_PER_USER;
+            }
+        };
+
+        synchronized SpendingReport get(ReportKey key) {
+            return reports.get(key);
+        }
+
+        synchronized void put(ReportKey key, SpendingReport report) {
+            reports.put(key, report);
+        }
+
+        synchronized void remove(ReportKey key) {
+            reports.remove(key);
+        }
+
+        synchronized void clear() {
+            reports.clear();
+        }
+    }
+
+    // Cache key of one report of a user
+    private static final class ReportKey {
+        private final LocalDate from;
+        private final LocalDate to;
+        private final SpendingPeriod period;
+
+        ReportKey(LocalDate from, LocalDate to, SpendingPeriod period) {
+            this.from = from;
+            this.to = to;
+            this.period = period;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ReportKey)) {
+                return false;
+            }
+            ReportKey other = (ReportKey) o;
+            return from.equals(other.from) && to.equals(other.to) && period == other.period;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(from, to, period);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.kokabmedia.service.UserServiceImpl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kokabmedia.cache.BoundedCache;
+import com.kokabmedia.dao.PrimaryTransactionDao;
+import com.kokabmedia.dao.SavingsTransactionDao;
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.Ledger;
+import com.kokabmedia.domain.LedgerEntry;
+import com.kokabmedia.domain.MonthlyStatement;
+import com.kokabmedia.domain.StatementJob;
+import com.kokabmedia.service.StatementDocumentService;
+import com.kokabmedia.service.StatementService;
+import com.kokabmedia.service.TransactionArchiveService;
+import com.kokabmedia.statement.StatementDocumentRenderer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+* This class will work as a service object and a business logic layer with code that
+* implements the necessary functions that make the application act in a desired
+* manner.
+*
+* Statement documents are rendered in the background so no Tomcat worker waits for a
+* month of transactions to be read and written. A request submits a StatementJob and
+* gets its id back right away, the job is queued for a small pool of workers with a
+* bounded queue (a full queue rejects the job instead of piling up work) and the user
+* polls the job until the document can be downloaded.
+*
+* A document is stored on disk under the account, the month and the number of
+* transactions in the MonthlyStatement rollup of that month. As long as no transaction is
+* added to the month the same file is handed out again without rendering, the most
+* recently used documents are also kept in memory. Jobs for a document that is already
+* being rendered share the running job.
+*
+* The jobs and the documents are kept by the node that rendered them, they are not in the
+* shared session store. With several web nodes the job, status and document requests of
+* /account/statement/* have to be routed to the same node (sticky sessions on the load
+* balancer), a poll that reaches another node is answered with 404 Not Found.
+*
+* The @Service annotation allows the Spring framework to creates an instance (bean)
+* of this class and manage it with the Spring Application Context (the IOC container)
+* that maintains all the beans for the application.
+*/
+@Service
+public class StatementDocumentServiceImpl implements StatementDocumentService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StatementDocumentServiceImpl.class);
+
+    private static final String DOCUMENT_SUFFIX = ".html";
+
+    @Autowired
+    private StatementService statementService;
+
+    @Autowired
+    private TransactionArchiveService transactionArchiveService;
+
+    @Autowired
+    private PrimaryTransactionDao primaryTransactionDao;
+
+    @Autowired
+    private SavingsTransactionDao savingsTransactionDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${banking.statement-documents.directory:statements}")
+    private String directory;
+
+    @Value("${banking.statement-documents.workers:2}")
+    private int workers;
+
+    @Value("${banking.statement-documents.queue-capacity:100}")
+    private int queueCapacity;
+
+    // Number of rendered documents kept in memory (LRU), larger documents are always read from disk
+    @Value("${banking.statement-documents.cached-documents:200}")
+    private int cachedDocuments;
+
+    @Value("${banking.statement-documents.max-cached-bytes:1048576}")
+    private int maxCachedBytes;
+
+    // Finished jobs can be polled for this long
+    @Value("${banking.statement-documents.job-ttl-minutes:60}")
+    private long jobTtlMinutes;
+
+    private ThreadPoolExecutor executor;
+    private BoundedCache<String, StatementJob> jobs;
+    private BoundedCache<String, byte[]> documents;
+
+    // The queued and running job of every document name
+    private final ConcurrentMap<String, StatementJob> pending = new ConcurrentHashMap<>();
+
+    private Counter rejectedJobs;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(Paths.get(directory));
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "statement-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        jobs = BoundedCache.expireAfterWrite(10000, TimeUnit.MINUTES.toMillis(jobTtlMinutes));
+        documents = BoundedCache.lru(cachedDocuments);
+
+        Gauge.builder("banking.statement.jobs.queued", executor, pool -> pool.getQueue().size())
+                .description("Statement jobs waiting for a worker").register(meterRegistry);
+        Gauge.builder("banking.statement.jobs.running", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Statement jobs being rendered").register(meterRegistry);
+        rejectedJobs = Counter.builder("banking.statement.jobs.rejected")
+                .description("Statement jobs rejected because the queue was full").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /*
+     * Queues the rendering of the statement document and returns the job. Throws
+     * RejectedExecutionException when the queue is full.
+     */
+    public StatementJob submitStatementJob(String username, AccountType accountType, Long accountId, YearMonth month) {
+        MonthlyStatement statement = statementService.findStatement(accountType, accountId, month);
+        String documentName = documentName(statement);
+        StatementJob job = new StatementJob(username, accountType, accountId, month);
+
+        if (documents.get(documentName) != null || Files.exists(Paths.get(directory, documentName))) {
+            job.done(documentName);
+            jobs.put(job.getId(), job);
+            return job;
+        }
+
+        StatementJob running = pending.putIfAbsent(documentName, job);
+        if (running != null) {
+            return running;
+        }
+
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> render(job, statement, documentName));
+        } catch (RejectedExecutionException e) {
+            pending.remove(documentName);
+            jobs.invalidate(job.getId());
+            rejectedJobs.increment();
+            throw e;
+        }
+        return job;
+    }
+
+    public StatementJob findStatementJob(String username, String jobId) {
+        StatementJob job = jobs.get(jobId);
+        return job != null && job.getUsername().equals(username) ? job : null;
+    }
+
+    // The document of a finished job, null when the job is unknown or not done
+    public byte[] findStatementDocument(String username, String jobId) {
+        StatementJob job = findStatementJob(username, jobId);
+        if (job == null || job.getDocumentName() == null) {
+            return null;
+        }
+
+        byte[] document = documents.get(job.getDocumentName());
+        if (document != null) {
+            return document;
+        }
+        try {
+            document = Files.readAllBytes(Paths.get(directory, job.getDocumentName()));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Reading statement document " + job.getDocumentName() + " failed", e);
+        }
+        cache(job.getDocumentName(), document);
+
+        return document;
+    }
+
+    private void render(StatementJob job, MonthlyStatement statement, String documentName) {
+        job.running();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failed";
+        try {
+            Path file = Paths.get(directory, documentName);
+            Path temporary = Paths.get(directory, documentName + ".tmp");
+            try (Writer out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                writeDocument(job, statement, out);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            deleteOlderVersions(documentName);
+
+            if (Files.size(file) <= maxCachedBytes) {
+                cache(documentName, Files.readAllBytes(file));
+            }
+            job.done(documentName);
+            outcome = "done";
+        } catch (Exception e) {
+            LOG.error("Rendering statement document {} failed", documentName, e);
+            job.failed("The statement could not be created, please try again later");
+        } finally {
+            pending.remove(documentName);
+            sample.stop(meterRegistry.timer("banking.statement.render", "outcome", outcome));
+        }
+    }
+
+    /*
+     * Streams the transactions of the month into the document. Transactions of months that
+     * were archived are read from the archive first, a row that is in both the archive and
+     * the database is written once.
+     */
+    private void writeDocument(StatementJob job, MonthlyStatement statement, Writer out) {
+        YearMonth month = YearMonth.parse(job.getMonth());
+        Date from = Ledger.startOf(month);
+        Date to = Ledger.startOf(month.plusMonths(1));
+        AccountType accountType = job.getAccountType();
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> {
+            List<LedgerEntry> archived = transactionArchiveService.findArchived(job.accountKey(), from, to);
+            Set<Long> archivedIds = archived.stream().map(LedgerEntry::getId).collect(Collectors.toSet());
+
+            try (Stream<Object[]> rows = accountType == AccountType.PRIMARY
+                    ? primaryTransactionDao.streamLedger(job.getAccountId(), from, to)
+                    : savingsTransactionDao.streamLedger(job.getAccountId(), from, to)) {
+                Iterator<LedgerEntry> entries = Stream.concat(archived.stream(),
+                        rows.map(row -> new LedgerEntry(accountType, job.getAccountId(), (Long) row[0], (Date) row[1],
+                                (String) row[2], (String) row[3], (String) row[4], (Double) row[5], (BigDecimal) row[6]))
+                                .filter(entry -> !archivedIds.contains(entry.getId())))
+                        .iterator();
+                StatementDocumentRenderer.render(statement, entries, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void cache(String documentName, byte[] document) {
+        if (document.length <= maxCachedBytes) {
+            documents.put(documentName, document);
+        }
+    }
+
+    // Removes the documents of the same account and month that were rendered before transactions were added
+    private void deleteOlderVersions(String documentName) throws IOException {
+        String prefix = documentName.substring(0, documentName.lastIndexOf("-n") + 2);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(directory), prefix + "*" + DOCUMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (!name.equals(documentName)) {
+                    documents.invalidate(name);
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // For example primary-12-2021-10-n57.html
+    private static String documentName(MonthlyStatement statement) {
+        return statement.getAccountType().name().toLowerCase() + "-" + statement.getAccountId() + "-"
+                + statement.getStatementMonth() + "-n" + statement.getTransactionCount() + DOCUMENT_SUFFIX;
+    }
+}
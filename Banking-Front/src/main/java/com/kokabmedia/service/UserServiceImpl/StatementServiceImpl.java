@@ -0,0 +1,241 @@
+package com.kokabmedia.service.UserServiceImpl;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.kokabmedia.dao.MonthlyStatementDao;
+import com.kokabmedia.dao.PrimaryAccountDao;
+import com.kokabmedia.dao.PrimaryTransactionDao;
+import com.kokabmedia.dao.SavingsAccountDao;
+import com.kokabmedia.dao.SavingsTransactionDao;
+import com.kokabmedia.domain.AccountKey;
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.Ledger;
+import com.kokabmedia.domain.LedgerEntry;
+import com.kokabmedia.domain.LedgerRow;
+import com.kokabmedia.domain.MonthlyStatement;
+import com.kokabmedia.domain.PrimaryTransaction;
+import com.kokabmedia.domain.SavingsTransaction;
+import com.kokabmedia.domain.StatementVerification;
+import com.kokabmedia.importer.IdBlockAllocator;
+import com.kokabmedia.service.StatementService;
+import com.kokabmedia.service.TransactionArchiveService;
+
+/*
+* This class will work as a service object and a business logic layer with code that
+* implements the necessary functions that make the application act in a desired
+* manner.
+*
+* The statement service keeps one MonthlyStatement rollup row per account and month. The
+* record methods are called by TransactionServiceImpl for every ledger write and join the
+* database transaction of that write, so the rollup and the transaction row are committed
+* (or rolled back) together.
+*
+* Every write first inserts the rollup of its month with INSERT ... ON DUPLICATE KEY UPDATE
+* and only then locks it. Locking a missing row first would let two first writes of the same
+* month both take a gap lock and deadlock on each other's insert, this way the second one
+* waits on the row lock of the first and updates the same row.
+*
+* The @Service annotation allows the Spring framework to creates an instance (bean)
+* of this class and manage it with the Spring Application Context (the IOC container)
+* that maintains all the beans for the application.
+*/
+@Service
+public class StatementServiceImpl implements StatementService {
+
+    private static final LocalDate LAST_DAY = LocalDate.of(9999, 1, 1);
+
+    @Autowired
+    private MonthlyStatementDao monthlyStatementDao;
+
+    @Autowired
+    private PrimaryTransactionDao primaryTransactionDao;
+
+    @Autowired
+    private SavingsTransactionDao savingsTransactionDao;
+
+    @Autowired
+    private PrimaryAccountDao primaryAccountDao;
+
+    @Autowired
+    private SavingsAccountDao savingsAccountDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IdBlockAllocator idBlockAllocator;
+
+    @Autowired
+    private TransactionArchiveService transactionArchiveService;
+
+    // Number of accounts that are rebuilt at the same time by the backfill job
+    @Value("${banking.statement.backfill-threads:4}")
+    private int backfillThreads;
+
+    @Transactional
+    public void recordPrimaryTransaction(PrimaryTransaction primaryTransaction) {
+        record(AccountType.PRIMARY, primaryTransaction.getPrimaryAccount().getId(), primaryTransaction);
+    }
+
+    @Transactional
+    public void recordSavingsTransaction(SavingsTransaction savingsTransaction) {
+        record(AccountType.SAVINGS, savingsTransaction.getSavingsAccount().getId(), savingsTransaction);
+    }
+
+    private void record(AccountType accountType, Long accountId, LedgerRow row) {
+        String month = Ledger.monthOf(row.getDate()).toString();
+        insertIfAbsent(accountType, accountId, month, openingBalance(row));
+
+        MonthlyStatement statement = monthlyStatementDao.lockStatement(accountType, accountId, month);
+        statement.apply(Ledger.isCredit(row.getDescription()), Ledger.amount(row.getAmount()), row.getAvailableBalance());
+
+        monthlyStatementDao.save(statement);
+    }
+
+    /*
+     * Returns the rollup of the month, a month without any transactions is answered with an
+     * empty statement that carries the closing balance of the latest earlier month.
+     */
+    @Transactional(readOnly = true)
+    public MonthlyStatement findStatement(AccountType accountType, Long accountId, YearMonth month) {
+        MonthlyStatement statement = monthlyStatementDao.findByAccountTypeAndAccountIdAndStatementMonth(accountType, accountId, month.toString());
+        if (statement != null) {
+            return statement;
+        }
+
+        MonthlyStatement previous = monthlyStatementDao
+                .findFirstByAccountTypeAndAccountIdAndStatementMonthLessThanOrderByStatementMonthDesc(accountType, accountId, month.toString());
+        BigDecimal balance = previous == null ? BigDecimal.ZERO : previous.getClosingBalance();
+
+        return new MonthlyStatement(accountType, accountId, month.toString(), balance);
+    }
+
+    @Transactional(readOnly = true)
+    public StatementVerification verifyStatement(AccountType accountType, Long accountId, YearMonth month) {
+        MonthlyStatement stored = monthlyStatementDao.findByAccountTypeAndAccountIdAndStatementMonth(accountType, accountId, month.toString());
+
+        Date from = Ledger.startOf(month);
+        Date to = Ledger.startOf(month.plusMonths(1));
+        List<LedgerRow> rows = new ArrayList<>(accountType == AccountType.PRIMARY
+                ? primaryTransactionDao.findLedger(accountId, from, to)
+                : savingsTransactionDao.findLedger(accountId, from, to));
+        addArchived(accountType, accountId, rows, from, to);
+
+        MonthlyStatement recomputed = rollup(accountType, accountId, rows).get(month.toString());
+
+        return new StatementVerification(stored, recomputed);
+    }
+
+    /*
+     * Recomputes every rollup of one account from its transaction rows, replacing the rows
+     * that are stored. Used by the backfill job and to repair an account that failed
+     * verification.
+     *
+     * The rollups of the account are locked before the transaction rows are read, so a
+     * ledger write that runs at the same time either committed before and is part of the
+     * rows, or waits and applies its row to the rebuilt rollup afterwards.
+     */
+    @Transactional
+    public void backfill(AccountType accountType, Long accountId) {
+        monthlyStatementDao.lockStatements(accountType, accountId);
+
+        List<LedgerRow> rows = new ArrayList<>();
+        List<Object[]> bounds = accountType == AccountType.PRIMARY
+                ? primaryTransactionDao.findLedgerBounds(accountId)
+                : savingsTransactionDao.findLedgerBounds(accountId);
+        Object[] firstAndLast = bounds.isEmpty() ? new Object[2] : bounds.get(0);
+        if (firstAndLast[0] != null) {
+            // One year of the ledger per query, each query only reads the partitions of its year
+            YearMonth last = Ledger.monthOf((Date) firstAndLast[1]);
+            for (YearMonth month = Ledger.monthOf((Date) firstAndLast[0]); !month.isAfter(last); month = month.plusMonths(12)) {
+                rows.addAll(accountType == AccountType.PRIMARY
+                        ? primaryTransactionDao.findLedger(accountId, Ledger.startOf(month), Ledger.startOf(month.plusMonths(12)))
+                        : savingsTransactionDao.findLedger(accountId, Ledger.startOf(month), Ledger.startOf(month.plusMonths(12))));
+            }
+        }
+
+        addArchived(accountType, accountId, rows, new Date(0), Ledger.startOf(LAST_DAY));
+
+        monthlyStatementDao.deleteByAccount(accountType, accountId);
+        monthlyStatementDao.saveAll(rollup(accountType, accountId, rows).values());
+    }
+
+    /*
+     * Adds the rows of the range that were moved to the transaction archive and sorts the
+     * rows into ledger order. A row that is in the database as well (an archive run that
+     * stopped before the delete) is taken from the database.
+     */
+    private void addArchived(AccountType accountType, Long accountId, List<LedgerRow> rows, Date from, Date to) {
+        List<LedgerEntry> archived = transactionArchiveService.findArchived(new AccountKey(accountType, accountId), from, to);
+        if (archived.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = rows.stream().map(LedgerRow::getId).collect(Collectors.toSet());
+        for (LedgerEntry entry : archived) {
+            if (ids.add(entry.getId())) {
+                rows.add(entry);
+            }
+        }
+        rows.sort(Comparator.comparing(LedgerRow::getDate).thenComparing(LedgerRow::getId));
+    }
+
+    // One time job that builds the rollups of all accounts
+    public int backfillAll() {
+        return AccountBackfill.run("Statement", backfillThreads, transactionManager, primaryAccountDao.findAllIds(),
+                savingsAccountDao.findAllIds(), this::backfill);
+    }
+
+    /*
+     * Creates the empty rollup of the month unless it exists. A concurrent insert of the same
+     * row makes this one wait for its transaction and then leave the row as it is.
+     */
+    private void insertIfAbsent(AccountType accountType, Long accountId, String month, BigDecimal openingBalance) {
+        jdbcTemplate.update("INSERT INTO monthly_statement (id, account_type, account_id, statement_month, opening_balance, "
+                + "closing_balance, total_credits, total_debits, transaction_count) VALUES (?, ?, ?, ?, ?, ?, 0, 0, 0) "
+                + "ON DUPLICATE KEY UPDATE id = id", idBlockAllocator.nextEntityIds(1), accountType.name(), accountId, month,
+                openingBalance, openingBalance);
+    }
+
+    // Builds the rollups of rows that are sorted in ledger order, keyed by month
+    private Map<String, MonthlyStatement> rollup(AccountType accountType, Long accountId, List<? extends LedgerRow> rows) {
+        Map<String, MonthlyStatement> statements = new LinkedHashMap<>();
+
+        for (LedgerRow row : rows) {
+            String month = Ledger.monthOf(row.getDate()).toString();
+            MonthlyStatement statement = statements.computeIfAbsent(month,
+                    key -> new MonthlyStatement(accountType, accountId, key, openingBalance(row)));
+            statement.apply(Ledger.isCredit(row.getDescription()), Ledger.amount(row.getAmount()), row.getAvailableBalance());
+        }
+
+        return statements;
+    }
+
+    /*
+     * The balance before the first row of a month. It is derived from the row itself and not
+     * from the previous month, because a transfer between accounts only writes a row on the
+     * account the money leaves.
+     */
+    private BigDecimal openingBalance(LedgerRow row) {
+        return row.getAvailableBalance().subtract(Ledger.signedAmount(row.getDescription(), row.getAmount()));
+    }
+}
@@ -0,0 +1,127 @@
+package com.kokabmedia.service.UserServiceImpl;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import com.kokabmedia.dao.UserDao;
+import com.kokabmedia.domain.User;
+import com.kokabmedia.security.TokenClaims;
+import com.kokabmedia.security.TokenCodec;
+import com.kokabmedia.security.TokenDenylist;
+import com.kokabmedia.service.TokenService;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+* This class will work as a service object and a business logic layer with code that
+* implements the necessary functions that make the application act in a desired
+* manner.
+*
+* In the stateless API mode a client logs in once and gets a short lived access token
+* that carries the username, roles and account ids of the user, signed with HMAC-SHA256.
+* Every later request is authenticated by checking the signature and the expiry of the
+* token on this node, without a session or a database lookup. Revoked tokens are kept in
+* an in memory denylist until they would have expired.
+*
+* All nodes of the web tier must share the same secret. The denylist is local to each
+* node, a revocation on one node reaches the other nodes only when the token expires,
+* which is why the lifetime of a token is short.
+*
+* The @Service annotation allows the Spring framework to creates an instance (bean)
+* of this class and manage it with the Spring Application Context (the IOC container)
+* that maintains all the beans for the application.
+*/
+@Service
+public class TokenServiceImpl implements TokenService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TokenServiceImpl.class);
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Base64 encoded secret of at least 32 bytes, shared by all nodes
+    @Value("${banking.security.token.secret:}")
+    private String secret;
+
+    @Value("${banking.security.token.ttl-minutes:15}")
+    private long ttlMinutes;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private TokenCodec codec;
+    private TokenDenylist denylist;
+
+    @PostConstruct
+    public void init() {
+        byte[] key;
+        if (secret.isEmpty()) {
+            // Tokens of a generated secret are only valid on this node and until it restarts
+            key = new byte[32];
+            random.nextBytes(key);
+            LOG.warn("No banking.security.token.secret is configured, using a random secret");
+        } else {
+            key = Base64.getDecoder().decode(secret);
+        }
+        codec = new TokenCodec(key);
+        denylist = new TokenDenylist(TimeUnit.MINUTES.toMillis(ttlMinutes));
+
+        Gauge.builder("banking.security.token.denylist.size", denylist, TokenDenylist::size).register(meterRegistry);
+    }
+
+    // Called after the username and password were checked
+    public String issueToken(String username) {
+        User user = userDao.findByUsername(username);
+
+        List<String> authorities = new ArrayList<>();
+        for (GrantedAuthority authority : user.getAuthorities()) {
+            authorities.add(authority.getAuthority());
+        }
+        long now = System.currentTimeMillis();
+        TokenClaims claims = new TokenClaims(random.nextLong(), user.getUsername(), authorities,
+                user.getPrimaryAccount() == null ? null : user.getPrimaryAccount().getId(),
+                user.getSavingsAccount() == null ? null : user.getSavingsAccount().getId(),
+                now, now + TimeUnit.MINUTES.toMillis(ttlMinutes));
+
+        return codec.encode(claims);
+    }
+
+    // The claims of a valid token, null when the token is forged, expired or revoked
+    public TokenClaims authenticate(String token) {
+        TokenClaims claims = codec.decode(token);
+        if (claims == null || claims.isExpired(System.currentTimeMillis()) || denylist.isRevoked(claims)) {
+            return null;
+        }
+        return claims;
+    }
+
+    public void revokeToken(TokenClaims claims) {
+        denylist.revoke(claims);
+    }
+
+    // Revokes every token of the user issued so far, for example when the user is disabled
+    public void revokeUser(String username) {
+        denylist.revokeUser(username, System.currentTimeMillis());
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void pruneDenylist() {
+        denylist.prune(System.currentTimeMillis());
+    }
+}
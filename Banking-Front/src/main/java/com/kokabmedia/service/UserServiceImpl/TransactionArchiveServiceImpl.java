@@ -0,0 +1,313 @@
+package com.kokabmedia.service.UserServiceImpl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kokabmedia.archive.ArchiveSegment;
+import com.kokabmedia.archive.ArchiveSegmentWriter;
+import com.kokabmedia.dao.PrimaryTransactionDao;
+import com.kokabmedia.dao.SavingsTransactionDao;
+import com.kokabmedia.domain.AccountKey;
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.ArchiveVerification;
+import com.kokabmedia.domain.Ledger;
+import com.kokabmedia.domain.LedgerEntry;
+import com.kokabmedia.service.TransactionArchiveService;
+
+/*
+* This class will work as a service object and a business logic layer with code that 
+* implements the necessary functions that make the application act in a desired 
+* manner.
+* 
+* The archival job moves the transactions that are older than after-months months out of
+* the transaction tables into compressed segment files on local disk (the cold tier). The
+* rows are streamed from the database sorted by account and date, written to a new
+* segment, the segment is checked and given a SHA-256 checksum file, and only then are
+* the rows deleted from the table, by the ids that were written to the segment. A run that stops between writing the segment and
+* deleting the rows archives the same rows again the next time, the readers drop the
+* duplicates by id.
+* 
+* The segments are opened (memory mapped) when the application starts, reads go through
+* their sparse index so only the blocks of the requested account and dates are inflated.
+* 
+* The @Service annotation allows the Spring framework to creates an instance (bean) 
+* of this class and manage it with the Spring Application Context (the IOC container)
+* that maintains all the beans for the application.  
+*/
+@Service
+public class TransactionArchiveServiceImpl implements TransactionArchiveService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TransactionArchiveServiceImpl.class);
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKSUM_SUFFIX = ".sha256";
+
+    @Autowired
+    private PrimaryTransactionDao primaryTransactionDao;
+
+    @Autowired
+    private SavingsTransactionDao savingsTransactionDao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${banking.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${banking.archive.directory:archive}")
+    private String directory;
+
+    // Transactions older than this number of months are archived
+    @Value("${banking.archive.after-months:24}")
+    private int afterMonths;
+
+    @Value("${banking.archive.rows-per-block:256}")
+    private int rowsPerBlock;
+
+    @Value("${banking.archive.rows-per-segment:500000}")
+    private int rowsPerSegment;
+
+    private final List<ArchiveSegment> segments = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    public void openSegments() throws IOException {
+        Path archive = Paths.get(directory);
+        if (!Files.isDirectory(archive)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(archive, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                segments.add(ArchiveSegment.open(file));
+            }
+        }
+        LOG.info("Opened {} transaction archive segments in {}", segments.size(), archive.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void closeSegments() throws IOException {
+        for (ArchiveSegment segment : segments) {
+            segment.close();
+        }
+    }
+
+    @Scheduled(cron = "${banking.archive.cron:0 30 3 * * *}")
+    public void scheduledArchive() {
+        if (enabled) {
+            archiveTransactions();
+        }
+    }
+
+    public synchronized long archiveTransactions() {
+        Date before = Ledger.startOf(YearMonth.now().minusMonths(afterMonths));
+        long archived = 0;
+        try {
+            Files.createDirectories(Paths.get(directory));
+            archived += archive(AccountType.PRIMARY, before);
+            archived += archive(AccountType.SAVINGS, before);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Archiving transactions failed", e);
+        }
+        return archived;
+    }
+
+    public List<LedgerEntry> findArchived(AccountKey accountKey, Date from, Date to) {
+        List<LedgerEntry> entries = new ArrayList<>();
+        try {
+            for (ArchiveSegment segment : segments) {
+                if (segment.getAccountType() == accountKey.getAccountType()) {
+                    entries.addAll(segment.read(accountKey.getAccountId(), from, to));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Reading the transaction archive failed", e);
+        }
+
+        // A row can be in two segments when a run was interrupted before its rows were deleted
+        entries.sort(Comparator.comparingLong(LedgerEntry::getTime).thenComparing(LedgerEntry::getId));
+        Iterator<LedgerEntry> iterator = entries.iterator();
+        Long previousId = null;
+        while (iterator.hasNext()) {
+            Long id = iterator.next().getId();
+            if (id.equals(previousId)) {
+                iterator.remove();
+            }
+            previousId = id;
+        }
+        return entries;
+    }
+
+    public LedgerEntry findLastArchivedBefore(AccountKey accountKey, Date before) {
+        LedgerEntry last = null;
+        try {
+            for (ArchiveSegment segment : segments) {
+                if (segment.getAccountType() != accountKey.getAccountType()) {
+                    continue;
+                }
+                LedgerEntry candidate = segment.lastBefore(accountKey.getAccountId(), before);
+                if (candidate != null && (last == null || candidate.getTime() > last.getTime()
+                        || (candidate.getTime() == last.getTime() && candidate.getId() > last.getId()))) {
+                    last = candidate;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Reading the transaction archive failed", e);
+        }
+        return last;
+    }
+
+    // Checks every segment against the CRC32 of its blocks and the SHA-256 of its checksum file
+    public List<ArchiveVerification> verifyArchive() {
+        List<ArchiveVerification> verifications = new ArrayList<>();
+        for (ArchiveSegment segment : segments) {
+            boolean checksumMatches;
+            try {
+                String expected = new String(Files.readAllBytes(checksumFile(segment.getFile())), StandardCharsets.US_ASCII);
+                checksumMatches = expected.startsWith(segment.sha256());
+            } catch (IOException e) {
+                checksumMatches = false;
+            }
+            verifications.add(new ArchiveVerification(segment.getFile().getFileName().toString(), segment.getAccountType(),
+                    segment.getRowCount(), segment.verifyBlocks(), checksumMatches));
+        }
+        return verifications;
+    }
+
+    private long archive(AccountType accountType, Date before) throws IOException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        List<Path> written = transactionTemplate.execute(status -> {
+            try (Stream<Object[]> rows = accountType == AccountType.PRIMARY
+                    ? primaryTransactionDao.streamArchivable(before)
+                    : savingsTransactionDao.streamArchivable(before)) {
+                return writeSegments(accountType, before, rows.iterator());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        long archived = 0;
+        for (Path file : written) {
+            ArchiveSegment segment = ArchiveSegment.open(file);
+            segments.add(segment);
+            deleteArchivedRows(segment);
+            archived += segment.getRowCount();
+        }
+        LOG.info("Archived {} {} transactions from before {} into {} segments", archived, accountType, before, written.size());
+
+        return archived;
+    }
+
+    // Writes the streamed rows into one or more segments of at most rows-per-segment rows
+    private List<Path> writeSegments(AccountType accountType, Date before, Iterator<Object[]> rows) throws IOException {
+        List<Path> written = new ArrayList<>();
+        String prefix = accountType.name().toLowerCase() + "-"
+                + YearMonth.from(Ledger.dayOf(before)).format(DateTimeFormatter.ofPattern("yyyyMM")) + "-" + System.currentTimeMillis();
+
+        while (rows.hasNext()) {
+            Path temporary = Paths.get(directory, prefix + "-" + written.size() + SEGMENT_SUFFIX + ".tmp");
+            long count;
+            try (ArchiveSegmentWriter writer = new ArchiveSegmentWriter(temporary, accountType, rowsPerBlock)) {
+                while (rows.hasNext() && writer.getRowCount() < rowsPerSegment) {
+                    Object[] row = rows.next();
+                    writer.append(new LedgerEntry(accountType, (Long) row[0], (Long) row[1], (Date) row[2], (String) row[3],
+                            (String) row[4], (String) row[5], (Double) row[6], (BigDecimal) row[7]));
+                }
+                count = writer.getRowCount();
+            }
+            written.add(publish(temporary, count));
+        }
+        return written;
+    }
+
+    /*
+     * Flushes the segment to disk, checks that it can be read back with the expected number of
+     * rows, writes its checksum file and gives it its final name.
+     */
+    private Path publish(Path temporary, long expectedRows) throws IOException {
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+
+        String sha256;
+        try (ArchiveSegment segment = ArchiveSegment.open(temporary)) {
+            if (segment.getRowCount() != expectedRows || segment.verifyBlocks() != 0) {
+                throw new IOException("Archive segment " + temporary + " failed verification");
+            }
+            sha256 = segment.sha256();
+        }
+
+        String name = temporary.getFileName().toString();
+        Path file = temporary.resolveSibling(name.substring(0, name.length() - ".tmp".length()));
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+
+        // Same format as the sha256sum tool, so the archive can also be checked with sha256sum -c
+        Files.write(checksumFile(file), (sha256 + "  " + file.getFileName() + "\n").getBytes(StandardCharsets.US_ASCII));
+
+        return file;
+    }
+
+    /*
+     * Deletes the rows that were written to the segment, one block per statement. Only the
+     * ids of the segment are deleted, a row that was added to the archived months after
+     * the rows were streamed stays in the table until the next run archives it. The date
+     * range of the block lets MySQL only read the partitions of those months.
+     */
+    private void deleteArchivedRows(ArchiveSegment segment) throws IOException {
+        String table = segment.getAccountType() == AccountType.PRIMARY ? "primary_transaction" : "savings_transaction";
+        for (int block = 0; block < segment.getBlockCount(); block++) {
+            List<LedgerEntry> entries = segment.readBlock(block);
+            if (entries.isEmpty()) {
+                continue;
+            }
+
+            StringBuilder sql = new StringBuilder("DELETE FROM ").append(table).append(" WHERE `date` >= ? AND `date` <= ? AND id IN (");
+            List<Object> arguments = new ArrayList<>(entries.size() + 2);
+            arguments.add(new Date(entries.stream().mapToLong(LedgerEntry::getTime).min().getAsLong()));
+            arguments.add(new Date(entries.stream().mapToLong(LedgerEntry::getTime).max().getAsLong()));
+            for (LedgerEntry entry : entries) {
+                sql.append(arguments.size() == 2 ? "?" : ", ?");
+                arguments.add(entry.getId());
+            }
+            jdbcTemplate.update(sql.append(")").toString(), arguments.toArray());
+        }
+    }
+
+    private static Path checksumFile(Path segment) {
+        return segment.resolveSibling(segment.getFileName() + CHECKSUM_SUFFIX);
+    }
+}
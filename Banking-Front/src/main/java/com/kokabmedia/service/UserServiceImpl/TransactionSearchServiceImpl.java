@@ -0,0 +1,199 @@
+package com.kokabmedia.service.UserServiceImpl;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kokabmedia.cache.BoundedCache;
+import com.kokabmedia.dao.PrimaryTransactionDao;
+import com.kokabmedia.dao.SavingsTransactionDao;
+import com.kokabmedia.domain.AccountKey;
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.Ledger;
+import com.kokabmedia.domain.LedgerEntry;
+import com.kokabmedia.event.TransactionPostedEvent;
+import com.kokabmedia.search.InvertedIndex;
+import com.kokabmedia.service.TransactionArchiveService;
+import com.kokabmedia.service.TransactionSearchService;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+* This class will work as a service object and a business logic layer with code that 
+* implements the necessary functions that make the application act in a desired 
+* manner.
+* 
+* The search index is partitioned by account, every account has its own InvertedIndex that
+* is loaded from the database the first time the account is searched. After that the
+* partition is kept up to date from the TransactionPostedEvent of every committed ledger
+* write, so a search never has to run a LIKE query over the transaction tables.
+*
+* Only the partitions of the accounts that are being searched are kept in memory. The
+* partitions live in a size bounded cache and are dropped when their account has not been
+* searched for idle-minutes, the next search loads the partition again. A partition is
+* loaded in pages of load-page-months months, each page is a projection query on the
+* (account_id, date) index of only the partitions of those months, so neither the
+* persistence context nor a single result set holds the whole history of an account. The
+* transactions that were moved to the transaction archive are added first.
+* 
+* The @Service annotation allows the Spring framework to creates an instance (bean) 
+* of this class and manage it with the Spring Application Context (the IOC container)
+* that maintains all the beans for the application.  
+*/
+@Service
+public class TransactionSearchServiceImpl implements TransactionSearchService {
+
+    private static final LocalDate LAST_DAY = LocalDate.of(9999, 1, 1);
+
+    @Autowired
+    private PrimaryTransactionDao primaryTransactionDao;
+
+    @Autowired
+    private SavingsTransactionDao savingsTransactionDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TransactionArchiveService transactionArchiveService;
+
+    // Most account partitions kept in memory, the least recently searched one is dropped first
+    @Value("${banking.search.max-partitions:2000}")
+    private int maxPartitions;
+
+    // Time after the last search of an account that its partition is dropped
+    @Value("${banking.search.idle-minutes:30}")
+    private long idleMinutes;
+
+    // Months of transactions read by one query when a partition is loaded
+    @Value("${banking.search.load-page-months:6}")
+    private int loadPageMonths;
+
+    private BoundedCache<AccountKey, InvertedIndex> partitions;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        partitions = BoundedCache.expireAfterAccess(maxPartitions, TimeUnit.MINUTES.toMillis(idleMinutes));
+
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        Gauge.builder("banking.search.partitions", partitions, BoundedCache::size)
+                .description("Account partitions of the transaction search in memory").register(meterRegistry);
+        FunctionCounter.builder("banking.search.partition-loads", partitions, BoundedCache::missCount)
+                .description("Searches that had to load the partition of their account").register(meterRegistry);
+    }
+
+    public List<LedgerEntry> search(AccountKey accountKey, String query, int limit) {
+        return partition(accountKey).search(query, limit);
+    }
+
+    /*
+     * Drops every partition, each account is loaded again from the database and the archive
+     * the next time it is searched. Returns the number of partitions that were dropped.
+     */
+    public int rebuildAll() {
+        int dropped = partitions.size();
+        partitions.invalidateAll();
+
+        return dropped;
+    }
+
+    /*
+     * Adds a committed transaction to the partition of its account. Accounts that are not in
+     * memory are skipped, their partition reads the row from the database when it is loaded.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionPosted(TransactionPostedEvent event) {
+        InvertedIndex index = partitions.get(event.getEntry().accountKey());
+        if (index != null) {
+            index.add(event.getEntry());
+        }
+    }
+
+    /*
+     * Returns the partition of an account, loading it when needed. The empty partition is
+     * registered before the database is read so commit events that arrive during the load
+     * are not lost, the index ignores rows that it receives twice. A failed load is dropped
+     * again and the threads that waited for it get its failure.
+     */
+    private InvertedIndex partition(AccountKey accountKey) {
+        InvertedIndex index = partitions.get(accountKey);
+        if (index == null) {
+            InvertedIndex created = new InvertedIndex();
+            index = partitions.putIfAbsent(accountKey, created);
+            if (index == null) {
+                load(accountKey, created);
+                return created;
+            }
+        }
+
+        try {
+            index.awaitLoaded();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while the search index was loading", e);
+        }
+        return index;
+    }
+
+    private void load(AccountKey accountKey, InvertedIndex index) {
+        try {
+            for (LedgerEntry entry : transactionArchiveService.findArchived(accountKey, new Date(0), Ledger.startOf(LAST_DAY))) {
+                index.add(entry);
+            }
+
+            List<Object[]> bounds = accountKey.getAccountType() == AccountType.PRIMARY
+                    ? primaryTransactionDao.findLedgerBounds(accountKey.getAccountId())
+                    : savingsTransactionDao.findLedgerBounds(accountKey.getAccountId());
+            Object[] firstAndLast = bounds.isEmpty() ? new Object[2] : bounds.get(0);
+
+            if (firstAndLast[0] != null) {
+                YearMonth last = Ledger.monthOf((Date) firstAndLast[1]);
+                YearMonth month = Ledger.monthOf((Date) firstAndLast[0]);
+                for (; !month.isAfter(last); month = month.plusMonths(loadPageMonths)) {
+                    loadPage(accountKey, index, Ledger.startOf(month), Ledger.startOf(month.plusMonths(loadPageMonths)));
+                }
+            }
+        } catch (RuntimeException e) {
+            partitions.invalidate(accountKey, index);
+            index.markFailed(e);
+            throw e;
+        }
+        index.markLoaded();
+    }
+
+    private void loadPage(AccountKey accountKey, InvertedIndex index, Date from, Date to) {
+        AccountType accountType = accountKey.getAccountType();
+        Long accountId = accountKey.getAccountId();
+
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = accountType == AccountType.PRIMARY
+                    ? primaryTransactionDao.streamLedger(accountId, from, to)
+                    : savingsTransactionDao.streamLedger(accountId, from, to)) {
+                rows.forEach(row -> index.add(new LedgerEntry(accountType, accountId, (Long) row[0], (Date) row[1],
+                        (String) row[2], (String) row[3], (String) row[4], (Double) row[5], (BigDecimal) row[6])));
+            }
+        });
+    }
+}
@@ -1,28 +1,60 @@
 package com.kokabmedia.service.UserServiceImpl;
 
 import java.math.BigDecimal;
-import java.security.Principal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.kokabmedia.cache.BoundedCache;
+import com.kokabmedia.dao.BalanceHistoryDao;
 import com.kokabmedia.dao.PrimaryAccountDao;
 import com.kokabmedia.dao.PrimaryTransactionDao;
 import com.kokabmedia.dao.RecipientDao;
 import com.kokabmedia.dao.SavingsAccountDao;
 import com.kokabmedia.dao.SavingsTransactionDao;
+import com.kokabmedia.domain.AccountKey;
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.ChangeType;
+import com.kokabmedia.domain.Ledger;
+import com.kokabmedia.domain.LedgerEntry;
 import com.kokabmedia.domain.PrimaryAccount;
 import com.kokabmedia.domain.PrimaryTransaction;
 import com.kokabmedia.domain.Recipient;
 import com.kokabmedia.domain.SavingsAccount;
 import com.kokabmedia.domain.SavingsTransaction;
 import com.kokabmedia.domain.User;
+import com.kokabmedia.event.TransactionPostedEvent;
+import com.kokabmedia.search.PrefixTrie;
+import com.kokabmedia.service.ChangeFeedService;
+import com.kokabmedia.service.SpendingAnalyticsService;
+import com.kokabmedia.service.StatementService;
+import com.kokabmedia.service.TransactionArchiveService;
 import com.kokabmedia.service.TransactionService;
 import com.kokabmedia.service.UserService;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
 /*
 * This class will work as a service object and a business logic layer with code that 
 * implements the necessary functions that make the application act in a desired 
@@ -42,6 +74,17 @@ import com.kokabmedia.service.UserService;
 * 
 * The @Service annotation is a specialisation of @Component annotation for more specific 
 * use cases.
+*
+* The recipients of a user are read with one query on the user_id index and the list is
+* kept per user in a size bounded cache, so the recipient and transfer pages do not query
+* the database on every visit. Saving or deleting a recipient drops the list of its user on
+* the node that made the change. The other web nodes keep their copy, every list therefore
+* expires ttl-seconds after it was read from the database, however often it is used, and a
+* change shows up on every node within that time.
+*
+* The type-ahead of the transfer form completes the recipient names from a PrefixTrie per
+* user, built from the cached list on the first keystroke and kept in a second cache with
+* the same expiry, so a completion is a walk down the trie without a query.
 */
 @Service
 public class TransactionServiceImpl implements TransactionService {
@@ -80,38 +123,196 @@ public class TransactionServiceImpl implements TransactionService {
 	@Autowired
 	private RecipientDao recipientDao;
 	
+	@Autowired
+	private BalanceHistoryDao balanceHistoryDao;
+	
+	/*
+	 * Number of months, including the current one, shown in the transaction history of the
+	 * account pages. 0 shows the whole history, older months stay reachable with ?from=
+	 * when a window is set.
+	 */
+	@Value("${banking.history.default-months:0}")
+	private int historyMonths;
+	
+	@Autowired
+	private StatementService statementService;
+	
+	@Autowired
+	private SpendingAnalyticsService spendingAnalyticsService;
+	
+	@Autowired
+	private ChangeFeedService changeFeedService;
+	
+	@Autowired
+	private TransactionArchiveService transactionArchiveService;
+	
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	@Value("${banking.recipients.cache.max-users:10000}")
+	private int maxRecipientUsers;
+	
+	// Time after a user's recipient list was loaded that it is dropped from the cache
+	@Value("${banking.recipients.cache.ttl-seconds:30}")
+	private long recipientTtlSeconds;
+	
+	// Recipient lists by user id, the lists are unmodifiable
+	private BoundedCache<Long, List<Recipient>> recipients;
+	
+	// Tries of the recipient names by user id, for the type-ahead
+	private BoundedCache<Long, PrefixTrie> recipientNames;
+	
+	@PostConstruct
+	public void init() {
+		recipients = BoundedCache.expireAfterWrite(maxRecipientUsers, TimeUnit.SECONDS.toMillis(recipientTtlSeconds));
+		
+		FunctionCounter.builder("banking.recipients.cache.hits", recipients, BoundedCache::hitCount)
+				.description("Recipient lists answered from the cache").register(meterRegistry);
+		FunctionCounter.builder("banking.recipients.cache.misses", recipients, BoundedCache::missCount)
+				.description("Recipient lists read from the database").register(meterRegistry);
+		Gauge.builder("banking.recipients.cache.size", recipients, BoundedCache::size).register(meterRegistry);
+		
+		recipientNames = BoundedCache.expireAfterWrite(maxRecipientUsers, TimeUnit.SECONDS.toMillis(recipientTtlSeconds));
+		Gauge.builder("banking.recipients.name-tries.size", recipientNames, BoundedCache::size).register(meterRegistry);
+	}
 
+	/*
+	 * The transaction history of the account pages, the whole history unless history-months
+	 * is set. The date range is part of the query so MySQL only reads the partitions of
+	 * those months when the transaction tables are partitioned.
+	 */
 	public List<PrimaryTransaction> findPrimaryTransactionList(String username){
         User user = userService.findByUsername(username);
-        List<PrimaryTransaction> primaryTransactionList = user.getPrimaryAccount().getPrimaryTransactionList();
-
-        return primaryTransactionList;
+        return findPrimaryTransactionList(user.getPrimaryAccount().getId(), null, null);
     }
 
     public List<SavingsTransaction> findSavingsTransactionList(String username) {
         User user = userService.findByUsername(username);
-        List<SavingsTransaction> savingsTransactionList = user.getSavingsAccount().getSavingsTransactionList();
+        return findSavingsTransactionList(user.getSavingsAccount().getId(), null, null);
+    }
+
+    /*
+     * The transaction history between from and to (both days included), a missing day falls
+     * back to the default history window. Rows that were moved to the transaction archive
+     * are read from the archive segments and merged with the rows that are still in the
+     * database, a row that is found in both (an archive run that stopped before the delete)
+     * is taken from the database.
+     */
+    public List<PrimaryTransaction> findPrimaryTransactionList(Long primaryAccountId, LocalDate from, LocalDate to) {
+        Date start = from == null ? historyStart() : Ledger.startOf(from);
+        Date end = to == null ? historyEnd() : Ledger.startOf(to.plusDays(1));
+
+        List<PrimaryTransaction> primaryTransactionList = primaryTransactionDao.findLedger(primaryAccountId, start, end);
+
+        Set<Long> ids = primaryTransactionList.stream().map(PrimaryTransaction::getId).collect(Collectors.toSet());
+        PrimaryAccount primaryAccount = null;
+        for (LedgerEntry entry : transactionArchiveService.findArchived(AccountKey.primary(primaryAccountId), start, end)) {
+            if (ids.add(entry.getId())) {
+                if (primaryAccount == null) {
+                    primaryAccount = primaryAccountDao.findById(primaryAccountId).orElse(null);
+                }
+                PrimaryTransaction primaryTransaction = new PrimaryTransaction(entry.getDate(), entry.getDescription(), entry.getType(),
+                        entry.getStatus(), entry.getAmount(), entry.getAvailableBalance(), primaryAccount);
+                primaryTransaction.setId(entry.getId());
+                primaryTransactionList.add(primaryTransaction);
+            }
+        }
+        primaryTransactionList.sort(Comparator.comparing(PrimaryTransaction::getDate).thenComparing(PrimaryTransaction::getId));
+
+        return primaryTransactionList;
+    }
+
+    public List<SavingsTransaction> findSavingsTransactionList(Long savingsAccountId, LocalDate from, LocalDate to) {
+        Date start = from == null ? historyStart() : Ledger.startOf(from);
+        Date end = to == null ? historyEnd() : Ledger.startOf(to.plusDays(1));
+
+        List<SavingsTransaction> savingsTransactionList = savingsTransactionDao.findLedger(savingsAccountId, start, end);
+
+        Set<Long> ids = savingsTransactionList.stream().map(SavingsTransaction::getId).collect(Collectors.toSet());
+        SavingsAccount savingsAccount = null;
+        for (LedgerEntry entry : transactionArchiveService.findArchived(AccountKey.savings(savingsAccountId), start, end)) {
+            if (ids.add(entry.getId())) {
+                if (savingsAccount == null) {
+                    savingsAccount = savingsAccountDao.findById(savingsAccountId).orElse(null);
+                }
+                SavingsTransaction savingsTransaction = new SavingsTransaction(entry.getDate(), entry.getDescription(), entry.getType(),
+                        entry.getStatus(), entry.getAmount(), entry.getAvailableBalance(), savingsAccount);
+                savingsTransaction.setId(entry.getId());
+                savingsTransactionList.add(savingsTransaction);
+            }
+        }
+        savingsTransactionList.sort(Comparator.comparing(SavingsTransaction::getDate).thenComparing(SavingsTransaction::getId));
 
         return savingsTransactionList;
     }
 
+    private PrimaryAccount findPrimaryAccount(Long id) {
+        return primaryAccountDao.findById(id).orElseThrow(() -> new IllegalArgumentException("Unknown primary account " + id));
+    }
+
+    private SavingsAccount findSavingsAccount(Long id) {
+        return savingsAccountDao.findById(id).orElseThrow(() -> new IllegalArgumentException("Unknown savings account " + id));
+    }
+
+    private Date historyStart() {
+        return historyMonths > 0 ? Ledger.startOf(YearMonth.now().minusMonths(historyMonths - 1)) : new Date(0);
+    }
+
+    // The start of tomorrow, so the transactions of today are included
+    private Date historyEnd() {
+        return Ledger.startOf(LocalDate.now().plusDays(1));
+    }
+
+    @Transactional
     public void savePrimaryDepositTransaction(PrimaryTransaction primaryTransaction) {
-        primaryTransactionDao.save(primaryTransaction);
+        postPrimaryTransaction(primaryTransaction);
     }
 
+    @Transactional
     public void saveSavingsDepositTransaction(SavingsTransaction savingsTransaction) {
-        savingsTransactionDao.save(savingsTransaction);
+        postSavingsTransaction(savingsTransaction);
     }
     
+    @Transactional
     public void savePrimaryWithdrawTransaction(PrimaryTransaction primaryTransaction) {
-        primaryTransactionDao.save(primaryTransaction);
+        postPrimaryTransaction(primaryTransaction);
     }
 
+    @Transactional
     public void saveSavingsWithdrawTransaction(SavingsTransaction savingsTransaction) {
+        postSavingsTransaction(savingsTransaction);
+    }
+
+    /*
+     * Every ledger write goes through these two methods, the transaction row, the monthly
+     * statement rollup, the daily spending aggregate and the change log row are written in
+     * the same database transaction. The TransactionPostedEvent is handed to its listeners
+     * once that transaction commits.
+     */
+    private void postPrimaryTransaction(PrimaryTransaction primaryTransaction) {
+        primaryTransactionDao.save(primaryTransaction);
+        statementService.recordPrimaryTransaction(primaryTransaction);
+        spendingAnalyticsService.recordPrimaryTransaction(primaryTransaction);
+        changeFeedService.recordChange(ChangeType.PRIMARY_TRANSACTION, primaryTransaction.getId());
+        eventPublisher.publishEvent(new TransactionPostedEvent(LedgerEntry.of(primaryTransaction)));
+    }
+
+    private void postSavingsTransaction(SavingsTransaction savingsTransaction) {
         savingsTransactionDao.save(savingsTransaction);
+        statementService.recordSavingsTransaction(savingsTransaction);
+        spendingAnalyticsService.recordSavingsTransaction(savingsTransaction);
+        changeFeedService.recordChange(ChangeType.SAVINGS_TRANSACTION, savingsTransaction.getId());
+        eventPublisher.publishEvent(new TransactionPostedEvent(LedgerEntry.of(savingsTransaction)));
     }
     
-    public void betweenAccountsTransfer(String transferFrom, String transferTo, String amount, PrimaryAccount primaryAccount, SavingsAccount savingsAccount) throws Exception {
+    @Transactional(rollbackFor = Exception.class)
+    public void betweenAccountsTransfer(String transferFrom, String transferTo, String amount, Long primaryAccountId, Long savingsAccountId) throws Exception {
+        PrimaryAccount primaryAccount = findPrimaryAccount(primaryAccountId);
+        SavingsAccount savingsAccount = findSavingsAccount(savingsAccountId);
+
         if (transferFrom.equalsIgnoreCase("Primary") && transferTo.equalsIgnoreCase("Savings")) {
             primaryAccount.setAccountBalance(primaryAccount.getAccountBalance().subtract(new BigDecimal(amount)));
             savingsAccount.setAccountBalance(savingsAccount.getAccountBalance().add(new BigDecimal(amount)));
@@ -121,7 +322,7 @@ public class TransactionServiceImpl implements TransactionService {
             Date date = new Date();
 
             PrimaryTransaction primaryTransaction = new PrimaryTransaction(date, "Between account transfer from "+transferFrom+" to "+transferTo, "Account", "Finished", Double.parseDouble(amount), primaryAccount.getAccountBalance(), primaryAccount);
-            primaryTransactionDao.save(primaryTransaction);
+            postPrimaryTransaction(primaryTransaction);
         } else if (transferFrom.equalsIgnoreCase("Savings") && transferTo.equalsIgnoreCase("Primary")) {
             primaryAccount.setAccountBalance(primaryAccount.getAccountBalance().add(new BigDecimal(amount)));
             savingsAccount.setAccountBalance(savingsAccount.getAccountBalance().subtract(new BigDecimal(amount)));
@@ -131,50 +332,134 @@ public class TransactionServiceImpl implements TransactionService {
             Date date = new Date();
 
             SavingsTransaction savingsTransaction = new SavingsTransaction(date, "Between account transfer from "+transferFrom+" to "+transferTo, "Transfer", "Finished", Double.parseDouble(amount), savingsAccount.getAccountBalance(), savingsAccount);
-            savingsTransactionDao.save(savingsTransaction);
+            postSavingsTransaction(savingsTransaction);
         } else {
             throw new Exception("Invalid Transfer");
         }
     }
     
-    public List<Recipient> findRecipientList(Principal principal) {
-        String username = principal.getName();
-        List<Recipient> recipientList = recipientDao.findAll().stream() 			//convert list to stream
-                .filter(recipient -> username.equals(recipient.getUser().getUsername()))	//filters the line, equals to username
-                .collect(Collectors.toList());
-
-        return recipientList;
+    /*
+     * The recipients of the user in name order. The cached list holds detached entities
+     * whose user is not loaded, it must not be changed. A list from the cache does not start
+     * a transaction, the query of a list that is not cached runs in its own.
+     */
+    public List<Recipient> findRecipientList(Long userId) {
+        return recipients.getOrLoad(userId, id -> Collections.unmodifiableList(recipientDao.findByUserId(id)));
     }
 
+    /*
+     * Saves a new recipient or changes an existing one, a recipient id of the form must
+     * belong to a recipient of the same user.
+     */
+    @Transactional
     public Recipient saveRecipient(Recipient recipient) {
-        return recipientDao.save(recipient);
+        Long userId = recipient.getUser().getUserId();
+        if (recipient.getId() != null) {
+            Recipient existingRecipient = recipientDao.findById(recipient.getId()).orElse(null);
+            if (existingRecipient == null || !userId.equals(existingRecipient.getUser().getUserId())) {
+                throw new IllegalArgumentException("Unknown recipient " + recipient.getId());
+            }
+        }
+
+        Recipient savedRecipient = recipientDao.save(recipient);
+        invalidateRecipients(userId);
+
+        return savedRecipient;
     }
 
-    public Recipient findRecipientByName(String recipientName) {
-        return recipientDao.findByName(recipientName);
+    public Recipient findRecipientByName(Long userId, String recipientName) {
+        return recipientDao.findByUserIdAndName(userId, recipientName);
     }
 
-    public void deleteRecipientByName(String recipientName) {
-        recipientDao.deleteByName(recipientName);
+    @Transactional
+    public void deleteRecipientByName(Long userId, String recipientName) {
+        if (recipientDao.deleteByUserIdAndName(userId, recipientName) > 0) {
+            invalidateRecipients(userId);
+        }
+    }
+
+    // At most limit names of the recipients of the user that start with the prefix or have a word that does
+    public List<String> suggestRecipientNames(Long userId, String prefix, int limit) {
+        PrefixTrie names = recipientNames.getOrLoad(userId,
+                id -> PrefixTrie.of(findRecipientList(id).stream().map(Recipient::getName).collect(Collectors.toList())));
+
+        return names.complete(prefix, limit);
+    }
+
+    /*
+     * Drops the cached recipient list and name trie of the user, and again after the commit,
+     * so a list that was read before the change was committed does not stay in the cache.
+     */
+    private void invalidateRecipients(Long userId) {
+        recipients.invalidate(userId);
+        recipientNames.invalidate(userId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    recipients.invalidate(userId);
+                    recipientNames.invalidate(userId);
+                }
+            });
+        }
     }
     
-    public void toSomeoneElseTransfer(Recipient recipient, String accountType, String amount, PrimaryAccount primaryAccount, SavingsAccount savingsAccount) {
+    @Transactional
+    public void toSomeoneElseTransfer(Recipient recipient, String accountType, String amount, Long primaryAccountId, Long savingsAccountId) {
         if (accountType.equalsIgnoreCase("Primary")) {
+            PrimaryAccount primaryAccount = findPrimaryAccount(primaryAccountId);
             primaryAccount.setAccountBalance(primaryAccount.getAccountBalance().subtract(new BigDecimal(amount)));
             primaryAccountDao.save(primaryAccount);
 
             Date date = new Date();
 
             PrimaryTransaction primaryTransaction = new PrimaryTransaction(date, "Transfer to recipient "+recipient.getName(), "Transfer", "Finished", Double.parseDouble(amount), primaryAccount.getAccountBalance(), primaryAccount);
-            primaryTransactionDao.save(primaryTransaction);
+            postPrimaryTransaction(primaryTransaction);
         } else if (accountType.equalsIgnoreCase("Savings")) {
+            SavingsAccount savingsAccount = findSavingsAccount(savingsAccountId);
             savingsAccount.setAccountBalance(savingsAccount.getAccountBalance().subtract(new BigDecimal(amount)));
             savingsAccountDao.save(savingsAccount);
 
             Date date = new Date();
 
             SavingsTransaction savingsTransaction = new SavingsTransaction(date, "Transfer to recipient "+recipient.getName(), "Transfer", "Finished", Double.parseDouble(amount), savingsAccount.getAccountBalance(), savingsAccount);
-            savingsTransactionDao.save(savingsTransaction);
+            postSavingsTransaction(savingsTransaction);
+        }
+    }
+    
+    /*
+     * The balance of the account at the end of the day, which is the available balance
+     * stored on the last transaction before the next day. An account without transactions
+     * up to that day had a balance of zero.
+     *
+     * Like the monthly statements this relies on the rows of the account itself, a transfer
+     * from the other account of the user is only recorded on the account it leaves.
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal findBalanceAsOf(AccountType accountType, Long accountId, LocalDate day) {
+        List<LocalDate> days = new ArrayList<>();
+        days.add(day);
+        return findBalancesAsOf(accountType, accountId, days).get(day);
+    }
+
+    // Same as above for several days, answered with one indexed seek per day in a single query
+    @Transactional(readOnly = true)
+    public Map<LocalDate, BigDecimal> findBalancesAsOf(AccountType accountType, Long accountId, List<LocalDate> days) {
+        List<Date> endsOfDays = days.stream().map(day -> Ledger.startOf(day.plusDays(1))).collect(Collectors.toList());
+        List<BigDecimal> balances = balanceHistoryDao.findBalancesBefore(accountType, accountId, endsOfDays);
+
+        Map<LocalDate, BigDecimal> balancesAsOf = new LinkedHashMap<>();
+        for (int i = 0; i < days.size(); i++) {
+            BigDecimal balance = balances.get(i);
+            if (balance == null) {
+                // No row left in the database, the last row before the day may have been archived
+                LedgerEntry archived = transactionArchiveService.findLastArchivedBefore(
+                        new AccountKey(accountType, accountId), endsOfDays.get(i));
+                balance = archived == null ? BigDecimal.ZERO : archived.getAvailableBalance();
+            }
+            balancesAsOf.put(days.get(i), balance);
         }
+        return balancesAsOf;
     }
 }
@@ -0,0 +1,365 @@
+package com.kokabmedia.service.UserServiceImpl;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kokabmedia.dao.UserInsertDao;
+import com.kokabmedia.domain.CustomerSearchResult;
+import com.kokabmedia.domain.User;
+import com.kokabmedia.domain.UserImportReport;
+import com.kokabmedia.event.UserSavedEvent;
+import com.kokabmedia.importer.CsvReader;
+import com.kokabmedia.security.RoleRegistry;
+import com.kokabmedia.service.UserImportService;
+import com.kokabmedia.service.UserService;
+
+/*
+* This class will work as a service object and a business logic layer with code that
+* implements the necessary functions that make the application act in a desired
+* manner.
+*
+* The bulk import onboards the customers of a partner from a CSV file with the columns
+* username, password, email and optionally firstName, lastName and phone. The file is
+* read one record at a time and imported in chunks: the passwords of a chunk are hashed
+* in parallel on a pool of its own, and the UserInsertDao inserts the accounts, users,
+* roles and change log rows of the chunk with JDBC batches in one transaction per chunk.
+*
+* Rows with a username or email that already exists are skipped, so a file can be
+* imported again from the last committed line after an import stopped. When a chunk
+* breaks a constraint its rows are inserted one by one so only the bad row is reported.
+*
+* The @Service annotation allows the Spring framework to creates an instance (bean)
+* of this class and manage it with the Spring Application Context (the IOC container)
+* that maintains all the beans for the application.
+*/
+@Service
+public class UserImportServiceImpl implements UserImportService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserImportServiceImpl.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserInsertDao userInsertDao;
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${banking.import.chunk-size:500}")
+    private int chunkSize;
+
+    // Threads that hash the passwords, 0 uses half of the cores so logins keep running
+    @Value("${banking.import.hash-threads:0}")
+    private int hashThreads;
+
+    // Must be the strength of the password encoder of the logins
+    @Value("${banking.import.bcrypt-strength:12}")
+    private int bcryptStrength;
+
+    @Value("${banking.import.max-reported-errors:10000}")
+    private int maxReportedErrors;
+
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private PasswordEncoder passwordEncoder;
+    private ExecutorService hashExecutor;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        passwordEncoder = new BCryptPasswordEncoder(bcryptStrength);
+
+        int threads = hashThreads > 0 ? hashThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        hashExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "user-import-hash-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashExecutor.shutdownNow();
+    }
+
+    /*
+     * Imports the users of the CSV file, starting at the record on startLine (0 or 1 starts
+     * at the beginning). Throws IllegalArgumentException when the file is empty or misses a
+     * required column, and IllegalStateException when another import is running.
+     */
+    public UserImportReport importUsers(Reader csv, long startLine) throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Another user import is running");
+        }
+        try {
+            return importRecords(new CsvReader(csv), startLine);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private UserImportReport importRecords(CsvReader reader, long startLine) throws IOException {
+        List<String> header = reader.readRecord();
+        if (header == null) {
+            throw new IllegalArgumentException("The file is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String column : new String[] { "username", "password", "email" }) {
+            if (!columns.containsKey(column)) {
+                throw new IllegalArgumentException("The file has no " + column + " column");
+            }
+        }
+
+        UserImportReport report = new UserImportReport(Math.max(startLine, reader.getRecordLine() + 1), maxReportedErrors);
+        int roleId = roleRegistry.createRole("ROLE_USER").getRoleId();
+
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        try {
+            List<String> record;
+            while ((record = reader.readRecord()) != null) {
+                long line = reader.getRecordLine();
+                if (line < startLine) {
+                    continue;
+                }
+                report.rowRead();
+
+                ImportRow row = new ImportRow(line, record, columns);
+                String error = row.validate();
+                if (error != null) {
+                    report.failed(line, row.username, error);
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, roleId, report);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, roleId, report);
+            }
+            report.completed();
+        } catch (IOException | RuntimeException e) {
+            LOG.error("User import stopped, the last committed line is {}", report.getLastCommittedLine(), e);
+            report.aborted(e.getMessage());
+        }
+
+        LOG.info("User import from line {}: {} rows read, {} imported, {} skipped, {} errors", report.getStartLine(),
+                report.getRowsRead(), report.getImported(), report.getSkipped(), report.getErrorCount());
+        return report;
+    }
+
+    private void importChunk(List<ImportRow> chunk, int roleId, UserImportReport report) {
+        long lastLine = chunk.get(chunk.size() - 1).line;
+        List<ImportRow> rows = withoutExisting(chunk, report);
+        if (rows.isEmpty()) {
+            report.committed(lastLine);
+            return;
+        }
+
+        List<String> hashes = hashPasswords(rows);
+
+        List<ImportRow> imported = new ArrayList<>(rows.size());
+        List<User> users = new ArrayList<>(rows.size());
+        try {
+            users.addAll(insert(rows, hashes, roleId));
+            imported.addAll(rows);
+        } catch (DataAccessException e) {
+            // The transaction was rolled back, the rows are tried one by one
+            for (int i = 0; i < rows.size(); i++) {
+                ImportRow row = rows.get(i);
+                try {
+                    users.addAll(insert(rows.subList(i, i + 1), hashes.subList(i, i + 1), roleId));
+                    imported.add(row);
+                } catch (DataAccessException rowError) {
+                    report.failed(row.line, row.username, NestedExceptionUtils.getMostSpecificCause(rowError).getMessage());
+                }
+            }
+        }
+
+        for (ImportRow row : imported) {
+            userService.recordExistingUser(row.username, row.email);
+        }
+        for (User user : users) {
+            eventPublisher.publishEvent(new UserSavedEvent(CustomerSearchResult.of(user)));
+        }
+        report.imported(imported.size());
+        report.committed(lastLine);
+    }
+
+    /*
+     * Drops the rows whose username or email is already used, by a user in the database or
+     * by an earlier row of the chunk. The database compares both without case.
+     */
+    private List<ImportRow> withoutExisting(List<ImportRow> chunk, UserImportReport report) {
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (ImportRow row : chunk) {
+            usernames.add(row.username);
+            emails.add(row.email);
+        }
+
+        Set<String> takenUsernames = new HashSet<>();
+        Set<String> takenEmails = new HashSet<>();
+        namedParameterJdbcTemplate.query("SELECT username, email FROM user WHERE username IN (:usernames) OR email IN (:emails)",
+                new MapSqlParameterSource("usernames", usernames).addValue("emails", emails), resultSet -> {
+                    takenUsernames.add(key(resultSet.getString(1)));
+                    takenEmails.add(key(resultSet.getString(2)));
+                });
+
+        List<ImportRow> rows = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            if (!takenUsernames.add(key(row.username))) {
+                report.skipped(row.line, row.username, "The username already exists");
+            } else if (!takenEmails.add(key(row.email))) {
+                report.skipped(row.line, row.username, "The email already exists");
+            } else {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private List<String> hashPasswords(List<ImportRow> rows) {
+        List<Future<String>> futures = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            futures.add(hashExecutor.submit(() -> passwordEncoder.encode(row.password)));
+        }
+
+        List<String> hashes = new ArrayList<>(rows.size());
+        try {
+            for (Future<String> future : futures) {
+                hashes.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing the passwords", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Hashing a password failed", e.getCause());
+        }
+        return hashes;
+    }
+
+    // Inserts the rows in one transaction, returns the users with their ids and accounts
+    private List<User> insert(List<ImportRow> rows, List<String> hashes, int roleId) {
+        List<User> users = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            ImportRow row = rows.get(i);
+            User user = new User();
+            user.setUsername(row.username);
+            user.setPassword(hashes.get(i));
+            user.setFirstName(row.firstName);
+            user.setLastName(row.lastName);
+            user.setEmail(row.email);
+            user.setPhone(row.phone);
+            users.add(user);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> userInsertDao.insertUsers(users, roleId));
+        return users;
+    }
+
+    private static String key(String value) {
+        return value == null ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // One record of the file
+    private static class ImportRow {
+
+        private final long line;
+        private final String username;
+        private final String password;
+        private final String firstName;
+        private final String lastName;
+        private final String email;
+        private final String phone;
+
+        ImportRow(long line, List<String> record, Map<String, Integer> columns) {
+            this.line = line;
+            this.username = field(record, columns, "username");
+            this.password = field(record, columns, "password", false);
+            this.firstName = field(record, columns, "firstname");
+            this.lastName = field(record, columns, "lastname");
+            this.email = field(record, columns, "email");
+            this.phone = field(record, columns, "phone");
+        }
+
+        // The reason the row can not be imported, null when it can
+        String validate() {
+            if (username == null || username.length() > 255) {
+                return "The username is missing or too long";
+            }
+            if (password == null) {
+                return "The password is missing";
+            }
+            if (email == null || email.indexOf('@') <= 0 || email.length() > 255) {
+                return "The email is missing or invalid";
+            }
+            return null;
+        }
+
+        private static String field(List<String> record, Map<String, Integer> columns, String column) {
+            return field(record, columns, column, true);
+        }
+
+        // Passwords are taken as they are, spaces included
+        private static String field(List<String> record, Map<String, Integer> columns, String column, boolean trim) {
+            Integer index = columns.get(column);
+            if (index == null || index >= record.size()) {
+                return null;
+            }
+            String value = trim ? record.get(index).trim() : record.get(index);
+            return value.isEmpty() ? null : value;
+        }
+    }
+}
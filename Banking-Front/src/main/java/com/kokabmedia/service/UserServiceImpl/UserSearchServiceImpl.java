@@ -0,0 +1,242 @@
+package com.kokabmedia.service.UserServiceImpl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.kokabmedia.domain.CustomerSearchResult;
+import com.kokabmedia.event.UserSavedEvent;
+import com.kokabmedia.search.TrigramIndex;
+import com.kokabmedia.service.UserSearchService;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+* This class will work as a service object and a business logic layer with code that
+* implements the necessary functions that make the application act in a desired
+* manner.
+*
+* The admin customer search is answered from a TrigramIndex in memory instead of loading
+* every user. The index is split in segments by ranges of user ids, at startup every
+* segment is filled by its own thread with a streaming query over its range, and a search
+* runs on all segments at the same time and keeps the best results. After that the index
+* is kept up to date from the UserSavedEvent of every committed user write, users saved
+* while the index is being built are applied once it is done.
+*
+* The @Service annotation allows the Spring framework to creates an instance (bean)
+* of this class and manage it with the Spring Application Context (the IOC container)
+* that maintains all the beans for the application.
+*/
+@Service
+public class UserSearchServiceImpl implements UserSearchService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserSearchServiceImpl.class);
+
+    private static final String CUSTOMER_QUERY = "SELECT u.user_id, u.username, u.first_name, u.last_name, u.email, u.phone, "
+            + "p.account_number, s.account_number FROM user u "
+            + "LEFT JOIN primary_account p ON p.id = u.primary_account_id "
+            + "LEFT JOIN savings_account s ON s.id = u.savings_account_id "
+            + "WHERE u.user_id >= ? AND u.user_id < ?";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Segments of the index, each built by its own thread, 0 uses one per core
+    @Value("${banking.user-search.segments:0}")
+    private int segmentCount;
+
+    // Customers checked per segment at most, a query of very common trigrams ranks the first ones only
+    @Value("${banking.user-search.max-candidates:50000}")
+    private int maxCandidates;
+
+    // Null until the first build is done
+    private volatile Segments segments;
+
+    // Users saved while a build runs, null when no build runs
+    private Queue<CustomerSearchResult> pending;
+
+    private boolean gaugesRegistered;
+
+    public List<CustomerSearchResult> search(String query, int limit) {
+        Segments current = segments;
+        List<String> terms = TrigramIndex.terms(query);
+        if (current == null || terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return Arrays.stream(current.indexes).parallel()
+                .flatMap(index -> index.search(terms, limit, maxCandidates).stream())
+                .sorted(TrigramIndex.BEST_FIRST)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    public boolean isReady() {
+        return segments != null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        rebuild();
+    }
+
+    /*
+     * Builds a new index from the database and replaces the current one, searches use the
+     * current index until then. Returns the number of customers in the new index.
+     */
+    public int rebuild() {
+        synchronized (this) {
+            if (pending != null) {
+                throw new IllegalStateException("The customer search index is already being built");
+            }
+            pending = new ArrayDeque<>();
+        }
+
+        Segments built;
+        try {
+            built = load();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending = null;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            for (CustomerSearchResult customer : pending) {
+                built.put(customer);
+            }
+            pending = null;
+            segments = built;
+        }
+        registerGauges();
+
+        int size = built.size();
+        LOG.info("Customer search index built with {} customers in {} segments", size, built.indexes.length);
+        return size;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserSaved(UserSavedEvent event) {
+        Segments current;
+        synchronized (this) {
+            if (pending != null) {
+                pending.add(event.getCustomer());
+            }
+            current = segments;
+        }
+        if (current != null) {
+            current.put(event.getCustomer());
+        }
+    }
+
+    private Segments load() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        long[] range = jdbcTemplate.queryForObject("SELECT COALESCE(MIN(user_id), 0), COALESCE(MAX(user_id), 0) FROM user",
+                (resultSet, rowNum) -> new long[] { resultSet.getLong(1), resultSet.getLong(2) });
+
+        int count = segmentCount > 0 ? segmentCount : Runtime.getRuntime().availableProcessors();
+        long span = Math.max(1, (range[1] - range[0] + count) / count);
+        long[] lowerBounds = new long[count];
+        TrigramIndex[] indexes = new TrigramIndex[count];
+        for (int i = 0; i < count; i++) {
+            lowerBounds[i] = range[0] + i * span;
+            indexes[i] = new TrigramIndex();
+        }
+
+        // MySQL streams the rows of a statement with this fetch size instead of reading them all first
+        JdbcTemplate streaming = new JdbcTemplate(dataSource);
+        streaming.setFetchSize(Integer.MIN_VALUE);
+
+        ExecutorService executor = Executors.newFixedThreadPool(count);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                TrigramIndex index = indexes[i];
+                long from = lowerBounds[i];
+                long to = i == count - 1 ? Long.MAX_VALUE : lowerBounds[i + 1];
+                futures.add(executor.submit(() -> streaming.query(CUSTOMER_QUERY, resultSet -> {
+                    index.put(new CustomerSearchResult(resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3),
+                            resultSet.getString(4), resultSet.getString(5), resultSet.getString(6),
+                            (Integer) resultSet.getObject(7), (Integer) resultSet.getObject(8), 0));
+                }, from, to)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Building the customer search index failed", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return new Segments(lowerBounds, indexes);
+    }
+
+    private synchronized void registerGauges() {
+        if (gaugesRegistered) {
+            return;
+        }
+        gaugesRegistered = true;
+        Gauge.builder("banking.user-search.customers", this, service -> service.segments.size())
+                .description("Customers in the admin customer search index").register(meterRegistry);
+        Gauge.builder("banking.user-search.trigrams", this, service -> service.segments.trigramCount())
+                .register(meterRegistry);
+    }
+
+    // The segments of one build, a user goes to the segment of the range of its id
+    private static final class Segments {
+
+        private final long[] lowerBounds;
+        private final TrigramIndex[] indexes;
+
+        private Segments(long[] lowerBounds, TrigramIndex[] indexes) {
+            this.lowerBounds = lowerBounds;
+            this.indexes = indexes;
+        }
+
+        void put(CustomerSearchResult customer) {
+            int position = Arrays.binarySearch(lowerBounds, customer.getUserId());
+            int segment = position >= 0 ? position : Math.max(0, -position - 2);
+            indexes[segment].put(customer);
+        }
+
+        int size() {
+            int size = 0;
+            for (TrigramIndex index : indexes) {
+                size += index.size();
+            }
+            return size;
+        }
+
+        int trigramCount() {
+            int count = 0;
+            for (TrigramIndex index : indexes) {
+                count += index.trigramCount();
+            }
+            return count;
+        }
+    }
+}
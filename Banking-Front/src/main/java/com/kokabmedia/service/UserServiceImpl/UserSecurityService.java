@@ -1,15 +1,30 @@
 package com.kokabmedia.service.UserServiceImpl;
 
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.kokabmedia.cache.BoundedCache;
 import com.kokabmedia.dao.UserDao;
 import com.kokabmedia.domain.User;
+import com.kokabmedia.security.RoleRegistry;
+import com.kokabmedia.security.UserSnapshot;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 
 /*
 * This class will work as a service object and a business logic layer with code that 
@@ -30,6 +45,13 @@ import com.kokabmedia.domain.User;
 * 
 * The @Service annotation is a specialisation of @Component annotation for more specific 
 * use cases.
+*
+* Every authentication asks for the user, and reading a User also joins its roles. The
+* service keeps an immutable UserSnapshot per username in a size bounded cache whose
+* entries expire after ttl-seconds, so repeated logins and remember-me checks do not
+* query the database. UserServiceImpl invalidates the snapshot of a user as soon as the
+* user is changed, enabled or disabled. The authorities of a snapshot are the shared
+* lists of the RoleRegistry, so they are not copied for every user.
 */
 @Service
 public class UserSecurityService implements UserDetailsService {
@@ -56,8 +78,87 @@ public class UserSecurityService implements UserDetailsService {
     @Autowired
     private UserDao userDao;
 
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Switches the cache off, for example to compare the number of queries with and without it
+    @Value("${banking.security.user-cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${banking.security.user-cache.max-users:10000}")
+    private int maxUsers;
+
+    @Value("${banking.security.user-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private BoundedCache<String, UserSnapshot> snapshots;
+
+    @PostConstruct
+    public void init() {
+        snapshots = BoundedCache.expireAfterWrite(maxUsers, TimeUnit.SECONDS.toMillis(ttlSeconds));
+
+        FunctionCounter.builder("banking.security.user-cache.hits", snapshots, BoundedCache::hitCount)
+                .description("Authentications answered from the user cache").register(meterRegistry);
+        FunctionCounter.builder("banking.security.user-cache.misses", snapshots, BoundedCache::missCount)
+                .description("Authentications that read the user from the database").register(meterRegistry);
+        Gauge.builder("banking.security.user-cache.size", snapshots, BoundedCache::size).register(meterRegistry);
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        if (!cacheEnabled) {
+            return snapshot(findUser(username));
+        }
+
+        UserSnapshot snapshot = snapshots.get(key(username));
+        if (snapshot == null) {
+            snapshot = snapshot(findUser(username));
+            snapshots.put(key(username), snapshot);
+        }
+        return snapshot;
+    }
+
+    /*
+     * Drops the cached snapshot of the user. When it is called inside a transaction the
+     * snapshot is dropped again after the commit, so a login that read the user before the
+     * change was committed does not leave the old snapshot in the cache.
+     */
+    public void invalidate(String username) {
+        String key = key(username);
+        snapshots.invalidate(key);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    snapshots.invalidate(key);
+                }
+            });
+        }
+    }
+
+    // Drops every snapshot, after the roles were changed
+    public void invalidateAll() {
+        snapshots.invalidateAll();
+    }
+
+    /*
+     * The username column compares case insensitively, so "Alice" and "alice" log in as the
+     * same user and must share one cache entry, otherwise invalidating one spelling would
+     * leave the snapshot of the other in the cache.
+     */
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private UserSnapshot snapshot(User user) {
+        return UserSnapshot.of(user, roleRegistry.authoritiesOf(user.getUserRoles()));
+    }
+
+    private User findUser(String username) {
         User user = userDao.findByUsername(username);
         if (null == user) {
             LOG.warn("Username {} not found", username);
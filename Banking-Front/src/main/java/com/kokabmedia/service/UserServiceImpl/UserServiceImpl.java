@@ -1,27 +1,66 @@
 package com.kokabmedia.service.UserServiceImpl;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.kokabmedia.cache.BloomFilter;
 import com.kokabmedia.dao.RoleDao;
 import com.kokabmedia.dao.UserDao;
+import com.kokabmedia.dao.UserInsertDao;
+import com.kokabmedia.domain.ChangeType;
+import com.kokabmedia.domain.CustomerSearchResult;
 import com.kokabmedia.domain.User;
+import com.kokabmedia.domain.UserStatusChange;
+import com.kokabmedia.domain.UserStatusChangeReport;
+import com.kokabmedia.domain.UserSummary;
+import com.kokabmedia.event.UserSavedEvent;
+import com.kokabmedia.security.RoleRegistry;
 import com.kokabmedia.security.UserRole;
 import com.kokabmedia.service.AccountService;
+import com.kokabmedia.service.ChangeFeedService;
+import com.kokabmedia.service.TokenService;
 import com.kokabmedia.service.UserService;
+import com.kokabmedia.session.SharedSessionRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 
 /*
 * This class will work as a service object and a business logic layer with code that 
 * implements the necessary functions that make the application act in a desired 
 * manner.
 * 
+* The signup checks whether a username or email is taken. Usernames and emails are also
+* kept in two in memory Bloom filters that are filled from the database once the
+* application is ready and updated whenever a user is saved. A value the filter has never
+* seen is definitely free and answered without a query, only a value the filter may have
+* seen is looked up. The unique indexes on the username and email columns stay the source
+* of truth, a user created by another instance of the application is caught by them when
+* the user is saved.
+* 
 * The @Service annotation allows the Spring framework to creates an instance (bean) 
 * of this class and manage it with the Spring Application Context (the IOC container)
 * that maintains all the beans for the application.  
@@ -72,6 +111,9 @@ import com.kokabmedia.service.UserService;
 public class UserServiceImpl implements UserService{
 	
 	private static final Logger LOG = LoggerFactory.getLogger(UserService.class);
+
+	// Usernames that do not exist listed in the report of a bulk status change
+	private static final int MAX_REPORTED_NOT_FOUND = 1000;
 	
 	 /*
 		 * The @Autowired annotation tells the Spring framework that this object (bean) and its 
@@ -95,23 +137,122 @@ public class UserServiceImpl implements UserService{
     private RoleDao roleDao;
 
     @Autowired
-    private BCryptPasswordEncoder passwordEncoder123;
+    private UserInsertDao userInsertDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder123;
     
     @Autowired
     private AccountService accountService;
+    
+    @Autowired
+    private ChangeFeedService changeFeedService;
+    
+    @Autowired
+    private UserSecurityService userSecurityService;
+    
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Only set when the sessions are kept in the shared session store
+    @Autowired(required = false)
+    private SharedSessionRepository sessionRepository;
+
+    // Users changed in one transaction by a bulk status change
+    @Value("${banking.user-status.chunk-size:1000}")
+    private int statusChunkSize;
+
+    @Value("${banking.signup.bloom-filter.enabled:true}")
+    private boolean bloomFilterEnabled;
+
+    @Value("${banking.signup.bloom-filter.expected-users:1000000}")
+    private long expectedUsers;
+
+    @Value("${banking.signup.bloom-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    // Null until the filters are filled, the checks query the database until then
+    private volatile BloomFilter usernames;
+    private volatile BloomFilter emails;
+    private BloomFilter[] loading;
+
+    private Counter definitelyFree;
+    private Counter queried;
 	
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        definitelyFree = Counter.builder("banking.signup.exists-checks").tag("result", "definitely-free")
+                .description("Username and email checks answered by the Bloom filter").register(meterRegistry);
+        queried = Counter.builder("banking.signup.exists-checks").tag("result", "queried")
+                .description("Username and email checks that queried the database").register(meterRegistry);
+    }
+
+    /*
+     * Fills the username and email filters in one streaming pass over the user table. Users
+     * saved while the pass runs are put in the new filters too, so none is missed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadExistenceFilters() {
+        if (!bloomFilterEnabled) {
+            return;
+        }
+
+        BloomFilter loadingUsernames = new BloomFilter(expectedUsers, falsePositiveRate);
+        BloomFilter loadingEmails = new BloomFilter(expectedUsers, falsePositiveRate);
+        synchronized (this) {
+            loading = new BloomFilter[] { loadingUsernames, loadingEmails };
+        }
+
+        long count = 0;
+        try (Stream<Object[]> rows = userDao.streamUsernamesAndEmails()) {
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                putIfPresent(loadingUsernames, (String) row[0]);
+                putIfPresent(loadingEmails, (String) row[1]);
+                count++;
+            }
+        }
+
+        synchronized (this) {
+            usernames = loadingUsernames;
+            emails = loadingEmails;
+            loading = null;
+        }
+        LOG.info("Loaded {} users into the signup filters ({} bits, {} hash functions each)", count,
+                loadingUsernames.getBitCount(), loadingUsernames.getHashFunctions());
+    }
+
+    /*
+     * The signup: the user, its two accounts, its ROLE_USER link and the change log row are
+     * inserted in one transaction with the UserInsertDao, the ids and account numbers come
+     * from blocks in memory and nothing is read back. The password is hashed before the
+     * transaction starts, so no connection is held while BCrypt runs.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
 	public void save(User user) {
-        
-		 
-	            String encryptedPassword = passwordEncoder123.encode(user.getPassword());
-	            user.setPassword(encryptedPassword);
+        user.setPassword(passwordEncoder123.encode(user.getPassword()));
+        int roleId = roleRegistry.createRole("ROLE_USER").getRoleId();
+
+        transactionTemplate.executeWithoutResult(status -> userInsertDao.insertUsers(Collections.singletonList(user), roleId));
 
-	           user.setPrimaryAccount(accountService.createPrimaryAccount());
-	            user.setSavingsAccount(accountService.createSavingsAccount());
-	       
-		
-		userDao.save(user);
-        
+        remember(user.getUsername(), user.getEmail());
+        eventPublisher.publishEvent(new UserSavedEvent(CustomerSearchResult.of(user)));
     }
 
     public User findByUsername(String username) {
@@ -133,8 +274,12 @@ public class UserServiceImpl implements UserService{
             String encryptedPassword = passwordEncoder123.encode(user.getPassword());
             user.setPassword(encryptedPassword);
 
+            // Only roles that are not in the role table yet are saved
             for (UserRole ur : userRoles) {
-                roleDao.save(ur.getRole());
+                if (ur.getRole().getRoleId() == 0) {
+                    roleDao.save(ur.getRole());
+                    roleRegistry.reloadAfterCommit();
+                }
             }
 
             user.getUserRoles().addAll(userRoles);
@@ -143,54 +288,203 @@ public class UserServiceImpl implements UserService{
             user.setSavingsAccount(accountService.createSavingsAccount());
 
             localUser = userDao.save(user);
+            remember(localUser.getUsername(), localUser.getEmail());
+            changeFeedService.recordChange(ChangeType.USER, localUser.getUserId());
+            eventPublisher.publishEvent(new UserSavedEvent(CustomerSearchResult.of(localUser)));
         }
 
         return localUser;
     }
     
     public boolean checkUserExists(String username, String email){
-        if (checkUsernameExists(username) || checkEmailExists(username)) {
-            return true;
-        } else {
-            return false;
-        }
+        return checkUsernameExists(username) || checkEmailExists(email);
     }
 
     public boolean checkUsernameExists(String username) {
-        if (null != findByUsername(username)) {
-            return true;
-        }
-
-        return false;
+        return mightExist(usernames, username) && userDao.existsByUsername(username);
     }
     
     public boolean checkEmailExists(String email) {
-        if (null != findByEmail(email)) {
-            return true;
-        }
-
-        return false;
+        return mightExist(emails, email) && userDao.existsByEmail(email);
     }
 
     public User saveUser (User user) {
-        return userDao.save(user);
+        User savedUser = userDao.save(user);
+        remember(savedUser.getUsername(), savedUser.getEmail());
+        changeFeedService.recordChange(ChangeType.USER, savedUser.getUserId());
+        eventPublisher.publishEvent(new UserSavedEvent(CustomerSearchResult.of(savedUser)));
+        userSecurityService.invalidate(savedUser.getUsername());
+        tokenService.revokeUser(savedUser.getUsername());
+
+        return savedUser;
     }
     
     public List<User> findUserList() {
         return userDao.findAll();
     }
 
+    // The page of users after the user id of the cursor, null starts at the first user
+    @Transactional(readOnly = true)
+    public List<UserSummary> findUserSummariesAfter(Long after, int size) {
+        return userDao.findSummariesAfter(after == null ? 0L : after, PageRequest.of(0, size));
+    }
+
+    // Numbered pages, later pages skip more rows so the cursor is the better choice for a long list
+    @Transactional(readOnly = true)
+    public List<UserSummary> findUserSummaryPage(int page, int size) {
+        return userDao.findSummariesAfter(0L, PageRequest.of(page, size));
+    }
+
+    // A user inserted without this service (the bulk import) is put in the signup filters
+    public void recordExistingUser(String username, String email) {
+        remember(username, email);
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void enableUser (String username) {
-        User user = findByUsername(username);
-        user.setEnabled(true);
-        userDao.save(user);
+        changeStatus(statusChange(username, true));
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void disableUser (String username) {
-        User user = findByUsername(username);
-        user.setEnabled(false);
-        System.out.println(user.isEnabled());
-        userDao.save(user);
-        System.out.println(username + " is disabled.");
+        UserStatusChangeReport report = changeStatus(statusChange(username, false));
+        if (report.getNotFoundCount() > 0) {
+            LOG.warn("User {} can not be disabled, there is no such user", username);
+        } else {
+            LOG.info("User {} is disabled", username);
+        }
+    }
+
+    /*
+     * Enables or disables the users of the change in chunks. Every chunk is one short
+     * transaction: one select of the users of the chunk, one UPDATE of the ones whose flag
+     * differs and one batch of change log rows. After the commit the cached logins of the
+     * changed users are dropped, and disabled users lose their tokens and sessions.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public UserStatusChangeReport changeStatus(UserStatusChange change) {
+        boolean byUsernames = change.getUsernames() != null && !change.getUsernames().isEmpty();
+        boolean byEmailDomain = change.getEmailDomain() != null && !change.getEmailDomain().trim().isEmpty();
+        if (byUsernames == byEmailDomain) {
+            throw new IllegalArgumentException("Give either the usernames or an email domain");
+        }
+        boolean enabled = change.isEnabled();
+        UserStatusChangeReport report = new UserStatusChangeReport(enabled, MAX_REPORTED_NOT_FOUND);
+
+        if (byUsernames) {
+            List<String> usernames = new ArrayList<>(new LinkedHashSet<>(change.getUsernames()));
+            for (int start = 0; start < usernames.size(); start += statusChunkSize) {
+                List<String> chunk = usernames.subList(start, Math.min(start + statusChunkSize, usernames.size()));
+                List<Object[]> users = transactionTemplate.execute(status -> {
+                    List<Object[]> rows = userDao.findStatusByUsernames(chunk);
+                    report.chunk(rows.size(), updateStatus(rows, enabled));
+                    return rows;
+                });
+
+                Set<String> found = new HashSet<>();
+                users.forEach(user -> found.add(normalize((String) user[1])));
+                chunk.stream().filter(username -> !found.contains(normalize(username))).forEach(report::notFound);
+                afterStatusChange(users, enabled, report);
+            }
+        } else {
+            String pattern = "%@" + change.getEmailDomain().trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+            long after = 0;
+            List<Object[]> users;
+            do {
+                long from = after;
+                users = transactionTemplate.execute(status -> {
+                    List<Object[]> rows = userDao.findStatusByEmailAfter(pattern, from, PageRequest.of(0, statusChunkSize));
+                    report.chunk(rows.size(), updateStatus(rows, enabled));
+                    return rows;
+                });
+                if (!users.isEmpty()) {
+                    after = (Long) users.get(users.size() - 1)[0];
+                }
+                afterStatusChange(users, enabled, report);
+            } while (users.size() == statusChunkSize);
+        }
+
+        LOG.info("Bulk status change to enabled={}: {} users matched, {} changed, {} not found", enabled,
+                report.getMatched(), report.getChanged(), report.getNotFoundCount());
+        return report;
+    }
+
+    // Sets the flag of the users [user id, username, enabled] that do not have it yet, returns how many were changed
+    private int updateStatus(List<Object[]> users, boolean enabled) {
+        List<Long> userIds = new ArrayList<>();
+        for (Object[] user : users) {
+            if ((Boolean) user[2] != enabled) {
+                userIds.add((Long) user[0]);
+            }
+        }
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        int changed = userDao.updateEnabled(userIds, enabled);
+        changeFeedService.recordChanges(ChangeType.USER, userIds);
+        return changed;
+    }
+
+    private void afterStatusChange(List<Object[]> users, boolean enabled, UserStatusChangeReport report) {
+        List<String> changed = new ArrayList<>();
+        for (Object[] user : users) {
+            if ((Boolean) user[2] != enabled) {
+                changed.add((String) user[1]);
+            }
+        }
+        for (String username : changed) {
+            userSecurityService.invalidate(username);
+            if (!enabled) {
+                tokenService.revokeUser(username);
+            }
+        }
+        if (!enabled && sessionRepository != null) {
+            report.sessionsDeleted(sessionRepository.deleteByPrincipalNames(changed));
+        }
+    }
+
+    private static UserStatusChange statusChange(String username, boolean enabled) {
+        UserStatusChange change = new UserStatusChange();
+        change.setUsernames(Collections.singletonList(username));
+        change.setEnabled(enabled);
+        return change;
+    }
+
+    private boolean mightExist(BloomFilter filter, String value) {
+        if (value == null) {
+            return false;
+        }
+        if (filter != null && !filter.mightContain(normalize(value))) {
+            definitelyFree.increment();
+            return false;
+        }
+        queried.increment();
+        return true;
+    }
+
+    // Puts the username and email of a saved user in the filters, and in the filters being loaded
+    private synchronized void remember(String username, String email) {
+        if (usernames != null) {
+            putIfPresent(usernames, username);
+            putIfPresent(emails, email);
+        }
+        if (loading != null) {
+            putIfPresent(loading[0], username);
+            putIfPresent(loading[1], email);
+        }
+    }
+
+    private static void putIfPresent(BloomFilter filter, String value) {
+        if (value != null) {
+            filter.put(normalize(value));
+        }
+    }
+
+    /*
+     * The MySQL collation compares usernames and emails without case and trailing spaces, so
+     * the filters do too. A few more maybe answers are fine, a missed match is not.
+     */
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
     }
 }
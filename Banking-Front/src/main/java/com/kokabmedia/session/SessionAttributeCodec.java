@@ -0,0 +1,135 @@
+package com.kokabmedia.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import com.kokabmedia.security.Authority;
+import com.kokabmedia.security.UserSnapshot;
+
+/*
+ * Turns the attributes of a session into bytes for the session table and back.
+ *
+ * The security context of a logged in customer is the one attribute every session has,
+ * it is written in a compact form: the user id, the username, the enabled flag and the
+ * role names. The password hash, the request details and the class descriptors that Java
+ * serialization would write are left out, the context read back holds a UserSnapshot
+ * without password, which is all the pages need. Every other attribute is written with
+ * Java serialization.
+ *
+ * Contexts written before the enabled flag was stored are read back as enabled.
+ */
+public final class SessionAttributeCodec {
+
+    private static final byte COMPACT_SECURITY_CONTEXT_WITHOUT_ENABLED = 1;
+    private static final byte SERIALIZED = 2;
+    private static final byte COMPACT_SECURITY_CONTEXT = 3;
+
+    private SessionAttributeCodec() {}
+
+    public static byte[] encode(Map<String, Object> attributes) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(attributes.size());
+            for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+                out.writeUTF(attribute.getKey());
+                UserSnapshot principal = compactPrincipal(attribute.getValue());
+                if (principal != null) {
+                    out.writeByte(COMPACT_SECURITY_CONTEXT);
+                    out.writeLong(principal.getUserId() == null ? -1 : principal.getUserId());
+                    out.writeUTF(principal.getUsername());
+                    out.writeBoolean(principal.isEnabled());
+                    out.writeShort(principal.getAuthorities().size());
+                    for (GrantedAuthority authority : principal.getAuthorities()) {
+                        out.writeUTF(authority.getAuthority());
+                    }
+                } else {
+                    ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+                    try (ObjectOutputStream objectOut = new ObjectOutputStream(serialized)) {
+                        objectOut.writeObject(attribute.getValue());
+                    }
+                    out.writeByte(SERIALIZED);
+                    out.writeInt(serialized.size());
+                    serialized.writeTo(out);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Writing the session attributes failed", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Map<String, Object> decode(byte[] encoded) {
+        Map<String, Object> attributes = new HashMap<>();
+        if (encoded == null || encoded.length == 0) {
+            return attributes;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                byte kind = in.readByte();
+                if (kind == COMPACT_SECURITY_CONTEXT || kind == COMPACT_SECURITY_CONTEXT_WITHOUT_ENABLED) {
+                    long userId = in.readLong();
+                    String username = in.readUTF();
+                    boolean enabled = kind == COMPACT_SECURITY_CONTEXT_WITHOUT_ENABLED || in.readBoolean();
+                    int authorityCount = in.readShort();
+                    List<GrantedAuthority> authorities = new ArrayList<>(authorityCount);
+                    for (int j = 0; j < authorityCount; j++) {
+                        authorities.add(Authority.of(in.readUTF()));
+                    }
+                    UserSnapshot principal = UserSnapshot.principal(userId < 0 ? null : userId, username, enabled, authorities);
+                    attributes.put(name, new SecurityContextImpl(
+                            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities())));
+                } else {
+                    byte[] serialized = new byte[in.readInt()];
+                    in.readFully(serialized);
+                    try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+                        attributes.put(name, objectIn.readObject());
+                    }
+                }
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Reading the session attributes failed", e);
+        }
+        return attributes;
+    }
+
+    // The username the session belongs to, null before the login
+    public static String principalName(Map<String, Object> attributes) {
+        for (Object value : attributes.values()) {
+            if (value instanceof SecurityContext && ((SecurityContext) value).getAuthentication() != null) {
+                return ((SecurityContext) value).getAuthentication().getName();
+            }
+        }
+        return null;
+    }
+
+    // The principal of a security context of a form login, null for anything else (remember me, anonymous)
+    private static UserSnapshot compactPrincipal(Object value) {
+        if (!(value instanceof SecurityContext)) {
+            return null;
+        }
+        Authentication authentication = ((SecurityContext) value).getAuthentication();
+        if (authentication instanceof UsernamePasswordAuthenticationToken && authentication.isAuthenticated()
+                && authentication.getPrincipal() instanceof UserSnapshot) {
+            return (UserSnapshot) authentication.getPrincipal();
+        }
+        return null;
+    }
+}
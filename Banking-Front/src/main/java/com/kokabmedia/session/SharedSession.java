@@ -0,0 +1,169 @@
+package com.kokabmedia.session;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.session.Session;
+
+/*
+ * A session of the SharedSessionRepository. Every request gets its own instance, made
+ * from the stored state of the session, and the instance remembers what the request
+ * changed so the repository only writes that.
+ *
+ * Like the session modules of Spring, a change is only noticed when an attribute is set
+ * or removed, an attribute object that is changed in place has to be set again.
+ */
+public final class SharedSession implements Session {
+
+    private String id;
+    private String originalId;
+    private final Instant creationTime;
+    private Instant lastAccessedTime;
+    private Duration maxInactiveInterval;
+    private final Map<String, Object> attributes;
+
+    private boolean isNew;
+    private boolean attributesChanged;
+    private boolean maxInactiveIntervalChanged;
+
+    // The last access time in the database, the repository writes a newer one only now and then
+    private Instant storedLastAccessedTime;
+
+    // A new session that is not stored yet
+    SharedSession(Duration maxInactiveInterval) {
+        this.id = UUID.randomUUID().toString();
+        this.originalId = id;
+        this.creationTime = Instant.now();
+        this.lastAccessedTime = creationTime;
+        this.storedLastAccessedTime = creationTime;
+        this.maxInactiveInterval = maxInactiveInterval;
+        this.attributes = new HashMap<>();
+        this.isNew = true;
+    }
+
+    // A stored session
+    SharedSession(String id, Instant creationTime, Instant lastAccessedTime, Duration maxInactiveInterval,
+            Map<String, Object> attributes) {
+        this.id = id;
+        this.originalId = id;
+        this.creationTime = creationTime;
+        this.lastAccessedTime = lastAccessedTime;
+        this.storedLastAccessedTime = lastAccessedTime;
+        this.maxInactiveInterval = maxInactiveInterval;
+        this.attributes = attributes;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String changeSessionId() {
+        id = UUID.randomUUID().toString();
+        return id;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getAttribute(String attributeName) {
+        return (T) attributes.get(attributeName);
+    }
+
+    @Override
+    public Set<String> getAttributeNames() {
+        return new HashSet<>(attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String attributeName, Object attributeValue) {
+        if (attributeValue == null) {
+            removeAttribute(attributeName);
+            return;
+        }
+        attributes.put(attributeName, attributeValue);
+        attributesChanged = true;
+    }
+
+    @Override
+    public void removeAttribute(String attributeName) {
+        if (attributes.remove(attributeName) != null) {
+            attributesChanged = true;
+        }
+    }
+
+    @Override
+    public Instant getCreationTime() {
+        return creationTime;
+    }
+
+    @Override
+    public void setLastAccessedTime(Instant lastAccessedTime) {
+        this.lastAccessedTime = lastAccessedTime;
+    }
+
+    @Override
+    public Instant getLastAccessedTime() {
+        return lastAccessedTime;
+    }
+
+    @Override
+    public void setMaxInactiveInterval(Duration interval) {
+        if (!interval.equals(maxInactiveInterval)) {
+            maxInactiveInterval = interval;
+            maxInactiveIntervalChanged = true;
+        }
+    }
+
+    @Override
+    public Duration getMaxInactiveInterval() {
+        return maxInactiveInterval;
+    }
+
+    @Override
+    public boolean isExpired() {
+        return isExpired(Instant.now());
+    }
+
+    boolean isExpired(Instant now) {
+        return !maxInactiveInterval.isNegative() && now.minus(maxInactiveInterval).isAfter(lastAccessedTime);
+    }
+
+    String getOriginalId() {
+        return originalId;
+    }
+
+    boolean isNew() {
+        return isNew;
+    }
+
+    boolean isAttributesChanged() {
+        return attributesChanged;
+    }
+
+    boolean isMaxInactiveIntervalChanged() {
+        return maxInactiveIntervalChanged;
+    }
+
+    Instant getStoredLastAccessedTime() {
+        return storedLastAccessedTime;
+    }
+
+    Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    // Called by the repository once the session was written
+    void saved(Instant storedLastAccessedTime) {
+        this.originalId = id;
+        this.isNew = false;
+        this.attributesChanged = false;
+        this.maxInactiveIntervalChanged = false;
+        this.storedLastAccessedTime = storedLastAccessedTime;
+    }
+}
@@ -0,0 +1,295 @@
+package com.kokabmedia.session;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.SessionRepository;
+
+import com.kokabmedia.cache.BoundedCache;
+
+/*
+ * Keeps the HTTP sessions in the banking_session table of the database every web node
+ * uses, so a request can be served by any node and nodes can be added or restarted
+ * without logging the customers out.
+ *
+ * To keep the database out of most requests:
+ *
+ * - A session is written at the end of the request and only when something changed. The
+ *   attributes are written when one was set or removed, a request that only reads the
+ *   session moves the stored last access time at most once per touch interval, which
+ *   makes a session expire at most that much early.
+ *
+ * - The stored state of the sessions read or written by this node is cached for a short
+ *   time, a page and the requests for its scripts and styles read the session once. A
+ *   change made on another node, a logout for example, is seen here once the entry expires.
+ *
+ * - Expired sessions are deleted by a scheduled job in batches, so the delete never locks
+ *   a large part of the table.
+ */
+public class SharedSessionRepository implements SessionRepository<SharedSession> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedSessionRepository.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration defaultMaxInactiveInterval;
+    private final Duration touchInterval;
+    private final int cleanupBatchSize;
+
+    // Null when the local cache is turned off
+    private final BoundedCache<String, StoredSession> cache;
+
+    private final AtomicLong attributeWrites = new AtomicLong();
+    private final AtomicLong touchWrites = new AtomicLong();
+    private final AtomicLong skippedWrites = new AtomicLong();
+    private final AtomicLong expiredDeletes = new AtomicLong();
+
+    public SharedSessionRepository(JdbcTemplate jdbcTemplate, Duration defaultMaxInactiveInterval, Duration touchInterval,
+            int cacheSize, Duration cacheTtl, int cleanupBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.defaultMaxInactiveInterval = defaultMaxInactiveInterval;
+        this.touchInterval = touchInterval;
+        this.cleanupBatchSize = cleanupBatchSize;
+        this.cache = cacheTtl.isZero() ? null : BoundedCache.expireAfterWrite(cacheSize, cacheTtl.toMillis());
+    }
+
+    /*
+     * Creates the session table and its indexes when they do not exist. The principal name
+     * is as long as a username. The indexes are created with separate statements, which
+     * every database understands, after looking them up in the database metadata.
+     */
+    public void createTable() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS banking_session ("
+                + "session_id VARCHAR(64) NOT NULL PRIMARY KEY, "
+                + "principal_name VARCHAR(255), "
+                + "creation_time BIGINT NOT NULL, "
+                + "last_access_time BIGINT NOT NULL, "
+                + "max_inactive_seconds INT NOT NULL, "
+                + "expiry_time BIGINT NOT NULL, "
+                + "attributes BLOB)");
+
+        Set<String> indexes = jdbcTemplate.execute((ConnectionCallback<Set<String>>) connection -> {
+            Set<String> names = new HashSet<>();
+            DatabaseMetaData metaData = connection.getMetaData();
+            String table = metaData.storesUpperCaseIdentifiers() ? "BANKING_SESSION" : "banking_session";
+            try (ResultSet resultSet = metaData.getIndexInfo(connection.getCatalog(), null, table, false, false)) {
+                while (resultSet.next()) {
+                    String name = resultSet.getString("INDEX_NAME");
+                    if (name != null) {
+                        names.add(name.toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+            return names;
+        });
+        if (!indexes.contains("idx_banking_session_expiry")) {
+            jdbcTemplate.execute("CREATE INDEX idx_banking_session_expiry ON banking_session (expiry_time)");
+        }
+        if (!indexes.contains("idx_banking_session_principal")) {
+            jdbcTemplate.execute("CREATE INDEX idx_banking_session_principal ON banking_session (principal_name)");
+        }
+    }
+
+    @Override
+    public SharedSession createSession() {
+        return new SharedSession(defaultMaxInactiveInterval);
+    }
+
+    @Override
+    public void save(SharedSession session) {
+        String id = session.getId();
+        Instant lastAccessedTime = session.getLastAccessedTime();
+        byte[] attributes = null;
+
+        if (session.isNew()) {
+            attributes = SessionAttributeCodec.encode(session.getAttributes());
+            jdbcTemplate.update("INSERT INTO banking_session (session_id, principal_name, creation_time, last_access_time, "
+                    + "max_inactive_seconds, expiry_time, attributes) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                    id, SessionAttributeCodec.principalName(session.getAttributes()), session.getCreationTime().toEpochMilli(),
+                    lastAccessedTime.toEpochMilli(), (int) session.getMaxInactiveInterval().getSeconds(),
+                    expiryTime(lastAccessedTime, session.getMaxInactiveInterval()), attributes);
+            attributeWrites.incrementAndGet();
+        } else {
+            if (!id.equals(session.getOriginalId())) {
+                // The id is changed at login against session fixation
+                jdbcTemplate.update("UPDATE banking_session SET session_id = ? WHERE session_id = ?", id, session.getOriginalId());
+                invalidate(session.getOriginalId());
+            }
+            if (session.isAttributesChanged()) {
+                attributes = SessionAttributeCodec.encode(session.getAttributes());
+                jdbcTemplate.update("UPDATE banking_session SET principal_name = ?, last_access_time = ?, max_inactive_seconds = ?, "
+                        + "expiry_time = ?, attributes = ? WHERE session_id = ?",
+                        SessionAttributeCodec.principalName(session.getAttributes()), lastAccessedTime.toEpochMilli(),
+                        (int) session.getMaxInactiveInterval().getSeconds(),
+                        expiryTime(lastAccessedTime, session.getMaxInactiveInterval()), attributes, id);
+                attributeWrites.incrementAndGet();
+            } else if (session.isMaxInactiveIntervalChanged()
+                    || !lastAccessedTime.isBefore(session.getStoredLastAccessedTime().plus(touchInterval))) {
+                jdbcTemplate.update("UPDATE banking_session SET last_access_time = ?, max_inactive_seconds = ?, expiry_time = ? "
+                        + "WHERE session_id = ?", lastAccessedTime.toEpochMilli(), (int) session.getMaxInactiveInterval().getSeconds(),
+                        expiryTime(lastAccessedTime, session.getMaxInactiveInterval()), id);
+                touchWrites.incrementAndGet();
+            } else {
+                // Nothing the other nodes need to know, the stored last access time is recent enough
+                skippedWrites.incrementAndGet();
+                lastAccessedTime = session.getStoredLastAccessedTime();
+            }
+        }
+
+        session.saved(lastAccessedTime);
+        if (cache != null) {
+            if (attributes == null) {
+                StoredSession cached = cache.get(id);
+                attributes = cached != null ? cached.attributes : SessionAttributeCodec.encode(session.getAttributes());
+            }
+            cache.put(id, new StoredSession(id, session.getCreationTime(), lastAccessedTime, session.getMaxInactiveInterval(), attributes));
+        }
+    }
+
+    @Override
+    public SharedSession findById(String id) {
+        StoredSession stored = cache != null ? cache.get(id) : null;
+        if (stored == null) {
+            List<StoredSession> rows = jdbcTemplate.query("SELECT session_id, creation_time, last_access_time, max_inactive_seconds, "
+                    + "attributes FROM banking_session WHERE session_id = ?",
+                    (resultSet, rowNum) -> new StoredSession(resultSet.getString("session_id"),
+                            Instant.ofEpochMilli(resultSet.getLong("creation_time")),
+                            Instant.ofEpochMilli(resultSet.getLong("last_access_time")),
+                            Duration.ofSeconds(resultSet.getInt("max_inactive_seconds")),
+                            resultSet.getBytes("attributes")), id);
+            if (rows.isEmpty()) {
+                return null;
+            }
+            stored = rows.get(0);
+            if (cache != null) {
+                cache.put(id, stored);
+            }
+        }
+
+        // Every request gets its own copy of the attributes
+        SharedSession session = new SharedSession(stored.id, stored.creationTime, stored.lastAccessedTime,
+                stored.maxInactiveInterval, SessionAttributeCodec.decode(stored.attributes));
+        if (session.isExpired()) {
+            deleteById(id);
+            return null;
+        }
+        return session;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        jdbcTemplate.update("DELETE FROM banking_session WHERE session_id = ?", id);
+        invalidate(id);
+    }
+
+    /*
+     * Deletes the sessions of the users, a disabled user is logged out on every node. Other
+     * nodes may still serve a session from their cache until the entry expires.
+     */
+    public int deleteByPrincipalNames(Collection<String> principalNames) {
+        if (principalNames.isEmpty()) {
+            return 0;
+        }
+        NamedParameterJdbcTemplate namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        MapSqlParameterSource names = new MapSqlParameterSource("names", principalNames);
+        List<String> ids = namedParameterJdbcTemplate.queryForList(
+                "SELECT session_id FROM banking_session WHERE principal_name IN (:names)", names, String.class);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int deleted = namedParameterJdbcTemplate.update("DELETE FROM banking_session WHERE session_id IN (:ids)",
+                new MapSqlParameterSource("ids", ids));
+        ids.forEach(this::invalidate);
+        return deleted;
+    }
+
+    @Scheduled(fixedDelayString = "${banking.session.cleanup-interval-ms:60000}")
+    public void deleteExpiredSessions() {
+        long now = System.currentTimeMillis();
+        int total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM banking_session WHERE expiry_time < ? LIMIT ?", now, cleanupBatchSize);
+            total += deleted;
+        } while (deleted == cleanupBatchSize);
+
+        if (total > 0) {
+            expiredDeletes.addAndGet(total);
+            LOG.debug("Deleted {} expired sessions", total);
+        }
+        if (cache != null) {
+            cache.evictExpired();
+        }
+    }
+
+    public int getCachedSessionCount() {
+        return cache != null ? cache.size() : 0;
+    }
+
+    public long getCacheHitCount() {
+        return cache != null ? cache.hitCount() : 0;
+    }
+
+    public long getCacheMissCount() {
+        return cache != null ? cache.missCount() : 0;
+    }
+
+    public long getAttributeWriteCount() {
+        return attributeWrites.get();
+    }
+
+    public long getTouchWriteCount() {
+        return touchWrites.get();
+    }
+
+    public long getSkippedWriteCount() {
+        return skippedWrites.get();
+    }
+
+    public long getExpiredDeleteCount() {
+        return expiredDeletes.get();
+    }
+
+    private void invalidate(String id) {
+        if (cache != null) {
+            cache.invalidate(id);
+        }
+    }
+
+    private static long expiryTime(Instant lastAccessedTime, Duration maxInactiveInterval) {
+        return maxInactiveInterval.isNegative() ? Long.MAX_VALUE : lastAccessedTime.plus(maxInactiveInterval).toEpochMilli();
+    }
+
+    // The state of a session as it is stored, the attributes stay encoded so every copy made from it is a new one
+    private static final class StoredSession {
+
+        private final String id;
+        private final Instant creationTime;
+        private final Instant lastAccessedTime;
+        private final Duration maxInactiveInterval;
+        private final byte[] attributes;
+
+        private StoredSession(String id, Instant creationTime, Instant lastAccessedTime, Duration maxInactiveInterval,
+                byte[] attributes) {
+            this.id = id;
+            this.creationTime = creationTime;
+            this.lastAccessedTime = lastAccessedTime;
+            this.maxInactiveInterval = maxInactiveInterval;
+            this.attributes = attributes;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.kokabmedia.statement;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.text.SimpleDateFormat;
+import java.util.Iterator;
+
+import com.kokabmedia.domain.Ledger;
+import com.kokabmedia.domain.LedgerRow;
+import com.kokabmedia.domain.MonthlyStatement;
+
+/*
+ * Writes the statement document of one account and month as a standalone HTML page: the
+ * totals of the MonthlyStatement rollup followed by one table row per transaction. The
+ * transactions are written as they are read from the iterator, so a month with many
+ * transactions is never held in memory as a whole.
+ */
+public final class StatementDocumentRenderer {
+
+    private StatementDocumentRenderer() {}
+
+    // Returns the number of transactions that were written
+    public static long render(MonthlyStatement statement, Iterator<? extends LedgerRow> rows, Writer out) throws IOException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        String title = "Statement " + statement.getAccountType() + " account " + statement.getStatementMonth();
+
+        out.write("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\"/>\n<title>");
+        out.write(escape(title));
+        out.write("</title>\n<style>body{font-family:sans-serif}table{border-collapse:collapse}"
+                + "td,th{border:1px solid #ccc;padding:4px 8px}td.amount{text-align:right}</style>\n</head>\n<body>\n<h1>");
+        out.write(escape(title));
+        out.write("</h1>\n<table>\n");
+        totalRow(out, "Opening balance", statement.getOpeningBalance());
+        totalRow(out, "Total credits", statement.getTotalCredits());
+        totalRow(out, "Total debits", statement.getTotalDebits());
+        totalRow(out, "Closing balance", statement.getClosingBalance());
+        out.write("</table>\n<h2>Transactions</h2>\n<table>\n<tr><th>Date</th><th>Description</th><th>Type</th>"
+                + "<th>Status</th><th>Amount</th><th>Available Balance</th></tr>\n");
+
+        long count = 0;
+        while (rows.hasNext()) {
+            LedgerRow row = rows.next();
+            out.write("<tr><td>");
+            out.write(dateFormat.format(row.getDate()));
+            out.write("</td><td>");
+            out.write(escape(row.getDescription()));
+            out.write("</td><td>");
+            out.write(escape(row.getType()));
+            out.write("</td><td>");
+            out.write(escape(row.getStatus()));
+            out.write("</td><td class=\"amount\">");
+            out.write(Ledger.signedAmount(row.getDescription(), row.getAmount()).toPlainString());
+            out.write("</td><td class=\"amount\">");
+            // Rows written before the balance column existed have no balance
+            out.write(row.getAvailableBalance() == null ? "" : row.getAvailableBalance().toPlainString());
+            out.write("</td></tr>\n");
+            count++;
+        }
+
+        out.write("</table>\n<p>");
+        out.write(Long.toString(count));
+        out.write(" transactions</p>\n</body>\n</html>\n");
+
+        return count;
+    }
+
+    private static void totalRow(Writer out, String label, BigDecimal amount) throws IOException {
+        out.write("<tr><th>");
+        out.write(label);
+        out.write("</th><td class=\"amount\">");
+        out.write(amount.toPlainString());
+        out.write("</td></tr>\n");
+    }
+
+    static String escape(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<': escaped.append("&lt;"); break;
+                case '>': escaped.append("&gt;"); break;
+                case '&': escaped.append("&amp;"); break;
+                case '"': escaped.append("&quot;"); break;
+                case '\'': escaped.append("&#39;"); break;
+                default: escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
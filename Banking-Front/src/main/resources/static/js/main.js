@@ -39,7 +39,90 @@
         });
     };
 
+    /*
+     * Draws the closing balance of an account over the last year as a SVG line, the
+     * points are already downsampled by /account/balanceHistory.
+     */
+    $.balanceChart = function (options) {
+        var settings = $.extend({
+            container: "#balanceChart",
+            accountType: "Primary",
+            width: 1100,
+            height: 220,
+            points: 200
+        }, options);
+
+        var to = new Date();
+        var from = new Date(to.getFullYear() - 1, to.getMonth(), to.getDate());
+        var isoDay = function (date) {
+            return date.getFullYear() + '-' + ('0' + (date.getMonth() + 1)).slice(-2) + '-' + ('0' + date.getDate()).slice(-2);
+        };
+
+        $.getJSON('/account/balanceHistory', {
+            accountType: settings.accountType,
+            from: isoDay(from),
+            to: isoDay(to),
+            points: settings.points
+        }, function (series) {
+            if (series.length < 2) {
+                return;
+            }
+            var times = series.map(function (point) { return new Date(point.day).getTime(); });
+            var balances = series.map(function (point) { return point.balance; });
+            var minTime = Math.min.apply(null, times), maxTime = Math.max.apply(null, times);
+            var minBalance = Math.min.apply(null, balances), maxBalance = Math.max.apply(null, balances);
+            var spanTime = (maxTime - minTime) || 1, spanBalance = (maxBalance - minBalance) || 1;
+
+            var line = series.map(function (point, i) {
+                var x = (times[i] - minTime) / spanTime * settings.width;
+                var y = settings.height - (balances[i] - minBalance) / spanBalance * settings.height;
+                return x.toFixed(1) + ',' + y.toFixed(1);
+            }).join(' ');
+
+            $(settings.container).html(
+                '<svg viewBox="0 -5 ' + settings.width + ' ' + (settings.height + 10) + '" width="100%" height="' + settings.height + '">' +
+                '<polyline fill="none" stroke="#31708f" stroke-width="2" points="' + line + '"/></svg>');
+        });
+    };
 
+    /*
+     * Fills the datalist of a recipient name field with the names that
+     * /transfer/recipient/suggest completes the typed text to, the page starts with all
+     * recipients in the list so the field also works without it.
+     */
+    $.recipientSuggest = function (options) {
+        var settings = $.extend({
+            field: "#recipientName",
+            list: "#recipientSuggestions",
+            limit: 10,
+            delay: 100
+        }, options);
+
+        var field = $(settings.field);
+        var list = $(settings.list);
+        var timer = null;
+        var lastQuery = null;
+
+        field.on('input', function () {
+            clearTimeout(timer);
+            timer = setTimeout(function () {
+                var query = field.val();
+                if (query === lastQuery) {
+                    return;
+                }
+                lastQuery = query;
+                $.getJSON('/transfer/recipient/suggest', {q: query, limit: settings.limit}, function (names) {
+                    if (query !== lastQuery) {
+                        return;
+                    }
+                    list.empty();
+                    $.each(names, function (i, name) {
+                        list.append($('<option>').attr('value', name));
+                    });
+                });
+            }, settings.delay);
+        });
+    };
 
 }(jQuery));
 
@@ -0,0 +1,109 @@
+package com.kokabmedia.banking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.kokabmedia.archive.ArchiveSegment;
+import com.kokabmedia.archive.ArchiveSegmentWriter;
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.LedgerEntry;
+
+/*
+ * Unit tests of the archive segment files, a segment is written with the
+ * ArchiveSegmentWriter and read back with the ArchiveSegment.
+ */
+class ArchiveSegmentTests {
+
+	private Path file;
+
+	@BeforeEach
+	void createFile() throws IOException {
+		file = Files.createTempFile("archive", ".seg");
+	}
+
+	@AfterEach
+	void deleteFile() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	void readsBackTheRowsOfAnAccountAndDateRange() throws IOException {
+		write(entry(1L, 1, 1000), entry(1L, 2, 2000), entry(1L, 3, 3000), entry(1L, 4, 4000), entry(2L, 5, 1500));
+
+		try (ArchiveSegment segment = ArchiveSegment.open(file)) {
+			assertEquals(AccountType.SAVINGS, segment.getAccountType());
+			assertEquals(5, segment.getRowCount());
+			// Blocks of two rows of one account: [1, 2], [3, 4], [5]
+			assertEquals(3, segment.getBlockCount());
+			assertEquals(0, segment.verifyBlocks());
+
+			assertEquals(List.of(2L, 3L), ids(segment.read(1L, new Date(2000), new Date(4000))));
+			assertEquals(List.of(5L), ids(segment.read(2L, new Date(0), new Date(10000))));
+			assertEquals(List.of(3L, 4L), ids(segment.readBlock(1)));
+		}
+	}
+
+	@Test
+	void keepsTheRowValues() throws IOException {
+		write(entry(1L, 1, 1000));
+
+		try (ArchiveSegment segment = ArchiveSegment.open(file)) {
+			LedgerEntry entry = segment.readBlock(0).get(0);
+			assertEquals(Long.valueOf(1), entry.getAccountId());
+			assertEquals(1000, entry.getTime());
+			assertEquals("Deposit", entry.getDescription());
+			assertEquals("Account", entry.getType());
+			assertEquals("Finished", entry.getStatus());
+			assertEquals(12.5, entry.getAmount(), 0);
+			assertEquals(0, new BigDecimal("112.50").compareTo(entry.getAvailableBalance()));
+		}
+	}
+
+	@Test
+	void findsTheLastRowBeforeAMoment() throws IOException {
+		write(entry(1L, 1, 1000), entry(1L, 2, 2000), entry(1L, 3, 3000));
+
+		try (ArchiveSegment segment = ArchiveSegment.open(file)) {
+			assertEquals(Long.valueOf(2), segment.lastBefore(1L, new Date(3000)).getId());
+			assertNull(segment.lastBefore(1L, new Date(1000)));
+		}
+	}
+
+	@Test
+	void rejectsUnsortedRows() throws IOException {
+		try (ArchiveSegmentWriter writer = new ArchiveSegmentWriter(file, AccountType.SAVINGS, 2)) {
+			writer.append(entry(1L, 2, 2000));
+			assertThrows(IllegalArgumentException.class, () -> writer.append(entry(1L, 1, 1000)));
+		}
+	}
+
+	private void write(LedgerEntry... entries) throws IOException {
+		try (ArchiveSegmentWriter writer = new ArchiveSegmentWriter(file, AccountType.SAVINGS, 2)) {
+			for (LedgerEntry entry : entries) {
+				writer.append(entry);
+			}
+		}
+	}
+
+	private static LedgerEntry entry(Long accountId, long id, long time) {
+		return new LedgerEntry(AccountType.SAVINGS, accountId, id, new Date(time), "Deposit", "Account", "Finished", 12.5,
+				new BigDecimal("112.50"));
+	}
+
+	private static List<Long> ids(List<LedgerEntry> entries) {
+		return entries.stream().map(LedgerEntry::getId).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,100 @@
+package com.kokabmedia.banking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.kokabmedia.cache.BoundedCache;
+
+/*
+ * Unit tests of the BoundedCache, the size bounded cache behind the per user and per
+ * account caches.
+ */
+class BoundedCacheTests {
+
+	@Test
+	void evictsTheLeastRecentlyUsedEntry() {
+		BoundedCache<String, String> cache = BoundedCache.lru(2);
+		cache.put("a", "1");
+		cache.put("b", "2");
+		cache.get("a");
+		cache.put("c", "3");
+
+		assertEquals("1", cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals("3", cache.get("c"));
+		assertEquals(1, cache.evictionCount());
+	}
+
+	@Test
+	void expiresEntriesAfterTheTimeToLive() throws InterruptedException {
+		BoundedCache<String, String> cache = BoundedCache.expireAfterWrite(10, 20);
+		cache.put("a", "1");
+		Thread.sleep(40);
+
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void evictsTheExpiredEntries() throws InterruptedException {
+		BoundedCache<String, String> cache = BoundedCache.expireAfterWrite(10, 20);
+		cache.put("a", "1");
+		cache.put("b", "2");
+		Thread.sleep(40);
+
+		assertEquals(2, cache.evictExpired());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void loadsAMissingValueOnce() {
+		BoundedCache<String, String> cache = BoundedCache.lru(10);
+		AtomicInteger loads = new AtomicInteger();
+
+		assertEquals("value 0", cache.getOrLoad("a", key -> "value " + loads.getAndIncrement()));
+		assertEquals("value 0", cache.getOrLoad("a", key -> "value " + loads.getAndIncrement()));
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.hitCount());
+		assertEquals(1, cache.missCount());
+	}
+
+	@Test
+	void keepsTheCachedValueOnPutIfAbsent() {
+		BoundedCache<String, String> cache = BoundedCache.lru(10);
+
+		assertNull(cache.putIfAbsent("a", "1"));
+		assertEquals("1", cache.putIfAbsent("a", "2"));
+		assertEquals("1", cache.get("a"));
+	}
+
+	@Test
+	void invalidatesOnlyTheSameValue() {
+		BoundedCache<String, String> cache = BoundedCache.lru(10);
+		// An equal value that was loaded before is not the cached value
+		String stale = new String("new");
+		cache.put("a", "new");
+
+		cache.invalidate("a", stale);
+		assertEquals("new", cache.get("a"));
+
+		cache.invalidate("a", cache.get("a"));
+		assertNull(cache.get("a"));
+	}
+
+	@Test
+	void invalidatesTheMatchingKeys() {
+		BoundedCache<String, String> cache = BoundedCache.lru(10);
+		cache.put("a1", "1");
+		cache.put("a2", "2");
+		cache.put("b1", "3");
+
+		cache.invalidateIf(key -> key.startsWith("a"));
+
+		assertEquals(1, cache.size());
+		assertEquals("3", cache.get("b1"));
+	}
+}
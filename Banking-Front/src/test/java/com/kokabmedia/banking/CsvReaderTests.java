@@ -0,0 +1,62 @@
+package com.kokabmedia.banking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.kokabmedia.importer.CsvReader;
+
+/*
+ * Unit tests of the CsvReader, the record by record reader of the user import files.
+ */
+class CsvReaderTests {
+
+	@Test
+	void readsPlainAndEmptyFields() throws IOException {
+		CsvReader reader = reader("a,b,c\n,,x\n");
+
+		assertEquals(List.of("a", "b", "c"), reader.readRecord());
+		assertEquals(List.of("", "", "x"), reader.readRecord());
+		assertNull(reader.readRecord());
+	}
+
+	@Test
+	void readsQuotedCommasNewlinesAndQuotes() throws IOException {
+		CsvReader reader = reader("\"Smith, Alice\",\"first line\nsecond line\",\"say \"\"hi\"\"\"\nnext\n");
+
+		assertEquals(List.of("Smith, Alice", "first line\nsecond line", "say \"hi\""), reader.readRecord());
+		assertEquals(List.of("next"), reader.readRecord());
+	}
+
+	@Test
+	void reportsTheLineARecordStartsOn() throws IOException {
+		CsvReader reader = reader("header\r\n\"two\r\nlines\",x\r\n\r\nlast");
+
+		reader.readRecord();
+		assertEquals(1, reader.getRecordLine());
+		assertEquals(List.of("two\r\nlines", "x"), reader.readRecord());
+		assertEquals(2, reader.getRecordLine());
+		// The empty line is skipped, the record without a line break at the end is read
+		assertEquals(List.of("last"), reader.readRecord());
+		assertEquals(5, reader.getRecordLine());
+		assertNull(reader.readRecord());
+	}
+
+	@Test
+	void rejectsAnUnterminatedQuote() throws IOException {
+		CsvReader reader = reader("ok\n\"never closed,x\n");
+
+		reader.readRecord();
+		assertThrows(IOException.class, reader::readRecord);
+	}
+
+	private static CsvReader reader(String csv) {
+		return new CsvReader(new StringReader(csv));
+	}
+}
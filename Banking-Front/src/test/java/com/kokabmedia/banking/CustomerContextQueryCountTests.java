@@ -0,0 +1,154 @@
+package com.kokabmedia.banking;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestBuilders.formLogin;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.response.SecurityMockMvcResultMatchers.authenticated;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import com.kokabmedia.dao.RoleDao;
+import com.kokabmedia.domain.User;
+import com.kokabmedia.security.Role;
+import com.kokabmedia.security.UserRole;
+import com.kokabmedia.security.UserSnapshot;
+import com.kokabmedia.service.UserService;
+
+/*
+ * Checks that a request of a logged in customer reads the user row at most once, the
+ * controllers get the user and account ids from the request scoped CustomerContext and
+ * the services load the accounts by id. Besides the mock principal of Spring Security
+ * the requests are also made in the session of a real form login, whose principal is the
+ * UserSnapshot that CustomerContext takes the user id from.
+ *
+ * The tests are manual only, they need a local MySQL database and are skipped in a normal
+ * build. They run when the URL of the database is given, for example
+ *
+ * mvn test -Dbanking.test.mysql.url=jdbc:mysql://localhost:3306/OnlineBanking
+ *          -Dbanking.test.mysql.user=root -Dbanking.test.mysql.password=password
+ *          -Dtest=CustomerContextQueryCountTests
+ */
+@EnabledIfSystemProperty(named = "banking.test.mysql.url", matches = ".+")
+@SpringBootTest(properties = {
+		"spring.datasource.url=${banking.test.mysql.url}",
+		"spring.datasource.username=${banking.test.mysql.user:root}",
+		"spring.datasource.password=${banking.test.mysql.password:}",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=com.kokabmedia.banking.SqlStatementRecorder" })
+@AutoConfigureMockMvc
+class CustomerContextQueryCountTests {
+
+	// A select of the user table, not of user_role or of a column that starts with user
+	private static final Pattern USER_SELECT = Pattern.compile("(?is)^\\s*select\\b.*\\bfrom\\s+`?user`?\\s.*");
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private RoleDao roleDao;
+
+	private String username;
+
+	@BeforeEach
+	void createCustomer() {
+		username = "query-count-" + System.nanoTime();
+
+		User customer = new User();
+		customer.setUsername(username);
+		customer.setPassword("password");
+		customer.setFirstName("Query");
+		customer.setLastName("Count");
+		customer.setEmail(username + "@example.com");
+
+		Role role = roleDao.findByName("ROLE_USER");
+		if (role == null) {
+			role = new Role();
+			role.setName("ROLE_USER");
+		}
+		Set<UserRole> userRoles = new HashSet<>();
+		userRoles.add(new UserRole(customer, role));
+		userService.createUser(customer, userRoles);
+	}
+
+	@Test
+	void pagesReadTheUserOnce() throws Exception {
+		assertOneUserSelect(get("/userFront"), status().isOk());
+		assertOneUserSelect(get("/account/primaryAccount"), status().isOk());
+		assertOneUserSelect(get("/account/savingsAccount"), status().isOk());
+		assertOneUserSelect(get("/user/profile"), status().isOk());
+	}
+
+	@Test
+	void moneyMovementsReadTheUserOnce() throws Exception {
+		assertOneUserSelect(post("/account/deposit").param("accountType", "Primary").param("amount", "100"),
+				status().is3xxRedirection());
+		assertOneUserSelect(post("/account/withdraw").param("accountType", "Primary").param("amount", "10"),
+				status().is3xxRedirection());
+		assertOneUserSelect(post("/transfer/betweenAccounts").param("transferFrom", "Primary").param("transferTo", "Savings")
+				.param("amount", "20"), status().is3xxRedirection());
+	}
+
+	@Test
+	void jsonEndpointsReadTheUserOnce() throws Exception {
+		assertOneUserSelect(get("/account/recent").param("accountType", "Primary"), status().isOk());
+		assertOneUserSelect(get("/account/search").param("accountType", "Savings").param("q", "deposit"), status().isOk());
+		assertOneUserSelect(get("/account/spending").param("from", "2021-01-01").param("to", "2021-12-31"),
+				status().isOk());
+	}
+
+	@Test
+	void formLoginSessionReadsTheUserOnce() throws Exception {
+		MockHttpSession session = (MockHttpSession) mockMvc.perform(formLogin("/index").user(username).password("password"))
+				.andExpect(authenticated().withAuthentication(
+						authentication -> assertTrue(authentication.getPrincipal() instanceof UserSnapshot)))
+				.andReturn().getRequest().getSession(false);
+		RequestPostProcessor loggedIn = request -> {
+			request.setSession(session);
+			return request;
+		};
+
+		assertOneUserSelect(get("/userFront"), loggedIn, status().isOk());
+		assertOneUserSelect(get("/account/recent").param("accountType", "Primary"), loggedIn, status().isOk());
+		assertOneUserSelect(get("/account/spending").param("from", "2021-01-01").param("to", "2021-12-31"), loggedIn,
+				status().isOk());
+		assertOneUserSelect(post("/account/deposit").param("accountType", "Primary").param("amount", "100"), loggedIn,
+				status().is3xxRedirection());
+	}
+
+	private void assertOneUserSelect(MockHttpServletRequestBuilder request, ResultMatcher expectedStatus) throws Exception {
+		assertOneUserSelect(request, user(username).roles("USER"), expectedStatus);
+	}
+
+	// The request must also succeed, a request that fails early could read the user less often
+	private void assertOneUserSelect(MockHttpServletRequestBuilder request, RequestPostProcessor principal,
+			ResultMatcher expectedStatus) throws Exception {
+		SqlStatementRecorder.clear();
+		mockMvc.perform(request.with(principal)).andExpect(expectedStatus);
+
+		List<String> userSelects = SqlStatementRecorder.statements().stream()
+				.filter(sql -> USER_SELECT.matcher(sql).matches())
+				.collect(Collectors.toList());
+		assertTrue(userSelects.size() <= 1, "The user was read " + userSelects.size() + " times: " + userSelects);
+	}
+}
@@ -0,0 +1,69 @@
+package com.kokabmedia.banking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.kokabmedia.chart.Downsampler;
+import com.kokabmedia.domain.BalancePoint;
+
+/*
+ * Unit tests of the Downsampler, the Largest Triangle Three Buckets reduction of the
+ * balance history chart.
+ */
+class DownsamplerTests {
+
+	private static final LocalDate FIRST_DAY = LocalDate.of(2021, 1, 1);
+
+	@Test
+	void keepsAShortSeries() {
+		List<BalancePoint> series = series(10);
+
+		assertEquals(10, Downsampler.lttb(series, 10).size());
+		assertEquals(10, Downsampler.lttb(series, 100).size());
+	}
+
+	@Test
+	void keepsTheEndPointsWhenFewerThanThreePointsAreAsked() {
+		List<BalancePoint> series = series(10);
+		List<BalancePoint> sampled = Downsampler.lttb(series, 2);
+
+		assertEquals(2, sampled.size());
+		assertSame(series.get(0), sampled.get(0));
+		assertSame(series.get(9), sampled.get(1));
+	}
+
+	@Test
+	void keepsTheEndPointsAndThePeaks() {
+		List<BalancePoint> series = series(1000);
+		series.set(500, new BalancePoint(FIRST_DAY.plusDays(500), new BigDecimal("100000")));
+		series.set(700, new BalancePoint(FIRST_DAY.plusDays(700), new BigDecimal("-100000")));
+
+		List<BalancePoint> sampled = Downsampler.lttb(series, 50);
+
+		assertEquals(50, sampled.size());
+		assertSame(series.get(0), sampled.get(0));
+		assertSame(series.get(999), sampled.get(49));
+		assertTrue(sampled.contains(series.get(500)));
+		assertTrue(sampled.contains(series.get(700)));
+		for (int i = 1; i < sampled.size(); i++) {
+			assertTrue(sampled.get(i - 1).getDay().isBefore(sampled.get(i).getDay()));
+		}
+	}
+
+	// A balance that moves up and down a little every day
+	private static List<BalancePoint> series(int days) {
+		List<BalancePoint> series = new ArrayList<>();
+		for (int i = 0; i < days; i++) {
+			series.add(new BalancePoint(FIRST_DAY.plusDays(i), BigDecimal.valueOf(1000 + (i % 7) * 10)));
+		}
+		return series;
+	}
+}
@@ -0,0 +1,87 @@
+package com.kokabmedia.banking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.LedgerEntry;
+import com.kokabmedia.search.InvertedIndex;
+
+/*
+ * Unit tests of the InvertedIndex, the in memory index of the transaction search.
+ */
+class InvertedIndexTests {
+
+	@Test
+	void matchesEveryTermAndTheLastAsAPrefix() {
+		InvertedIndex index = index(
+				entry(1, 1000, "Coffee shop", 4.5),
+				entry(2, 2000, "Coffee beans", 12),
+				entry(3, 3000, "Book shop", 20));
+
+		assertEquals(List.of(1L), ids(index.search("coffee sh", 10)));
+		assertEquals(List.of(2L, 1L), ids(index.search("COFF", 10)));
+		assertTrue(index.search("tea", 10).isEmpty());
+		assertTrue(index.search("  ", 10).isEmpty());
+	}
+
+	@Test
+	void normalizesAmounts() {
+		InvertedIndex index = index(entry(1, 1000, "Lunch", 12.5));
+
+		assertEquals(List.of(1L), ids(index.search("12.50", 10)));
+		assertEquals(List.of(1L), ids(index.search("lunch 12.5", 10)));
+	}
+
+	@Test
+	void returnsTheNewestMatchesFirst() {
+		InvertedIndex index = index(
+				entry(1, 3000, "Rent", 500),
+				entry(2, 1000, "Rent", 500),
+				entry(3, 2000, "Rent", 500));
+
+		assertEquals(List.of(1L, 3L), ids(index.search("rent", 2)));
+	}
+
+	@Test
+	void ignoresATransactionThatIsAlreadyIndexed() {
+		InvertedIndex index = index(entry(1, 1000, "Rent", 500), entry(1, 1000, "Rent", 500));
+
+		assertEquals(1, index.size());
+		assertEquals(List.of(1L), ids(index.search("rent", 10)));
+	}
+
+	@Test
+	void reportsAFailedLoad() {
+		InvertedIndex index = new InvertedIndex();
+		index.markFailed(new IllegalStateException("database down"));
+
+		assertThrows(IllegalStateException.class, index::awaitLoaded);
+	}
+
+	private static InvertedIndex index(LedgerEntry... entries) {
+		InvertedIndex index = new InvertedIndex();
+		for (LedgerEntry entry : entries) {
+			index.add(entry);
+		}
+		index.markLoaded();
+		return index;
+	}
+
+	private static LedgerEntry entry(long id, long time, String description, double amount) {
+		return new LedgerEntry(AccountType.PRIMARY, 1L, id, new Date(time), description, "Account", "Finished", amount,
+				BigDecimal.TEN);
+	}
+
+	private static List<Long> ids(List<LedgerEntry> entries) {
+		return entries.stream().map(LedgerEntry::getId).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,68 @@
+package com.kokabmedia.banking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.kokabmedia.security.LoginThrottle;
+import com.kokabmedia.security.SlidingWindowCounter;
+
+/*
+ * Unit tests of the LoginThrottle and the SlidingWindowCounter it counts the failed logins
+ * with.
+ */
+class LoginThrottleTests {
+
+	private static final long WINDOW = 60000;
+
+	@Test
+	void throttlesAUsernameWithoutCase() {
+		LoginThrottle throttle = new LoginThrottle(1024, WINDOW, 3, 0);
+		for (int i = 0; i < 3; i++) {
+			assertFalse(throttle.isThrottled("Alice", "10.0.0.1"));
+			throttle.recordFailure("Alice", "10.0.0.1");
+		}
+
+		assertTrue(throttle.isThrottled(" alice", "10.0.0.2"));
+		assertFalse(throttle.isThrottled("bob", "10.0.0.1"));
+		assertEquals(3, throttle.getFailureCount());
+		assertEquals(1, throttle.getRejectedCount());
+	}
+
+	@Test
+	void ignoresTheAddressUnlessItsLimitIsSet() {
+		LoginThrottle throttle = new LoginThrottle(1024, WINDOW, 3, 0);
+		for (int i = 0; i < 10; i++) {
+			throttle.recordFailure("user" + i, "10.0.0.1");
+		}
+
+		assertFalse(throttle.isThrottled("someone", "10.0.0.1"));
+		assertEquals(0, throttle.getActiveAddresses());
+	}
+
+	@Test
+	void throttlesAnAddressWhenItsLimitIsSet() {
+		LoginThrottle throttle = new LoginThrottle(1024, WINDOW, 3, 5);
+		for (int i = 0; i < 5; i++) {
+			throttle.recordFailure("user" + i, "10.0.0.1");
+		}
+
+		assertTrue(throttle.isThrottled("someone", "10.0.0.1"));
+		assertFalse(throttle.isThrottled("someone", "10.0.0.2"));
+	}
+
+	@Test
+	void slidesTheCountOutOfTheWindow() {
+		SlidingWindowCounter counter = new SlidingWindowCounter(1024, WINDOW);
+		counter.increment("key", 0);
+		counter.increment("key", 1000);
+
+		assertEquals(2, counter.count("key", 2000), 0);
+		// Half of the previous window still overlaps the sliding window
+		assertEquals(1, counter.count("key", WINDOW + WINDOW / 2), 0);
+		assertEquals(0, counter.count("key", 2 * WINDOW), 0);
+		assertEquals(0, counter.count("other", 2000), 0);
+	}
+}
@@ -0,0 +1,56 @@
+package com.kokabmedia.banking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.kokabmedia.partition.PartitionDdl;
+
+/*
+ * Unit tests of the PartitionDdl, the statements that partition the transaction tables by
+ * month.
+ */
+class PartitionDdlTests {
+
+	@Test
+	void namesPartitionsAfterTheirMonth() {
+		assertEquals("p202110", PartitionDdl.partitionName(YearMonth.of(2021, 10)));
+		assertEquals(YearMonth.of(2021, 10), PartitionDdl.monthOf("p202110"));
+		assertNull(PartitionDdl.monthOf(PartitionDdl.MAX_PARTITION));
+		assertNull(PartitionDdl.monthOf("p2021"));
+		assertNull(PartitionDdl.monthOf(null));
+	}
+
+	@Test
+	void partitionsATableByMonth() {
+		assertEquals("ALTER TABLE primary_transaction DROP PRIMARY KEY, ADD PRIMARY KEY (id, `date`)"
+				+ " PARTITION BY RANGE COLUMNS(`date`) ("
+				+ "PARTITION p202111 VALUES LESS THAN ('2021-12-01'), "
+				+ "PARTITION p202112 VALUES LESS THAN ('2022-01-01'), "
+				+ "PARTITION pmax VALUES LESS THAN (MAXVALUE))",
+				PartitionDdl.partitionTable("primary_transaction", YearMonth.of(2021, 11), YearMonth.of(2021, 12)));
+	}
+
+	@Test
+	void splitsNewMonthsOffTheMaxPartition() {
+		assertEquals("ALTER TABLE savings_transaction REORGANIZE PARTITION pmax INTO ("
+				+ "PARTITION p202201 VALUES LESS THAN ('2022-02-01'), "
+				+ "PARTITION pmax VALUES LESS THAN (MAXVALUE))",
+				PartitionDdl.addPartitions("savings_transaction", List.of(YearMonth.of(2022, 1))));
+	}
+
+	@Test
+	void detachesAPartitionIntoATableOfItsOwn() {
+		String[] statements = PartitionDdl.detachPartition("primary_transaction", YearMonth.of(2020, 3));
+
+		assertEquals(4, statements.length);
+		assertEquals("CREATE TABLE primary_transaction_202003 LIKE primary_transaction", statements[0]);
+		assertEquals("ALTER TABLE primary_transaction EXCHANGE PARTITION p202003 WITH TABLE primary_transaction_202003",
+				statements[2]);
+		assertEquals("ALTER TABLE primary_transaction DROP PARTITION p202003", statements[3]);
+	}
+}
@@ -0,0 +1,125 @@
+package com.kokabmedia.banking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.kokabmedia.security.BoundedPasswordEncoder;
+
+/*
+ * Load test for the BoundedPasswordEncoder. A pool of request threads (like the Tomcat
+ * connector) gets a burst of logins and, at the same time, a steady stream of cheap page
+ * requests. With BCrypt on the request threads the page requests queue behind the logins,
+ * with the bounded encoder the logins that do not fit fail fast and the page requests stay
+ * within the latency objective.
+ *
+ * The test takes several seconds of CPU and only runs when asked for, for example
+ *
+ * mvn test -Dbanking.test.load=true -Dtest=PasswordEncoderLoadTests
+ */
+@EnabledIfSystemProperty(named = "banking.test.load", matches = "true")
+class PasswordEncoderLoadTests {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PasswordEncoderLoadTests.class);
+
+	private static final int REQUEST_THREADS = 40;
+	private static final int LOGINS = 200;
+	private static final int PAGE_REQUESTS = 50;
+
+	// 95th percentile latency of the page requests during the login burst
+	private static final long PAGE_LATENCY_SLO_MILLIS = 500;
+
+	private static final String PASSWORD = "password";
+
+	@Test
+	void pageRequestsKeepTheirLatencyDuringALoginBurst() throws Exception {
+		int cores = Runtime.getRuntime().availableProcessors();
+		BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(10);
+		String hash = bcrypt.encode(PASSWORD);
+
+		BoundedPasswordEncoder bounded = new BoundedPasswordEncoder(bcrypt, cores, cores * 2, 2000);
+		try {
+			AtomicInteger accepted = new AtomicInteger();
+			AtomicInteger rejected = new AtomicInteger();
+			long boundedP95 = p95(runBurst(bounded, hash, accepted, rejected));
+			long unboundedP95 = p95(runBurst(bcrypt, hash, new AtomicInteger(), new AtomicInteger()));
+
+			LOG.info("Page request p95 during a burst of {} logins: {} ms with the bounded encoder ({} logins accepted, "
+					+ "{} rejected), {} ms with BCrypt on the request threads", LOGINS, boundedP95, accepted, rejected, unboundedP95);
+
+			assertTrue(boundedP95 <= PAGE_LATENCY_SLO_MILLIS, "p95 page latency " + boundedP95 + " ms is above the objective");
+			assertTrue(rejected.get() > 0, "the burst should saturate the encoder pool");
+			assertEquals(LOGINS, accepted.get() + rejected.get());
+			assertEquals(rejected.get(), bounded.getRejectedCount());
+		} finally {
+			bounded.shutdown();
+		}
+	}
+
+	// Sends the logins and the page requests to the request threads, returns the page latencies
+	private List<Long> runBurst(PasswordEncoder encoder, String hash, AtomicInteger accepted, AtomicInteger rejected)
+			throws Exception {
+		ExecutorService requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+		try {
+			List<Future<?>> logins = new ArrayList<>();
+			for (int i = 0; i < LOGINS; i++) {
+				logins.add(requestThreads.submit(() -> {
+					try {
+						assertTrue(encoder.matches(PASSWORD, hash));
+						accepted.incrementAndGet();
+					} catch (AuthenticationServiceException e) {
+						rejected.incrementAndGet();
+					}
+				}));
+			}
+
+			List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+			List<Future<?>> pages = new ArrayList<>();
+			for (int i = 0; i < PAGE_REQUESTS; i++) {
+				long submitted = System.nanoTime();
+				pages.add(requestThreads.submit(() -> {
+					// A page that waits a few milliseconds for the database
+					try {
+						Thread.sleep(5);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					latencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submitted));
+				}));
+				Thread.sleep(20);
+			}
+
+			for (Future<?> page : pages) {
+				page.get();
+			}
+			for (Future<?> login : logins) {
+				login.get();
+			}
+			return latencies;
+		} finally {
+			requestThreads.shutdownNow();
+		}
+	}
+
+	private static long p95(List<Long> latencies) {
+		List<Long> sorted = new ArrayList<>(latencies);
+		Collections.sort(sorted);
+		return sorted.get((int) Math.ceil(sorted.size() * 0.95) - 1);
+	}
+}
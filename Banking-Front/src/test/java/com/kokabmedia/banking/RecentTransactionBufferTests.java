@@ -0,0 +1,75 @@
+package com.kokabmedia.banking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.kokabmedia.cache.RecentTransactionBuffer;
+import com.kokabmedia.domain.AccountType;
+import com.kokabmedia.domain.LedgerEntry;
+
+/*
+ * Unit tests of the RecentTransactionBuffer, the newest first buffer behind the recent
+ * transactions of an account.
+ */
+class RecentTransactionBufferTests {
+
+	@Test
+	void keepsTheNewestEntriesFirst() {
+		RecentTransactionBuffer buffer = new RecentTransactionBuffer(3);
+		buffer.add(entry(1, 1000));
+		buffer.add(entry(2, 3000));
+		buffer.add(entry(3, 2000));
+		buffer.add(entry(4, 4000));
+		buffer.add(entry(5, 500));
+
+		assertEquals(List.of(4L, 2L, 3L), ids(buffer.snapshot(10)));
+	}
+
+	@Test
+	void ignoresAnEntryThatIsAlreadyBuffered() {
+		RecentTransactionBuffer buffer = new RecentTransactionBuffer(3);
+		buffer.add(entry(1, 1000));
+		buffer.add(entry(1, 1000));
+
+		assertEquals(List.of(1L), ids(buffer.snapshot(10)));
+	}
+
+	@Test
+	void limitsTheSnapshot() {
+		RecentTransactionBuffer buffer = new RecentTransactionBuffer(3);
+		buffer.add(entry(1, 1000));
+		buffer.add(entry(2, 2000));
+
+		assertEquals(List.of(2L), ids(buffer.snapshot(1)));
+		assertTrue(buffer.snapshot(0).isEmpty());
+		assertTrue(buffer.snapshot(-5).isEmpty());
+	}
+
+	@Test
+	void rethrowsAFailedLoadToTheWaitingReaders() {
+		RecentTransactionBuffer buffer = new RecentTransactionBuffer(3);
+		RuntimeException failure = new RuntimeException("database down");
+		buffer.markFailed(failure);
+
+		IllegalStateException thrown = assertThrows(IllegalStateException.class, buffer::awaitLoaded);
+		assertSame(failure, thrown.getCause());
+	}
+
+	private static LedgerEntry entry(long id, long time) {
+		return new LedgerEntry(AccountType.PRIMARY, 1L, id, new Date(time), "Deposit", "Account", "Finished", 10,
+				BigDecimal.TEN);
+	}
+
+	private static List<Long> ids(List<LedgerEntry> entries) {
+		return entries.stream().map(LedgerEntry::getId).collect(Collectors.toList());
+	}
+}
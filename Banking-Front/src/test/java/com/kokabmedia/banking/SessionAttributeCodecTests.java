@@ -0,0 +1,90 @@
+package com.kokabmedia.banking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import com.kokabmedia.domain.User;
+import com.kokabmedia.security.Authority;
+import com.kokabmedia.security.UserSnapshot;
+import com.kokabmedia.session.SessionAttributeCodec;
+
+/*
+ * Unit tests of the SessionAttributeCodec, the encoding of the session attributes in the
+ * shared session store.
+ */
+class SessionAttributeCodecTests {
+
+	private static final String SECURITY_CONTEXT = "SPRING_SECURITY_CONTEXT";
+
+	@Test
+	void readsBackTheCompactSecurityContext() {
+		Map<String, Object> decoded = SessionAttributeCodec.decode(SessionAttributeCodec.encode(attributes(true)));
+
+		UserSnapshot principal = principal(decoded);
+		assertEquals(Long.valueOf(42), principal.getUserId());
+		assertEquals("alice", principal.getUsername());
+		assertNull(principal.getPassword());
+		assertTrue(principal.isEnabled());
+		assertEquals(List.of("ROLE_USER", "ROLE_ADMIN"), principal.getAuthorities().stream()
+				.map(GrantedAuthority::getAuthority).collect(Collectors.toList()));
+		assertEquals("alice", SessionAttributeCodec.principalName(decoded));
+	}
+
+	@Test
+	void keepsADisabledPrincipalDisabled() {
+		Map<String, Object> decoded = SessionAttributeCodec.decode(SessionAttributeCodec.encode(attributes(false)));
+
+		assertFalse(principal(decoded).isEnabled());
+	}
+
+	@Test
+	void serializesTheOtherAttributes() {
+		Map<String, Object> decoded = SessionAttributeCodec.decode(SessionAttributeCodec.encode(attributes(true)));
+
+		assertEquals(3, decoded.size());
+		assertEquals("value", decoded.get("text"));
+		assertEquals(List.of(1, 2, 3), decoded.get("list"));
+	}
+
+	@Test
+	void readsNoAttributesFromAnEmptyColumn() {
+		assertTrue(SessionAttributeCodec.decode(null).isEmpty());
+		assertTrue(SessionAttributeCodec.decode(new byte[0]).isEmpty());
+		assertNull(SessionAttributeCodec.principalName(new HashMap<>()));
+	}
+
+	private static Map<String, Object> attributes(boolean enabled) {
+		User user = new User();
+		user.setUserId(42L);
+		user.setUsername("alice");
+		user.setPassword("$2a$12$hash");
+		user.setEnabled(enabled);
+		List<GrantedAuthority> authorities = List.of(Authority.of("ROLE_USER"), Authority.of("ROLE_ADMIN"));
+		UserSnapshot principal = UserSnapshot.of(user, authorities);
+
+		Map<String, Object> attributes = new HashMap<>();
+		attributes.put(SECURITY_CONTEXT,
+				new SecurityContextImpl(new UsernamePasswordAuthenticationToken(principal, null, authorities)));
+		attributes.put("text", "value");
+		attributes.put("list", new ArrayList<>(List.of(1, 2, 3)));
+		return attributes;
+	}
+
+	private static UserSnapshot principal(Map<String, Object> attributes) {
+		return (UserSnapshot) ((SecurityContext) attributes.get(SECURITY_CONTEXT)).getAuthentication().getPrincipal();
+	}
+}
@@ -0,0 +1,98 @@
+package com.kokabmedia.banking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.kokabmedia.session.SharedSession;
+import com.kokabmedia.session.SharedSessionRepository;
+
+/*
+ * Unit tests of the write decisions of the SharedSessionRepository: which save writes the
+ * attributes, which only moves the last access time and which writes nothing. The JDBC
+ * template is a mock, the sessions are read back from the local cache.
+ */
+class SharedSessionRepositoryTests {
+
+	private static final Duration TOUCH_INTERVAL = Duration.ofSeconds(60);
+
+	private SharedSessionRepository repository;
+
+	@BeforeEach
+	void createRepository() {
+		repository = new SharedSessionRepository(mock(JdbcTemplate.class), Duration.ofMinutes(30), TOUCH_INTERVAL, 100,
+				Duration.ofMinutes(1), 1000);
+	}
+
+	@Test
+	void writesANewSession() {
+		repository.save(repository.createSession());
+
+		assertEquals(1, repository.getAttributeWriteCount());
+		assertEquals(1, repository.getCachedSessionCount());
+	}
+
+	@Test
+	void skipsAReadWithinTheTouchInterval() {
+		String id = savedSession();
+
+		SharedSession session = repository.findById(id);
+		session.setLastAccessedTime(session.getLastAccessedTime().plusSeconds(10));
+		repository.save(session);
+
+		assertEquals(0, repository.getTouchWriteCount());
+		assertEquals(1, repository.getSkippedWriteCount());
+	}
+
+	@Test
+	void touchesTheSessionAfterTheTouchInterval() {
+		String id = savedSession();
+
+		SharedSession session = repository.findById(id);
+		session.setLastAccessedTime(session.getLastAccessedTime().plus(TOUCH_INTERVAL));
+		repository.save(session);
+
+		assertEquals(1, repository.getTouchWriteCount());
+		assertEquals(0, repository.getSkippedWriteCount());
+	}
+
+	@Test
+	void writesTheChangedAttributes() {
+		String id = savedSession();
+
+		SharedSession session = repository.findById(id);
+		session.setAttribute("cart", "item");
+		repository.save(session);
+
+		assertEquals(2, repository.getAttributeWriteCount());
+		assertEquals("item", repository.findById(id).getAttribute("cart"));
+	}
+
+	@Test
+	void keepsTheStoredAccessTimeOfASkippedWrite() {
+		String id = savedSession();
+		Instant stored = repository.findById(id).getLastAccessedTime();
+
+		SharedSession session = repository.findById(id);
+		session.setLastAccessedTime(stored.plusSeconds(10));
+		repository.save(session);
+
+		// The next read on any node sees the time in the database, not the skipped one
+		SharedSession reread = repository.findById(id);
+		assertNotNull(reread);
+		assertEquals(stored, reread.getLastAccessedTime());
+	}
+
+	private String savedSession() {
+		SharedSession session = repository.createSession();
+		repository.save(session);
+		return session.getId();
+	}
+}
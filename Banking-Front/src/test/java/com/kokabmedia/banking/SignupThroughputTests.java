@@ -0,0 +1,162 @@
+package com.kokabmedia.banking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.kokabmedia.domain.User;
+import com.kokabmedia.security.BoundedPasswordEncoder;
+import com.kokabmedia.security.RoleRegistry;
+import com.kokabmedia.security.UserRole;
+import com.kokabmedia.service.UserService;
+
+/*
+ * Benchmark of the signup pipeline: signups per second of the batched single transaction
+ * signup (UserService.save) next to the entity manager path of createUser, which saves
+ * the accounts, the user and the role link one by one. The password encoder is replaced
+ * by a mock so only the database work is measured, the cost of BCrypt is the subject of
+ * PasswordEncoderLoadTests.
+ *
+ * The users the benchmark signs up are deleted again after the run, with their accounts,
+ * role links and change log rows.
+ *
+ * The test needs a local MySQL database and only runs when its URL is given, for example
+ *
+ * mvn test -Dbanking.test.mysql.url=jdbc:mysql://localhost:3306/OnlineBanking
+ *          -Dbanking.test.mysql.user=root -Dbanking.test.mysql.password=password
+ *          -Dtest=SignupThroughputTests
+ */
+@EnabledIfSystemProperty(named = "banking.test.mysql.url", matches = ".+")
+@SpringBootTest(properties = {
+		"spring.datasource.url=${banking.test.mysql.url}",
+		"spring.datasource.username=${banking.test.mysql.user:root}",
+		"spring.datasource.password=${banking.test.mysql.password:}" })
+class SignupThroughputTests {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SignupThroughputTests.class);
+
+	private static final int SIGNUP_THREADS = 8;
+	private static final int SIGNUPS = 1000;
+
+	@MockBean
+	private BoundedPasswordEncoder passwordEncoder;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private RoleRegistry roleRegistry;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final String prefix = "signup-" + System.currentTimeMillis() + "-";
+
+	@BeforeEach
+	void encodeWithoutBCrypt() {
+		when(passwordEncoder.encode(any())).thenReturn("$2a$12$benchmarkbenchmarkbenchmarkbenchmarkbenchmarkbenchmark");
+	}
+
+	@AfterEach
+	void deleteBenchmarkUsers() {
+		List<Map<String, Object>> users = jdbcTemplate.queryForList(
+				"SELECT user_id, primary_account_id, savings_account_id FROM user WHERE username LIKE ?", prefix + "%");
+		if (users.isEmpty()) {
+			return;
+		}
+		NamedParameterJdbcTemplate namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+		MapSqlParameterSource ids = new MapSqlParameterSource()
+				.addValue("userIds", column(users, "user_id"))
+				.addValue("primaryAccountIds", column(users, "primary_account_id"))
+				.addValue("savingsAccountIds", column(users, "savings_account_id"));
+
+		namedParameterJdbcTemplate.update("DELETE FROM change_log WHERE entity_type = 'USER' AND entity_id IN (:userIds)", ids);
+		namedParameterJdbcTemplate.update("DELETE FROM user_role WHERE user_id IN (:userIds)", ids);
+		namedParameterJdbcTemplate.update("DELETE FROM user WHERE user_id IN (:userIds)", ids);
+		namedParameterJdbcTemplate.update("DELETE FROM primary_account WHERE id IN (:primaryAccountIds)", ids);
+		namedParameterJdbcTemplate.update("DELETE FROM savings_account WHERE id IN (:savingsAccountIds)", ids);
+	}
+
+	@Test
+	void signupsPerSecond() throws Exception {
+		roleRegistry.createRole("ROLE_USER");
+
+		double batched = run(prefix + "batched-", user -> userService.save(user));
+		double entityManager = run(prefix + "jpa-", user -> {
+			userService.createUser(user, Collections.singleton(new UserRole(user, roleRegistry.findByName("ROLE_USER"))));
+		});
+
+		LOG.info("Signups per second with {} threads: {} single transaction batched, {} entity manager", SIGNUP_THREADS,
+				Math.round(batched), Math.round(entityManager));
+
+		// Every batched signup has its two accounts and exactly one role
+		assertEquals(SIGNUPS, count("SELECT COUNT(*) FROM user u JOIN primary_account p ON p.id = u.primary_account_id "
+				+ "JOIN savings_account s ON s.id = u.savings_account_id WHERE u.username LIKE ?", prefix + "batched-%"));
+		assertEquals(SIGNUPS, count("SELECT COUNT(*) FROM user_role r JOIN user u ON u.user_id = r.user_id "
+				+ "WHERE u.username LIKE ?", prefix + "batched-%"));
+	}
+
+	// Runs the signups on the signup threads, returns the signups per second
+	private double run(String usernamePrefix, Signup signup) throws Exception {
+		ExecutorService signupThreads = Executors.newFixedThreadPool(SIGNUP_THREADS);
+		try {
+			List<Future<?>> signups = new ArrayList<>();
+			long start = System.nanoTime();
+			for (int i = 0; i < SIGNUPS; i++) {
+				User user = new User();
+				user.setUsername(usernamePrefix + i);
+				user.setPassword("password");
+				user.setFirstName("Signup");
+				user.setLastName("Benchmark");
+				user.setEmail(usernamePrefix + i + "@example.com");
+				signups.add(signupThreads.submit(() -> {
+					signup.signup(user);
+					assertNotNull(user.getPrimaryAccount());
+					return null;
+				}));
+			}
+			for (Future<?> future : signups) {
+				future.get();
+			}
+			return SIGNUPS / (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) / 1000.0);
+		} finally {
+			signupThreads.shutdownNow();
+		}
+	}
+
+	private static List<Object> column(List<Map<String, Object>> rows, String column) {
+		return rows.stream().map(row -> row.get(column)).collect(Collectors.toList());
+	}
+
+	private long count(String sql, String usernamePattern) {
+		return jdbcTemplate.queryForObject(sql, Long.class, usernamePattern);
+	}
+
+	private interface Signup {
+		void signup(User user) throws Exception;
+	}
+}
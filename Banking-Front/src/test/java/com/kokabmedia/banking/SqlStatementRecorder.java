@@ -0,0 +1,37 @@
+package com.kokabmedia.banking;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/*
+ * Records every SQL statement Hibernate prepares, so a test can count the queries of one
+ * request. Hibernate creates the inspector itself from the class name in the
+ * hibernate.session_factory.statement_inspector property, so the statements are kept in
+ * a static list.
+ */
+public class SqlStatementRecorder implements StatementInspector {
+
+	private static final List<String> STATEMENTS = new ArrayList<>();
+
+	@Override
+	public String inspect(String sql) {
+		synchronized (STATEMENTS) {
+			STATEMENTS.add(sql);
+		}
+		return sql;
+	}
+
+	public static void clear() {
+		synchronized (STATEMENTS) {
+			STATEMENTS.clear();
+		}
+	}
+
+	public static List<String> statements() {
+		synchronized (STATEMENTS) {
+			return new ArrayList<>(STATEMENTS);
+		}
+	}
+}
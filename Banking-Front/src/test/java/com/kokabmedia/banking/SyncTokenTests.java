@@ -0,0 +1,72 @@
+package com.kokabmedia.banking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.kokabmedia.domain.SyncToken;
+
+/*
+ * Unit tests of the SyncToken, the delta sync token that keeps the change log sequences
+ * that were not committed yet.
+ */
+class SyncTokenTests {
+
+	private static final long TIMEOUT = 300000;
+
+	@Test
+	void movesToTheLastChangeWithoutGaps() {
+		SyncToken next = new SyncToken(10).advance(List.of(11L, 12L, 13L), 1000, TIMEOUT);
+
+		assertEquals("13", next.toString());
+	}
+
+	@Test
+	void keepsTheSkippedSequencesAsGaps() {
+		SyncToken next = new SyncToken(10).advance(List.of(11L, 14L), 1000, TIMEOUT);
+
+		assertEquals(14, next.getSequence());
+		assertEquals(List.of(12L, 13L), new ArrayList<>(next.getGaps()));
+		assertEquals("14:12@1000,13@1000", next.toString());
+	}
+
+	@Test
+	void dropsAGapOnceItIsSeen() {
+		SyncToken token = SyncToken.parse("14:12@1000,13@1000");
+		SyncToken next = token.advance(List.of(13L, 15L), 2000, TIMEOUT);
+
+		assertEquals("15:12@1000", next.toString());
+	}
+
+	@Test
+	void dropsAGapAfterTheTimeout() {
+		SyncToken token = SyncToken.parse("14:12@1000");
+		SyncToken next = token.advance(List.of(), 1000 + TIMEOUT + 1, TIMEOUT);
+
+		assertEquals("14", next.toString());
+	}
+
+	@Test
+	void boundsTheNumberOfGaps() {
+		SyncToken next = new SyncToken(0).advance(List.of(1000000L), 1000, TIMEOUT);
+
+		assertEquals(1000000, next.getSequence());
+		assertEquals(SyncToken.MAX_GAPS, next.getGaps().size());
+	}
+
+	@Test
+	void readsPlainSequencesAndRejectsOtherText() {
+		assertEquals("42", SyncToken.parse("42").toString());
+		assertTrue(SyncToken.parse("42").getGaps().isEmpty());
+		assertNull(SyncToken.parse(null));
+		assertNull(SyncToken.parse(""));
+		assertNull(SyncToken.parse("abc"));
+		assertNull(SyncToken.parse("42:"));
+		assertNull(SyncToken.parse("42:50@1000"));
+	}
+}
@@ -0,0 +1,140 @@
+package com.kokabmedia.banking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.kokabmedia.partition.PartitionDdl;
+
+/*
+ * Checks with EXPLAIN that MySQL only reads the partitions of the date range of a history
+ * query on a table that is partitioned with PartitionDdl. The tests need a local MySQL
+ * database and only run when its URL is given, for example
+ *
+ * mvn test -Dbanking.test.mysql.url=jdbc:mysql://localhost:3306/OnlineBanking
+ *          -Dbanking.test.mysql.user=root -Dbanking.test.mysql.password=password
+ */
+@EnabledIfSystemProperty(named = "banking.test.mysql.url", matches = ".+")
+class TransactionPartitionPruningTests {
+
+	private static final String TABLE = "pruning_test_transaction";
+
+	// The shape of the SQL Hibernate generates for PrimaryTransactionDao.findLedger(accountId, from, to)
+	private static final String HISTORY_QUERY = "SELECT * FROM " + TABLE
+			+ " WHERE primary_account_id = ? AND `date` >= ? AND `date` < ? ORDER BY `date` ASC, id ASC";
+
+	private Connection connection;
+
+	@BeforeEach
+	void createPartitionedTable() throws SQLException {
+		connection = DriverManager.getConnection(System.getProperty("banking.test.mysql.url"),
+				System.getProperty("banking.test.mysql.user", "root"), System.getProperty("banking.test.mysql.password", ""));
+
+		dropTables();
+		execute("CREATE TABLE " + TABLE + " (id BIGINT NOT NULL, amount DOUBLE NOT NULL, available_balance DECIMAL(19,2), "
+				+ "`date` DATETIME(6) NOT NULL, description VARCHAR(255), status VARCHAR(255), type VARCHAR(255), "
+				+ "primary_account_id BIGINT, PRIMARY KEY (id), INDEX idx_pruning_test_account_date (primary_account_id, `date`))");
+		execute(PartitionDdl.partitionTable(TABLE, YearMonth.of(2021, 1), YearMonth.of(2021, 6)));
+
+		long id = 1;
+		for (LocalDate day = LocalDate.of(2021, 1, 1); day.isBefore(LocalDate.of(2021, 7, 1)); day = day.plusDays(3)) {
+			execute("INSERT INTO " + TABLE + " VALUES (" + id++ + ", 10, 100, '" + day + " 12:00:00', 'Deposit to Primary Account', "
+					+ "'Finished', 'Account', 1)");
+		}
+		execute("ANALYZE TABLE " + TABLE);
+	}
+
+	@AfterEach
+	void dropPartitionedTable() throws SQLException {
+		dropTables();
+		connection.close();
+	}
+
+	@Test
+	void historyOfOneMonthReadsOnePartition() throws SQLException {
+		assertEquals("p202103", explainPartitions(LocalDate.of(2021, 3, 1), LocalDate.of(2021, 4, 1)));
+	}
+
+	@Test
+	void historyOfAQuarterReadsThePartitionsOfTheQuarter() throws SQLException {
+		assertEquals("p202102,p202103,p202104", explainPartitions(LocalDate.of(2021, 2, 1), LocalDate.of(2021, 5, 1)));
+	}
+
+	@Test
+	void historyWithoutDatePredicateReadsEveryPartition() throws SQLException {
+		String partitions = explain("SELECT * FROM " + TABLE + " WHERE primary_account_id = 1");
+
+		assertTrue(partitions.contains("p202101"));
+		assertTrue(partitions.contains(PartitionDdl.MAX_PARTITION));
+	}
+
+	@Test
+	void addedPartitionsArePruned() throws SQLException {
+		execute(PartitionDdl.addPartitions(TABLE, Arrays.asList(YearMonth.of(2021, 7), YearMonth.of(2021, 8))));
+
+		assertEquals("p202108", explainPartitions(LocalDate.of(2021, 8, 1), LocalDate.of(2021, 9, 1)));
+	}
+
+	@Test
+	void detachedPartitionMovesItsRowsToItsOwnTable() throws SQLException {
+		for (String sql : PartitionDdl.detachPartition(TABLE, YearMonth.of(2021, 1))) {
+			execute(sql);
+		}
+
+		assertFalse(explain("SELECT * FROM " + TABLE).contains("p202101"));
+		assertTrue(count(PartitionDdl.detachedTable(TABLE, YearMonth.of(2021, 1))) > 0);
+	}
+
+	private String explainPartitions(LocalDate from, LocalDate to) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + HISTORY_QUERY)) {
+			statement.setLong(1, 1);
+			statement.setTimestamp(2, Timestamp.valueOf(from.atStartOfDay()));
+			statement.setTimestamp(3, Timestamp.valueOf(to.atStartOfDay()));
+			try (ResultSet result = statement.executeQuery()) {
+				result.next();
+				return result.getString("partitions");
+			}
+		}
+	}
+
+	private String explain(String sql) throws SQLException {
+		try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery("EXPLAIN " + sql)) {
+			result.next();
+			return result.getString("partitions");
+		}
+	}
+
+	private long count(String table) throws SQLException {
+		try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+			result.next();
+			return result.getLong(1);
+		}
+	}
+
+	private void dropTables() throws SQLException {
+		execute("DROP TABLE IF EXISTS " + TABLE);
+		execute("DROP TABLE IF EXISTS " + PartitionDdl.detachedTable(TABLE, YearMonth.of(2021, 1)));
+	}
+
+	private void execute(String sql) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package com.kokabmedia.banking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.kokabmedia.domain.CustomerSearchResult;
+import com.kokabmedia.search.TrigramIndex;
+
+/*
+ * Unit tests of the TrigramIndex, the in memory index of the admin customer search.
+ */
+class TrigramIndexTests {
+
+	@Test
+	void normalizesFieldsAndQueries() {
+		TrigramIndex index = new TrigramIndex();
+		index.put(customer(1, "jdoe", "Sean", "O'Brien", "j.doe@mail.com", "+1 555-0100"));
+
+		assertEquals(List.of("obrien", "5550100"), TrigramIndex.terms("  O'BRIEN   555-0100 "));
+		assertEquals(List.of(1L), ids(search(index, "obrien")));
+		assertEquals(List.of(1L), ids(search(index, "555-0100")));
+		assertEquals(List.of(1L), ids(search(index, "doe@mail")));
+		assertTrue(search(index, "smith").isEmpty());
+		assertTrue(search(index, "ab").isEmpty());
+	}
+
+	@Test
+	void ranksExactMatchesBeforePrefixesBeforeSubstrings() {
+		TrigramIndex index = new TrigramIndex();
+		index.put(customer(1, "annsmith", "Ann", "Nosmith", "ann@mail.com", null));
+		index.put(customer(2, "jsmith", "John", "Smithers", "john@mail.com", null));
+		index.put(customer(3, "smith", "Jane", "Smith", "jane@mail.com", null));
+
+		List<CustomerSearchResult> results = search(index, "smith");
+
+		assertEquals(List.of(3L, 2L, 1L), ids(results));
+		assertTrue(results.get(0).getScore() > results.get(1).getScore());
+		assertTrue(results.get(1).getScore() > results.get(2).getScore());
+	}
+
+	@Test
+	void requiresEveryTerm() {
+		TrigramIndex index = new TrigramIndex();
+		index.put(customer(1, "jsmith", "John", "Smith", "john@mail.com", null));
+		index.put(customer(2, "jsmythe", "John", "Smythe", "john.smythe@mail.com", null));
+
+		assertEquals(List.of(1L), ids(search(index, "john smith")));
+	}
+
+	@Test
+	void replacesACustomer() {
+		TrigramIndex index = new TrigramIndex();
+		index.put(customer(1, "jsmith", "John", "Smith", "john@mail.com", null));
+		index.put(customer(1, "jparker", "John", "Parker", "john@mail.com", null));
+
+		assertEquals(1, index.size());
+		assertTrue(search(index, "smith").isEmpty());
+		assertEquals(List.of(1L), ids(search(index, "parker")));
+		assertEquals(1, index.removedCount());
+	}
+
+	@Test
+	void compactsTheReplacedCustomers() {
+		TrigramIndex index = new TrigramIndex();
+		index.put(customer(1, "jsmith", "John", "Smith", "john@mail.com", null));
+		for (int i = 0; i < 1000; i++) {
+			index.put(customer(2, "user" + i, "Name" + i, "Changed", "user" + i + "@mail.com", null));
+		}
+
+		assertEquals(2, index.size());
+		assertTrue(index.removedCount() < 256);
+		assertEquals(List.of(1L), ids(search(index, "smith")));
+		assertEquals(List.of(2L), ids(search(index, "user999")));
+		assertTrue(search(index, "user500").isEmpty());
+
+		// Once compacted, only the trigrams of the live customers and of the few removed since are left
+		TrigramIndex fresh = new TrigramIndex();
+		fresh.put(customer(1, "jsmith", "John", "Smith", "john@mail.com", null));
+		fresh.put(customer(2, "user999", "Name999", "Changed", "user999@mail.com", null));
+		assertTrue(index.trigramCount() < fresh.trigramCount() + 1000);
+	}
+
+	private static List<CustomerSearchResult> search(TrigramIndex index, String query) {
+		return index.search(TrigramIndex.terms(query), 10, 1000);
+	}
+
+	private static CustomerSearchResult customer(long userId, String username, String firstName, String lastName,
+			String email, String phone) {
+		return new CustomerSearchResult(userId, username, firstName, lastName, email, phone, null, null, 0);
+	}
+
+	private static List<Long> ids(List<CustomerSearchResult> results) {
+		return results.stream().map(CustomerSearchResult::getUserId).collect(Collectors.toList());
+	}
+}
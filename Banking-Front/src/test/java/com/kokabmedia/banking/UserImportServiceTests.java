@@ -0,0 +1,131 @@
+package com.kokabmedia.banking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.kokabmedia.dao.UserInsertDao;
+import com.kokabmedia.domain.User;
+import com.kokabmedia.domain.UserImportReport;
+import com.kokabmedia.security.Role;
+import com.kokabmedia.security.RoleRegistry;
+import com.kokabmedia.service.UserService;
+import com.kokabmedia.service.UserServiceImpl.UserImportServiceImpl;
+
+/*
+ * Unit tests of the UserImportServiceImpl with the database replaced by mocks: the JDBC
+ * lookup of the existing users finds nobody and the UserInsertDao fails every insert that
+ * contains the user named "bad", like a row that breaks a constraint.
+ */
+class UserImportServiceTests {
+
+	private static final String CSV = "username,password,email,firstName\n"
+			+ "alice,secret,alice@example.com,\"Smith, Alice\"\n"
+			+ "bob,\"pa\"\"ss\",bob@example.com,\"Line one\nline two\"\n"
+			+ "bad,secret,bad@example.com,Bad\n"
+			+ "carol,secret,carol@example.com,Carol\n";
+
+	private final List<User> inserted = new ArrayList<>();
+
+	private UserImportServiceImpl userImportService;
+
+	@BeforeEach
+	void createService() {
+		Role role = new Role();
+		role.setRoleId(1);
+		RoleRegistry roleRegistry = mock(RoleRegistry.class);
+		when(roleRegistry.createRole("ROLE_USER")).thenReturn(role);
+
+		UserInsertDao userInsertDao = mock(UserInsertDao.class);
+		doAnswer(invocation -> {
+			List<User> users = invocation.getArgument(0);
+			if (users.stream().anyMatch(user -> user.getUsername().equals("bad"))) {
+				throw new DataIntegrityViolationException("Duplicate entry 'bad@example.com'");
+			}
+			inserted.addAll(users);
+			return null;
+		}).when(userInsertDao).insertUsers(anyList(), anyInt());
+
+		userImportService = new UserImportServiceImpl();
+		ReflectionTestUtils.setField(userImportService, "jdbcTemplate", mock(JdbcTemplate.class));
+		ReflectionTestUtils.setField(userImportService, "transactionManager", mock(PlatformTransactionManager.class));
+		ReflectionTestUtils.setField(userImportService, "userInsertDao", userInsertDao);
+		ReflectionTestUtils.setField(userImportService, "roleRegistry", roleRegistry);
+		ReflectionTestUtils.setField(userImportService, "userService", mock(UserService.class));
+		ReflectionTestUtils.setField(userImportService, "eventPublisher", mock(ApplicationEventPublisher.class));
+		ReflectionTestUtils.setField(userImportService, "chunkSize", 3);
+		ReflectionTestUtils.setField(userImportService, "hashThreads", 1);
+		ReflectionTestUtils.setField(userImportService, "bcryptStrength", 4);
+		ReflectionTestUtils.setField(userImportService, "maxReportedErrors", 100);
+		userImportService.init();
+	}
+
+	@AfterEach
+	void shutdownService() {
+		userImportService.shutdown();
+	}
+
+	@Test
+	void retriesAFailedChunkRowByRow() throws Exception {
+		UserImportReport report = userImportService.importUsers(new StringReader(CSV), 0);
+
+		assertTrue(report.isCompleted());
+		assertEquals(4, report.getRowsRead());
+		assertEquals(3, report.getImported());
+		assertEquals(1, report.getErrorCount());
+		assertEquals(5, report.getErrors().get(0).getLine());
+		assertEquals("bad", report.getErrors().get(0).getUsername());
+		assertEquals(6, report.getLastCommittedLine());
+		assertEquals(List.of("alice", "bob", "carol"), usernames(inserted));
+	}
+
+	@Test
+	void importsQuotedFields() throws Exception {
+		userImportService.importUsers(new StringReader(CSV), 0);
+
+		assertEquals("Smith, Alice", inserted.get(0).getFirstName());
+		assertEquals("Line one\nline two", inserted.get(1).getFirstName());
+		assertTrue(new BCryptPasswordEncoder().matches("pa\"ss", inserted.get(1).getPassword()));
+	}
+
+	@Test
+	void resumesFromTheStartLine() throws Exception {
+		UserImportReport report = userImportService.importUsers(new StringReader(CSV), 5);
+
+		assertEquals(5, report.getStartLine());
+		assertEquals(2, report.getRowsRead());
+		assertEquals(List.of("carol"), usernames(inserted));
+		assertEquals(6, report.getLastCommittedLine());
+	}
+
+	@Test
+	void rejectsAFileWithoutTheRequiredColumns() {
+		assertThrows(IllegalArgumentException.class,
+				() -> userImportService.importUsers(new StringReader("username,email\nalice,alice@example.com\n"), 0));
+		assertThrows(IllegalArgumentException.class, () -> userImportService.importUsers(new StringReader(""), 0));
+	}
+
+	private static List<String> usernames(List<User> users) {
+		return users.stream().map(User::getUsername).collect(Collectors.toList());
+	}
+}